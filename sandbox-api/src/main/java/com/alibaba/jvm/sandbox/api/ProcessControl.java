@@ -0,0 +1,55 @@
+package com.alibaba.jvm.sandbox.api;
+
+/**
+ * 流程控制器
+ * <p>
+ * 与{@link ProcessController}的静态方法不同，容器提供的流程控制器只记录流程控制的决定，
+ * 在事件处理完成之后才会改变代码的执行流程，不需要抛出{@link ProcessControlException}。
+ * 所以调用流程控制方法之后代码会继续执行，事件处理器应该在调用之后立即返回
+ * </p>
+ *
+ * @see com.alibaba.jvm.sandbox.api.listener.ProcessControlEventListener
+ * @since {@code sandbox-api:1.4.0}
+ */
+public interface ProcessControl {
+
+    /**
+     * 中断当前代码处理流程,并立即返回指定对象
+     *
+     * @param object 返回对象
+     * @throws ProcessControlException 通过流程控制异常完成流程控制时抛出
+     */
+    void returnImmediately(Object object) throws ProcessControlException;
+
+    /**
+     * 中断当前代码处理流程,并抛出指定异常
+     *
+     * @param throwable 指定异常
+     * @throws ProcessControlException 通过流程控制异常完成流程控制时抛出
+     */
+    void throwsImmediately(Throwable throwable) throws ProcessControlException;
+
+    /**
+     * 中断当前代码处理流程,并立即返回指定对象,且忽略后续所有事件处理
+     *
+     * @param object 返回对象
+     * @throws ProcessControlException 通过流程控制异常完成流程控制时抛出
+     */
+    void returnImmediatelyWithIgnoreProcessEvent(Object object) throws ProcessControlException;
+
+    /**
+     * 中断当前代码处理流程,并抛出指定异常,且忽略后续所有事件处理
+     *
+     * @param throwable 指定异常
+     * @throws ProcessControlException 通过流程控制异常完成流程控制时抛出
+     */
+    void throwsImmediatelyWithIgnoreProcessEvent(Throwable throwable) throws ProcessControlException;
+
+    /**
+     * 不干预当前处理流程,但忽略后续所有事件处理
+     *
+     * @throws ProcessControlException 通过流程控制异常完成流程控制时抛出
+     */
+    void noneImmediatelyWithIgnoreProcessEvent() throws ProcessControlException;
+
+}
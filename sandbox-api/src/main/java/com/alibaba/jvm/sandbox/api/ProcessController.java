@@ -86,4 +86,38 @@ public final class ProcessController {
         throw noneImmediatelyWithIgnoreProcessEventException;
     }
 
+    /**
+     * 通过抛出{@link ProcessControlException}完成流程控制的流程控制器
+     *
+     * @since {@code sandbox-api:1.4.0}
+     */
+    public static final ProcessControl EXCEPTION_PROCESS_CONTROL = new ProcessControl() {
+
+        @Override
+        public void returnImmediately(Object object) throws ProcessControlException {
+            ProcessController.returnImmediately(object);
+        }
+
+        @Override
+        public void throwsImmediately(Throwable throwable) throws ProcessControlException {
+            ProcessController.throwsImmediately(throwable);
+        }
+
+        @Override
+        public void returnImmediatelyWithIgnoreProcessEvent(Object object) throws ProcessControlException {
+            ProcessController.returnImmediatelyWithIgnoreProcessEvent(object);
+        }
+
+        @Override
+        public void throwsImmediatelyWithIgnoreProcessEvent(Throwable throwable) throws ProcessControlException {
+            ProcessController.throwsImmediatelyWithIgnoreProcessEvent(throwable);
+        }
+
+        @Override
+        public void noneImmediatelyWithIgnoreProcessEvent() throws ProcessControlException {
+            ProcessController.noneImmediatelyWithIgnoreProcessEvent();
+        }
+
+    };
+
 }
@@ -1,11 +1,19 @@
 package com.alibaba.jvm.sandbox.api.filter;
 
+import java.util.function.Supplier;
+
 /**
  * 增强过滤器V140实现，根据#292实现
+ * <p>
+ * 按需过滤时，如果代理目标也是{@link LazyExtFilter}则直接转交；否则只为需要过滤的类型获取类名数组，
+ * 不需要过滤的类型传入空数组
+ * </p>
  *
  * @since {@code sandbox-api:1.4.0}
  */
-public class ExtFilterImplByV140 implements ExtFilter {
+public class ExtFilterImplByV140 implements LazyExtFilter {
+
+    private static final String[] EMPTY_STRING_ARRAY = new String[0];
 
     private final ExtFilter target;
     private final boolean isHasInterfaceTypes;
@@ -13,6 +21,7 @@ public class ExtFilterImplByV140 implements ExtFilter {
     private final boolean isBehaviorHasWithParameterTypes;
     private final boolean isBehaviorHasExceptionTypes;
     private final boolean isBehaviorHasAnnotationTypes;
+    private final String classNamePrefix;
 
     /**
      * 增强过滤器V140实现
@@ -27,12 +36,35 @@ public class ExtFilterImplByV140 implements ExtFilter {
     public ExtFilterImplByV140(ExtFilter target,
                                boolean isHasInterfaceTypes, boolean isHasAnnotationTypes,
                                boolean isBehaviorHasWithParameterTypes, boolean isBehaviorHasExceptionTypes, boolean isBehaviorHasAnnotationTypes) {
+        this(target,
+                isHasInterfaceTypes, isHasAnnotationTypes,
+                isBehaviorHasWithParameterTypes, isBehaviorHasExceptionTypes, isBehaviorHasAnnotationTypes,
+                ""
+        );
+    }
+
+    /**
+     * 增强过滤器V140实现
+     *
+     * @param target                          代理增强过滤器目标
+     * @param isHasInterfaceTypes             是否需要过滤接口类型
+     * @param isHasAnnotationTypes            是否需要过滤注解类型
+     * @param isBehaviorHasWithParameterTypes 是否需要方法参数类型
+     * @param isBehaviorHasExceptionTypes     是否需要方法异常类型
+     * @param isBehaviorHasAnnotationTypes    是否需要方法注解类型
+     * @param classNamePrefix                 类名前缀，空字符串为没有前缀
+     */
+    public ExtFilterImplByV140(ExtFilter target,
+                               boolean isHasInterfaceTypes, boolean isHasAnnotationTypes,
+                               boolean isBehaviorHasWithParameterTypes, boolean isBehaviorHasExceptionTypes, boolean isBehaviorHasAnnotationTypes,
+                               String classNamePrefix) {
         this.target = target;
         this.isHasInterfaceTypes = isHasInterfaceTypes;
         this.isHasAnnotationTypes = isHasAnnotationTypes;
         this.isBehaviorHasWithParameterTypes = isBehaviorHasWithParameterTypes;
         this.isBehaviorHasExceptionTypes = isBehaviorHasExceptionTypes;
         this.isBehaviorHasAnnotationTypes = isBehaviorHasAnnotationTypes;
+        this.classNamePrefix = null == classNamePrefix ? "" : classNamePrefix;
     }
 
     /**
@@ -80,6 +112,19 @@ public class ExtFilterImplByV140 implements ExtFilter {
         return isBehaviorHasAnnotationTypes;
     }
 
+    /**
+     * 类名前缀
+     * <p>
+     * {@link #doClassFilter(int, String, String, String[], String[])}只会通过以此为前缀的类名，
+     * 容器可以据此跳过类名前缀不符的类。空字符串为没有前缀
+     * </p>
+     *
+     * @return 类名前缀
+     */
+    public String getClassNamePrefix() {
+        return classNamePrefix;
+    }
+
     @Override
     public boolean isIncludeSubClasses() {
         return target.isIncludeSubClasses();
@@ -120,4 +165,52 @@ public class ExtFilterImplByV140 implements ExtFilter {
         );
     }
 
+    @Override
+    public boolean doLazyClassFilter(final int access,
+                                     final String javaClassName,
+                                     final Supplier<String> superClassTypeJavaClassName,
+                                     final Supplier<String[]> interfaceTypeJavaClassNameArray,
+                                     final Supplier<String[]> annotationTypeJavaClassNameArray) {
+        if (target instanceof LazyExtFilter) {
+            return ((LazyExtFilter) target).doLazyClassFilter(
+                    access,
+                    javaClassName,
+                    superClassTypeJavaClassName,
+                    interfaceTypeJavaClassNameArray,
+                    annotationTypeJavaClassNameArray
+            );
+        }
+        return target.doClassFilter(
+                access,
+                javaClassName,
+                superClassTypeJavaClassName.get(),
+                isHasInterfaceTypes ? interfaceTypeJavaClassNameArray.get() : EMPTY_STRING_ARRAY,
+                isHasAnnotationTypes ? annotationTypeJavaClassNameArray.get() : EMPTY_STRING_ARRAY
+        );
+    }
+
+    @Override
+    public boolean doLazyMethodFilter(final int access,
+                                      final String javaMethodName,
+                                      final Supplier<String[]> parameterTypeJavaClassNameArray,
+                                      final Supplier<String[]> throwsTypeJavaClassNameArray,
+                                      final Supplier<String[]> annotationTypeJavaClassNameArray) {
+        if (target instanceof LazyExtFilter) {
+            return ((LazyExtFilter) target).doLazyMethodFilter(
+                    access,
+                    javaMethodName,
+                    parameterTypeJavaClassNameArray,
+                    throwsTypeJavaClassNameArray,
+                    annotationTypeJavaClassNameArray
+            );
+        }
+        return target.doMethodFilter(
+                access,
+                javaMethodName,
+                isBehaviorHasWithParameterTypes ? parameterTypeJavaClassNameArray.get() : EMPTY_STRING_ARRAY,
+                isBehaviorHasExceptionTypes ? throwsTypeJavaClassNameArray.get() : EMPTY_STRING_ARRAY,
+                isBehaviorHasAnnotationTypes ? annotationTypeJavaClassNameArray.get() : EMPTY_STRING_ARRAY
+        );
+    }
+
 }
@@ -0,0 +1,49 @@
+package com.alibaba.jvm.sandbox.api.filter;
+
+import java.util.function.Supplier;
+
+/**
+ * 按需获取类型名称的增强过滤器
+ * <p>
+ * {@link Filter}要求容器在过滤前准备好父类、接口、注解、参数和异常的类名数组，
+ * 大多数过滤器只看类名和方法名，这些数组都白白构造了。容器遇到LazyExtFilter时会改为调用这里的方法，
+ * 类型名称只在过滤器调用{@link Supplier#get()}时才会获取
+ * </p>
+ *
+ * @since {@code sandbox-api:1.4.0}
+ */
+public interface LazyExtFilter extends ExtFilter {
+
+    /**
+     * 过滤类，与{@link #doClassFilter(int, String, String, String[], String[])}一致，类型名称按需获取
+     *
+     * @param access                           访问标识
+     * @param javaClassName                    类名
+     * @param superClassTypeJavaClassName      父类类名
+     * @param interfaceTypeJavaClassNameArray  接口类名数组
+     * @param annotationTypeJavaClassNameArray 注解类名数组
+     * @return TRUE:类通过过滤;FALSE:类被过滤掉
+     */
+    boolean doLazyClassFilter(int access,
+                              String javaClassName,
+                              Supplier<String> superClassTypeJavaClassName,
+                              Supplier<String[]> interfaceTypeJavaClassNameArray,
+                              Supplier<String[]> annotationTypeJavaClassNameArray);
+
+    /**
+     * 过滤行为，与{@link #doMethodFilter(int, String, String[], String[], String[])}一致，类型名称按需获取
+     *
+     * @param access                           访问标识
+     * @param javaMethodName                   方法名
+     * @param parameterTypeJavaClassNameArray  参数类名数组
+     * @param throwsTypeJavaClassNameArray     异常类名数组
+     * @param annotationTypeJavaClassNameArray 注解类名数组
+     * @return TRUE:行为通过过滤;FALSE:行为被过滤掉
+     */
+    boolean doLazyMethodFilter(int access,
+                               String javaMethodName,
+                               Supplier<String[]> parameterTypeJavaClassNameArray,
+                               Supplier<String[]> throwsTypeJavaClassNameArray,
+                               Supplier<String[]> annotationTypeJavaClassNameArray);
+
+}
@@ -0,0 +1,38 @@
+package com.alibaba.jvm.sandbox.api.listener;
+
+import com.alibaba.jvm.sandbox.api.ProcessControl;
+import com.alibaba.jvm.sandbox.api.ProcessController;
+import com.alibaba.jvm.sandbox.api.event.Event;
+
+/**
+ * 可流程控制的事件监听器
+ * <p>
+ * 事件处理器通过容器传入的{@link ProcessControl}改变代码的执行流程，不需要抛出{@link com.alibaba.jvm.sandbox.api.ProcessControlException}，
+ * 适合需要高频立即返回或立即抛出的场景(如MOCK、故障注入)
+ * </p>
+ *
+ * @since {@code sandbox-api:1.4.0}
+ */
+public interface ProcessControlEventListener extends EventListener {
+
+    /**
+     * 触发事件处理
+     *
+     * @param event   触发事件
+     * @param control 流程控制器，只在本次事件处理中有效，不能被保存下来
+     * @throws Throwable 处理异常
+     */
+    void onEvent(Event event, ProcessControl control) throws Throwable;
+
+    /**
+     * 不支持流程控制器的调用方，将通过流程控制异常完成流程控制
+     *
+     * @param event 触发事件
+     * @throws Throwable 处理异常
+     */
+    @Override
+    default void onEvent(Event event) throws Throwable {
+        onEvent(event, ProcessController.EXCEPTION_PROCESS_CONTROL);
+    }
+
+}
@@ -2,19 +2,20 @@ package com.alibaba.jvm.sandbox.api.listener.ext;
 
 import com.alibaba.jvm.sandbox.api.event.Event;
 import com.alibaba.jvm.sandbox.api.filter.AccessFlags;
-import com.alibaba.jvm.sandbox.api.filter.ExtFilter;
 import com.alibaba.jvm.sandbox.api.filter.ExtFilterImplByV140;
 import com.alibaba.jvm.sandbox.api.filter.Filter;
+import com.alibaba.jvm.sandbox.api.filter.LazyExtFilter;
 import com.alibaba.jvm.sandbox.api.listener.EventListener;
 import com.alibaba.jvm.sandbox.api.resource.ModuleEventWatcher;
 import com.alibaba.jvm.sandbox.api.resource.ModuleEventWatcher.Progress;
 import com.alibaba.jvm.sandbox.api.util.GaArrayUtils;
-import com.alibaba.jvm.sandbox.api.util.GaStringUtils;
+import com.alibaba.jvm.sandbox.api.util.GaPattern;
 
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
 import static com.alibaba.jvm.sandbox.api.listener.ext.EventWatchBuilder.PatternType.WILDCARD;
@@ -339,24 +340,90 @@ public class EventWatchBuilder {
     }
 
     /**
-     * 模式匹配
+     * 编译模式字符串
+     * <p>
+     * 每个模式字符串在构建时只编译一次，匹配时不再重复编译
+     * </p>
      *
-     * @param string      目标字符串
      * @param pattern     模式字符串
      * @param patternType 匹配模式
-     * @return TRUE:匹配成功 / FALSE:匹配失败
+     * @return 预编译的模版
      */
-    private static boolean patternMatching(final String string,
-                                           final String pattern,
-                                           final PatternType patternType) {
+    private static GaPattern compile(final String pattern,
+                                     final PatternType patternType) {
         switch (patternType) {
-            case WILDCARD:
-                return GaStringUtils.matching(string, pattern);
             case REGEX:
-                return string.matches(pattern);
+                return GaPattern.regex(pattern);
+            case WILDCARD:
             default:
-                return false;
+                return GaPattern.wildcard(pattern);
+        }
+    }
+
+    /**
+     * 模式字符串的字面前缀
+     * <p>
+     * 匹配成功的字符串一定以字面前缀开头，无法确定时返回空字符串
+     * </p>
+     *
+     * @param pattern     模式字符串
+     * @param patternType 匹配模式
+     * @return 字面前缀
+     */
+    private static String toLiteralPrefix(final String pattern,
+                                          final PatternType patternType) {
+        if (null == pattern) {
+            return "";
+        }
+        final StringBuilder prefix = new StringBuilder();
+        switch (patternType) {
+            case WILDCARD: {
+                for (int index = 0; index < pattern.length(); index++) {
+                    char c = pattern.charAt(index);
+                    if (c == '*' || c == '?') {
+                        break;
+                    }
+                    if (c == '\\') {
+                        if (++index >= pattern.length()) {
+                            break;
+                        }
+                        c = pattern.charAt(index);
+                    }
+                    prefix.append(c);
+                }
+                break;
+            }
+            case REGEX: {
+
+                // 有分支时每个分支的前缀都可能不同
+                if (pattern.indexOf('|') >= 0) {
+                    return "";
+                }
+                for (int index = pattern.startsWith("^") ? 1 : 0; index < pattern.length(); index++) {
+                    char c = pattern.charAt(index);
+                    if (c == '\\') {
+
+                        // 只有转义的标点符号才是字面字符，\d、\Q等都不是
+                        if (index + 1 >= pattern.length()
+                                || Character.isLetterOrDigit(pattern.charAt(index + 1))) {
+                            break;
+                        }
+                        c = pattern.charAt(++index);
+                    } else if (".[]{}()*+?^$".indexOf(c) >= 0) {
+                        break;
+                    }
+
+                    // 后面有量词时这个字符不一定出现
+                    if (index + 1 < pattern.length()
+                            && "*+?{".indexOf(pattern.charAt(index + 1)) >= 0) {
+                        break;
+                    }
+                    prefix.append(c);
+                }
+                break;
+            }
         }
+        return prefix.toString();
     }
 
     /**
@@ -439,6 +506,7 @@ public class EventWatchBuilder {
     private class BuildingForClass implements IBuildingForClass {
 
         private final String pattern;
+        private final GaPattern compiledPattern;
         private int withAccess = 0;
         private boolean isIncludeSubClasses = false;
         private boolean isIncludeBootstrap = false;
@@ -453,6 +521,7 @@ public class EventWatchBuilder {
          */
         BuildingForClass(final String pattern) {
             this.pattern = pattern;
+            this.compiledPattern = compile(pattern, patternType);
         }
 
         @Override
@@ -547,7 +616,7 @@ public class EventWatchBuilder {
     private class BuildingForBehavior implements IBuildingForBehavior {
 
         private final BuildingForClass bfClass;
-        private final String pattern;
+        private final GaPattern compiledPattern;
         private int withAccess = 0;
         private final PatternGroupList withParameterTypes = new PatternGroupList();
         private final PatternGroupList hasExceptionTypes = new PatternGroupList();
@@ -556,7 +625,7 @@ public class EventWatchBuilder {
         BuildingForBehavior(final BuildingForClass bfClass,
                             final String pattern) {
             this.bfClass = bfClass;
-            this.pattern = pattern;
+            this.compiledPattern = compile(pattern, patternType);
         }
 
         @Override
@@ -716,15 +785,41 @@ public class EventWatchBuilder {
     private EventWatchCondition toEventWatchCondition() {
         final List<Filter> filters = new ArrayList<>();
         for (final BuildingForClass bfClass : bfClasses) {
-            final Filter filter = new Filter() {
+            final LazyExtFilter filter = new LazyExtFilter() {
+
+                @Override
+                public boolean isIncludeSubClasses() {
+                    return bfClass.isIncludeSubClasses;
+                }
+
+                @Override
+                public boolean isIncludeBootstrap() {
+                    return bfClass.isIncludeBootstrap;
+                }
+
                 @Override
                 public boolean doClassFilter(final int access,
                                              final String javaClassName,
                                              final String superClassTypeJavaClassName,
                                              final String[] interfaceTypeJavaClassNameArray,
                                              final String[] annotationTypeJavaClassNameArray) {
+                    return doLazyClassFilter(
+                            access,
+                            javaClassName,
+                            () -> superClassTypeJavaClassName,
+                            () -> interfaceTypeJavaClassNameArray,
+                            () -> annotationTypeJavaClassNameArray
+                    );
+                }
+
+                @Override
+                public boolean doLazyClassFilter(final int access,
+                                                 final String javaClassName,
+                                                 final Supplier<String> superClassTypeJavaClassName,
+                                                 final Supplier<String[]> interfaceTypeJavaClassNameArray,
+                                                 final Supplier<String[]> annotationTypeJavaClassNameArray) {
                     return (access & bfClass.withAccess) == bfClass.withAccess
-                            && patternMatching(javaClassName, bfClass.pattern, patternType)
+                            && bfClass.compiledPattern.matching(javaClassName)
                             && bfClass.hasInterfaceTypes.patternHas(interfaceTypeJavaClassNameArray)
                             && bfClass.hasAnnotationTypes.patternHas(annotationTypeJavaClassNameArray);
                 }
@@ -735,6 +830,21 @@ public class EventWatchBuilder {
                                               final String[] parameterTypeJavaClassNameArray,
                                               final String[] throwsTypeJavaClassNameArray,
                                               final String[] annotationTypeJavaClassNameArray) {
+                    return doLazyMethodFilter(
+                            access,
+                            javaMethodName,
+                            () -> parameterTypeJavaClassNameArray,
+                            () -> throwsTypeJavaClassNameArray,
+                            () -> annotationTypeJavaClassNameArray
+                    );
+                }
+
+                @Override
+                public boolean doLazyMethodFilter(final int access,
+                                                  final String javaMethodName,
+                                                  final Supplier<String[]> parameterTypeJavaClassNameArray,
+                                                  final Supplier<String[]> throwsTypeJavaClassNameArray,
+                                                  final Supplier<String[]> annotationTypeJavaClassNameArray) {
                     // nothing to matching
                     if (bfClass.bfBehaviors.isEmpty()) {
                         return false;
@@ -743,7 +853,7 @@ public class EventWatchBuilder {
                     // matching any behavior
                     for (final BuildingForBehavior bfBehavior : bfClass.bfBehaviors) {
                         if ((access & bfBehavior.withAccess) == bfBehavior.withAccess
-                                && patternMatching(javaMethodName, bfBehavior.pattern, patternType)
+                                && bfBehavior.compiledPattern.matching(javaMethodName)
                                 && bfBehavior.withParameterTypes.patternWith(parameterTypeJavaClassNameArray)
                                 && bfBehavior.hasExceptionTypes.patternHas(throwsTypeJavaClassNameArray)
                                 && bfBehavior.hasAnnotationTypes.patternHas(annotationTypeJavaClassNameArray)) {
@@ -761,13 +871,8 @@ public class EventWatchBuilder {
         return () -> filters.toArray(new Filter[0]);
     }
 
-    private Filter makeExtFilter(final Filter filter,
+    private Filter makeExtFilter(final LazyExtFilter extFilter,
                                  final BuildingForClass bfClass) {
-        final ExtFilter extFilter = ExtFilter.ExtFilterFactory.make(
-                filter,
-                bfClass.isIncludeSubClasses,
-                bfClass.isIncludeBootstrap
-        );
 
         boolean isBehaviorHasWithParameterTypes = false;
         boolean isBehaviorHasExceptionTypes = false;
@@ -790,7 +895,8 @@ public class EventWatchBuilder {
                 !bfClass.hasAnnotationTypes.isEmpty(),
                 isBehaviorHasWithParameterTypes,
                 isBehaviorHasExceptionTypes,
-                isBehaviorHasAnnotationTypes
+                isBehaviorHasAnnotationTypes,
+                toLiteralPrefix(bfClass.pattern, patternType)
         );
     }
 
@@ -902,13 +1008,14 @@ public class EventWatchBuilder {
         /*
          * 模式匹配With
          */
-        boolean patternWith(final String[] stringArray) {
+        boolean patternWith(final Supplier<String[]> stringArraySupplier) {
 
             // 如果模式匹配组为空，说明不参与本次匹配
             if (groups.isEmpty()) {
                 return true;
             }
 
+            final String[] stringArray = stringArraySupplier.get();
             for (final Group group : groups) {
                 if (group.matchingWith(stringArray)) {
                     return true;
@@ -920,13 +1027,14 @@ public class EventWatchBuilder {
         /*
          * 模式匹配Has
          */
-        boolean patternHas(final String[] stringArray) {
+        boolean patternHas(final Supplier<String[]> stringArraySupplier) {
 
             // 如果模式匹配组为空，说明不参与本次匹配
             if (groups.isEmpty()) {
                 return true;
             }
 
+            final String[] stringArray = stringArraySupplier.get();
             for (final Group group : groups) {
                 if (group.matchingHas(stringArray)) {
                     return true;
@@ -942,24 +1050,26 @@ public class EventWatchBuilder {
      */
     private class Group {
 
-        final String[] patternArray;
+        final GaPattern[] patternArray;
 
         Group(String[] patternArray) {
-            this.patternArray = GaArrayUtils.isEmpty(patternArray)
-                    ? new String[0]
-                    : patternArray;
+            final int length = GaArrayUtils.getLength(patternArray);
+            this.patternArray = new GaPattern[length];
+            for (int index = 0; index < length; index++) {
+                this.patternArray[index] = compile(patternArray[index], patternType);
+            }
         }
 
         /*
          * stringArray中任意字符串能匹配上匹配模式
          */
         boolean anyMatching(final String[] stringArray,
-                            final String pattern) {
+                            final GaPattern pattern) {
             if (GaArrayUtils.isEmpty(stringArray)) {
                 return false;
             }
             for (final String string : stringArray) {
-                if (patternMatching(string, pattern, patternType)) {
+                if (pattern.matching(string)) {
                     return true;
                 }
             }
@@ -972,7 +1082,7 @@ public class EventWatchBuilder {
          */
         boolean matchingHas(final String[] stringArray) {
 
-            for (final String pattern : patternArray) {
+            for (final GaPattern pattern : patternArray) {
                 if (anyMatching(stringArray, pattern)) {
                     continue;
                 }
@@ -999,7 +1109,7 @@ public class EventWatchBuilder {
             }
             // 长度相同则逐个位置比较，只要有一个位置不符，则判定不通过
             for (int index = 0; index < length; index++) {
-                if (!patternMatching(stringArray[index], patternArray[index], patternType)) {
+                if (!patternArray[index].matching(stringArray[index])) {
                     return false;
                 }
             }
@@ -5,6 +5,9 @@ import com.alibaba.jvm.sandbox.api.filter.Filter;
 import com.alibaba.jvm.sandbox.api.listener.EventListener;
 import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchCondition;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
 /**
  * 事件观察者
  *
@@ -68,6 +71,53 @@ public interface ModuleEventWatcher {
      */
     void delete(int watcherId);
 
+    /**
+     * 异步观察事件
+     * <p>
+     * 和{@link #watch(EventWatchCondition, EventListener, Progress, Event.Type...)}一样，
+     * 但类的重新渲染由沙箱在后台按限流策略完成，调用方不需要等待
+     * </p>
+     *
+     * @param condition 事件观察条件，只有符合条件的类/方法才会被观察
+     * @param listener  事件监听器
+     *                  观察到的事件将会告知此事件监听器
+     * @param progress  观察渲染进度报告
+     * @param eventType 观察事件类型
+     * @return {@code watchId}的Future，所有命中的类都完成渲染后返回
+     * @since {@code sandbox-api:1.4.0}
+     */
+    default Future<Integer> watchAsync(EventWatchCondition condition, EventListener listener, Progress progress, Event.Type... eventType) {
+        final CompletableFuture<Integer> future = new CompletableFuture<>();
+        try {
+            future.complete(watch(condition, listener, progress, eventType));
+        } catch (Throwable cause) {
+            future.completeExceptionally(cause);
+        }
+        return future;
+    }
+
+    /**
+     * 异步删除观察事件
+     * <p>
+     * 和{@link #delete(int, Progress)}一样，但类的重新渲染由沙箱在后台按限流策略完成，调用方不需要等待
+     * </p>
+     *
+     * @param watcherId {@code watcherId}观察唯一编号
+     * @param progress  清除观察渲染进度报告
+     * @return 所有类都完成还原后返回的Future
+     * @since {@code sandbox-api:1.4.0}
+     */
+    default Future<Void> deleteAsync(int watcherId, Progress progress) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            delete(watcherId, progress);
+            future.complete(null);
+        } catch (Throwable cause) {
+            future.completeExceptionally(cause);
+        }
+        return future;
+    }
+
     /**
      * 观察事件
      * <p>
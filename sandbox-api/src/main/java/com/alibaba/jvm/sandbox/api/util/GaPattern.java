@@ -0,0 +1,340 @@
+package com.alibaba.jvm.sandbox.api.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 预编译的匹配模版
+ * <p>
+ * 模版只编译一次，之后可以反复匹配。编译时会识别出字面量、前缀和任意匹配这些简单模版，
+ * 匹配时直接用{@link String#equals(Object)}、{@link String#startsWith(String)}完成；
+ * 通配符模版按星号切分成片段逐段匹配，不会回溯；正则表达式模版缓存编译好的{@link Pattern}
+ * </p>
+ *
+ * @since {@code sandbox-api:1.4.0}
+ */
+public abstract class GaPattern {
+
+    /**
+     * 匹配目标字符串
+     *
+     * @param string 目标字符串
+     * @return TRUE:匹配成功 / FALSE:匹配失败
+     */
+    public abstract boolean matching(String string);
+
+    /**
+     * 编译通配符模版，匹配规则与{@link GaStringUtils#matching(String, String)}一致
+     *
+     * @param wildcard 通配符模版
+     * @return 预编译的模版
+     */
+    public static GaPattern wildcard(final String wildcard) {
+        if (null == wildcard) {
+            return NONE;
+        }
+
+        // 按星号切分成片段，片段中的问号匹配任意一个字符
+        final List<char[]> segments = new ArrayList<>();
+        final List<boolean[]> anyMasks = new ArrayList<>();
+        final StringBuilder segment = new StringBuilder();
+        final StringBuilder anyMask = new StringBuilder();
+        boolean hasAny = false;
+        boolean isStartWithStar = false;
+        boolean isEndWithStar = false;
+        for (int index = 0; index < wildcard.length(); index++) {
+            char c = wildcard.charAt(index);
+            if (c == '*') {
+                if (segment.length() > 0) {
+                    segments.add(segment.toString().toCharArray());
+                    anyMasks.add(toAnyMask(anyMask));
+                    segment.setLength(0);
+                    anyMask.setLength(0);
+                } else if (segments.isEmpty()) {
+                    isStartWithStar = true;
+                }
+                isEndWithStar = true;
+                continue;
+            }
+            isEndWithStar = false;
+            if (c == '\\') {
+
+                // 末尾的转义符不能匹配任何字符串
+                if (++index >= wildcard.length()) {
+                    return NONE;
+                }
+                c = wildcard.charAt(index);
+                anyMask.append('0');
+            } else if (c == '?') {
+                hasAny = true;
+                anyMask.append('1');
+            } else {
+                anyMask.append('0');
+            }
+            segment.append(c);
+        }
+        if (!isEndWithStar) {
+            segments.add(segment.toString().toCharArray());
+            anyMasks.add(toAnyMask(anyMask));
+        }
+
+        // 全是星号
+        if (isStartWithStar && isEndWithStar && segments.isEmpty()) {
+            return ANY;
+        }
+
+        // 没有星号和问号的是字面量，只有末尾有星号的是前缀
+        if (!hasAny && !isStartWithStar && segments.size() == 1) {
+            final String literal = new String(segments.get(0));
+            return isEndWithStar
+                    ? new PrefixPattern(literal)
+                    : new LiteralPattern(literal);
+        }
+
+        return new WildcardPattern(
+                segments.toArray(new char[0][]),
+                anyMasks.toArray(new boolean[0][]),
+                isStartWithStar,
+                isEndWithStar
+        );
+    }
+
+    private static boolean[] toAnyMask(final CharSequence anyMask) {
+        final boolean[] mask = new boolean[anyMask.length()];
+        for (int index = 0; index < mask.length; index++) {
+            mask[index] = anyMask.charAt(index) == '1';
+        }
+        return mask;
+    }
+
+    /**
+     * 编译正则表达式模版，匹配规则与{@link String#matches(String)}一致
+     *
+     * @param regex 正则表达式模版
+     * @return 预编译的模版
+     */
+    public static GaPattern regex(final String regex) {
+        if (null == regex) {
+            return NONE;
+        }
+        if (".*".equals(regex)) {
+            return ANY;
+        }
+
+        // 识别由字面字符组成的正则表达式，以及字面字符后跟".*"的正则表达式
+        final StringBuilder literal = new StringBuilder();
+        int index = 0;
+        while (index < regex.length()) {
+            final char c = regex.charAt(index);
+            if (c == '\\') {
+                if (index + 1 >= regex.length()) {
+                    break;
+                }
+                final char next = regex.charAt(index + 1);
+
+                // \Q...\E之间都是字面字符
+                if (next == 'Q') {
+                    final int end = regex.indexOf("\\E", index + 2);
+                    if (end < 0) {
+                        literal.append(regex, index + 2, regex.length());
+                        index = regex.length();
+                    } else {
+                        literal.append(regex, index + 2, end);
+                        index = end + 2;
+                    }
+                    continue;
+                }
+
+                // 只有转义的标点符号才是字面字符，\d、\w等都不是
+                if (Character.isLetterOrDigit(next)) {
+                    break;
+                }
+                literal.append(next);
+                index += 2;
+                continue;
+            }
+            if (".[]{}()*+?^$|".indexOf(c) >= 0) {
+                break;
+            }
+            literal.append(c);
+            index++;
+        }
+        if (index == regex.length()) {
+            return new LiteralPattern(literal.toString());
+        }
+        if (index == regex.length() - 2
+                && regex.endsWith(".*")) {
+            return new PrefixPattern(literal.toString());
+        }
+        return new RegexPattern(Pattern.compile(regex));
+    }
+
+    // 不匹配任何字符串
+    private static final GaPattern NONE = new GaPattern() {
+        @Override
+        public boolean matching(final String string) {
+            return false;
+        }
+    };
+
+    // 匹配任意字符串
+    private static final GaPattern ANY = new GaPattern() {
+        @Override
+        public boolean matching(final String string) {
+            return null != string;
+        }
+    };
+
+    /**
+     * 字面量模版
+     */
+    private static class LiteralPattern extends GaPattern {
+
+        private final String literal;
+
+        LiteralPattern(final String literal) {
+            this.literal = literal;
+        }
+
+        @Override
+        public boolean matching(final String string) {
+            return literal.equals(string);
+        }
+
+    }
+
+    /**
+     * 前缀模版
+     */
+    private static class PrefixPattern extends GaPattern {
+
+        private final String prefix;
+
+        PrefixPattern(final String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public boolean matching(final String string) {
+            return null != string
+                    && string.startsWith(prefix);
+        }
+
+    }
+
+    /**
+     * 正则表达式模版
+     */
+    private static class RegexPattern extends GaPattern {
+
+        private final Pattern pattern;
+
+        RegexPattern(final Pattern pattern) {
+            this.pattern = pattern;
+        }
+
+        @Override
+        public boolean matching(final String string) {
+            return null != string
+                    && pattern.matcher(string).matches();
+        }
+
+    }
+
+    /**
+     * 通配符模版
+     * <p>
+     * 星号之间的片段只含有字面字符和问号。首尾片段分别固定匹配在开头和结尾，
+     * 中间的片段依次取最左边的匹配位置，最左匹配总能给后面的片段留下最多的空间，所以不需要回溯
+     * </p>
+     */
+    private static class WildcardPattern extends GaPattern {
+
+        private final char[][] segments;
+        private final boolean[][] anyMasks;
+        private final boolean isStartWithStar;
+        private final boolean isEndWithStar;
+        private final int minLength;
+
+        WildcardPattern(final char[][] segments,
+                        final boolean[][] anyMasks,
+                        final boolean isStartWithStar,
+                        final boolean isEndWithStar) {
+            this.segments = segments;
+            this.anyMasks = anyMasks;
+            this.isStartWithStar = isStartWithStar;
+            this.isEndWithStar = isEndWithStar;
+            int minLength = 0;
+            for (final char[] segment : segments) {
+                minLength += segment.length;
+            }
+            this.minLength = minLength;
+        }
+
+        // 片段是否能在string的offset位置匹配
+        private boolean isSegmentMatching(final String string, final int offset, final int segmentIndex) {
+            final char[] segment = segments[segmentIndex];
+            final boolean[] anyMask = anyMasks[segmentIndex];
+            for (int index = 0; index < segment.length; index++) {
+                if (!anyMask[index] && segment[index] != string.charAt(offset + index)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean matching(final String string) {
+            if (null == string) {
+                return false;
+            }
+            final int length = string.length();
+            if (length < minLength) {
+                return false;
+            }
+
+            // 没有星号时整体匹配
+            if (!isStartWithStar && !isEndWithStar && segments.length == 1) {
+                return length == minLength
+                        && isSegmentMatching(string, 0, 0);
+            }
+
+            int first = 0;
+            int last = segments.length - 1;
+            int begin = 0;
+            int end = length;
+            if (!isStartWithStar) {
+                if (!isSegmentMatching(string, 0, first)) {
+                    return false;
+                }
+                begin = segments[first++].length;
+            }
+            if (!isEndWithStar) {
+                end = length - segments[last].length;
+                if (end < begin || !isSegmentMatching(string, end, last--)) {
+                    return false;
+                }
+            }
+
+            // 中间的片段在[begin,end)中依次取最左匹配
+            for (int segmentIndex = first; segmentIndex <= last; segmentIndex++) {
+                final int segmentLength = segments[segmentIndex].length;
+                boolean isFound = false;
+                for (int offset = begin; offset + segmentLength <= end; offset++) {
+                    if (isSegmentMatching(string, offset, segmentIndex)) {
+                        begin = offset + segmentLength;
+                        isFound = true;
+                        break;
+                    }
+                }
+                if (!isFound) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+}
@@ -2,6 +2,7 @@ package com.alibaba.jvm.sandbox.qatest.api;
 
 import com.alibaba.jvm.sandbox.api.event.Event;
 import com.alibaba.jvm.sandbox.api.filter.AccessFlags;
+import com.alibaba.jvm.sandbox.api.filter.ExtFilterImplByV140;
 import com.alibaba.jvm.sandbox.api.filter.Filter;
 import com.alibaba.jvm.sandbox.api.listener.ext.AdviceListener;
 import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchBuilder;
@@ -11,6 +12,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import static com.alibaba.jvm.sandbox.api.listener.ext.EventWatchBuilder.PatternType.REGEX;
+import static com.alibaba.jvm.sandbox.api.listener.ext.EventWatchBuilder.PatternType.WILDCARD;
 
 public class EventWatchBuilderTestCase {
 
@@ -173,4 +175,36 @@ public class EventWatchBuilderTestCase {
 
     }
 
+    private static String classNamePrefix(final EventWatchBuilder.PatternType patternType,
+                                          final String pattern) {
+        final MockForBuilderModuleEventWatcher mockForBuilderModuleEventWatcher
+                = new MockForBuilderModuleEventWatcher();
+        new EventWatchBuilder(mockForBuilderModuleEventWatcher, patternType)
+                .onClass(pattern)
+                .onAnyBehavior()
+                .onWatch(new AdviceListener());
+        return ((ExtFilterImplByV140) mockForBuilderModuleEventWatcher.getEventWatchCondition().getOrFilterArray()[0])
+                .getClassNamePrefix();
+    }
+
+    @Test
+    public void test$$EventWatchBuilder$$classNamePrefix$$wildcard() {
+        Assert.assertEquals("com.foo.", classNamePrefix(WILDCARD, "com.foo.*"));
+        Assert.assertEquals("com.foo.Bar", classNamePrefix(WILDCARD, "com.foo.Bar"));
+        Assert.assertEquals("com.foo.B", classNamePrefix(WILDCARD, "com.foo.B?r"));
+        Assert.assertEquals("com.foo.*Bar", classNamePrefix(WILDCARD, "com.foo.\\*Bar*"));
+        Assert.assertEquals("", classNamePrefix(WILDCARD, "*Bar"));
+    }
+
+    @Test
+    public void test$$EventWatchBuilder$$classNamePrefix$$regex() {
+        Assert.assertEquals("com.foo.", classNamePrefix(REGEX, "com\\.foo\\..*"));
+        Assert.assertEquals("com.foo.Bar$", classNamePrefix(REGEX, "^com\\.foo\\.Bar\\$\\d+"));
+        Assert.assertEquals("com.foo.Ba", classNamePrefix(REGEX, "com\\.foo\\.Bar?"));
+        Assert.assertEquals("com", classNamePrefix(REGEX, "com.foo"));
+        Assert.assertEquals("", classNamePrefix(REGEX, "com\\.foo|org\\.bar"));
+        Assert.assertEquals("", classNamePrefix(REGEX, "(?i)com\\.foo"));
+        Assert.assertEquals("", classNamePrefix(REGEX, "[a-z]+\\.Foo"));
+    }
+
 }
@@ -0,0 +1,67 @@
+package com.alibaba.jvm.sandbox.qatest.api.util;
+
+import com.alibaba.jvm.sandbox.api.util.GaPattern;
+import com.alibaba.jvm.sandbox.api.util.GaStringUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.regex.Pattern;
+
+public class GaPatternTests {
+
+    private static final String[] STRINGS = new String[]{
+            "", "a", "foo", "fooMatching", "foo*bar", "f?o", "java.lang.String",
+            "com.alibaba.jvm.sandbox.Foo$Bar", "abcabc", "aaa", "abab", "toString", "<init>"
+    };
+
+    @Test
+    public void testWildcardSameAsGaStringUtils() {
+        final String[] wildcards = new String[]{
+                "", "*", "**", "***", "?", "??", "*?", "?*", "foo", "foo*", "*foo", "*foo*", "f?o",
+                "f*o", "*o*o*", "fool\\*ing", "foo\\*bar", "f\\?o", "\\*", "a*a", "a*b*c", "*a*b*", "ab*ab",
+                "java.lang.*", "*String", "com.alibaba.*$Bar", "to?tring", "<init>", "a\\", "*a\\", "abc*abc", "*?*a"
+        };
+        for (final String wildcard : wildcards) {
+            final GaPattern pattern = GaPattern.wildcard(wildcard);
+            for (final String string : STRINGS) {
+                Assert.assertEquals(
+                        "\"" + string + "\" matching \"" + wildcard + "\"",
+                        GaStringUtils.matching(string, wildcard),
+                        pattern.matching(string)
+                );
+            }
+            Assert.assertFalse(pattern.matching(null));
+        }
+        Assert.assertFalse(GaPattern.wildcard(null).matching("foo"));
+    }
+
+    @Test
+    public void testRegexSameAsStringMatches() {
+        final String[] regexes = new String[]{
+                "", ".*", "foo", "foo.*", "fo+", "java\\.lang\\..*", "java\\.lang\\.String", Pattern.quote("f?o"),
+                Pattern.quote("java.lang") + ".*", "com\\.alibaba\\..*\\$Bar", "(foo|abab)", "a{3}", "\\w+", "to\\w+g", "\\<init\\>"
+        };
+        for (final String regex : regexes) {
+            final GaPattern pattern = GaPattern.regex(regex);
+            for (final String string : STRINGS) {
+                Assert.assertEquals(
+                        "\"" + string + "\" matches \"" + regex + "\"",
+                        string.matches(regex),
+                        pattern.matching(string)
+                );
+            }
+        }
+        Assert.assertFalse(GaPattern.regex(null).matching("foo"));
+    }
+
+    @Test(timeout = 5000L)
+    public void testWildcardNoBacktracking() {
+        final StringBuilder string = new StringBuilder();
+        for (int index = 0; index < 10000; index++) {
+            string.append('a');
+        }
+        Assert.assertFalse(GaPattern.wildcard("*a*a*a*a*a*a*a*a*a*a*b*").matching(string.toString()));
+        Assert.assertTrue(GaPattern.wildcard("*a*a*a*a*a*a*a*a*a*a*").matching(string.toString()));
+    }
+
+}
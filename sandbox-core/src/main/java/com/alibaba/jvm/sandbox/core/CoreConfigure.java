@@ -38,6 +38,10 @@ public class CoreConfigure {
 
     private static final String KEY_UNSAFE_ENABLE = "unsafe.enable";
     private static final String KEY_NATIVE_SUPPORTED = "native.supported";
+    private static final String KEY_RETRANSFORM_BATCH_SIZE = "retransform.batch_size";
+    private static final int DEFAULT_VAL_RETRANSFORM_BATCH_SIZE = 64;
+    private static final String KEY_RETRANSFORM_MAX_CLASSES_PER_SECOND = "retransform.max_classes_per_second";
+    private static final String KEY_RETRANSFORM_MAX_PAUSE_MS_PER_SECOND = "retransform.max_pause_ms_per_second";
 
     // 受保护key数组，在保护key范围之内，以用户传递的配置为准，系统配置不允许覆盖
     private static final String[] PROTECT_KEY_ARRAY = {KEY_NAMESPACE, KEY_SANDBOX_HOME, KEY_LAUNCH_MODE, KEY_SERVER_IP, KEY_SERVER_PORT, KEY_SERVER_CHARSET};
@@ -288,6 +292,33 @@ public class CoreConfigure {
         return BooleanUtils.toBoolean(featureMap.get(KEY_UNSAFE_ENABLE));
     }
 
+    /**
+     * 获取每批重新形变的类个数
+     *
+     * @return retransform.batch_size
+     */
+    public int getReTransformBatchSize() {
+        return NumberUtils.toInt(featureMap.get(KEY_RETRANSFORM_BATCH_SIZE), DEFAULT_VAL_RETRANSFORM_BATCH_SIZE);
+    }
+
+    /**
+     * 获取每秒最多重新形变的类个数，0为不限制
+     *
+     * @return retransform.max_classes_per_second
+     */
+    public int getReTransformMaxClassesPerSecond() {
+        return NumberUtils.toInt(featureMap.get(KEY_RETRANSFORM_MAX_CLASSES_PER_SECOND), 0);
+    }
+
+    /**
+     * 获取每秒最多的重新形变耗时(毫秒)，0为不限制
+     *
+     * @return retransform.max_pause_ms_per_second
+     */
+    public long getReTransformMaxPauseMillisPerSecond() {
+        return NumberUtils.toLong(featureMap.get(KEY_RETRANSFORM_MAX_PAUSE_MS_PER_SECOND), 0L);
+    }
+
     /**
      * 获取沙箱安装目录
      *
@@ -9,6 +9,7 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.lang.ref.WeakReference;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 沙箱模块内核封装对象
@@ -31,9 +32,9 @@ public class CoreModule {
     // 模块
     private final Module module;
 
-    // 模块的类转换器
+    // 模块的类转换器，异步观察时会在形变调度器的线程中修改
     private final Set<SandboxClassFileTransformer> sandboxClassFileTransformers
-            = new LinkedHashSet<>();
+            = ConcurrentHashMap.newKeySet();
 
     // 模块所持有的可释放资源
     private final List<ReleaseResource<?>> releaseResources
@@ -26,10 +26,18 @@ public class JvmSandbox {
     static {
         earlyLoadSandboxClassNameList.add("com.alibaba.jvm.sandbox.core.util.SandboxClassUtils");
         earlyLoadSandboxClassNameList.add("com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureImplByAsm");
+        earlyLoadSandboxClassNameList.add("com.alibaba.jvm.sandbox.core.util.ClassLoaderCache");
+        earlyLoadSandboxClassNameList.add("com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureCache");
+        earlyLoadSandboxClassNameList.add("com.alibaba.jvm.sandbox.core.util.CommonSuperClassCache");
+        earlyLoadSandboxClassNameList.add("com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassHierarchyCache");
+        earlyLoadSandboxClassNameList.add("com.alibaba.jvm.sandbox.core.manager.impl.ClassStructureMemo");
+        earlyLoadSandboxClassNameList.add("com.alibaba.jvm.sandbox.core.manager.impl.NamespaceClassFileTransformer");
+        earlyLoadSandboxClassNameList.add("com.alibaba.jvm.sandbox.core.enhance.EventWeaving");
         earlyLoadSandboxClassNameList.add("com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler");
     }
 
     private final CoreConfigure cfg;
+    private final DefaultCoreLoadedClassDataSource classDataSource;
     private final CoreModuleManager coreModuleManager;
 
     // 判断是否支持native
@@ -53,10 +61,11 @@ public class JvmSandbox {
         // 是否支持Native方法增强
         cfg.setNativeSupported(isNativeSupported(inst));
 
+        this.classDataSource = new DefaultCoreLoadedClassDataSource(inst, cfg.isEnableUnsafe(), cfg.isNativeSupported());
         this.coreModuleManager = SandboxProtector.instance.protectProxy(CoreModuleManager.class, new DefaultCoreModuleManager(
                 cfg,
                 inst,
-                new DefaultCoreLoadedClassDataSource(inst, cfg.isEnableUnsafe(), cfg.isNativeSupported()),
+                classDataSource,
                 new DefaultProviderManager(cfg)
         ));
         init();
@@ -97,6 +106,9 @@ public class JvmSandbox {
         // 卸载所有的模块
         coreModuleManager.unloadAll();
 
+        // 清理已加载类数据源
+        classDataSource.destroy();
+
         // 清理Spy
         SpyUtils.clean(cfg.getNamespace());
 
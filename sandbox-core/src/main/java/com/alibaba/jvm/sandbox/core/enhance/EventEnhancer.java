@@ -11,10 +11,12 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 import static org.apache.commons.io.FileUtils.writeByteArrayToFile;
-import static org.objectweb.asm.ClassReader.EXPAND_FRAMES;
+import static org.objectweb.asm.ClassReader.SKIP_FRAMES;
 import static org.objectweb.asm.ClassWriter.COMPUTE_FRAMES;
 import static org.objectweb.asm.ClassWriter.COMPUTE_MAXS;
 import static org.objectweb.asm.Opcodes.ASM7;
@@ -99,19 +101,48 @@ public class EventEnhancer implements Enhancer {
                                   final String namespace,
                                   final int listenerId,
                                   final Event.Type[] eventTypeArray) {
+        return toByteCodeArray(
+                targetClassLoader,
+                byteCodeArray,
+                namespace,
+                Collections.singletonList(new EventWeaving(signCodes, listenerId, eventTypeArray))
+        );
+    }
+
+    /**
+     * 转换为增强后的字节码数组，在一次改写中埋入多个监听器
+     * <p>
+     * 每个行为只埋一组探针，被多个监听器观察的行为由监听器集合派发事件。
+     * 排在前面的监听器在内层，与按顺序逐个增强的结果一致
+     * </p>
+     * <p>
+     * 没有织入的方法由ClassWriter从ClassReader中原样拷贝，不会重新计算栈帧；
+     * 织入的方法栈帧由ClassWriter重新计算，所以读取时跳过原有的栈帧，不再展开
+     * </p>
+     *
+     * @param targetClassLoader 目标类加载器
+     * @param byteCodeArray     源字节码数组
+     * @param namespace         命名空间
+     * @param weavings          监听器的埋点要求
+     * @return 增强后的字节码数组
+     */
+    public byte[] toByteCodeArray(final ClassLoader targetClassLoader,
+                                  final byte[] byteCodeArray,
+                                  final String namespace,
+                                  final List<EventWeaving> weavings) {
         // 返回增强后字节码
         final ClassReader cr = new ClassReader(byteCodeArray);
         final ClassWriter cw = createClassWriter(targetClassLoader, cr);
         final int targetClassLoaderObjectID = ObjectIDs.instance.identity(targetClassLoader);
         cr.accept(
-                new EventWeaver(ASM7, cw, namespace, listenerId,
+                new EventWeaver(
+                        ASM7, cw, namespace,
                         targetClassLoaderObjectID,
                         cr.getClassName(),
-                        signCodes,
-                        eventTypeArray,
+                        weavings,
                         nativePrefix
                 ),
-                EXPAND_FRAMES
+                SKIP_FRAMES
         );
         return dumpClassIfNecessary(cr.getClassName(), cw.toByteArray());
     }
@@ -0,0 +1,43 @@
+package com.alibaba.jvm.sandbox.core.enhance;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+
+import java.util.Set;
+
+/**
+ * 一个监听器的埋点要求
+ */
+public class EventWeaving {
+
+    private final Set<String> signCodes;
+    private final int listenerId;
+    private final Event.Type[] eventTypeArray;
+
+    /**
+     * 构造监听器的埋点要求
+     *
+     * @param signCodes      需要被增强的行为签名
+     * @param listenerId     需要埋入的监听器ID
+     * @param eventTypeArray 需要埋入的事件类型
+     */
+    public EventWeaving(final Set<String> signCodes,
+                        final int listenerId,
+                        final Event.Type[] eventTypeArray) {
+        this.signCodes = signCodes;
+        this.listenerId = listenerId;
+        this.eventTypeArray = eventTypeArray;
+    }
+
+    public Set<String> getSignCodes() {
+        return signCodes;
+    }
+
+    public int getListenerId() {
+        return listenerId;
+    }
+
+    public Event.Type[] getEventTypeArray() {
+        return eventTypeArray;
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.alibaba.jvm.sandbox.core.enhance.weaver;
+
+import com.alibaba.jvm.sandbox.api.ProcessControl;
+import com.alibaba.jvm.sandbox.api.ProcessControlException;
+
+import static com.alibaba.jvm.sandbox.api.ProcessControlException.State.*;
+
+/**
+ * 流程控制器默认实现
+ * <p>
+ * 只记录事件处理器做出的流程控制决定，由{@link EventListenerHandler}在事件处理完成后统一处理，
+ * 每个处理单元持有一个，每次事件处理前重置
+ * </p>
+ */
+class DefaultProcessControl implements ProcessControl {
+
+    private ProcessControlException.State state = NONE_IMMEDIATELY;
+    private Object respond;
+    private boolean isIgnoreProcessEvent;
+
+    /**
+     * 重置流程控制器
+     */
+    void reset() {
+        state = NONE_IMMEDIATELY;
+        respond = null;
+        isIgnoreProcessEvent = false;
+    }
+
+    private void control(final boolean isIgnoreProcessEvent,
+                         final ProcessControlException.State state,
+                         final Object respond) {
+        this.isIgnoreProcessEvent = isIgnoreProcessEvent;
+        this.state = state;
+        this.respond = respond;
+    }
+
+    @Override
+    public void returnImmediately(Object object) {
+        control(false, RETURN_IMMEDIATELY, object);
+    }
+
+    @Override
+    public void throwsImmediately(Throwable throwable) {
+        control(false, THROWS_IMMEDIATELY, throwable);
+    }
+
+    @Override
+    public void returnImmediatelyWithIgnoreProcessEvent(Object object) {
+        control(true, RETURN_IMMEDIATELY, object);
+    }
+
+    @Override
+    public void throwsImmediatelyWithIgnoreProcessEvent(Throwable throwable) {
+        control(true, THROWS_IMMEDIATELY, throwable);
+    }
+
+    @Override
+    public void noneImmediatelyWithIgnoreProcessEvent() {
+        control(true, NONE_IMMEDIATELY, null);
+    }
+
+    ProcessControlException.State getState() {
+        return state;
+    }
+
+    Object getRespond() {
+        return respond;
+    }
+
+    boolean isIgnoreProcessEvent() {
+        return isIgnoreProcessEvent;
+    }
+
+}
@@ -7,20 +7,20 @@ import com.alibaba.jvm.sandbox.api.event.InvokeEvent;
 import com.alibaba.jvm.sandbox.api.listener.EventListener;
 import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
 import com.alibaba.jvm.sandbox.core.util.SandboxProtector;
+import com.alibaba.jvm.sandbox.core.util.collection.ConcurrentPagedArray;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.com.alibaba.jvm.sandbox.spy.Spy;
 import java.com.alibaba.jvm.sandbox.spy.SpyHandler;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import static com.alibaba.jvm.sandbox.api.event.Event.Type.IMMEDIATELY_RETURN;
-import static com.alibaba.jvm.sandbox.api.event.Event.Type.IMMEDIATELY_THROWS;
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
 import static com.alibaba.jvm.sandbox.core.util.SandboxReflectUtils.isInterruptEventHandler;
 import static java.com.alibaba.jvm.sandbox.spy.Spy.Ret.newInstanceForNone;
-import static java.com.alibaba.jvm.sandbox.spy.Spy.Ret.newInstanceForThrows;
 import static org.apache.commons.lang3.ArrayUtils.contains;
 import static org.apache.commons.lang3.StringUtils.join;
 
@@ -37,10 +37,22 @@ public class EventListenerHandler implements SpyHandler {
     // private final Sequencer invokeIdSequencer = new Sequencer();
     private final AtomicInteger invokeIdSequencer = new AtomicInteger(1000);
 
-    // 全局处理器ID:处理器映射集合
-    private final Map<Integer/*LISTENER_ID*/, EventProcessor> mappingOfEventProcessor
+    // 全局处理器ID:处理器映射集合，处理器ID由序列发生器产生，较为稠密，直接以ID为下标避免装箱和哈希
+    private final ConcurrentPagedArray<EventProcessor/*LISTENER_ID*/> mappingOfEventProcessor
+            = new ConcurrentPagedArray<>();
+
+    // 监听器集合ID:监听器集合映射，集合ID与监听器ID同样由ObjectIDs分配，两者不会冲突
+    // 集合中的监听器是否生效仍由上面的映射决定；观察被删除时注销包含其监听器的集合，
+    // 重新形变前织入的代码仍然引用被注销的集合ID，此时与引用了被冻结的监听器ID一样直接放行
+    private final ConcurrentPagedArray<ListenerSet/*LISTENER_SET_ID*/> mappingOfListenerSet
+            = new ConcurrentPagedArray<>();
+    private final ConcurrentHashMap<ListenerSet, Integer> listenerSetIDMapping
             = new ConcurrentHashMap<>();
 
+    // 监听器集合在BEFORE/RETURN中决定立即抛出的异常，织入的代码抛出后会被自己的异常处理捕获，此时不需要再次派发
+    private final ThreadLocal<Throwable[]> immediatelyThrowableRef
+            = ThreadLocal.withInitial(() -> new Throwable[1]);
+
     /**
      * 注册事件处理器
      *
@@ -51,7 +63,7 @@ public class EventListenerHandler implements SpyHandler {
     public void active(final int listenerId,
                        final EventListener listener,
                        final Event.Type[] eventTypes) {
-        mappingOfEventProcessor.put(listenerId, new EventProcessor(listenerId, listener, eventTypes));
+        mappingOfEventProcessor.set(listenerId, new EventProcessor(listenerId, listener, eventTypes));
         logger.info("activated listener[id={};target={};] event={}",
                 listenerId,
                 listener,
@@ -59,6 +71,50 @@ public class EventListenerHandler implements SpyHandler {
         );
     }
 
+    /**
+     * 注册监听器集合
+     * <p>
+     * 多个监听器观察同一个行为时，织入的代码只埋一组探针，探针上的ID是监听器集合ID，
+     * 事件按集合中的顺序派发给各个监听器，效果与逐个增强时的嵌套一致。只有一个监听器时直接返回该监听器ID
+     * </p>
+     *
+     * @param listenerIds 从外层到内层排列的监听器ID
+     * @return 探针上的监听器ID或监听器集合ID
+     */
+    public int registerListenerSet(final int... listenerIds) {
+        if (listenerIds.length == 1) {
+            return listenerIds[0];
+        }
+        return listenerSetIDMapping.computeIfAbsent(new ListenerSet(listenerIds.clone()), listenerSet -> {
+            final int listenerSetId = ObjectIDs.instance.identity(listenerSet);
+            mappingOfListenerSet.set(listenerSetId, listenerSet);
+            logger.info("registered listener-set[id={};listeners={};]", listenerSetId, join(listenerSet.listenerIds, ','));
+            return listenerSetId;
+        });
+    }
+
+    /**
+     * 注销包含指定监听器的监听器集合
+     * <p>
+     * 监听器被永久删除时调用，集合中其余的监听器在重新形变后会注册到新的集合中。
+     * 模块冻结时不能注销，解冻时不会重新形变，织入的代码仍然引用原来的集合ID
+     * </p>
+     *
+     * @param listenerId 被删除的监听器ID
+     */
+    public void unregisterListenerSets(final int listenerId) {
+        final Iterator<Map.Entry<ListenerSet, Integer>> it = listenerSetIDMapping.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<ListenerSet, Integer> entry = it.next();
+            if (!contains(entry.getKey().listenerIds, listenerId)) {
+                continue;
+            }
+            it.remove();
+            mappingOfListenerSet.remove(entry.getValue());
+            logger.info("unregistered listener-set[id={};listeners={};]", entry.getValue(), join(entry.getKey().listenerIds, ','));
+        }
+    }
+
     /**
      * 取消事件处理器
      *
@@ -76,7 +132,7 @@ public class EventListenerHandler implements SpyHandler {
                 processor.listener
         );
 
-        // processor.clean();
+        processor.clean();
     }
 
     /**
@@ -87,6 +143,7 @@ public class EventListenerHandler implements SpyHandler {
      * @param invokeId   调用ID
      * @param event      调用事件
      * @param processor  事件处理器
+     * @param process    处理单元
      * @return 处理返回结果
      * @throws Throwable 当出现未知异常时,且事件处理器为中断流程事件时抛出
      */
@@ -94,12 +151,13 @@ public class EventListenerHandler implements SpyHandler {
                                 final int processId,
                                 final int invokeId,
                                 final Event event,
-                                final EventProcessor processor) throws Throwable {
+                                final EventProcessor processor,
+                                final EventProcessor.Process process) throws Throwable {
         // 获取事件监听器
         final EventListener listener = processor.listener;
 
         // 如果当前事件不在事件监听器处理列表中，则直接返回，不处理事件
-        if (!contains(processor.eventTypes, event.type)) {
+        if (!processor.isSubscribed(event.type)) {
             return newInstanceForNone();
         }
 
@@ -113,134 +171,181 @@ public class EventListenerHandler implements SpyHandler {
                         listenerId
                 );
             }
+
+            // 可流程控制的事件监听器通过流程控制器返回流程控制的决定，不需要抛出流程控制异常
+            if (null != processor.processControlListener) {
+                final DefaultProcessControl control = process.resetProcessControl();
+                processor.processControlListener.onEvent(event, control);
+                return handleProcessControl(
+                        listenerId, processId, invokeId, event, processor, process,
+                        control.getState(),
+                        control.getRespond(),
+                        control.isIgnoreProcessEvent()
+                );
+            }
+
             listener.onEvent(event);
         }
 
         // 代码执行流程变更
         catch (ProcessControlException pce) {
 
-            final EventProcessor.Process process = processor.processRef.get();
+            return handleProcessControl(
+                    listenerId, processId, invokeId, event, processor, process,
+                    pce.getState(),
+                    pce.getRespond(),
+                    pce.isIgnoreProcessEvent()
+            );
+        }
+
+        // BEFORE处理异常,打日志,并通知下游不需要进行处理
+        catch (Throwable throwable) {
 
-            final ProcessControlException.State state = pce.getState();
+            // 如果当前事件处理器是可中断的事件处理器,则对外抛出UnCaughtException
+            // 中断当前方法
+            if (isInterruptEventHandler(listener.getClass())) {
+                throw throwable;
+            }
+
+            // 普通事件处理器则可以打个日志后,直接放行
+            else {
+                logger.warn("on-event: event|{}|{}|{}|{} occur an error.",
+                        event.type,
+                        processId,
+                        invokeId,
+                        listenerId,
+                        throwable
+                );
+            }
+        }
+
+        // 默认返回不进行任何流程变更
+        return newInstanceForNone();
+    }
+
+    /**
+     * 处理事件处理器做出的流程控制决定
+     *
+     * @param listenerId           处理器ID
+     * @param processId            调用过程ID
+     * @param invokeId             调用ID
+     * @param event                调用事件
+     * @param processor            事件处理器
+     * @param process              处理单元
+     * @param state                流程控制状态
+     * @param respond              回应结果对象
+     * @param isIgnoreProcessEvent 是否忽略后续所有事件处理
+     * @return 处理返回结果
+     */
+    private Spy.Ret handleProcessControl(final int listenerId,
+                                         final int processId,
+                                         final int invokeId,
+                                         final Event event,
+                                         final EventProcessor processor,
+                                         final EventProcessor.Process process,
+                                         final ProcessControlException.State state,
+                                         final Object respond,
+                                         final boolean isIgnoreProcessEvent) {
+
+        if (logger.isDebugEnabled()) {
             logger.debug("on-event: event|{}|{}|{}|{}, process-changed: {}. isIgnoreProcessEvent={};",
                     event.type,
                     processId,
                     invokeId,
                     listenerId,
                     state,
-                    pce.isIgnoreProcessEvent()
+                    isIgnoreProcessEvent
             );
+        }
 
-            // 如果流程控制要求忽略后续处理所有事件，则需要在此处进行标记
-            if (pce.isIgnoreProcessEvent()) {
-                process.markIgnoreProcess();
-            }
+        // 如果流程控制要求忽略后续处理所有事件，则需要在此处进行标记
+        if (isIgnoreProcessEvent) {
+            process.markIgnoreProcess();
+        }
 
-            switch (state) {
+        switch (state) {
 
-                // 立即返回对象
-                case RETURN_IMMEDIATELY: {
+            // 立即返回对象
+            case RETURN_IMMEDIATELY: {
 
-                    // 如果已经禁止后续返回任何事件了，则不进行后续的操作
-                    if (pce.isIgnoreProcessEvent()) {
+                // 如果已经禁止后续返回任何事件了，则不进行后续的操作
+                if (isIgnoreProcessEvent) {
+                    if (logger.isDebugEnabled()) {
                         logger.debug("on-event: event|{}|{}|{}|{}, ignore immediately-return-event, isIgnored.",
                                 event.type,
                                 processId,
                                 invokeId,
                                 listenerId
                         );
-                    } else {
-                        // 补偿立即返回事件
-                        compensateProcessControlEvent(pce, processor, process, event);
                     }
+                } else {
+                    // 补偿立即返回事件
+                    compensateProcessControlEvent(state, respond, processor, process, event);
+                }
 
-                    // 如果是在BEFORE中立即返回，则后续不会再有RETURN事件产生
-                    // 这里需要主动对齐堆栈
-                    if (event.type == Event.Type.BEFORE) {
-                        process.popInvokeId();
-                    }
+                // 如果是在BEFORE中立即返回，则后续不会再有RETURN事件产生
+                // 这里需要主动对齐堆栈
+                if (event.type == Event.Type.BEFORE) {
+                    process.popInvokeId();
+                }
 
-                    // 让流程立即返回
-                    return Spy.Ret.newInstanceForReturn(pce.getRespond());
+                // 让流程立即返回
+                return process.getRet().reuseForReturn(respond);
 
-                }
+            }
 
-                // 立即抛出异常
-                case THROWS_IMMEDIATELY: {
+            // 立即抛出异常
+            case THROWS_IMMEDIATELY: {
 
-                    final Throwable throwable = (Throwable) pce.getRespond();
+                final Throwable throwable = (Throwable) respond;
 
-                    // 如果已经禁止后续返回任何事件了，则不进行后续的操作
-                    if (pce.isIgnoreProcessEvent()) {
+                // 如果已经禁止后续返回任何事件了，则不进行后续的操作
+                if (isIgnoreProcessEvent) {
+                    if (logger.isDebugEnabled()) {
                         logger.debug("on-event: event|{}|{}|{}|{}, ignore immediately-throws-event, isIgnored.",
                                 event.type,
                                 processId,
                                 invokeId,
                                 listenerId
                         );
-                    } else {
-
-                        // 如果是在BEFORE中立即抛出，则后续不会再有THROWS事件产生
-                        // 这里需要主动对齐堆栈
-                        if (event.type == Event.Type.BEFORE) {
-                            process.popInvokeId();
-                        }
-
-                        // 标记本次异常由ImmediatelyException产生，让下次异常事件处理直接忽略
-                        if (event.type != Event.Type.THROWS) {
-                            process.markExceptionFromImmediately();
-                        }
-
-                        // 补偿立即抛出事件
-                        compensateProcessControlEvent(pce, processor, process, event);
                     }
+                } else {
 
-                    // 让流程立即抛出
-                    return Spy.Ret.newInstanceForThrows(throwable);
+                    // 如果是在BEFORE中立即抛出，则后续不会再有THROWS事件产生
+                    // 这里需要主动对齐堆栈
+                    if (event.type == Event.Type.BEFORE) {
+                        process.popInvokeId();
+                    }
 
-                }
+                    // 标记本次异常由ImmediatelyException产生，让下次异常事件处理直接忽略
+                    if (event.type != Event.Type.THROWS) {
+                        process.markExceptionFromImmediately();
+                    }
 
-                // 什么都不操作，立即返回
-                case NONE_IMMEDIATELY:
-                default: {
-                    return newInstanceForNone();
+                    // 补偿立即抛出事件
+                    compensateProcessControlEvent(state, respond, processor, process, event);
                 }
-            }
-
-        }
 
-        // BEFORE处理异常,打日志,并通知下游不需要进行处理
-        catch (Throwable throwable) {
+                // 让流程立即抛出
+                return process.getRet().reuseForThrows(throwable);
 
-            // 如果当前事件处理器是可中断的事件处理器,则对外抛出UnCaughtException
-            // 中断当前方法
-            if (isInterruptEventHandler(listener.getClass())) {
-                throw throwable;
             }
 
-            // 普通事件处理器则可以打个日志后,直接放行
-            else {
-                logger.warn("on-event: event|{}|{}|{}|{} occur an error.",
-                        event.type,
-                        processId,
-                        invokeId,
-                        listenerId,
-                        throwable
-                );
+            // 什么都不操作，立即返回
+            case NONE_IMMEDIATELY:
+            default: {
+                return newInstanceForNone();
             }
         }
-
-        // 默认返回不进行任何流程变更
-        return newInstanceForNone();
     }
 
     // 补偿事件
     // 随着历史版本的演进，一些事件已经过期，但为了兼容API，需要在这里进行补偿
-    private void compensateProcessControlEvent(ProcessControlException pce, EventProcessor processor, EventProcessor.Process process, Event event) {
+    private void compensateProcessControlEvent(ProcessControlException.State state, Object respond, EventProcessor processor, EventProcessor.Process process, Event event) {
 
         // 核对是否需要补偿，如果目标监听器没监听过这类事件，则不需要进行补偿
         if (!(event instanceof InvokeEvent)
-                || !contains(processor.eventTypes, event.type)) {
+                || !processor.isSubscribed(event.type)) {
             return;
         }
 
@@ -248,19 +353,19 @@ public class EventListenerHandler implements SpyHandler {
         final Event compensateEvent;
 
         // 补偿立即返回事件
-        if (pce.getState() == ProcessControlException.State.RETURN_IMMEDIATELY
-                && contains(processor.eventTypes, IMMEDIATELY_RETURN)) {
+        if (state == ProcessControlException.State.RETURN_IMMEDIATELY
+                && processor.isSubscribed(IMMEDIATELY_RETURN)) {
             compensateEvent = process
                     .getEventFactory()
-                    .makeImmediatelyReturnEvent(iEvent.processId, iEvent.invokeId, pce.getRespond());
+                    .makeImmediatelyReturnEvent(iEvent.processId, iEvent.invokeId, respond);
         }
 
         // 补偿立即抛出事件
-        else if (pce.getState() == ProcessControlException.State.THROWS_IMMEDIATELY
-                && contains(processor.eventTypes, IMMEDIATELY_THROWS)) {
+        else if (state == ProcessControlException.State.THROWS_IMMEDIATELY
+                && processor.isSubscribed(IMMEDIATELY_THROWS)) {
             compensateEvent = process
                     .getEventFactory()
-                    .makeImmediatelyThrowsEvent(iEvent.processId, iEvent.invokeId, (Throwable) pce.getRespond());
+                    .makeImmediatelyThrowsEvent(iEvent.processId, iEvent.invokeId, (Throwable) respond);
         }
 
         // 异常情况不补偿
@@ -276,7 +381,12 @@ public class EventListenerHandler implements SpyHandler {
                     processor.listenerId,
                     event.type
             );
-            processor.listener.onEvent(compensateEvent);
+            // 补偿事件不再接受流程控制
+            if (null != processor.processControlListener) {
+                processor.processControlListener.onEvent(compensateEvent, process.resetProcessControl());
+            } else {
+                processor.listener.onEvent(compensateEvent);
+            }
         } catch (Throwable cause) {
             logger.warn("compensate-event: event|{}|{}|{}|{} when ori-event:{} occur error.",
                     compensateEvent.type,
@@ -303,6 +413,19 @@ public class EventListenerHandler implements SpyHandler {
 
     @Override
     public Spy.Ret handleOnBefore(int listenerId, int targetClassLoaderObjectID, Object[] argumentArray, String javaClassName, String javaMethodName, String javaMethodDesc, Object target) throws Throwable {
+        return handleOnBefore(
+                listenerId,
+                ObjectIDs.instance.<ClassLoader>getObject(targetClassLoaderObjectID),
+                argumentArray,
+                javaClassName,
+                javaMethodName,
+                javaMethodDesc,
+                target
+        );
+    }
+
+    @Override
+    public Spy.Ret handleOnBefore(int listenerId, ClassLoader javaClassLoader, Object[] argumentArray, String javaClassName, String javaMethodName, String javaMethodDesc, Object target) throws Throwable {
 
         // 在守护区内产生的事件不需要响应
         if (SandboxProtector.instance.isInProtecting()) {
@@ -315,10 +438,26 @@ public class EventListenerHandler implements SpyHandler {
 
         // 如果尚未注册,则直接返回,不做任何处理
         if (null == processor) {
+            final ListenerSet listenerSet = mappingOfListenerSet.get(listenerId);
+            if (null != listenerSet) {
+                return handleOnBefore(listenerSet, javaClassLoader, argumentArray, javaClassName, javaMethodName, javaMethodDesc, target);
+            }
             logger.debug("listener={} is not activated, ignore processing before-event.", listenerId);
             return newInstanceForNone();
         }
 
+        return handleOnBefore(processor, listenerId, javaClassLoader, argumentArray, javaClassName, javaMethodName, javaMethodDesc, target);
+    }
+
+    private Spy.Ret handleOnBefore(final EventProcessor processor,
+                                   final int listenerId,
+                                   final ClassLoader javaClassLoader,
+                                   final Object[] argumentArray,
+                                   final String javaClassName,
+                                   final String javaMethodName,
+                                   final String javaMethodDesc,
+                                   final Object target) throws Throwable {
+
         // 获取调用跟踪信息
         final EventProcessor.Process process = processor.processRef.get();
 
@@ -332,10 +471,14 @@ public class EventListenerHandler implements SpyHandler {
         final int invokeId = invokeIdSequencer.getAndIncrement();
         process.pushInvokeId(invokeId);
 
+        // 没有订阅BEFORE事件时只需要对齐调用堆栈，不需要构造和派发事件
+        if (!processor.isSubscribed(BEFORE)) {
+            return newInstanceForNone();
+        }
+
         // 调用过程ID
         final int processId = process.getProcessId();
 
-        final ClassLoader javaClassLoader = ObjectIDs.instance.getObject(targetClassLoaderObjectID);
         final BeforeEvent event = process.getEventFactory().makeBeforeEvent(
                 processId,
                 invokeId,
@@ -347,10 +490,56 @@ public class EventListenerHandler implements SpyHandler {
                 argumentArray
         );
         try {
-            return handleEvent(listenerId, processId, invokeId, event, processor);
+            return handleEvent(listenerId, processId, invokeId, event, processor, process);
         } finally {
-            process.getEventFactory().returnEvent(event);
+            process.returnEvent(event);
+        }
+    }
+
+    /*
+     * 监听器集合的BEFORE事件，从外层到内层依次派发
+     * 某个监听器改变了流程时，内层的监听器不再收到事件，已经收到BEFORE事件的外层监听器从内到外收到结束事件
+     */
+    private Spy.Ret handleOnBefore(final ListenerSet listenerSet,
+                                   final ClassLoader javaClassLoader,
+                                   final Object[] argumentArray,
+                                   final String javaClassName,
+                                   final String javaMethodName,
+                                   final String javaMethodDesc,
+                                   final Object target) throws Throwable {
+        final int[] listenerIds = listenerSet.listenerIds;
+        for (int index = 0; index < listenerIds.length; index++) {
+            final int listenerId = listenerIds[index];
+            final EventProcessor processor = mappingOfEventProcessor.get(listenerId);
+            if (null == processor) {
+                continue;
+            }
+
+            // 返回结果在线程内复用，派发给下一个监听器之前需要先取出
+            final int state;
+            final Object respond;
+            try {
+                final Spy.Ret ret = handleOnBefore(processor, listenerId, javaClassLoader, argumentArray, javaClassName, javaMethodName, javaMethodDesc, target);
+                state = ret.state;
+                respond = ret.respond;
+            } catch (Throwable cause) {
+                if (!Spy.isSpyThrowException) {
+                    logger.warn("listener={} handle before-event occur an error.", listenerId, cause);
+                    continue;
+                }
+                return markImmediatelyThrows(unwind(listenerIds, index, false, cause, true));
+            }
+
+            if (state == Spy.Ret.RET_STATE_RETURN) {
+                return markImmediatelyThrows(unwind(listenerIds, index - 1, true, respond, true));
+            }
+            if (state == Spy.Ret.RET_STATE_THROWS) {
+                // 监听器立即抛出的异常要先经过它自己的异常处理，才能对齐它的调用堆栈
+                handleOnEnd(processor, listenerId, respond, false);
+                return markImmediatelyThrows(unwind(listenerIds, index - 1, false, respond, true));
+            }
         }
+        return newInstanceForNone();
     }
 
     @Override
@@ -378,28 +567,37 @@ public class EventListenerHandler implements SpyHandler {
 
         // 如果尚未注册,则直接返回,不做任何处理
         if (null == wrap) {
+            final ListenerSet listenerSet = mappingOfListenerSet.get(listenerId);
+            if (null != listenerSet) {
+                return handleOnEnd(listenerSet, object, isReturn);
+            }
             logger.debug("listener={} is not activated, ignore processing return-event|throws-event.", listenerId);
             return newInstanceForNone();
         }
 
+        return handleOnEnd(wrap, listenerId, object, isReturn);
+    }
+
+    private Spy.Ret handleOnEnd(final EventProcessor wrap,
+                                final int listenerId,
+                                final Object object,
+                                final boolean isReturn) throws Throwable {
+
         final EventProcessor.Process process = wrap.processRef.get();
 
         // 如果当前调用过程信息堆栈是空的,说明
         // 1. BEFORE/RETURN错位
         // 2. super.<init>
         // 处理方式是直接返回,不做任何事件的处理和代码流程的改变,放弃对super.<init>的观察，可惜了
+        // 处理单元在调用过程结束时已经原地重置，这里不需要再从线程中移除(#194)
         if (process.isEmptyStack()) {
-
-            // 修复 #194 问题
-            wrap.processRef.remove();
-
             return newInstanceForNone();
         }
 
         // 如果异常来自于ImmediatelyException，则忽略处理直接返回抛异常
         final boolean isExceptionFromImmediately = !isReturn && process.rollingIsExceptionFromImmediately();
         if (isExceptionFromImmediately) {
-            return newInstanceForThrows((Throwable) object);
+            return process.getRet().reuseForThrows((Throwable) object);
         }
 
         // 继续异常处理
@@ -409,6 +607,7 @@ public class EventListenerHandler implements SpyHandler {
         // 忽略事件处理
         // 放在stack.pop()后边是为了对齐执行栈
         if (process.isIgnoreProcess()) {
+            process.resetIfEmptyStack();
             return newInstanceForNone();
         }
 
@@ -422,18 +621,112 @@ public class EventListenerHandler implements SpyHandler {
             );
         }
 
+        // 没有订阅RETURN/THROWS事件时只需要对齐调用堆栈，不需要构造和派发事件
+        if (!wrap.isSubscribed(isReturn ? RETURN : THROWS)) {
+            process.resetIfEmptyStack();
+            return newInstanceForNone();
+        }
+
         final Event event = isReturn
                 ? process.getEventFactory().makeReturnEvent(processId, invokeId, object)
                 : process.getEventFactory().makeThrowsEvent(processId, invokeId, (Throwable) object);
 
         try {
-            return handleEvent(listenerId, processId, invokeId, event, wrap);
+            return handleEvent(listenerId, processId, invokeId, event, wrap, process);
         } finally {
-            process.getEventFactory().returnEvent(event);
+            process.returnEvent(event);
         }
 
     }
 
+    /*
+     * 监听器集合的RETURN/THROWS事件，从内层到外层依次派发
+     */
+    private Spy.Ret handleOnEnd(final ListenerSet listenerSet,
+                                final Object object,
+                                final boolean isReturn) throws Throwable {
+
+        // 集合在BEFORE/RETURN中决定立即抛出的异常已经派发过了，织入代码捕获到它时直接放行
+        if (!isReturn) {
+            final Throwable[] immediatelyThrowable = immediatelyThrowableRef.get();
+            if (immediatelyThrowable[0] == object) {
+                immediatelyThrowable[0] = null;
+                return newInstanceForNone();
+            }
+        }
+
+        final int[] listenerIds = listenerSet.listenerIds;
+        final Spy.Ret ret = unwind(listenerIds, listenerIds.length - 1, isReturn, object, false);
+        return isReturn
+                ? markImmediatelyThrows(ret)
+                : ret;
+    }
+
+    /*
+     * 从内层到外层依次派发RETURN/THROWS事件，每个监听器都能看到内层监听器改变后的结果
+     * 与逐个增强时一样，内层监听器立即返回时外层收到RETURN事件，立即抛出时外层收到THROWS事件
+     */
+    private Spy.Ret unwind(final int[] listenerIds,
+                           final int fromIndex,
+                           boolean isReturn,
+                           Object object,
+                           boolean isChanged) throws Throwable {
+        for (int index = fromIndex; index >= 0; index--) {
+            final int listenerId = listenerIds[index];
+            final EventProcessor processor = mappingOfEventProcessor.get(listenerId);
+            if (null == processor) {
+                continue;
+            }
+
+            final int state;
+            final Object respond;
+            try {
+                final Spy.Ret ret = handleOnEnd(processor, listenerId, object, isReturn);
+                state = ret.state;
+                respond = ret.respond;
+            } catch (Throwable cause) {
+                if (!Spy.isSpyThrowException) {
+                    logger.warn("listener={} handle {}-event occur an error.", listenerId, isReturn ? "return" : "throws", cause);
+                    continue;
+                }
+                isReturn = false;
+                object = cause;
+                isChanged = true;
+                continue;
+            }
+
+            if (state == Spy.Ret.RET_STATE_RETURN) {
+                isReturn = true;
+                object = respond;
+                isChanged = true;
+            } else if (state == Spy.Ret.RET_STATE_THROWS) {
+
+                // 在RETURN中立即抛出的异常要先经过监听器自己的异常处理
+                if (isReturn) {
+                    handleOnEnd(processor, listenerId, respond, false);
+                }
+                isReturn = false;
+                object = respond;
+                isChanged = true;
+            }
+        }
+
+        if (!isChanged) {
+            return newInstanceForNone();
+        }
+        return isReturn
+                ? Spy.Ret.newInstanceForReturn(object)
+                : Spy.Ret.newInstanceForThrows((Throwable) object);
+    }
+
+    // 记录集合决定立即抛出的异常，织入代码抛出后会被自己的异常处理捕获
+    private Spy.Ret markImmediatelyThrows(final Spy.Ret ret) {
+        if (ret.state == Spy.Ret.RET_STATE_THROWS) {
+            immediatelyThrowableRef.get()[0] = (Throwable) ret.respond;
+        }
+        return ret;
+    }
+
 
     @Override
     public void handleOnCallBefore(int listenerId, int lineNumber, String owner, String name, String desc) throws Throwable {
@@ -445,10 +738,31 @@ public class EventListenerHandler implements SpyHandler {
         }
 
         final EventProcessor wrap = mappingOfEventProcessor.get(listenerId);
-        if (null == wrap) {
+        if (null != wrap) {
+            handleOnCallBefore(wrap, listenerId, lineNumber, owner, name, desc);
+            return;
+        }
+
+        // 逐个增强时内层的CALL_BEFORE先于外层织入，所以从内层到外层派发
+        final ListenerSet listenerSet = mappingOfListenerSet.get(listenerId);
+        if (null == listenerSet) {
             logger.debug("listener={} is not activated, ignore processing call-before-event.", listenerId);
             return;
         }
+        for (int index = listenerSet.listenerIds.length - 1; index >= 0; index--) {
+            final EventProcessor processor = mappingOfEventProcessor.get(listenerSet.listenerIds[index]);
+            if (null != processor) {
+                handleOnCallBefore(processor, listenerSet.listenerIds[index], lineNumber, owner, name, desc);
+            }
+        }
+    }
+
+    private void handleOnCallBefore(final EventProcessor wrap,
+                                    final int listenerId,
+                                    final int lineNumber,
+                                    final String owner,
+                                    final String name,
+                                    final String desc) throws Throwable {
 
         final EventProcessor.Process process = wrap.processRef.get();
 
@@ -473,9 +787,9 @@ public class EventListenerHandler implements SpyHandler {
                 .getEventFactory()
                 .makeCallBeforeEvent(processId, invokeId, lineNumber, owner, name, desc);
         try {
-            handleEvent(listenerId, processId, invokeId, event, wrap);
+            handleEvent(listenerId, processId, invokeId, event, wrap, process);
         } finally {
-            process.getEventFactory().returnEvent(event);
+            process.returnEvent(event);
         }
     }
 
@@ -489,10 +803,26 @@ public class EventListenerHandler implements SpyHandler {
         }
 
         final EventProcessor wrap = mappingOfEventProcessor.get(listenerId);
-        if (null == wrap) {
+        if (null != wrap) {
+            handleOnCallReturn(wrap, listenerId);
+            return;
+        }
+
+        final ListenerSet listenerSet = mappingOfListenerSet.get(listenerId);
+        if (null == listenerSet) {
             logger.debug("listener={} is not activated, ignore processing call-return-event.", listenerId);
             return;
         }
+        for (final int setListenerId : listenerSet.listenerIds) {
+            final EventProcessor processor = mappingOfEventProcessor.get(setListenerId);
+            if (null != processor) {
+                handleOnCallReturn(processor, setListenerId);
+            }
+        }
+    }
+
+    private void handleOnCallReturn(final EventProcessor wrap,
+                                    final int listenerId) throws Throwable {
 
         final EventProcessor.Process process = wrap.processRef.get();
         if (process.isEmptyStack()) {
@@ -511,9 +841,9 @@ public class EventListenerHandler implements SpyHandler {
                 .getEventFactory()
                 .makeCallReturnEvent(processId, invokeId);
         try {
-            handleEvent(listenerId, processId, invokeId, event, wrap);
+            handleEvent(listenerId, processId, invokeId, event, wrap, process);
         } finally {
-            process.getEventFactory().returnEvent(event);
+            process.returnEvent(event);
         }
     }
 
@@ -527,10 +857,27 @@ public class EventListenerHandler implements SpyHandler {
         }
 
         final EventProcessor wrap = mappingOfEventProcessor.get(listenerId);
-        if (null == wrap) {
+        if (null != wrap) {
+            handleOnCallThrows(wrap, listenerId, throwException);
+            return;
+        }
+
+        final ListenerSet listenerSet = mappingOfListenerSet.get(listenerId);
+        if (null == listenerSet) {
             logger.debug("listener={} is not activated, ignore processing call-throws-event.", listenerId);
             return;
         }
+        for (final int setListenerId : listenerSet.listenerIds) {
+            final EventProcessor processor = mappingOfEventProcessor.get(setListenerId);
+            if (null != processor) {
+                handleOnCallThrows(processor, setListenerId, throwException);
+            }
+        }
+    }
+
+    private void handleOnCallThrows(final EventProcessor wrap,
+                                    final int listenerId,
+                                    final String throwException) throws Throwable {
 
         final EventProcessor.Process process = wrap.processRef.get();
         if (process.isEmptyStack()) {
@@ -549,9 +896,9 @@ public class EventListenerHandler implements SpyHandler {
                 .getEventFactory()
                 .makeCallThrowsEvent(processId, invokeId, throwException);
         try {
-            handleEvent(listenerId, processId, invokeId, event, wrap);
+            handleEvent(listenerId, processId, invokeId, event, wrap, process);
         } finally {
-            process.getEventFactory().returnEvent(event);
+            process.returnEvent(event);
         }
     }
 
@@ -565,10 +912,27 @@ public class EventListenerHandler implements SpyHandler {
         }
 
         final EventProcessor wrap = mappingOfEventProcessor.get(listenerId);
-        if (null == wrap) {
+        if (null != wrap) {
+            handleOnLine(wrap, listenerId, lineNumber);
+            return;
+        }
+
+        final ListenerSet listenerSet = mappingOfListenerSet.get(listenerId);
+        if (null == listenerSet) {
             logger.debug("listener={} is not activated, ignore processing line-event.", listenerId);
             return;
         }
+        for (final int setListenerId : listenerSet.listenerIds) {
+            final EventProcessor processor = mappingOfEventProcessor.get(setListenerId);
+            if (null != processor) {
+                handleOnLine(processor, setListenerId, lineNumber);
+            }
+        }
+    }
+
+    private void handleOnLine(final EventProcessor wrap,
+                              final int listenerId,
+                              final int lineNumber) throws Throwable {
 
         final EventProcessor.Process process = wrap.processRef.get();
 
@@ -588,9 +952,9 @@ public class EventListenerHandler implements SpyHandler {
 
         final Event event = process.getEventFactory().makeLineEvent(processId, invokeId, lineNumber);
         try {
-            handleEvent(listenerId, processId, invokeId, event, wrap);
+            handleEvent(listenerId, processId, invokeId, event, wrap, process);
         } finally {
-            process.getEventFactory().returnEvent(event);
+            process.returnEvent(event);
         }
     }
 
@@ -605,6 +969,15 @@ public class EventListenerHandler implements SpyHandler {
         }
     }
 
+    /**
+     * 获取处理器和监听器集合映射表已分配的数据页个数
+     *
+     * @return 已分配的数据页个数
+     */
+    public int getAllocatedPageCount() {
+        return mappingOfEventProcessor.getPageCount() + mappingOfListenerSet.getPageCount();
+    }
+
 
     // ----------------------------------- 单例模式 -----------------------------------
 
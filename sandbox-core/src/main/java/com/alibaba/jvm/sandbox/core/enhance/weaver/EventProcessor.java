@@ -2,12 +2,18 @@ package com.alibaba.jvm.sandbox.core.enhance.weaver;
 
 import com.alibaba.jvm.sandbox.api.event.Event;
 import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.api.listener.ProcessControlEventListener;
 import com.alibaba.jvm.sandbox.core.enhance.annotation.Interrupted;
-import com.alibaba.jvm.sandbox.core.util.collection.GaStack;
-import com.alibaba.jvm.sandbox.core.util.collection.ThreadUnsafeGaStack;
+import com.alibaba.jvm.sandbox.core.util.EventTypeUtils;
+import com.alibaba.jvm.sandbox.core.util.collection.ThreadUnsafeIntStack;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.com.alibaba.jvm.sandbox.spy.Spy;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
 import static com.alibaba.jvm.sandbox.core.util.SandboxReflectUtils.isInterruptEventHandler;
 
 /**
@@ -19,16 +25,25 @@ class EventProcessor {
 
     /**
      * 处理单元
+     * <p>
+     * 每个线程持有一个处理单元，调用过程结束后原地重置，供下一个调用过程复用。
+     * 处理单元不能引用所属的事件处理器，否则事件处理器被冻结后ThreadLocal的Key无法被回收
+     * </p>
      */
-    class Process {
+    static class Process {
+
+        private static final Logger logger = LoggerFactory.getLogger(Process.class);
+
+        // 所属的事件监听器ID，只用于日志
+        private final int listenerId;
 
         // 事件工厂
         private final SingleEventFactory eventFactory
                 = new SingleEventFactory();
 
-        // 调用堆栈
-        private final GaStack<Integer> stack
-                = new ThreadUnsafeGaStack<>();
+        // 调用堆栈，调用ID从1000开始递增，超出了Integer的缓存范围，所以用int堆栈避免装箱
+        private final ThreadUnsafeIntStack stack
+                = new ThreadUnsafeIntStack();
 
         // 是否需要忽略整个调用过程
         private boolean isIgnoreProcess = false;
@@ -36,12 +51,28 @@ class EventProcessor {
         // 是否来自ImmediatelyThrowsException所抛出的异常
         private boolean isExceptionFromImmediately = false;
 
+        // 流程控制返回结果，织入代码拿到后会立即读取，所以可以在线程内复用
+        private Spy.Ret ret = Spy.Ret.newInstanceForReuse();
+
+        // 流程控制器，每次事件处理前重置
+        private final DefaultProcessControl processControl = new DefaultProcessControl();
+
+        Process(final int listenerId) {
+            this.listenerId = listenerId;
+        }
+
         /**
          * 压入调用ID
          *
          * @param invokeId 调用ID
          */
         void pushInvokeId(int invokeId) {
+
+            // 新的调用过程开始，上一个调用过程的返回结果已经被织入代码读取过了，释放其中的回应对象
+            if (stack.isEmpty()) {
+                ret.state = Spy.Ret.RET_STATE_NONE;
+                ret.respond = null;
+            }
             stack.push(invokeId);
             if (logger.isDebugEnabled()) {
                 logger.debug("push process-stack, process-id={};invoke-id={};deep={};listener={};",
@@ -72,10 +103,6 @@ class EventProcessor {
             } else {
                 invokeId = stack.pop();
             }
-            if (stack.isEmpty()) {
-                processRef.remove();
-                logger.debug("clean TLS: event-processor, listener={};", listenerId);
-            }
             return invokeId;
         }
 
@@ -152,6 +179,70 @@ class EventProcessor {
             return eventFactory;
         }
 
+        /**
+         * 获取可复用的流程控制返回结果
+         * <p>
+         * 调用过程结束时织入代码还没有读取返回结果，所以重置处理单元时不能清理，
+         * 其中的回应对象在下一个调用过程开始时才释放
+         * </p>
+         *
+         * @return 流程控制返回结果
+         */
+        Spy.Ret getRet() {
+            return ret;
+        }
+
+        /**
+         * 换上新的返回结果，旧的返回结果连同其中的回应对象交给织入代码读取后回收
+         * <p>
+         * 由冻结事件处理器的线程调用，不能原地清理，否则其他线程的织入代码可能读到被清理的回应对象
+         * </p>
+         */
+        void renewRet() {
+            ret = Spy.Ret.newInstanceForReuse();
+        }
+
+        /**
+         * 归还事件，如果调用过程已经结束则原地重置处理单元
+         *
+         * @param event 事件
+         */
+        void returnEvent(final Event event) {
+            eventFactory.returnEvent(event);
+            resetIfEmptyStack();
+        }
+
+        /**
+         * 如果调用过程已经结束，则原地重置处理单元
+         */
+        void resetIfEmptyStack() {
+            if (stack.isEmpty()) {
+                reset();
+            }
+        }
+
+        /**
+         * 重置处理单元，效果等同于重新创建一个处理单元
+         */
+        private void reset() {
+            isIgnoreProcess = false;
+            isExceptionFromImmediately = false;
+            processControl.reset();
+            if (logger.isDebugEnabled()) {
+                logger.debug("reset TLS: event-processor, listener={};", listenerId);
+            }
+        }
+
+        /**
+         * 获取重置后的流程控制器
+         *
+         * @return 流程控制器
+         */
+        DefaultProcessControl resetProcessControl() {
+            processControl.reset();
+            return processControl;
+        }
+
     }
 
     @Interrupted
@@ -172,21 +263,64 @@ class EventProcessor {
 
     final int listenerId;
     final EventListener listener;
+    final ProcessControlEventListener processControlListener;
     final Event.Type[] eventTypes;
-    final ThreadLocal<Process> processRef = ThreadLocal.withInitial(Process::new);
+
+    // 订阅事件类型的掩码，派发事件时用来代替对事件类型数组的遍历
+    private final int eventTypeMask;
+    final ThreadLocal<Process> processRef;
+
+    // 所有线程的处理单元，线程结束后随之回收
+    private final Set<Process> processes
+            = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
 
     EventProcessor(final int listenerId,
                    final EventListener listener,
                    final Event.Type[] eventTypes) {
 
         this.listenerId = listenerId;
+        this.processRef = ThreadLocal.withInitial(() -> {
+            final Process process = new Process(listenerId);
+            processes.add(process);
+            return process;
+        });
         this.eventTypes = eventTypes;
+        this.eventTypeMask = EventTypeUtils.toMask(eventTypes);
         this.listener = isInterruptEventHandler(listener.getClass())
                 ? new InterruptedEventListenerImpl(listener)
                 : listener;
+        this.processControlListener = listener instanceof ProcessControlEventListener
+                ? (ProcessControlEventListener) listener
+                : null;
     }
 
 
+    /**
+     * 是否订阅了目标事件类型
+     *
+     * @param type 事件类型
+     * @return TRUE:已订阅;FALSE:未订阅
+     */
+    boolean isSubscribed(final Event.Type type) {
+        return EventTypeUtils.contains(eventTypeMask, type);
+    }
+
+    /**
+     * 清理事件处理器
+     * <p>
+     * 冻结之后处理单元只被各线程的ThreadLocal引用，直到线程结束或者ThreadLocal被清理才会回收，
+     * 需要释放其中残留的回应对象
+     * </p>
+     */
+    void clean() {
+        synchronized (processes) {
+            for (final Process process : processes) {
+                process.renewRet();
+            }
+            processes.clear();
+        }
+    }
+
     /**
      * 校验器，用于校验事件处理器状态是否正确
      * <p>用于测试用例</p>
@@ -196,7 +330,7 @@ class EventProcessor {
         void check() {
 
             final EventProcessor.Process process = processRef.get();
-            final ThreadUnsafeGaStack<Integer> stack = (ThreadUnsafeGaStack<Integer>) process.stack;
+            final ThreadUnsafeIntStack stack = process.stack;
 
             if (!process.isEmptyStack()) {
                 throw new IllegalStateException(String.format("process-stack is not empty! listener=%s;\n%s",
@@ -207,16 +341,16 @@ class EventProcessor {
 
             for (int index = 0; index < stack.getElementArray().length; index++) {
                 if (index <= stack.getCurrent()) {
-                    if (null == stack.getElementArray()[index]) {
-                        throw new IllegalStateException(String.format("process-stack element is null at index=[%d], listener=%s;\n%s",
+                    if (0 == stack.getElementArray()[index]) {
+                        throw new IllegalStateException(String.format("process-stack element is zero at index=[%d], listener=%s;\n%s",
                                 index,
                                 listenerId,
                                 toString(stack)
                         ));
                     }
                 } else {
-                    if (null != stack.getElementArray()[index]) {
-                        throw new IllegalStateException(String.format("process-stack element is not null at index=[%d], listener=%s;\n%s",
+                    if (0 != stack.getElementArray()[index]) {
+                        throw new IllegalStateException(String.format("process-stack element is not zero at index=[%d], listener=%s;\n%s",
                                 index,
                                 listenerId,
                                 toString(stack)
@@ -232,7 +366,7 @@ class EventProcessor {
 
         }
 
-        String toString(ThreadUnsafeGaStack<Integer> stack) {
+        String toString(ThreadUnsafeIntStack stack) {
             final StringBuilder stackSB = new StringBuilder(String.format("stack[deep=%d;current=%d;]{\n", stack.deep(), stack.getCurrent()));
             for (int index = 0; index < stack.getElementArray().length; index++) {
                 stackSB.append("\t[").append(index).append("] = ").append(stack.getElementArray()[index]).append("\n");
@@ -0,0 +1,31 @@
+package com.alibaba.jvm.sandbox.core.enhance.weaver;
+
+import java.util.Arrays;
+
+/**
+ * 监听器集合
+ * <p>
+ * 同一个行为被多个监听器观察时，织入的代码只埋一组探针，由事件处理把事件派发给集合中的每个监听器。
+ * 监听器按从外层到内层排列，与逐个增强时的嵌套顺序一致
+ * </p>
+ */
+class ListenerSet {
+
+    final int[] listenerIds;
+
+    ListenerSet(final int[] listenerIds) {
+        this.listenerIds = listenerIds;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ListenerSet
+                && Arrays.equals(listenerIds, ((ListenerSet) o).listenerIds);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(listenerIds);
+    }
+
+}
@@ -206,6 +206,7 @@ class SingleEventFactory {
     public void returnEvent(Event event) {
         switch (event.type) {
             case BEFORE:
+                unsafe.putObject(event, javaClassLoaderFieldInBeforeEventOffset, null);
                 unsafe.putObject(event, targetFieldInBeforeEventOffset, null);
                 unsafe.putObject(event, argumentArrayFieldInBeforeEventOffset, null);
                 break;
@@ -1,19 +1,26 @@
 package com.alibaba.jvm.sandbox.core.enhance.weaver.asm;
 
 import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.core.enhance.EventWeaving;
+import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
+import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
 import org.objectweb.asm.*;
+import org.objectweb.asm.commons.GeneratorAdapter;
 import org.objectweb.asm.commons.JSRInlinerAdapter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.com.alibaba.jvm.sandbox.spy.Spy;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
+import static com.alibaba.jvm.sandbox.core.util.EventTypeUtils.contains;
+import static com.alibaba.jvm.sandbox.core.util.EventTypeUtils.toMask;
 import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toInternalClassName;
 import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toJavaClassName;
-import static org.apache.commons.lang3.ArrayUtils.contains;
-import static org.apache.commons.lang3.StringUtils.join;
 
 /**
  * 方法事件编织者
@@ -24,24 +31,15 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     private final int targetClassLoaderObjectID;
-    private final String namespace;
-    private final int listenerId;
+    private final int namespaceId;
     private final String targetJavaClassName;
-    private final Set<String> signCodes;
-    private final Event.Type[] eventTypeArray;
+    private final List<EventWeaving> weavings;
     private final String nativePrefix;
     private final List<ProxyMethod> proxyNativeAsmMethods = new ArrayList<>();
 
-    // 是否支持LINE_EVENT
-    // LINE_EVENT需要对Class做特殊的增强，所以需要在这里做特殊的判断
-    private final boolean isLineEnable;
-
-    // 是否支持CALL_BEFORE/CALL_RETURN/CALL_THROWS事件
-    // CALL系列事件需要对Class做特殊的增强，所以需要在这里做特殊的判断
-    private final boolean hasCallThrows;
-    private final boolean hasCallBefore;
-    private final boolean hasCallReturn;
-    private final boolean isCallEnable;
+    // 是否在增强代码中直接加载类自身的ClassLoader
+    // 只有非BootstrapClassLoader加载、且版本支持LDC类常量(JDK1.5+)的类才能这样做，其余的类仍然传递ClassLoader的ObjectID
+    private boolean isEmbedClassLoader;
 
     public EventWeaver(final int api,
                        final ClassVisitor cv,
@@ -52,24 +50,68 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                        final Set<String/*BehaviorStructure#getSignCode()*/> signCodes,
                        final Event.Type[] eventTypeArray,
                        final String nativePrefix) {
+        this(
+                api,
+                cv,
+                namespace,
+                targetClassLoaderObjectID,
+                targetClassInternalName,
+                Collections.singletonList(new EventWeaving(signCodes, listenerId, eventTypeArray)),
+                nativePrefix
+        );
+    }
+
+    /**
+     * 在一次改写中埋入多个监听器
+     * <p>
+     * 每个行为只埋一组探针：只有一个监听器匹配时探针上是监听器ID，多个监听器匹配时是监听器集合ID，
+     * 由{@link EventListenerHandler}派发给集合中的各个监听器。排在前面的监听器在内层，与按顺序逐个增强的结果一致
+     * </p>
+     */
+    public EventWeaver(final int api,
+                       final ClassVisitor cv,
+                       final String namespace,
+                       final int targetClassLoaderObjectID,
+                       final String targetClassInternalName,
+                       final List<EventWeaving> weavings,
+                       final String nativePrefix) {
         super(api, cv);
         this.targetClassLoaderObjectID = targetClassLoaderObjectID;
-        this.namespace = namespace;
-        this.listenerId = listenerId;
+        // 织入时一次性解析命名空间槽位，运行时无需再按命名空间查找间谍处理器
+        this.namespaceId = Spy.resolveNamespaceId(namespace);
         this.targetJavaClassName = toJavaClassName(targetClassInternalName);
-        this.signCodes = signCodes;
-        this.eventTypeArray = eventTypeArray;
+        this.weavings = weavings;
         this.nativePrefix = nativePrefix;
+    }
 
-        this.isLineEnable = contains(eventTypeArray, Event.Type.LINE);
-        this.hasCallBefore = contains(eventTypeArray, Event.Type.CALL_BEFORE);
-        this.hasCallReturn = contains(eventTypeArray, Event.Type.CALL_RETURN);
-        this.hasCallThrows = contains(eventTypeArray, Event.Type.CALL_THROWS);
-        this.isCallEnable = hasCallBefore || hasCallReturn || hasCallThrows;
+    @Override
+    public void visit(final int version,
+                      final int access,
+                      final String name,
+                      final String signature,
+                      final String superName,
+                      final String[] interfaces) {
+        this.isEmbedClassLoader = ObjectIDs.NULL_ID != targetClassLoaderObjectID
+                && (version & 0xFFFF) >= V1_5;
+        super.visit(version, access, name, signature, superName, interfaces);
     }
 
-    private boolean isMatchedBehavior(final String signCode) {
-        return signCodes.contains(signCode);
+    // 加载ClassLoader
+    private void loadClassLoader(final GeneratorAdapter adapter) {
+        if (isEmbedClassLoader) {
+            adapter.push(Type.getObjectType(toInternalClassName(targetJavaClassName)));
+            adapter.invokeVirtual(ASM_TYPE_CLASS, ASM_METHOD_Class$getClassLoader);
+        } else {
+            adapter.push(targetClassLoaderObjectID);
+        }
+    }
+
+    // 调用Spy的BEFORE方法，需要与loadClassLoader()的方式保持一致
+    private void invokeSpyMethodOnBefore(final GeneratorAdapter adapter) {
+        adapter.invokeStatic(ASM_TYPE_SPY, isEmbedClassLoader
+                ? ASM_METHOD_Spy$spyMethodOnBeforeWithClassLoader
+                : ASM_METHOD_Spy$spyMethodOnBefore
+        );
     }
 
     private String getBehaviorSignCode(final String name,
@@ -98,7 +140,8 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
      * 2.在AOP中增加调用wrapper后的native方法
      * 3.增加proxy的native方法
      */
-    private MethodVisitor rewriteNativeMethod(final int access, final String name, final String desc, final String signature, final String[] exceptions) {
+    private MethodVisitor rewriteNativeMethod(final int access, final String name, final String desc, final String signature, final String[] exceptions,
+                                              final int listenerId) {
 
         //去掉native
         int newAccess = access & ~ACC_NATIVE;
@@ -112,11 +155,6 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
             private final Label endCatchBlock = new Label();
             private int newLocal = -1;
 
-            // 加载ClassLoader
-            private void loadClassLoader() {
-                push(targetClassLoaderObjectID);
-            }
-
             /**
              * 流程控制
              */
@@ -128,14 +166,14 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                         mark(beginLabel);
                         loadArgArray();
                         dup();
-                        push(namespace);
+                        push(namespaceId);
                         push(listenerId);
-                        loadClassLoader();
+                        loadClassLoader(this);
                         push(targetJavaClassName);
                         push(name);
                         push(desc);
                         loadThisOrPushNullIfIsStatic();
-                        invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnBefore);
+                        invokeSpyMethodOnBefore(this);
                         swap();
                         storeArgArray();
                         pop();
@@ -155,7 +193,7 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                         }
                         proxyNativeAsmMethods.add(proxyMethod);
                         loadReturn(Type.getReturnType(desc));
-                        push(namespace);
+                        push(namespaceId);
                         push(listenerId);
                         invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnReturn);
                         processControl(desc, true);
@@ -166,7 +204,7 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                         newLocal = newLocal(ASM_TYPE_THROWABLE);
                         storeLocal(newLocal);
                         loadLocal(newLocal);
-                        push(namespace);
+                        push(namespaceId);
                         push(listenerId);
                         invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnThrows);
                         processControl(desc, false);
@@ -181,7 +219,18 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
         };
     }
 
-    private MethodVisitor rewriteNormalMethod(final int access, final String name, final String desc, final String signature, final String[] exceptions) {
+    private MethodVisitor rewriteNormalMethod(final int access, final String name, final String desc, final String signature, final String[] exceptions,
+                                              final int listenerId,
+                                              final int eventTypeMask) {
+
+        // BEFORE/RETURN/THROWS需要用来对齐调用堆栈，总是需要织入；其他事件只在订阅时才织入
+        // LINE、CALL_BEFORE/CALL_RETURN/CALL_THROWS事件需要对方法做特殊的增强，所以需要在这里做特殊的判断
+        final boolean isLineEnable = contains(eventTypeMask, Event.Type.LINE);
+        final boolean hasCallBefore = contains(eventTypeMask, Event.Type.CALL_BEFORE);
+        final boolean hasCallReturn = contains(eventTypeMask, Event.Type.CALL_RETURN);
+        final boolean hasCallThrows = contains(eventTypeMask, Event.Type.CALL_THROWS);
+        final boolean isCallEnable = hasCallBefore || hasCallReturn || hasCallThrows;
+
         final MethodVisitor mv = super.visitMethod(access, name, desc, signature, exceptions);
         return new ReWriteAdapter(api, new JSRInlinerAdapter(mv, access, name, desc, signature, exceptions), access, name, desc) {
 
@@ -197,11 +246,6 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
             // 所以这里需要用一个标记为告知后续的代码编织，绕开super()和this()
             private boolean isMethodEnter = false;
 
-            // 加载ClassLoader
-            private void loadClassLoader() {
-                push(targetClassLoaderObjectID);
-            }
-
             @Override
             protected void onMethodEnter() {
 
@@ -212,14 +256,14 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                     mark(beginLabel);
                     loadArgArray();
                     dup();
-                    push(namespace);
+                    push(namespaceId);
                     push(listenerId);
-                    loadClassLoader();
+                    loadClassLoader(this);
                     push(targetJavaClassName);
                     push(name);
                     push(desc);
                     loadThisOrPushNullIfIsStatic();
-                    invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnBefore);
+                    invokeSpyMethodOnBefore(this);
                     swap();
                     storeArgArray();
                     pop();
@@ -284,7 +328,7 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                      */
                     getCodeLock().lock(() -> {
                         loadReturn(opcode);
-                        push(namespace);
+                        push(namespaceId);
                         push(listenerId);
                         invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnReturn);
                         processControl(desc, true);
@@ -306,7 +350,7 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                     newLocal = newLocal(ASM_TYPE_THROWABLE);
                     storeLocal(newLocal);
                     loadLocal(newLocal);
-                    push(namespace);
+                    push(namespaceId);
                     push(listenerId);
                     invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnThrows);
                     processControl(desc, false);
@@ -326,7 +370,7 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                 if (isMethodEnter && isLineEnable) {
                     getCodeLock().lock(() -> {
                         push(lineNumber);
-                        push(namespace);
+                        push(namespaceId);
                         push(listenerId);
                         invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnLine);
                     });
@@ -356,7 +400,7 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                         push(toJavaClassName(owner));
                         push(name);
                         push(desc);
-                        push(namespace);
+                        push(namespaceId);
                         push(listenerId);
                         invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnCallBefore);
                     });
@@ -367,7 +411,7 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                 if (!hasCallThrows) {
                     super.visitMethodInsn(opcode, owner, name, desc, itf);
                     getCodeLock().lock(() -> {
-                        push(namespace);
+                        push(namespaceId);
                         push(listenerId);
                         invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnCallReturn);
                     });
@@ -390,7 +434,7 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                 if (hasCallReturn) {
                     // 方法调用后通知
                     getCodeLock().lock(() -> {
-                        push(namespace);
+                        push(namespaceId);
                         push(listenerId);
                         invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnCallReturn);
                     });
@@ -406,7 +450,7 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                     dup();
                     invokeVirtual(ASM_TYPE_OBJECT, ASM_METHOD_Object$getClass);
                     invokeVirtual(ASM_TYPE_CLASS, ASM_METHOD_Class$getName);
-                    push(namespace);
+                    push(namespaceId);
                     push(listenerId);
                     invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnCallThrows);
                 });
@@ -447,25 +491,37 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
     public MethodVisitor visitMethod(final int access, final String name, final String desc, final String signature, final String[] exceptions) {
 
         final String signCode = getBehaviorSignCode(name, desc);
-        if (!isMatchedBehavior(signCode)) {
+
+        // 找出观察这个行为的监听器，排在后面的监听器在外层
+        final int[] listenerIds = new int[weavings.size()];
+        int count = 0;
+        int eventTypeMask = 0;
+        for (int index = weavings.size() - 1; index >= 0; index--) {
+            final EventWeaving weaving = weavings.get(index);
+            if (weaving.getSignCodes().contains(signCode)) {
+                listenerIds[count++] = weaving.getListenerId();
+                eventTypeMask |= toMask(weaving.getEventTypeArray());
+            }
+        }
+
+        // 没有织入的方法必须原样返回ClassWriter的MethodVisitor，ASM才会从ClassReader中逐字节拷贝，不用重新解析和计算栈帧
+        if (count == 0) {
             final MethodVisitor mv = super.visitMethod(access, name, desc, signature, exceptions);
-            logger.debug("non-rewrite method {} for listener[id={}];",
-                    signCode,
-                    listenerId
-            );
+            logger.debug("non-rewrite method {};", signCode);
             return mv;
         }
 
-        logger.info("rewrite method {} for listener[id={}];event={};",
+        final int listenerId = EventListenerHandler.getSingleton().registerListenerSet(Arrays.copyOf(listenerIds, count));
+        logger.info("rewrite method {} for listener[id={}];event-mask={};",
                 signCode,
                 listenerId,
-                join(eventTypeArray, ",")
+                eventTypeMask
         );
 
         if (isNative(access)) {
-            return rewriteNativeMethod(access, name, desc, signature, exceptions);
+            return rewriteNativeMethod(access, name, desc, signature, exceptions, listenerId);
         } else {
-            return rewriteNormalMethod(access, name, desc, signature, exceptions);
+            return rewriteNormalMethod(access, name, desc, signature, exceptions, listenerId, eventTypeMask);
         }
     }
 
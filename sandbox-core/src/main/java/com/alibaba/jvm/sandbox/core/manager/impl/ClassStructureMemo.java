@@ -0,0 +1,68 @@
+package com.alibaba.jvm.sandbox.core.manager.impl;
+
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructure;
+
+import java.lang.ref.WeakReference;
+
+import static com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureFactory.createClassStructure;
+
+/**
+ * 单次类形变中的类结构备忘
+ * <p>
+ * JVM加载或重新形变一个类时会依次调用所有的形变器，前一个形变器没有修改字节码时，后一个形变器拿到的是同一个字节码数组。
+ * 备忘记录当前线程最近一次构造的类结构，同一个命名空间的所有形变器对同一个字节码数组只构造一次类结构。
+ * 备忘对类结构只持弱引用，线程不会因此阻止沙箱被卸载
+ * </p>
+ */
+class ClassStructureMemo {
+
+    private static final ThreadLocal<WeakReference<ClassStructureMemo>> memoRef = new ThreadLocal<>();
+
+    private final ClassLoader loader;
+    private final Class<?> classBeingRedefined;
+    private final byte[] srcByteCodeArray;
+    private final ClassStructure classStructure;
+
+    private ClassStructureMemo(final ClassLoader loader,
+                               final Class<?> classBeingRedefined,
+                               final byte[] srcByteCodeArray,
+                               final ClassStructure classStructure) {
+        this.loader = loader;
+        this.classBeingRedefined = classBeingRedefined;
+        this.srcByteCodeArray = srcByteCodeArray;
+        this.classStructure = classStructure;
+    }
+
+    private boolean isSame(final ClassLoader loader,
+                           final Class<?> classBeingRedefined,
+                           final byte[] srcByteCodeArray) {
+        return this.srcByteCodeArray == srcByteCodeArray
+                && this.loader == loader
+                && this.classBeingRedefined == classBeingRedefined;
+    }
+
+    /**
+     * 获取当前形变的类结构
+     *
+     * @param loader              ClassLoader
+     * @param classBeingRedefined 重新形变的类，新加载的类为null
+     * @param srcByteCodeArray    形变前的字节码
+     * @return 类结构
+     */
+    static ClassStructure getClassStructure(final ClassLoader loader,
+                                            final Class<?> classBeingRedefined,
+                                            final byte[] srcByteCodeArray) {
+        final WeakReference<ClassStructureMemo> reference = memoRef.get();
+        final ClassStructureMemo memo = null == reference ? null : reference.get();
+        if (null != memo
+                && memo.isSame(loader, classBeingRedefined, srcByteCodeArray)) {
+            return memo.classStructure;
+        }
+        final ClassStructure classStructure = null == classBeingRedefined
+                ? createClassStructure(srcByteCodeArray, loader)
+                : createClassStructure(classBeingRedefined);
+        memoRef.set(new WeakReference<>(new ClassStructureMemo(loader, classBeingRedefined, srcByteCodeArray, classStructure)));
+        return classStructure;
+    }
+
+}
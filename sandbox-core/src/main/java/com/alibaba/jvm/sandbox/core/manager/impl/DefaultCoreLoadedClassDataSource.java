@@ -12,6 +12,10 @@ import org.slf4j.LoggerFactory;
 
 import java.lang.instrument.Instrumentation;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.alibaba.jvm.sandbox.api.filter.ExtFilter.ExtFilterFactory.make;
 import static com.alibaba.jvm.sandbox.core.util.SandboxClassUtils.isComeFromSandboxFamily;
@@ -24,17 +28,44 @@ import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toInternalCla
  */
 public class DefaultCoreLoadedClassDataSource implements CoreLoadedClassDataSource {
 
+    // 并行查找最多使用的线程数
+    private static final int MAX_SCAN_PARALLELISM = 4;
+
+    // 已加载的类超过这个数量才并行查找
+    private static final int SCAN_PARALLEL_THRESHOLD = 4096;
+
+    // 并行查找时每个任务查找的类个数
+    private static final int SCAN_CHUNK_SIZE = 1024;
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final Instrumentation inst;
     private final boolean isEnableUnsafe;
     private final boolean isNativeSupported;
 
+    // 并行查找的线程数
+    private final int scanParallelism;
+
+    // 并行查找的线程池
+    private volatile ForkJoinPool scanPool;
+
+    // 已加载类的类名索引
+    private final LoadedClassNameIndex classNameIndex;
+
     public DefaultCoreLoadedClassDataSource(final Instrumentation inst,
                                             final boolean isEnableUnsafe,
                                             final boolean isNativeSupported) {
+        this(inst, isEnableUnsafe, isNativeSupported, Math.min(Runtime.getRuntime().availableProcessors(), MAX_SCAN_PARALLELISM));
+    }
+
+    public DefaultCoreLoadedClassDataSource(final Instrumentation inst,
+                                            final boolean isEnableUnsafe,
+                                            final boolean isNativeSupported,
+                                            final int scanParallelism) {
         this.inst = inst;
         this.isEnableUnsafe = isEnableUnsafe;
         this.isNativeSupported = isNativeSupported;
+        this.scanParallelism = scanParallelism;
+        this.classNameIndex = new LoadedClassNameIndex(inst);
     }
 
     @Override
@@ -76,57 +107,165 @@ public class DefaultCoreLoadedClassDataSource implements CoreLoadedClassDataSour
         return find(matcher, true);
     }
 
-    private List<Class<?>> find(final Matcher matcher,
-                                final boolean isRemoveUnsupported) {
+    // 判断类是否匹配
+    private boolean isMatched(final Class<?> clazz,
+                              final Matcher matcher,
+                              final boolean isRemoveUnsupported) {
 
+        // #242 的建议，过滤掉sandbox家族的类
+        if (isComeFromSandboxFamily(toInternalClassName(clazz.getName()), clazz.getClassLoader())) {
+            return false;
+        }
+
+        // 过滤掉对于JVM认为不可修改的类
+        if (isRemoveUnsupported
+                && !inst.isModifiableClass(clazz)) {
+            // logger.debug("remove from findForReTransform, because class:{} is unModifiable", clazz.getName());
+            return false;
+        }
+        try {
+
+            // 只需要知道是否匹配，不用构造匹配结果
+            if (isRemoveUnsupported) {
+                return new UnsupportedMatcher(clazz.getClassLoader(), isEnableUnsafe, isNativeSupported)
+                        .and(matcher)
+                        .matching(ClassStructureFactory.createClassStructure(clazz), new BitSet());
+            } else {
+                return matcher.matching(ClassStructureFactory.createClassStructure(clazz), new BitSet());
+            }
+        } catch (Throwable cause) {
+            // 在这里可能会遇到非常坑爹的模块卸载错误
+            // 当一个URLClassLoader被动态关闭之后，但JVM已经加载的类并不知情（因为没有GC）
+            // 所以当尝试获取这个类更多详细信息的时候会引起关联类的ClassNotFoundException等未知的错误（取决于底层ClassLoader的实现）
+            // 这里没有办法穷举出所有的异常情况，所以catch Throwable来完成异常容灾处理
+            // 当解析类出现异常的时候，直接简单粗暴的认为根本没有这个类就好了
+            logger.debug("remove from findForReTransform, because loading class:{} occur an exception", clazz.getName(), cause);
+            return false;
+        }
+    }
+
+    // 在[from,to)区间内查找匹配的类，追加到classes中
+    private void find(final Class<?>[] loaded,
+                      final int from,
+                      final int to,
+                      final Matcher matcher,
+                      final boolean isRemoveUnsupported,
+                      final List<Class<?>> classes) {
         SandboxProtector.instance.enterProtecting();
         try {
+            for (int index = from; index < to; index++) {
+                if (isMatched(loaded[index], matcher, isRemoveUnsupported)) {
+                    classes.add(loaded[index]);
+                }
+            }
+        } finally {
+            SandboxProtector.instance.exitProtecting();
+        }
+    }
+
+    /**
+     * 并行查找任务
+     * <p>
+     * 区间对半拆分直到不超过{@link #SCAN_CHUNK_SIZE}，合并时左区间在前，结果顺序与顺序查找一致
+     * </p>
+     */
+    private class FindTask extends RecursiveTask<List<Class<?>>> {
+
+        private final Class<?>[] loaded;
+        private final int from;
+        private final int to;
+        private final Matcher matcher;
+        private final boolean isRemoveUnsupported;
 
-            final List<Class<?>> classes = new ArrayList<>();
-            if (null == matcher) {
+        FindTask(final Class<?>[] loaded,
+                 final int from,
+                 final int to,
+                 final Matcher matcher,
+                 final boolean isRemoveUnsupported) {
+            this.loaded = loaded;
+            this.from = from;
+            this.to = to;
+            this.matcher = matcher;
+            this.isRemoveUnsupported = isRemoveUnsupported;
+        }
+
+        @Override
+        protected List<Class<?>> compute() {
+            if (to - from <= SCAN_CHUNK_SIZE) {
+                final List<Class<?>> classes = new ArrayList<>();
+                find(loaded, from, to, matcher, isRemoveUnsupported, classes);
                 return classes;
             }
+            final int middle = (from + to) >>> 1;
+            final FindTask right = new FindTask(loaded, middle, to, matcher, isRemoveUnsupported);
+            right.fork();
+            final List<Class<?>> classes = new FindTask(loaded, from, middle, matcher, isRemoveUnsupported).compute();
+            classes.addAll(right.join());
+            return classes;
+        }
 
-            final Iterator<Class<?>> itForLoaded = iteratorForLoadedClasses();
-            while (itForLoaded.hasNext()) {
-                final Class<?> clazz = itForLoaded.next();
-
-                // #242 的建议，过滤掉sandbox家族的类
-                if (isComeFromSandboxFamily(toInternalClassName(clazz.getName()), clazz.getClassLoader())) {
-                    continue;
-                }
+    }
 
-                // 过滤掉对于JVM认为不可修改的类
-                if (isRemoveUnsupported
-                        && !inst.isModifiableClass(clazz)) {
-                    // logger.debug("remove from findForReTransform, because class:{} is unModifiable", clazz.getName());
-                    continue;
-                }
-                try {
-                    if (isRemoveUnsupported) {
-                        if (new UnsupportedMatcher(clazz.getClassLoader(), isEnableUnsafe, isNativeSupported)
-                                .and(matcher)
-                                .matching(ClassStructureFactory.createClassStructure(clazz))
-                                .isMatched()) {
-                            classes.add(clazz);
-                        }
-                    } else {
-                        if (matcher.matching(ClassStructureFactory.createClassStructure(clazz)).isMatched()) {
-                            classes.add(clazz);
-                        }
-                    }
-
-                } catch (Throwable cause) {
-                    // 在这里可能会遇到非常坑爹的模块卸载错误
-                    // 当一个URLClassLoader被动态关闭之后，但JVM已经加载的类并不知情（因为没有GC）
-                    // 所以当尝试获取这个类更多详细信息的时候会引起关联类的ClassNotFoundException等未知的错误（取决于底层ClassLoader的实现）
-                    // 这里没有办法穷举出所有的异常情况，所以catch Throwable来完成异常容灾处理
-                    // 当解析类出现异常的时候，直接简单粗暴的认为根本没有这个类就好了
-                    logger.debug("remove from findForReTransform, because loading class:{} occur an exception", clazz.getName(), cause);
+    // 获取并行查找的线程池，只有第一次并行查找时才会创建
+    private ForkJoinPool getScanPool() {
+        if (null == scanPool) {
+            synchronized (this) {
+                if (null == scanPool) {
+                    final AtomicInteger sequence = new AtomicInteger();
+                    scanPool = new ForkJoinPool(
+                            scanParallelism,
+                            pool -> {
+                                final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                                thread.setName("sandbox-class-scanner-" + sequence.incrementAndGet());
+                                return thread;
+                            },
+                            null,
+                            false
+                    );
                 }
             }
+        }
+        return scanPool;
+    }
+
+    // 按匹配器给出的类名前缀从索引中取出可能匹配的类，无法确定时返回所有已加载的类
+    private Class<?>[] findCandidates(final Matcher matcher) {
+        final String[] classNamePrefixes = matcher.getClassNamePrefixes();
+        if (null != classNamePrefixes) {
+            return classNameIndex.find(classNamePrefixes).toArray(new Class<?>[0]);
+        }
+        final String[] familyTypeNamePrefixes = matcher.getFamilyTypeNamePrefixes();
+        if (null != familyTypeNamePrefixes) {
+            return classNameIndex.findFamily(familyTypeNamePrefixes).toArray(new Class<?>[0]);
+        }
+        return inst.getAllLoadedClasses();
+    }
+
+    private List<Class<?>> find(final Matcher matcher,
+                                final boolean isRemoveUnsupported) {
+
+        final List<Class<?>> classes = new ArrayList<>();
+        if (null == matcher) {
+            return classes;
+        }
+
+        // 能确定类名前缀时只从类名索引中取出前缀相符的类，其余的类不用构造类结构；
+        // 匹配子类时只能确定家族类型的类名前缀，从反向索引中取出前缀相符的类型及其子类型
+        // 用于形变的查找会过滤掉JVM不可修改的类，不在类名索引中的数组类、匿名类本来就不会被找到
+        final Class<?>[] loaded = isRemoveUnsupported
+                ? findCandidates(matcher)
+                : inst.getAllLoadedClasses();
+
+        // 已加载的类不多时直接在当前线程中查找，不创建线程
+        if (scanParallelism <= 1
+                || loaded.length < SCAN_PARALLEL_THRESHOLD) {
+            find(loaded, 0, loaded.length, matcher, isRemoveUnsupported, classes);
             return classes;
+        }
 
+        SandboxProtector.instance.enterProtecting();
+        try {
+            return getScanPool().invoke(new FindTask(loaded, 0, loaded.length, matcher, isRemoveUnsupported));
         } finally {
             SandboxProtector.instance.exitProtecting();
         }
@@ -145,4 +284,17 @@ public class DefaultCoreLoadedClassDataSource implements CoreLoadedClassDataSour
         return new LinkedHashSet<>(find(new ExtFilterMatcher(make(filter)), false));
     }
 
+    /**
+     * 销毁数据源，注销类名索引的形变器并关闭并行查找的线程池
+     */
+    public void destroy() {
+        classNameIndex.destroy();
+        synchronized (this) {
+            if (null != scanPool) {
+                scanPool.shutdown();
+                scanPool = null;
+            }
+        }
+    }
+
 }
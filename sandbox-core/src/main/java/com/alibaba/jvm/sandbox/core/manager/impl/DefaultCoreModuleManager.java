@@ -44,6 +44,12 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
     private final CoreLoadedClassDataSource classDataSource;
     private final ProviderManager providerManager;
 
+    // 所有模块共用的类形变调度器
+    private final ReTransformScheduler reTransformScheduler;
+
+    // 所有模块共用的命名空间类形变器
+    private final NamespaceClassFileTransformer namespaceClassFileTransformer;
+
     // 模块目录&文件集合
     private final File[] moduleLibDirArray;
 
@@ -66,6 +72,18 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
         this.inst = inst;
         this.classDataSource = classDataSource;
         this.providerManager = providerManager;
+        this.reTransformScheduler = new ReTransformScheduler(
+                inst,
+                cfg.getNamespace(),
+                cfg.getReTransformBatchSize(),
+                cfg.getReTransformMaxClassesPerSecond(),
+                cfg.getReTransformMaxPauseMillisPerSecond()
+        );
+        this.namespaceClassFileTransformer = new NamespaceClassFileTransformer(
+                inst,
+                cfg.getNamespace(),
+                cfg.isEnableUnsafe()
+        );
 
         // 初始化模块目录
         this.moduleLibDirArray = mergeFileArray(
@@ -213,22 +231,20 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
 
                 // ModuleEventWatcher对象注入
                 else if (ModuleEventWatcher.class.isAssignableFrom(fieldType)) {
+                    final DefaultModuleEventWatcher defaultModuleEventWatcher =
+                            new DefaultModuleEventWatcher(inst, classDataSource, coreModule, cfg.isEnableUnsafe(), cfg.getNamespace(), reTransformScheduler, namespaceClassFileTransformer);
                     final ModuleEventWatcher moduleEventWatcher = coreModule.append(
                             new ReleaseResource<ModuleEventWatcher>(
                                     SandboxProtector.instance.protectProxy(
                                             ModuleEventWatcher.class,
-                                            new DefaultModuleEventWatcher(inst, classDataSource, coreModule, cfg.isEnableUnsafe(), cfg.getNamespace())
+                                            defaultModuleEventWatcher
                                     )
                             ) {
                                 @Override
                                 public void release() {
                                     logger.info("release all SandboxClassFileTransformer for module={}", coreModule.getUniqueId());
-                                    final ModuleEventWatcher moduleEventWatcher = get();
-                                    if (null != moduleEventWatcher) {
-                                        for (final SandboxClassFileTransformer sandboxClassFileTransformer
-                                                : new ArrayList<>(coreModule.getSandboxClassFileTransformers())) {
-                                            moduleEventWatcher.delete(sandboxClassFileTransformer.getWatchId());
-                                        }
+                                    if (null != get()) {
+                                        defaultModuleEventWatcher.release();
                                     }
                                 }
                             });
@@ -12,15 +12,14 @@ import com.alibaba.jvm.sandbox.core.util.Sequencer;
 import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher;
 import com.alibaba.jvm.sandbox.core.util.matcher.GroupMatcher;
 import com.alibaba.jvm.sandbox.core.util.matcher.Matcher;
-import org.apache.commons.collections.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.instrument.Instrumentation;
-import java.util.Iterator;
-import java.util.LinkedHashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
 
 import static com.alibaba.jvm.sandbox.api.filter.ExtFilter.ExtFilterFactory.make;
 import static com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher.toOrGroupMatcher;
@@ -40,19 +39,35 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
     private final boolean isEnableUnsafe;
     private final String namespace;
 
+    // 类形变调度器，所有模块共用
+    private final ReTransformScheduler reTransformScheduler;
+
+    // 命名空间类形变器，所有模块共用
+    private final NamespaceClassFileTransformer namespaceClassFileTransformer;
+
+    // 尚未完成的异步观察和删除
+    private final List<Future<?>> asyncFutures = new ArrayList<>();
+
+    // 是否已经释放
+    private volatile boolean isReleased;
+
     // 观察ID序列生成器
     private final Sequencer watchIdSequencer = new Sequencer();
 
-    DefaultModuleEventWatcher(final Instrumentation inst,
-                              final CoreLoadedClassDataSource classDataSource,
-                              final CoreModule coreModule,
-                              final boolean isEnableUnsafe,
-                              final String namespace) {
+    public DefaultModuleEventWatcher(final Instrumentation inst,
+                                     final CoreLoadedClassDataSource classDataSource,
+                                     final CoreModule coreModule,
+                                     final boolean isEnableUnsafe,
+                                     final String namespace,
+                                     final ReTransformScheduler reTransformScheduler,
+                                     final NamespaceClassFileTransformer namespaceClassFileTransformer) {
         this.inst = inst;
         this.classDataSource = classDataSource;
         this.coreModule = coreModule;
         this.isEnableUnsafe = isEnableUnsafe;
         this.namespace = namespace;
+        this.reTransformScheduler = reTransformScheduler;
+        this.namespaceClassFileTransformer = namespaceClassFileTransformer;
     }
 
 
@@ -86,61 +101,7 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
         final int watchId,
         final List<Class<?>> waitingReTransformClasses,
         final Progress progress) {
-        // 需要形变总数
-        final int total = waitingReTransformClasses.size();
-
-        // 如果找不到需要被重新增强的类则直接返回
-        if (CollectionUtils.isEmpty(waitingReTransformClasses)) {
-            return;
-        }
-
-        if (logger.isDebugEnabled()) {
-            logger.debug("reTransformClasses={};module={};watch={};",
-                    waitingReTransformClasses, coreModule.getUniqueId(), watchId);
-        }
-
-        int index = 0;
-        for (final Class<?> waitingReTransformClass : waitingReTransformClasses) {
-            index++;
-            try {
-                if (null != progress) {
-                    try {
-                        progress.progressOnSuccess(waitingReTransformClass, index);
-                    } catch (Throwable cause) {
-                        // 在进行进度汇报的过程中抛出异常,直接进行忽略,因为不影响形变的主体流程
-                        // 仅仅只是一个汇报作用而已
-                        logger.warn("watch={} in module={} on {} report progressOnSuccess occur exception at index={};total={};",
-                                watchId, coreModule.getUniqueId(), waitingReTransformClass,
-                                index - 1, total,
-                                cause
-                        );
-                    }
-                }
-                inst.retransformClasses(waitingReTransformClass);
-                logger.info("watch={} in module={} single reTransform {} success, at index={};total={};",
-                        watchId, coreModule.getUniqueId(), waitingReTransformClass,
-                        index - 1, total
-                );
-            } catch (Throwable causeOfReTransform) {
-                logger.warn("watch={} in module={} single reTransform {} failed, at index={};total={}. ignore this class.",
-                        watchId, coreModule.getUniqueId(), waitingReTransformClass,
-                        index - 1, total,
-                        causeOfReTransform
-                );
-                if (null != progress) {
-                    try {
-                        progress.progressOnFailed(waitingReTransformClass, index, causeOfReTransform);
-                    } catch (Throwable cause) {
-                        logger.warn("watch={} in module={} on {} report progressOnFailed occur exception, at index={};total={};",
-                                watchId, coreModule.getUniqueId(), waitingReTransformClass,
-                                index - 1, total,
-                                cause
-                        );
-                    }
-                }
-            }
-        }//for
-
+        reTransformScheduler.reTransform(watchId, coreModule.getUniqueId(), waitingReTransformClasses, progress);
     }
 
     @Override
@@ -166,7 +127,68 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
         return watch(toOrGroupMatcher(condition.getOrFilterArray()), listener, progress, eventType);
     }
 
+    @Override
+    public Future<Integer> watchAsync(final EventWatchCondition condition,
+                                      final EventListener listener,
+                                      final Progress progress,
+                                      final Event.Type... eventType) {
+        final Matcher matcher = toOrGroupMatcher(condition.getOrFilterArray());
+        return submitAsync(() -> watch(matcher, listener, progress, eventType));
+    }
+
+    @Override
+    public Future<Void> deleteAsync(final int watcherId,
+                                    final Progress progress) {
+        return submitAsync(() -> {
+            delete(watcherId, progress);
+            return null;
+        });
+    }
+
+    // 提交到形变调度器中异步执行，释放后不再执行
+    private <T> Future<T> submitAsync(final Callable<T> task) {
+        if (isReleased) {
+            throw new IllegalStateException(String.format("module=%s was released.", coreModule.getUniqueId()));
+        }
+        final Future<T> future = reTransformScheduler.submit(() -> {
+            if (isReleased) {
+                throw new CancellationException(String.format("module=%s was released.", coreModule.getUniqueId()));
+            }
+            return task.call();
+        });
+        synchronized (asyncFutures) {
+            asyncFutures.removeIf(Future::isDone);
+            asyncFutures.add(future);
+        }
+        return future;
+    }
+
+    /**
+     * 释放观察者
+     * <p>
+     * 取消尚未完成的异步观察和删除，中断正在等待形变限流的异步任务，然后删除所有观察。
+     * 释放后不能再登记新的观察，正在形变中的观察也会被一起删除
+     * </p>
+     */
+    void release() {
+        final List<SandboxClassFileTransformer> sandboxClassFileTransformers;
+        synchronized (this) {
+            isReleased = true;
+            sandboxClassFileTransformers = new ArrayList<>(coreModule.getSandboxClassFileTransformers());
+        }
+        synchronized (asyncFutures) {
+            for (final Future<?> future : asyncFutures) {
+                future.cancel(true);
+            }
+            asyncFutures.clear();
+        }
+        for (final SandboxClassFileTransformer sandboxClassFileTransformer : sandboxClassFileTransformers) {
+            delete(sandboxClassFileTransformer.getWatchId());
+        }
+    }
+
     // 这里是用matcher重制过后的watch
+    // 只在登记和激活时持有观察者的锁，形变在锁外进行，限流等待时不会阻塞模块释放
     private int watch(final Matcher matcher,
                       final EventListener listener,
                       final Progress progress,
@@ -185,22 +207,20 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
                         isEnableUnsafe,
                         eventType,
                         namespace,
-                        isNativeSupported
+                        isNativeSupported,
+                        namespaceClassFileTransformer.getNativePrefix()
                 );
 
-        // 注册到CoreModule中
-        coreModule.getSandboxClassFileTransformers().add(sandClassFileTransformer);
+        synchronized (this) {
+            if (isReleased) {
+                throw new IllegalStateException(String.format("module=%s was released.", uniqueId));
+            }
 
-        //这里addTransformer后，接下来引起的类加载都会经过sandClassFileTransformer
-        inst.addTransformer(sandClassFileTransformer, true);
+            // 注册到CoreModule中
+            coreModule.getSandboxClassFileTransformers().add(sandClassFileTransformer);
 
-        //设定Native支持
-        if(isNativeSupported) {
-            inst.setNativeMethodPrefix(sandClassFileTransformer, sandClassFileTransformer.getNativePrefix());
-            logger.debug("watch={} in module={} enable native method supported, prefix={}",
-                    watchId,
-                    uniqueId,
-                    sandClassFileTransformer.getNativePrefix());
+            //这里登记后，接下来引起的类加载都会经过命名空间类形变器匹配本次观察
+            namespaceClassFileTransformer.register(sandClassFileTransformer);
         }
 
         // 查找需要渲染的类集合
@@ -224,11 +244,14 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
             mCnt += sandClassFileTransformer.getAffectStatistic().mCnt();
 
 
-            // 激活增强类
-            if (coreModule.isActivated()) {
-                final int listenerId = sandClassFileTransformer.getListenerId();
-                EventListenerHandler.getSingleton()
-                        .active(listenerId, listener, eventType);
+            // 激活增强类，形变期间观察已经被删除时不再激活
+            synchronized (this) {
+                if (coreModule.isActivated()
+                        && coreModule.getSandboxClassFileTransformers().contains(sandClassFileTransformer)) {
+                    final int listenerId = sandClassFileTransformer.getListenerId();
+                    EventListenerHandler.getSingleton()
+                            .active(listenerId, listener, eventType);
+                }
             }
 
         } finally {
@@ -243,31 +266,37 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
                        final Progress progress) {
 
         final Set<Matcher> waitingRemoveMatcherSet = new LinkedHashSet<>();
-
-        // 找出待删除的SandboxClassFileTransformer
-        final Iterator<SandboxClassFileTransformer> cftIt = coreModule.getSandboxClassFileTransformers().iterator();
         int cCnt = 0, mCnt = 0;
-        while (cftIt.hasNext()) {
-            final SandboxClassFileTransformer sandboxClassFileTransformer = cftIt.next();
-            if (watcherId == sandboxClassFileTransformer.getWatchId()) {
 
-                // 冻结所有关联代码增强
-                EventListenerHandler.getSingleton()
-                        .frozen(sandboxClassFileTransformer.getListenerId());
+        // 找出待删除的SandboxClassFileTransformer，只在注销时持有观察者的锁，形变在锁外进行
+        synchronized (this) {
+            final Iterator<SandboxClassFileTransformer> cftIt = coreModule.getSandboxClassFileTransformers().iterator();
+            while (cftIt.hasNext()) {
+                final SandboxClassFileTransformer sandboxClassFileTransformer = cftIt.next();
+                if (watcherId == sandboxClassFileTransformer.getWatchId()) {
+
+                    // 冻结所有关联代码增强
+                    EventListenerHandler.getSingleton()
+                            .frozen(sandboxClassFileTransformer.getListenerId());
 
-                // 在JVM中移除掉命中的ClassFileTransformer
-                inst.removeTransformer(sandboxClassFileTransformer);
+                    // 在命名空间类形变器中注销命中的观察
+                    namespaceClassFileTransformer.unregister(sandboxClassFileTransformer);
 
-                // 计数
-                cCnt += sandboxClassFileTransformer.getAffectStatistic().cCnt();
-                mCnt += sandboxClassFileTransformer.getAffectStatistic().mCnt();
+                    // 不会再有新织入的代码引用该监听器，注销包含它的监听器集合
+                    EventListenerHandler.getSingleton()
+                            .unregisterListenerSets(sandboxClassFileTransformer.getListenerId());
 
-                // 追加到待删除过滤器集合
-                waitingRemoveMatcherSet.add(sandboxClassFileTransformer.getMatcher());
+                    // 计数
+                    cCnt += sandboxClassFileTransformer.getAffectStatistic().cCnt();
+                    mCnt += sandboxClassFileTransformer.getAffectStatistic().mCnt();
 
-                // 清除掉该SandboxClassFileTransformer
-                cftIt.remove();
+                    // 追加到待删除过滤器集合
+                    waitingRemoveMatcherSet.add(sandboxClassFileTransformer.getMatcher());
 
+                    // 清除掉该SandboxClassFileTransformer
+                    cftIt.remove();
+
+                }
             }
         }
 
@@ -0,0 +1,370 @@
+package com.alibaba.jvm.sandbox.core.manager.impl;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.ref.WeakReference;
+import java.security.ProtectionDomain;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toJavaClassName;
+
+/**
+ * 已加载类的类名索引
+ * <p>
+ * 第一次查找时用{@link Instrumentation#getAllLoadedClasses()}建立按类名排序的索引，之后由一个只观察不修改的形变器
+ * 记录新加载的类名，下次查找前只把这些新加载的类补进索引。按类名前缀查找时只需要遍历索引中前缀相同的一段，
+ * 不用再遍历所有已加载的类。索引对类持弱引用，不影响类的卸载
+ * </p>
+ * <p>
+ * 第一次按家族类型查找时再建立父类型到直接子类型的反向索引，之后随类名索引一起增量更新。
+ * 查找匹配子类的观察条件时从前缀相符的类型出发沿反向索引找出所有子类型
+ * </p>
+ */
+public class LoadedClassNameIndex {
+
+    // 形变器观察到之后仍然没有出现在已加载类中的类名，超过这个时间就认为类定义失败了
+    private static final long PENDING_EXPIRE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    // 默认最多记录的待补充类个数
+    private static final int MAXIMUM_PENDING_SIZE = 65536;
+
+    private final Instrumentation inst;
+
+    // 按类名排序的索引，同名的类可能由不同的ClassLoader加载
+    private final TreeMap<String, List<WeakReference<Class<?>>>> index = new TreeMap<>();
+
+    // 父类和接口的类名 -> 直接子类型，第一次按家族类型查找时才建立，不同ClassLoader中的同名类型合在一起
+    private TreeMap<String, List<WeakReference<Class<?>>>> subTypes;
+
+    // 形变器观察到、还没有补进索引的类和观察到的时间，同名的类可能在同一段时间内由不同的ClassLoader加载
+    private final Map<PendingClass, Long> pending = new ConcurrentHashMap<>();
+
+    // 最多记录的待补充类个数
+    private final int maximumPendingSize;
+
+    // 待补充的类超出上限后被清空过，下次查找时需要重建索引
+    private volatile boolean isPendingOverflow;
+
+    // 只观察不修改的形变器
+    private final ClassFileTransformer observer = new ClassFileTransformer() {
+        @Override
+        public byte[] transform(final ClassLoader loader,
+                                final String internalClassName,
+                                final Class<?> classBeingRedefined,
+                                final ProtectionDomain protectionDomain,
+                                final byte[] classfileBuffer) {
+            if (null == classBeingRedefined
+                    && null != internalClassName) {
+
+                // 长时间没有查找时待补充的类会一直增长，超出上限后直接清空，下次查找时重建索引
+                if (pending.size() >= maximumPendingSize) {
+                    isPendingOverflow = true;
+                    pending.clear();
+                }
+                pending.put(new PendingClass(loader, toJavaClassName(internalClassName)), nanoTime());
+            }
+            return null;
+        }
+    };
+
+    // 索引中的弱引用个数，包括已经被回收的
+    private int size;
+
+    private boolean isInitialized;
+
+    public LoadedClassNameIndex(final Instrumentation inst) {
+        this(inst, MAXIMUM_PENDING_SIZE);
+    }
+
+    public LoadedClassNameIndex(final Instrumentation inst,
+                                final int maximumPendingSize) {
+        this.inst = inst;
+        this.maximumPendingSize = Math.max(1, maximumPendingSize);
+    }
+
+    /**
+     * 当前时间(纳秒)
+     *
+     * @return 当前时间
+     */
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+    private void add(final Class<?> clazz) {
+        final List<WeakReference<Class<?>>> references = index.computeIfAbsent(clazz.getName(), name -> new ArrayList<>(1));
+        for (final WeakReference<Class<?>> reference : references) {
+            if (reference.get() == clazz) {
+                return;
+            }
+        }
+        references.add(new WeakReference<>(clazz));
+        size++;
+        if (null != subTypes) {
+            addSubType(clazz);
+        }
+    }
+
+    private void addSubType(final Class<?> clazz) {
+        final Class<?> superClass = clazz.getSuperclass();
+        if (null != superClass) {
+            subTypes.computeIfAbsent(superClass.getName(), name -> new ArrayList<>(1)).add(new WeakReference<>(clazz));
+        }
+        for (final Class<?> interfaceClass : clazz.getInterfaces()) {
+            subTypes.computeIfAbsent(interfaceClass.getName(), name -> new ArrayList<>(1)).add(new WeakReference<>(clazz));
+        }
+    }
+
+    private void rebuild(final Class<?>[] loaded) {
+        index.clear();
+        size = 0;
+        if (null != subTypes) {
+            subTypes.clear();
+        }
+        for (final Class<?> clazz : loaded) {
+            add(clazz);
+        }
+    }
+
+    // 由类名索引建立反向索引
+    private void buildSubTypes() {
+        subTypes = new TreeMap<>();
+        for (final List<WeakReference<Class<?>>> references : index.values()) {
+            for (final WeakReference<Class<?>> reference : references) {
+                final Class<?> clazz = reference.get();
+                if (null != clazz) {
+                    addSubType(clazz);
+                }
+            }
+        }
+    }
+
+    // 把形变器观察到的类补进索引
+    private void refresh() {
+
+        // 先注册形变器再获取已加载的类，两者之间加载的类会被重复记录，但不会遗漏
+        if (!isInitialized) {
+            inst.addTransformer(observer, false);
+            rebuild(inst.getAllLoadedClasses());
+            isInitialized = true;
+            return;
+        }
+
+        // 先清除标记再获取已加载的类，清除之后再次超出上限时下次查找会再重建
+        final boolean isOverflow = isPendingOverflow;
+        if (isOverflow) {
+            isPendingOverflow = false;
+        } else if (pending.isEmpty()) {
+            return;
+        }
+
+        // 形变器观察到类名时类还没有定义完成，只有在已加载类中找到了同一个ClassLoader加载的类才从待补充的类中移除
+        final Map<PendingClass, Long> observed = new HashMap<>(pending);
+        final Set<String> observedNames = new HashSet<>();
+        for (final PendingClass pendingClass : observed.keySet()) {
+            observedNames.add(pendingClass.javaClassName);
+        }
+        final Class<?>[] loaded = inst.getAllLoadedClasses();
+
+        // 待补充的类被清空过或者卸载的类太多时重建索引，后者顺便清理已经被回收的弱引用
+        final boolean isRebuild = isOverflow || size > loaded.length * 2;
+        if (isRebuild) {
+            rebuild(loaded);
+        }
+
+        final Set<PendingClass> found = new HashSet<>();
+        for (final Class<?> clazz : loaded) {
+            if (!observedNames.contains(clazz.getName())) {
+                continue;
+            }
+            found.add(new PendingClass(clazz.getClassLoader(), clazz.getName()));
+            if (!isRebuild) {
+                add(clazz);
+            }
+        }
+        final long nowNanos = nanoTime();
+        for (final Map.Entry<PendingClass, Long> entry : observed.entrySet()) {
+            if (found.contains(entry.getKey())
+                    || nowNanos - entry.getValue() > PENDING_EXPIRE_NANOS) {
+                pending.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    // 去掉被更短的前缀包含的前缀，避免重复查找
+    private static List<String> toDistinctPrefixes(final String[] prefixes) {
+        final String[] sorted = prefixes.clone();
+        Arrays.sort(sorted);
+        final List<String> distinct = new ArrayList<>();
+        for (final String prefix : sorted) {
+            if (distinct.isEmpty()
+                    || !prefix.startsWith(distinct.get(distinct.size() - 1))) {
+                distinct.add(prefix);
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * 查找类名以指定前缀开头的已加载类
+     *
+     * @param prefixes 类名前缀
+     * @return 类名以其中任何一个前缀开头的已加载类，按类名排序
+     */
+    public synchronized List<Class<?>> find(final String[] prefixes) {
+        refresh();
+        final List<Class<?>> classes = new ArrayList<>();
+        for (final String prefix : toDistinctPrefixes(prefixes)) {
+            for (final Map.Entry<String, List<WeakReference<Class<?>>>> entry : index.tailMap(prefix).entrySet()) {
+                if (!entry.getKey().startsWith(prefix)) {
+                    break;
+                }
+                for (final WeakReference<Class<?>> reference : entry.getValue()) {
+                    final Class<?> clazz = reference.get();
+                    if (null != clazz) {
+                        classes.add(clazz);
+                    }
+                }
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * 查找自身或者某个家族类型的类名以指定前缀开头的已加载类
+     * <p>
+     * 从类名前缀相符的类型出发，沿反向索引找出它们的所有子类型，接口的实现类和子接口都会被找到
+     * </p>
+     *
+     * @param prefixes 类名前缀
+     * @return 自身或者某个家族类型的类名以其中任何一个前缀开头的已加载类
+     */
+    public synchronized List<Class<?>> findFamily(final String[] prefixes) {
+        refresh();
+        if (null == subTypes) {
+            buildSubTypes();
+        }
+        final List<Class<?>> classes = new ArrayList<>();
+        final Set<Class<?>> found = Collections.newSetFromMap(new IdentityHashMap<>());
+        final Set<String> visited = new HashSet<>();
+        final Deque<String> superTypeNames = new ArrayDeque<>();
+
+        // 类名前缀相符的类型本身，父类型可能没有出现在类名索引中，反向索引里前缀相符的父类型也要作为起点
+        for (final String prefix : toDistinctPrefixes(prefixes)) {
+            for (final Map.Entry<String, List<WeakReference<Class<?>>>> entry : index.tailMap(prefix).entrySet()) {
+                if (!entry.getKey().startsWith(prefix)) {
+                    break;
+                }
+                for (final WeakReference<Class<?>> reference : entry.getValue()) {
+                    final Class<?> clazz = reference.get();
+                    if (null != clazz && found.add(clazz)) {
+                        classes.add(clazz);
+                    }
+                }
+                if (visited.add(entry.getKey())) {
+                    superTypeNames.add(entry.getKey());
+                }
+            }
+            for (final String superTypeName : subTypes.tailMap(prefix).keySet()) {
+                if (!superTypeName.startsWith(prefix)) {
+                    break;
+                }
+                if (visited.add(superTypeName)) {
+                    superTypeNames.add(superTypeName);
+                }
+            }
+        }
+
+        // 沿反向索引找出所有子类型
+        while (!superTypeNames.isEmpty()) {
+            final List<WeakReference<Class<?>>> references = subTypes.get(superTypeNames.poll());
+            if (null == references) {
+                continue;
+            }
+            for (final WeakReference<Class<?>> reference : references) {
+                final Class<?> clazz = reference.get();
+                if (null == clazz || !found.add(clazz)) {
+                    continue;
+                }
+                classes.add(clazz);
+                if (visited.add(clazz.getName())) {
+                    superTypeNames.add(clazz.getName());
+                }
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * 获取待补充进索引的类个数
+     *
+     * @return 待补充进索引的类个数
+     */
+    public int getPendingSize() {
+        return pending.size();
+    }
+
+    /**
+     * 注销观察的形变器
+     */
+    public synchronized void destroy() {
+        if (isInitialized) {
+            inst.removeTransformer(observer);
+            index.clear();
+            subTypes = null;
+            pending.clear();
+            isPendingOverflow = false;
+            size = 0;
+            isInitialized = false;
+        }
+    }
+
+    /**
+     * 形变器观察到的类，由ClassLoader和类名确定
+     * <p>
+     * 对ClassLoader持弱引用，类定义失败时不影响ClassLoader的回收
+     * </p>
+     */
+    private static class PendingClass {
+
+        private final WeakReference<ClassLoader> loaderRef;
+        private final boolean isBootstrap;
+        private final String javaClassName;
+        private final int hashCode;
+
+        PendingClass(final ClassLoader loader, final String javaClassName) {
+            this.loaderRef = null == loader ? null : new WeakReference<>(loader);
+            this.isBootstrap = null == loader;
+            this.javaClassName = javaClassName;
+            this.hashCode = 31 * System.identityHashCode(loader) + javaClassName.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof PendingClass)) {
+                return false;
+            }
+            final PendingClass that = (PendingClass) obj;
+            if (isBootstrap || that.isBootstrap) {
+                return isBootstrap == that.isBootstrap
+                        && javaClassName.equals(that.javaClassName);
+            }
+            final ClassLoader loader = loaderRef.get();
+            return null != loader
+                    && loader == that.loaderRef.get()
+                    && javaClassName.equals(that.javaClassName);
+        }
+
+    }
+
+}
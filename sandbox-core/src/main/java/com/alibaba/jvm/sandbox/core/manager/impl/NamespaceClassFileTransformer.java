@@ -0,0 +1,242 @@
+package com.alibaba.jvm.sandbox.core.manager.impl;
+
+import com.alibaba.jvm.sandbox.core.enhance.EventEnhancer;
+import com.alibaba.jvm.sandbox.core.enhance.EventWeaving;
+import com.alibaba.jvm.sandbox.core.util.SandboxClassUtils;
+import com.alibaba.jvm.sandbox.core.util.SandboxProtector;
+import com.alibaba.jvm.sandbox.core.util.matcher.MatchingResult;
+import com.alibaba.jvm.sandbox.core.util.matcher.UnsupportedMatcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.BehaviorStructure;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructure;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.alibaba.jvm.sandbox.core.manager.impl.SandboxClassFileTransformer.SANDBOX_SPECIAL_PREFIX;
+
+/**
+ * 命名空间类形变器
+ * <p>
+ * 一个命名空间只向JVM注册这一个形变器，由它登记所有生效中的观察。
+ * 类加载或重新形变时只构造一次类结构，一次匹配所有观察，并把所有匹配上的监听器在一次字节码改写中织入
+ * </p>
+ */
+public class NamespaceClassFileTransformer implements ClassFileTransformer {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Instrumentation inst;
+    private final String namespace;
+    private final boolean isEnableUnsafe;
+    private final boolean isNativeSupported;
+    private final String nativePrefix;
+
+    // 生效中的观察，按观察顺序排列
+    private final List<SandboxClassFileTransformer> sandboxClassFileTransformers = new CopyOnWriteArrayList<>();
+
+    public NamespaceClassFileTransformer(final Instrumentation inst,
+                                         final String namespace,
+                                         final boolean isEnableUnsafe) {
+        this.inst = inst;
+        this.namespace = namespace;
+        this.isEnableUnsafe = isEnableUnsafe;
+        this.isNativeSupported = inst.isNativeMethodPrefixSupported();
+        this.nativePrefix = String.format("%s$%s$", SANDBOX_SPECIAL_PREFIX, namespace);
+    }
+
+    /**
+     * 登记一个观察，第一个观察登记时向JVM注册形变器
+     *
+     * @param sandboxClassFileTransformer 观察的类形变器
+     */
+    synchronized void register(final SandboxClassFileTransformer sandboxClassFileTransformer) {
+        final boolean isFirst = sandboxClassFileTransformers.isEmpty();
+        sandboxClassFileTransformers.add(sandboxClassFileTransformer);
+        if (!isFirst) {
+            return;
+        }
+
+        //这里addTransformer后，接下来引起的类加载都会经过本形变器
+        inst.addTransformer(this, true);
+
+        //设定Native支持
+        if (isNativeSupported) {
+            inst.setNativeMethodPrefix(this, nativePrefix);
+            logger.debug("namespace={} enable native method supported, prefix={}", namespace, nativePrefix);
+        }
+    }
+
+    /**
+     * 注销一个观察，最后一个观察注销时从JVM中移除形变器
+     *
+     * @param sandboxClassFileTransformer 观察的类形变器
+     */
+    synchronized void unregister(final SandboxClassFileTransformer sandboxClassFileTransformer) {
+        if (sandboxClassFileTransformers.remove(sandboxClassFileTransformer)
+                && sandboxClassFileTransformers.isEmpty()) {
+            inst.removeTransformer(this);
+        }
+    }
+
+    /**
+     * 获取native方法前缀
+     *
+     * @return native方法前缀
+     */
+    String getNativePrefix() {
+        return nativePrefix;
+    }
+
+    @Override
+    public byte[] transform(final ClassLoader loader,
+                            final String internalClassName,
+                            final Class<?> classBeingRedefined,
+                            final ProtectionDomain protectionDomain,
+                            final byte[] srcByteCodeArray) {
+
+        SandboxProtector.instance.enterProtecting();
+        try {
+
+            // 这里过滤掉Sandbox所需要的类|来自SandboxClassLoader所加载的类|来自ModuleJarClassLoader加载的类
+            // 防止ClassCircularityError的发生
+            if (SandboxClassUtils.isComeFromSandboxFamily(internalClassName, loader)) {
+                return null;
+            }
+
+            // 如果未开启unsafe开关，是不允许增强来自BootStrapClassLoader的类
+            if (!isEnableUnsafe
+                    && null == loader) {
+                logger.debug("transform ignore {}, class from bootstrap but unsafe.enable=false.", internalClassName);
+                return null;
+            }
+
+            final List<SandboxClassFileTransformer> matchedTransformers = new ArrayList<>();
+            final List<EventWeaving> weavings = new ArrayList<>();
+            matching(
+                    ClassStructureMemo.getClassStructure(loader, classBeingRedefined, srcByteCodeArray),
+                    loader,
+                    matchedTransformers,
+                    weavings
+            );
+            if (matchedTransformers.isEmpty()) {
+                logger.debug("transform ignore {}, no behaviors matched in loader={}", internalClassName, loader);
+                return null;
+            }
+
+            return _transform(
+                    matchedTransformers,
+                    weavings,
+                    loader,
+                    internalClassName,
+                    classBeingRedefined,
+                    protectionDomain,
+                    srcByteCodeArray
+            );
+
+        } catch (Throwable cause) {
+            logger.warn("sandbox transform {} in loader={}; failed, namespace={}, will ignore this transform.",
+                    internalClassName,
+                    loader,
+                    namespace,
+                    cause
+            );
+            return null;
+        } finally {
+            SandboxProtector.instance.exitProtecting();
+        }
+    }
+
+    // 一次匹配所有观察，不支持的行为只计算一次
+    private void matching(final ClassStructure classStructure,
+                          final ClassLoader loader,
+                          final List<SandboxClassFileTransformer> matchedTransformers,
+                          final List<EventWeaving> weavings) {
+        final List<SandboxClassFileTransformer> transformers = new ArrayList<>(sandboxClassFileTransformers);
+        if (transformers.isEmpty()) {
+            return;
+        }
+
+        final MatchingResult supportedResult = new UnsupportedMatcher(loader, isEnableUnsafe, isNativeSupported)
+                .matching(classStructure);
+        if (!supportedResult.isMatched()) {
+            return;
+        }
+
+        for (final SandboxClassFileTransformer transformer : transformers) {
+            final MatchingResult result = transformer.getMatcher().matching(classStructure);
+            if (!result.isMatched()) {
+                continue;
+            }
+            final LinkedHashSet<BehaviorStructure> found = new LinkedHashSet<>(supportedResult.getBehaviorStructures());
+            found.retainAll(result.getBehaviorStructures());
+            if (found.isEmpty()) {
+                continue;
+            }
+            final Set<String> behaviorSignCodes = new LinkedHashSet<>();
+            for (final BehaviorStructure behaviorStructure : found) {
+                behaviorSignCodes.add(behaviorStructure.getSignCode());
+            }
+            matchedTransformers.add(transformer);
+            weavings.add(new EventWeaving(behaviorSignCodes, transformer.getListenerId(), transformer.getEventTypeArray()));
+        }
+    }
+
+    private byte[] _transform(final List<SandboxClassFileTransformer> matchedTransformers,
+                              final List<EventWeaving> weavings,
+                              final ClassLoader loader,
+                              final String internalClassName,
+                              final Class<?> classBeingRedefined,
+                              final ProtectionDomain protectionDomain,
+                              final byte[] srcByteCodeArray) {
+        final byte[] toByteCodeArray;
+        try {
+            toByteCodeArray = new EventEnhancer(nativePrefix).toByteCodeArray(
+                    loader,
+                    srcByteCodeArray,
+                    namespace,
+                    weavings
+            );
+        } catch (Throwable cause) {
+
+            // 合并增强失败时退回到逐个观察增强，避免一个观察的问题连累所有观察
+            logger.warn("transform {} failed with {} watches, will transform watch by watch. namespace={} in loader={}",
+                    internalClassName, weavings.size(), namespace, loader, cause);
+            byte[] byteCodeArray = srcByteCodeArray;
+            for (final SandboxClassFileTransformer transformer : matchedTransformers) {
+                final byte[] transformed = transformer.transform(
+                        loader,
+                        internalClassName,
+                        classBeingRedefined,
+                        protectionDomain,
+                        byteCodeArray
+                );
+                if (null != transformed) {
+                    byteCodeArray = transformed;
+                }
+            }
+            return srcByteCodeArray == byteCodeArray ? null : byteCodeArray;
+        }
+
+        if (srcByteCodeArray == toByteCodeArray) {
+            logger.debug("transform ignore {}, nothing changed in loader={}", internalClassName, loader);
+            return null;
+        }
+
+        // statistic affect
+        for (int index = 0; index < matchedTransformers.size(); index++) {
+            final SandboxClassFileTransformer transformer = matchedTransformers.get(index);
+            transformer.getAffectStatistic().statisticAffect(loader, internalClassName, weavings.get(index).getSignCodes());
+            logger.info("transform {} finished, by module={} in loader={}", internalClassName, transformer.getUniqueId(), loader);
+        }
+        return toByteCodeArray;
+    }
+
+}
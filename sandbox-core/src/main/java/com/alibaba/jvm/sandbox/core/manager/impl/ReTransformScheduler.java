@@ -0,0 +1,304 @@
+package com.alibaba.jvm.sandbox.core.manager.impl;
+
+import com.alibaba.jvm.sandbox.api.resource.ModuleEventWatcher.Progress;
+import com.alibaba.jvm.sandbox.core.util.SandboxProtector;
+import org.apache.commons.collections.CollectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.instrument.Instrumentation;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * 类形变调度器
+ * <p>
+ * 待形变的类按批提交给JVM，每批形变都要进入一次安全点。调度器在每个时间窗口(1秒)内限制形变的类个数和形变耗时
+ * (近似为安全点停顿时间)，超出限制后等到下一个时间窗口再继续，避免观察大量类时安全点停顿集中爆发。
+ * 同一个沙箱的所有模块共用一个调度器，异步形变在调度器的后台线程中逐个执行
+ * </p>
+ */
+public class ReTransformScheduler {
+
+    // 限流时间窗口
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Instrumentation inst;
+
+    // 每批形变的类个数
+    private final int batchSize;
+
+    // 每秒最多形变的类个数，0为不限制
+    private final int maxClassesPerSecond;
+
+    // 每秒最多的形变耗时，0为不限制
+    private final long maxPauseNanosPerSecond;
+
+    // 异步形变执行器，空闲时不保留线程
+    private final ExecutorService executor;
+
+    // 当前时间窗口的开始时间、已形变的类个数和形变耗时
+    private long windowBeginNanos;
+    private int windowClasses;
+    private long windowPauseNanos;
+
+    /**
+     * 构造类形变调度器
+     *
+     * @param inst                    Instrumentation
+     * @param namespace               命名空间
+     * @param batchSize               每批形变的类个数
+     * @param maxClassesPerSecond     每秒最多形变的类个数，0为不限制
+     * @param maxPauseMillisPerSecond 每秒最多的形变耗时(毫秒)，0为不限制
+     */
+    public ReTransformScheduler(final Instrumentation inst,
+                                final String namespace,
+                                final int batchSize,
+                                final int maxClassesPerSecond,
+                                final long maxPauseMillisPerSecond) {
+        this.inst = inst;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxClassesPerSecond = Math.max(0, maxClassesPerSecond);
+        this.maxPauseNanosPerSecond = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxPauseMillisPerSecond));
+        this.executor = new ThreadPoolExecutor(
+                0, 1, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "sandbox-retransform-scheduler-" + namespace);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+    }
+
+    /**
+     * 当前时间(纳秒)
+     *
+     * @return 当前时间
+     */
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+    /**
+     * 等待到下一个时间窗口
+     *
+     * @param nanos 等待时长(纳秒)
+     * @throws InterruptedException 等待被中断
+     */
+    protected void sleep(final long nanos) throws InterruptedException {
+        TimeUnit.NANOSECONDS.sleep(nanos);
+    }
+
+    /**
+     * 提交异步任务，任务在调度器的后台线程中执行
+     *
+     * @param task 任务
+     * @param <T>  任务结果类型
+     * @return 任务的Future
+     */
+    public <T> Future<T> submit(final Callable<T> task) {
+        return executor.submit(() -> {
+            SandboxProtector.instance.enterProtecting();
+            try {
+                return task.call();
+            } finally {
+                SandboxProtector.instance.exitProtecting();
+            }
+        });
+    }
+
+    // 当前时间窗口是否还能形变count个类
+    private boolean isWindowAvailable(final int count) {
+        return (maxClassesPerSecond == 0 || windowClasses + count <= maxClassesPerSecond)
+                && (maxPauseNanosPerSecond == 0 || windowPauseNanos < maxPauseNanosPerSecond);
+    }
+
+    private void resetWindow(final long nowNanos) {
+        windowBeginNanos = nowNanos;
+        windowClasses = 0;
+        windowPauseNanos = 0;
+    }
+
+    /*
+     * 在当前时间窗口中预留count个类的形变额度，返回0表示预留成功，否则返回需要等待的时长(纳秒)
+     * 只在计算额度时持有锁，等待在锁外进行，不会让其他模块的形变和中断卡在调度器的锁上
+     */
+    private synchronized long tryAcquire(final int count) {
+        final long nowNanos = nanoTime();
+        if ((windowClasses == 0 && windowPauseNanos == 0)
+                || nowNanos - windowBeginNanos >= WINDOW_NANOS) {
+            resetWindow(nowNanos);
+        }
+        if (!isWindowAvailable(count)) {
+            return Math.max(1, windowBeginNanos + WINDOW_NANOS - nowNanos);
+        }
+        windowClasses += count;
+        return 0;
+    }
+
+    // 等待直到当前时间窗口还能形变count个类
+    private void acquire(final int count) throws InterruptedException {
+        long waitNanos;
+        while ((waitNanos = tryAcquire(count)) > 0) {
+            sleep(waitNanos);
+        }
+    }
+
+    // 记录形变耗时
+    private synchronized void addPause(final long pauseNanos) {
+        windowPauseNanos += pauseNanos;
+    }
+
+    // 汇报单个类形变成功
+    private void progressOnSuccess(final int watchId,
+                                   final String uniqueId,
+                                   final Progress progress,
+                                   final Class<?> waitingReTransformClass,
+                                   final int index,
+                                   final int total) {
+        if (null != progress) {
+            try {
+                progress.progressOnSuccess(waitingReTransformClass, index + 1);
+            } catch (Throwable cause) {
+                // 在进行进度汇报的过程中抛出异常,直接进行忽略,因为不影响形变的主体流程
+                // 仅仅只是一个汇报作用而已
+                logger.warn("watch={} in module={} on {} report progressOnSuccess occur exception at index={};total={};",
+                        watchId, uniqueId, waitingReTransformClass,
+                        index, total,
+                        cause
+                );
+            }
+        }
+    }
+
+    // 汇报单个类形变失败
+    private void progressOnFailed(final int watchId,
+                                  final String uniqueId,
+                                  final Progress progress,
+                                  final Class<?> waitingReTransformClass,
+                                  final int index,
+                                  final int total,
+                                  final Throwable causeOfReTransform) {
+        if (null != progress) {
+            try {
+                progress.progressOnFailed(waitingReTransformClass, index + 1, causeOfReTransform);
+            } catch (Throwable cause) {
+                logger.warn("watch={} in module={} on {} report progressOnFailed occur exception, at index={};total={};",
+                        watchId, uniqueId, waitingReTransformClass,
+                        index, total,
+                        cause
+                );
+            }
+        }
+    }
+
+    /**
+     * 形变观察所影响的类
+     * <p>
+     * 每批最多{@code batchSize}个类合并成一次retransformClasses调用，超出时间窗口的限制时等待到下一个时间窗口。
+     * 等待被中断时放弃剩余的类
+     * </p>
+     *
+     * @param watchId                   观察ID
+     * @param uniqueId                  模块ID
+     * @param waitingReTransformClasses 待形变的类
+     * @param progress                  形变进度汇报
+     */
+    public void reTransform(final int watchId,
+                            final String uniqueId,
+                            final List<Class<?>> waitingReTransformClasses,
+                            final Progress progress) {
+
+        // 如果找不到需要被重新增强的类则直接返回
+        if (CollectionUtils.isEmpty(waitingReTransformClasses)) {
+            return;
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("reTransformClasses={};module={};watch={};",
+                    waitingReTransformClasses, uniqueId, watchId);
+        }
+
+        // 需要形变总数
+        final int total = waitingReTransformClasses.size();
+
+        // 一批形变的类个数不能超过每秒的限制
+        final int size = maxClassesPerSecond == 0
+                ? batchSize
+                : Math.min(batchSize, maxClassesPerSecond);
+
+        for (int from = 0; from < total; from += size) {
+            final int to = Math.min(from + size, total);
+            try {
+                acquire(to - from);
+            } catch (InterruptedException cause) {
+                logger.warn("watch={} in module={} reTransform was interrupted, at index={};total={}. ignore remaining classes.",
+                        watchId, uniqueId,
+                        from, total
+                );
+                Thread.currentThread().interrupt();
+                return;
+            }
+            final long beginNanos = nanoTime();
+            try {
+                reTransform(watchId, uniqueId, waitingReTransformClasses, from, to, progress);
+            } finally {
+                addPause(nanoTime() - beginNanos);
+            }
+        }
+
+    }
+
+    /*
+     * 形变[from,to)区间内的类
+     * JVM的retransformClasses只要有一个类失败整批都不会生效，所以整批失败时对半拆分重试，
+     * 直到定位出形变失败的单个类，只有这个类会被忽略
+     */
+    private void reTransform(final int watchId,
+                             final String uniqueId,
+                             final List<Class<?>> waitingReTransformClasses,
+                             final int from,
+                             final int to,
+                             final Progress progress) {
+        final int total = waitingReTransformClasses.size();
+        try {
+            inst.retransformClasses(waitingReTransformClasses.subList(from, to).toArray(new Class<?>[0]));
+            logger.info("watch={} in module={} batch reTransform {} classes success, at index=[{},{});total={};",
+                    watchId, uniqueId, to - from,
+                    from, to, total
+            );
+        } catch (Throwable causeOfReTransform) {
+
+            // 单个类形变失败，忽略这个类
+            if (to - from == 1) {
+                final Class<?> waitingReTransformClass = waitingReTransformClasses.get(from);
+                logger.warn("watch={} in module={} single reTransform {} failed, at index={};total={}. ignore this class.",
+                        watchId, uniqueId, waitingReTransformClass,
+                        from, total,
+                        causeOfReTransform
+                );
+                progressOnFailed(watchId, uniqueId, progress, waitingReTransformClass, from, total, causeOfReTransform);
+                return;
+            }
+
+            // 整批形变失败，对半拆分后重试
+            logger.info("watch={} in module={} batch reTransform {} classes failed, at index=[{},{});total={}. bisect and retry.",
+                    watchId, uniqueId, to - from,
+                    from, to, total
+            );
+            final int middle = (from + to) >>> 1;
+            reTransform(watchId, uniqueId, waitingReTransformClasses, from, middle, progress);
+            reTransform(watchId, uniqueId, waitingReTransformClasses, middle, to, progress);
+            return;
+        }
+
+        for (int index = from; index < to; index++) {
+            progressOnSuccess(watchId, uniqueId, progress, waitingReTransformClasses.get(index), index, total);
+        }
+
+    }
+
+}
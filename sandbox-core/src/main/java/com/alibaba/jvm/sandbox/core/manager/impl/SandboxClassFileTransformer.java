@@ -10,7 +10,6 @@ import com.alibaba.jvm.sandbox.core.util.SandboxProtector;
 import com.alibaba.jvm.sandbox.core.util.matcher.Matcher;
 import com.alibaba.jvm.sandbox.core.util.matcher.MatchingResult;
 import com.alibaba.jvm.sandbox.core.util.matcher.UnsupportedMatcher;
-import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructure;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,10 +17,11 @@ import java.lang.instrument.ClassFileTransformer;
 import java.security.ProtectionDomain;
 import java.util.Set;
 
-import static com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureFactory.createClassStructure;
-
 /**
  * 沙箱类形变器
+ * <p>
+ * 对应一个观察，不直接注册到JVM中，由{@link NamespaceClassFileTransformer}统一匹配和增强
+ * </p>
  *
  * @author luanjia@taobao.com
  */
@@ -54,7 +54,8 @@ public class SandboxClassFileTransformer implements ClassFileTransformer {
                                 final boolean isEnableUnsafe,
                                 final Type[] eventTypeArray,
                                 final String namespace,
-                                final boolean isNativeSupported) {
+                                final boolean isNativeSupported,
+                                final String nativePrefix) {
         this.watchId = watchId;
         this.uniqueId = uniqueId;
         this.matcher = matcher;
@@ -64,18 +65,15 @@ public class SandboxClassFileTransformer implements ClassFileTransformer {
         this.namespace = namespace;
         this.listenerId = ObjectIDs.instance.identity(eventListener);
         this.isNativeSupported = isNativeSupported;
-        this.nativePrefix = String.format("%s$%s$%s", SANDBOX_SPECIAL_PREFIX, namespace, watchId);
-    }
-
-    // 获取当前类结构
-    private ClassStructure getClassStructure(final ClassLoader loader,
-                                             final Class<?> classBeingRedefined,
-                                             final byte[] srcByteCodeArray) {
-        return null == classBeingRedefined
-                ? createClassStructure(srcByteCodeArray, loader)
-                : createClassStructure(classBeingRedefined);
+        this.nativePrefix = nativePrefix;
     }
 
+    /**
+     * 只用这一个观察增强类
+     * <p>
+     * 多个观察合并增强失败时，{@link NamespaceClassFileTransformer}会逐个调用各个观察的这个方法
+     * </p>
+     */
     @Override
     public byte[] transform(final ClassLoader loader,
                             final String internalClassName,
@@ -102,7 +100,7 @@ public class SandboxClassFileTransformer implements ClassFileTransformer {
             // 匹配类是否符合要求，如果一个行为都没匹配上也不用继续了
             final MatchingResult result = new UnsupportedMatcher(loader, isEnableUnsafe, isNativeSupported)
                     .and(matcher)
-                    .matching(getClassStructure(loader, classBeingRedefined, srcByteCodeArray));
+                    .matching(ClassStructureMemo.getClassStructure(loader, classBeingRedefined, srcByteCodeArray));
             if (!result.isMatched()) {
                 logger.debug("transform ignore {}, no behaviors matched in loader={}", internalClassName, loader);
                 return null;
@@ -175,6 +173,15 @@ public class SandboxClassFileTransformer implements ClassFileTransformer {
         return watchId;
     }
 
+    /**
+     * 获取模块ID
+     *
+     * @return 模块ID
+     */
+    String getUniqueId() {
+        return uniqueId;
+    }
+
     /**
      * 获取事件监听器
      *
@@ -220,13 +227,4 @@ public class SandboxClassFileTransformer implements ClassFileTransformer {
         return affectStatistic;
     }
 
-    /**
-     * 获取本次增强的native方法前缀，
-     * 根据JVM规范，每个ClassFileTransformer必须拥有自己的native方法前缀
-     * @return native方法前缀
-     */
-    public String getNativePrefix() {
-        return nativePrefix;
-    }
-
 }
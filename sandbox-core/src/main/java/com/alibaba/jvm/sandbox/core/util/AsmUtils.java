@@ -1,12 +1,15 @@
 package com.alibaba.jvm.sandbox.core.util;
 
 import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructure;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureCache;
 import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureFactory;
 import org.apache.commons.io.IOUtils;
 
 import java.io.InputStream;
+import java.util.Optional;
 
 import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toInternalClassName;
+import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toJavaClassName;
 
 /**
  * ASM工具集
@@ -19,6 +22,9 @@ public class AsmUtils {
      * 获取两个类型的共同父类
      * just the same
      * {@code org.objectweb.asm.ClassWriter#getCommonSuperClass(String, String)}
+     * <p>
+     * 查询结果按ClassLoader缓存在{@link CommonSuperClassCache}中，多次增强之间共享
+     * </p>
      *
      * @param type1  类型1
      * @param type2  类型2
@@ -26,51 +32,76 @@ public class AsmUtils {
      * @return 共同的父类
      */
     public static String getCommonSuperClass(String type1, String type2, ClassLoader loader) {
-        return getCommonSuperClassImplByAsm(type1, type2, loader);
+
+        //loader 为null，说明是BootStrapClassLoader，不能显式引用，故使用系统类加载器间接引用
+        if (null == loader) {
+            loader = ClassLoader.getSystemClassLoader();
+        }
+        if (null == loader) {
+            return "java/lang/Object";
+        }
+
+        final String existCommonSuperClass = CommonSuperClassCache.instance.getIfPresent(loader, type1, type2);
+        if (null != existCommonSuperClass) {
+            return existCommonSuperClass;
+        }
+
+        // 找不到的类以后可能又能找到，不缓存
+        final ClassStructure classStructureOfType1 = getClassStructure(type1, loader);
+        if (null == classStructureOfType1) {
+            return "java/lang/Object";
+        }
+        final ClassStructure classStructureOfType2 = getClassStructure(type2, loader);
+        if (null == classStructureOfType2) {
+            return "java/lang/Object";
+        }
+        final String commonSuperClass = getCommonSuperClassImplByAsm(type1, type2, classStructureOfType1, classStructureOfType2);
+        CommonSuperClassCache.instance.put(loader, type1, type2, commonSuperClass);
+        return commonSuperClass;
     }
 
     // implements by ASM
-    private static String getCommonSuperClassImplByAsm(String type1, String type2, ClassLoader targetClassLoader) {
-        InputStream inputStreamOfType1 = null, inputStreamOfType2 = null;
-        try {
-            //targetClassLoader 为null，说明是BootStrapClassLoader，不能显式引用，故使用系统类加载器间接引用
-            if (null == targetClassLoader) {
-                targetClassLoader = ClassLoader.getSystemClassLoader();
-            }
-            if (null == targetClassLoader) {
-                return "java/lang/Object";
-            }
-            inputStreamOfType1 = targetClassLoader.getResourceAsStream(type1 + ".class");
-            if (null == inputStreamOfType1) {
-                return "java/lang/Object";
-            }
-            inputStreamOfType2 = targetClassLoader.getResourceAsStream(type2 + ".class");
-            if (null == inputStreamOfType2) {
-                return "java/lang/Object";
-            }
-            final ClassStructure classStructureOfType1 = ClassStructureFactory.createClassStructure(inputStreamOfType1, targetClassLoader);
-            final ClassStructure classStructureOfType2 = ClassStructureFactory.createClassStructure(inputStreamOfType2, targetClassLoader);
-            if (classStructureOfType2.getFamilyTypeClassStructures().contains(classStructureOfType1)) {
-                return type1;
-            }
-            if (classStructureOfType1.getFamilyTypeClassStructures().contains(classStructureOfType2)) {
-                return type2;
-            }
-            if (classStructureOfType1.getAccess().isInterface()
-                    || classStructureOfType2.getAccess().isInterface()) {
+    private static String getCommonSuperClassImplByAsm(final String type1,
+                                                       final String type2,
+                                                       final ClassStructure classStructureOfType1,
+                                                       final ClassStructure classStructureOfType2) {
+        if (classStructureOfType2.getFamilyTypeClassStructures().contains(classStructureOfType1)) {
+            return type1;
+        }
+        if (classStructureOfType1.getFamilyTypeClassStructures().contains(classStructureOfType2)) {
+            return type2;
+        }
+        if (classStructureOfType1.getAccess().isInterface()
+                || classStructureOfType2.getAccess().isInterface()) {
+            return "java/lang/Object";
+        }
+        ClassStructure classStructure = classStructureOfType1;
+        do {
+            classStructure = classStructure.getSuperClassStructure();
+            if (null == classStructure) {
                 return "java/lang/Object";
             }
-            ClassStructure classStructure = classStructureOfType1;
-            do {
-                classStructure = classStructure.getSuperClassStructure();
-                if (null == classStructure) {
-                    return "java/lang/Object";
-                }
-            } while (!classStructureOfType2.getFamilyTypeClassStructures().contains(classStructure));
-            return toInternalClassName(classStructure.getJavaClassName());
+        } while (!classStructureOfType2.getFamilyTypeClassStructures().contains(classStructure));
+        return toInternalClassName(classStructure.getJavaClassName());
+    }
+
+    // 优先使用类结构缓存中已经构造好的类结构，找不到类时返回null
+    private static ClassStructure getClassStructure(final String internalClassName, final ClassLoader targetClassLoader) {
+        final String javaClassName = toJavaClassName(internalClassName);
+        final Optional<ClassStructure> existClassStructure = ClassStructureCache.instance.getIfPresent(targetClassLoader, javaClassName);
+        if (null != existClassStructure) {
+            return existClassStructure.orElse(null);
+        }
+        final InputStream inputStream = targetClassLoader.getResourceAsStream(internalClassName + ".class");
+        if (null == inputStream) {
+            return null;
+        }
+        try {
+            final ClassStructure classStructure = ClassStructureFactory.createClassStructure(inputStream, targetClassLoader);
+            ClassStructureCache.instance.put(targetClassLoader, javaClassName, Optional.ofNullable(classStructure));
+            return classStructure;
         } finally {
-            IOUtils.closeQuietly(inputStreamOfType1);
-            IOUtils.closeQuietly(inputStreamOfType2);
+            IOUtils.closeQuietly(inputStream);
         }
     }
 
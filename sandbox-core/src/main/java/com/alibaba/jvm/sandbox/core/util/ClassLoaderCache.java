@@ -0,0 +1,189 @@
+package com.alibaba.jvm.sandbox.core.util;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/**
+ * 按ClassLoader区分的缓存
+ * <p>
+ * 同一个ClassLoader下的名称唯一确定一个缓存值，所有ClassLoader共用一个容量上限，超出后淘汰最久没有用到的值。
+ * 缓存只对ClassLoader持弱引用，ClassLoader被回收后它的缓存值也一起被清除
+ * </p>
+ *
+ * @param <V> 缓存值类型
+ */
+public class ClassLoaderCache<V> {
+
+    // BootstrapClassLoader不能作为缓存的KEY，单独用一个标识代替
+    private static final Object BOOTSTRAP_LOADER_TOKEN = new Object();
+
+    // ClassLoader -> 标识，缓存值只引用标识，不会阻止ClassLoader被回收
+    private final Cache<ClassLoader, Object> loaderTokens = CacheBuilder.newBuilder()
+            .weakKeys()
+            .removalListener((RemovalListener<ClassLoader, Object>) notification -> onLoaderRemoved(notification.getValue()))
+            .build();
+
+    // (ClassLoader标识, 名称) -> 缓存值
+    private final Cache<Key, V> cache;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    /**
+     * 构造按个数限制容量的缓存
+     *
+     * @param maximumSize 所有ClassLoader合计最多缓存的个数
+     */
+    public ClassLoaderCache(final long maximumSize) {
+        this(maximumSize, value -> 1);
+    }
+
+    /**
+     * 构造按权重限制容量的缓存
+     *
+     * @param maximumWeight 所有ClassLoader合计最大权重
+     * @param weigher       缓存值的权重
+     */
+    public ClassLoaderCache(final long maximumWeight,
+                            final ToIntFunction<? super V> weigher) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maximumWeight)
+                .<Key, V>weigher((key, value) -> weigher.applyAsInt(value))
+                .build();
+    }
+
+    // ClassLoader被回收后清除它的缓存值
+    private void onLoaderRemoved(final Object loaderToken) {
+        if (null != loaderToken) {
+            cache.asMap().keySet().removeIf(key -> key.loaderToken == loaderToken);
+        }
+    }
+
+    private Object getLoaderToken(final ClassLoader loader) {
+        if (null == loader) {
+            return BOOTSTRAP_LOADER_TOKEN;
+        }
+        try {
+            return loaderTokens.get(loader, Object::new);
+        } catch (ExecutionException cause) {
+            // 创建标识不会抛出异常
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * 获取缓存值
+     *
+     * @param loader ClassLoader
+     * @param name   名称
+     * @return 缓存值，没有缓存时返回null
+     */
+    public V getIfPresent(final ClassLoader loader,
+                          final String name) {
+        final Object loaderToken = null == loader
+                ? BOOTSTRAP_LOADER_TOKEN
+                : loaderTokens.getIfPresent(loader);
+        final V value = null == loaderToken
+                ? null
+                : cache.getIfPresent(new Key(loaderToken, name));
+        if (null == value) {
+            missCount.increment();
+        } else {
+            hitCount.increment();
+        }
+        return value;
+    }
+
+    /**
+     * 缓存值
+     *
+     * @param loader ClassLoader
+     * @param name   名称
+     * @param value  缓存值
+     */
+    public void put(final ClassLoader loader,
+                    final String name,
+                    final V value) {
+        cache.put(new Key(getLoaderToken(loader), name), value);
+    }
+
+    /**
+     * 获取命中次数
+     *
+     * @return 命中次数
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * 获取未命中次数
+     *
+     * @return 未命中次数
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * 获取缓存值个数，已经被回收的ClassLoader的缓存值不计算在内
+     *
+     * @return 缓存值个数
+     */
+    public long size() {
+        loaderTokens.cleanUp();
+        cache.cleanUp();
+        return cache.size();
+    }
+
+    /**
+     * 清空缓存和命中统计
+     */
+    public void clean() {
+        cache.invalidateAll();
+        loaderTokens.invalidateAll();
+        hitCount.reset();
+        missCount.reset();
+    }
+
+    /**
+     * 缓存KEY：ClassLoader标识和名称
+     */
+    private static final class Key {
+
+        private final Object loaderToken;
+        private final String name;
+        private final int hashCode;
+
+        Key(final Object loaderToken, final String name) {
+            this.loaderToken = loaderToken;
+            this.name = name;
+            this.hashCode = 31 * System.identityHashCode(loaderToken) + name.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object object) {
+            if (this == object) {
+                return true;
+            }
+            if (!(object instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) object;
+            return loaderToken == key.loaderToken
+                    && name.equals(key.name);
+        }
+
+    }
+
+}
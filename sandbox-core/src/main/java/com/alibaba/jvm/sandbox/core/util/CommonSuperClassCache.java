@@ -0,0 +1,58 @@
+package com.alibaba.jvm.sandbox.core.util;
+
+/**
+ * 共同父类缓存
+ * <p>
+ * 计算栈帧时ClassWriter会反复查询两个类型的共同父类，同一个ClassLoader下的查询结果在多次增强之间共享。
+ * ClassLoader被回收后它的缓存也一起被清除
+ * </p>
+ */
+public class CommonSuperClassCache extends ClassLoaderCache<String> {
+
+    // 所有ClassLoader合计最多缓存的查询结果个数
+    private static final long MAXIMUM_SIZE = 65536;
+
+    public CommonSuperClassCache(final long maximumSize) {
+        super(maximumSize);
+    }
+
+    // 类型名称中不会出现空格，用来拼接类型对
+    private static String toKey(final String type1, final String type2) {
+        return type1 + " " + type2;
+    }
+
+    /**
+     * 获取缓存的共同父类
+     *
+     * @param loader ClassLoader
+     * @param type1  类型1
+     * @param type2  类型2
+     * @return 缓存的共同父类，没有缓存时返回null
+     */
+    public String getIfPresent(final ClassLoader loader,
+                               final String type1,
+                               final String type2) {
+        return getIfPresent(loader, toKey(type1, type2));
+    }
+
+    /**
+     * 缓存共同父类
+     *
+     * @param loader           ClassLoader
+     * @param type1            类型1
+     * @param type2            类型2
+     * @param commonSuperClass 共同父类
+     */
+    public void put(final ClassLoader loader,
+                    final String type1,
+                    final String type2,
+                    final String commonSuperClass) {
+        put(loader, toKey(type1, type2), commonSuperClass);
+    }
+
+    /**
+     * 全局的共同父类缓存
+     */
+    public static final CommonSuperClassCache instance = new CommonSuperClassCache(MAXIMUM_SIZE);
+
+}
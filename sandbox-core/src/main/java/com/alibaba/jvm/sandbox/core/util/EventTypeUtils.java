@@ -0,0 +1,50 @@
+package com.alibaba.jvm.sandbox.core.util;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+
+/**
+ * 事件类型工具类
+ * <p>
+ * 用int掩码表示一组事件类型，每个事件类型占用其序号对应的位(事件类型不超过32个)，判断是否包含只需要一次位运算
+ * </p>
+ */
+public class EventTypeUtils {
+
+    /**
+     * 事件类型对应的位
+     *
+     * @param type 事件类型
+     * @return 事件类型对应的位
+     */
+    public static int toBit(final Event.Type type) {
+        return 1 << type.ordinal();
+    }
+
+    /**
+     * 将事件类型数组转换为掩码
+     *
+     * @param types 事件类型数组
+     * @return 事件类型掩码
+     */
+    public static int toMask(final Event.Type... types) {
+        int mask = 0;
+        if (null != types) {
+            for (final Event.Type type : types) {
+                mask |= toBit(type);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * 判断掩码中是否包含目标事件类型
+     *
+     * @param mask 事件类型掩码
+     * @param type 目标事件类型
+     * @return TRUE:包含;FALSE:不包含
+     */
+    public static boolean contains(final int mask, final Event.Type type) {
+        return (mask & toBit(type)) != 0;
+    }
+
+}
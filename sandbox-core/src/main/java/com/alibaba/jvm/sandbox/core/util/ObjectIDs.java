@@ -1,11 +1,10 @@
 package com.alibaba.jvm.sandbox.core.util;
 
+import com.alibaba.jvm.sandbox.core.util.collection.ConcurrentPagedArray;
+
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.util.HashMap;
-import java.util.WeakHashMap;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 给指定的Java对象分配JVM唯一ID <br>
@@ -30,24 +29,16 @@ public class ObjectIDs {
      */
     private final Sequencer objectIDSequencer = new Sequencer();
 
-    /**
-     * 全局读写锁:用于维护世界的和平
-     * <p>
-     * 用于维护{@link #identityObjectMapping}和{@link #objectIDMapping}之间数据的一致性
-     * </p>
-     */
-    private final ReadWriteLock rwLock = new ReentrantReadWriteLock();
-
-    // 全局<对象:ID>映射表
-    private final WeakHashMap<Object, Integer> objectIDMapping
-            = new WeakHashMap<>();
+    // 全局<对象:ID>映射表，以对象的内存地址作为判断依据，不受对象equals()/hashCode()的影响
+    private final ConcurrentHashMap<Object, Integer> objectIDMapping
+            = new ConcurrentHashMap<>();
 
+    // 全局<ID:对象>映射表，对象ID由序列发生器产生，直接以ID为下标，读取时无需加锁
+    private final ConcurrentPagedArray<IdentityWeakReference> identityObjectMapping
+            = new ConcurrentPagedArray<>();
 
-    // --- ObjectID : Object 的映射关系维护 ----------------------------------------+
-    private final ReferenceQueue<Object> rQueue = new ReferenceQueue<>(); //|
-    private final HashMap<Integer, IdentityWeakReference> identityObjectMapping //|
-            = new HashMap<>();                    //|
-    // ---------------------------------------------------------------------------+
+    // 对象被GC回收后的弱引用队列，只在分配新ID时批量清理
+    private final ReferenceQueue<Object> rQueue = new ReferenceQueue<>();
 
 
     private ObjectIDs() {
@@ -71,31 +62,20 @@ public class ObjectIDs {
             return NULL_ID;
         }
 
-        rwLock.readLock().lock();
-        try {
-            final Integer objectID = objectIDMapping.get(object);
-            if (null != objectID) {
-                return objectID;
-            }
-        } finally {
-            rwLock.readLock().unlock();
-            expungeIdentityObjectMapping();
+        final Integer objectID = objectIDMapping.get(new IdentityKey(object));
+        if (null != objectID) {
+            return objectID;
         }
 
-        rwLock.writeLock().lock();
-        try {
-            final Integer nextObjectID;
-            if (objectIDMapping.containsKey(object)) {
-                nextObjectID = objectIDMapping.get(object);
-            } else {
-                mapping(
-                        nextObjectID = objectIDSequencer.next(),
-                        object
-                );
+        synchronized (this) {
+            expungeIdentityObjectMapping();
+            final Integer existedObjectID = objectIDMapping.get(new IdentityKey(object));
+            if (null != existedObjectID) {
+                return existedObjectID;
             }
+            final int nextObjectID = objectIDSequencer.next();
+            mapping(nextObjectID, object);
             return nextObjectID;
-        } finally {
-            rwLock.writeLock().unlock();
         }
     }
 
@@ -105,33 +85,25 @@ public class ObjectIDs {
      * @param objectID 对象ID
      * @param object   对象
      */
-    private void mapping(final Integer objectID,
+    private void mapping(final int objectID,
                          final Object object) {
-        rwLock.writeLock().lock();
-        try {
-            // 映射 [object : objectID]
-            objectIDMapping.put(object, objectID);
-
-            // 映射 [objectID : object]
-            identityObjectMapping.put(objectID, new IdentityWeakReference(objectID, object));
-        } finally {
-            rwLock.writeLock().unlock();
-        }
+        final IdentityWeakReference reference = new IdentityWeakReference(objectID, object);
+
+        // 先映射 [objectID : object]，保证能查到ID时一定能通过ID找到对象
+        identityObjectMapping.set(objectID, reference);
+
+        // 映射 [object : objectID]
+        objectIDMapping.put(reference, objectID);
     }
 
     /**
-     * 清理失效的 [objectID : object] 映射
+     * 批量清理已被GC回收的对象映射
      */
     private void expungeIdentityObjectMapping() {
         for (Object x; (x = rQueue.poll()) != null; ) {
-            synchronized (rQueue) {
-                rwLock.writeLock().lock();
-                try {
-                    identityObjectMapping.remove(((IdentityWeakReference) x).objectID);
-                } finally {
-                    rwLock.writeLock().unlock();
-                }
-            }
+            final IdentityWeakReference reference = (IdentityWeakReference) x;
+            objectIDMapping.remove(reference);
+            identityObjectMapping.remove(reference.objectID);
         }
     }
 
@@ -149,19 +121,42 @@ public class ObjectIDs {
             return null;
         }
 
-        rwLock.readLock().lock();
-        try {
-            final Object object;
-            final IdentityWeakReference reference = identityObjectMapping.get(objectID);
-            if (null != reference
-                    && null != (object = reference.get())) {
-                return (T) object;
-            } else {
-                return null;
-            }
-        } finally {
-            rwLock.readLock().unlock();
-            expungeIdentityObjectMapping();
+        final IdentityWeakReference reference = identityObjectMapping.get(objectID);
+        return null == reference
+                ? null
+                : (T) reference.get();
+    }
+
+    /**
+     * 获取ID映射表已分配的数据页个数
+     * <p>
+     * 对象被回收后映射在下次分配新ID时清理，数据页中的对象都被回收后释放
+     * </p>
+     *
+     * @return 已分配的数据页个数
+     */
+    public int getPageCount() {
+        return identityObjectMapping.getPageCount();
+    }
+
+    // 以对象内存地址判断相等的查询键
+    private static class IdentityKey {
+
+        private final Object referent;
+
+        private IdentityKey(final Object referent) {
+            this.referent = referent;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(referent);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof IdentityWeakReference
+                    && ((IdentityWeakReference) obj).get() == referent;
         }
 
     }
@@ -170,12 +165,32 @@ public class ObjectIDs {
     private class IdentityWeakReference extends WeakReference<Object> {
 
         // 对应的对象ID
-        private final Integer objectID;
+        private final int objectID;
+
+        // 对象被回收后仍然需要从映射表中找到自己，所以需要提前记录下对象的哈希值
+        private final int hashCode;
 
-        private IdentityWeakReference(final Integer objectID,
+        private IdentityWeakReference(final int objectID,
                                       final Object referent) {
             super(referent, rQueue);
             this.objectID = objectID;
+            this.hashCode = System.identityHashCode(referent);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj instanceof IdentityKey) {
+                return ((IdentityKey) obj).referent == get();
+            }
+            return false;
         }
 
     }
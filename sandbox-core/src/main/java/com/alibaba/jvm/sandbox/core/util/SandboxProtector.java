@@ -18,7 +18,8 @@ public class SandboxProtector {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
-    private final ThreadLocal<AtomicInteger> isInProtectingThreadLocal = ThreadLocal.withInitial(() -> new AtomicInteger(0));
+    // 只有在守护区域中才持有计数器，离开守护区域后立即清理(fix for #384)
+    private final ThreadLocal<AtomicInteger> isInProtectingThreadLocal = new ThreadLocal<>();
 
     /**
      * 进入守护区域
@@ -26,7 +27,11 @@ public class SandboxProtector {
      * @return 守护区域当前引用计数
      */
     public int enterProtecting() {
-        final int referenceCount = isInProtectingThreadLocal.get().getAndIncrement();
+        AtomicInteger referenceCountRef = isInProtectingThreadLocal.get();
+        if (null == referenceCountRef) {
+            isInProtectingThreadLocal.set(referenceCountRef = new AtomicInteger(0));
+        }
+        final int referenceCount = referenceCountRef.getAndIncrement();
         if (logger.isDebugEnabled()) {
             logger.debug("thread:{} enter protect:{}", Thread.currentThread(), referenceCount);
         }
@@ -39,7 +44,10 @@ public class SandboxProtector {
      * @return 守护区域当前引用计数
      */
     public int exitProtecting() {
-        final int referenceCount = isInProtectingThreadLocal.get().decrementAndGet();
+        final AtomicInteger referenceCountRef = isInProtectingThreadLocal.get();
+        final int referenceCount = null == referenceCountRef
+                ? -1
+                : referenceCountRef.decrementAndGet();
         // assert referenceCount >= 0;
         if (referenceCount == 0) {
             isInProtectingThreadLocal.remove();
@@ -62,12 +70,10 @@ public class SandboxProtector {
      * @return TRUE:在守护区域中；FALSE：非守护区域中
      */
     public boolean isInProtecting() {
-        // fix for #384
-        final boolean res = isInProtectingThreadLocal.get().get() > 0;
-        if(!res) {
-            isInProtectingThreadLocal.remove();
-        }
-        return res;
+        // 每个事件都会判断一次，这里只读取不清理，否则每次判断都会重新分配计数器
+        final AtomicInteger referenceCountRef = isInProtectingThreadLocal.get();
+        return null != referenceCountRef
+                && referenceCountRef.get() > 0;
     }
 
     /**
@@ -0,0 +1,190 @@
+package com.alibaba.jvm.sandbox.core.util.collection;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 以int为下标的线程安全分页数组
+ * <p>
+ * 适用于下标由{@link com.alibaba.jvm.sandbox.core.util.Sequencer}这类序列发生器产生、分布较为稠密的场景。
+ * 读操作无锁也不需要装箱，只需要两次数组寻址；写操作加锁，数据页按需分配，页内元素都被移除后释放。
+ * 页目录只覆盖仍有数据页的下标区间，下标单调增长时前面释放掉的区间不会一直占用目录
+ * </p>
+ *
+ * @param <E> 元素类型
+ */
+public class ConcurrentPagedArray<E> {
+
+    private static final int PAGE_SHIFT = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    // 页目录，扩容和收缩时整体替换，所以读线程总能看到一个完整的目录
+    private volatile Directory directory = new Directory(0, new Object[0]);
+
+    // 每个数据页中的元素个数，与页目录一一对应，只在写操作时访问
+    private int[] counts = new int[0];
+
+    @SuppressWarnings("unchecked")
+    private static <E> AtomicReferenceArray<E> toPage(final Object page) {
+        return (AtomicReferenceArray<E>) page;
+    }
+
+    /**
+     * 获取下标对应的元素
+     *
+     * @param index 下标
+     * @return 下标对应的元素，不存在则返回null
+     */
+    public E get(final int index) {
+        if (index < 0) {
+            return null;
+        }
+        final Directory directory = this.directory;
+        final Object[] pages = directory.pages;
+        final int pageIndex = (index >>> PAGE_SHIFT) - directory.offset;
+        if (pageIndex < 0
+                || pageIndex >= pages.length
+                || null == pages[pageIndex]) {
+            return null;
+        }
+        return ConcurrentPagedArray.<E>toPage(pages[pageIndex]).get(index & PAGE_MASK);
+    }
+
+    // 替换页目录，目录中的第一页对应的页下标为offset
+    private void resize(final int offset, final int length) {
+        final Directory directory = this.directory;
+        final Object[] newPages = new Object[length];
+        final int[] newCounts = new int[length];
+        for (int pageIndex = 0; pageIndex < directory.pages.length; pageIndex++) {
+            if (null != directory.pages[pageIndex]) {
+                newPages[pageIndex + directory.offset - offset] = directory.pages[pageIndex];
+                newCounts[pageIndex + directory.offset - offset] = counts[pageIndex];
+            }
+        }
+        counts = newCounts;
+        this.directory = new Directory(offset, newPages);
+    }
+
+    /**
+     * 设置下标对应的元素
+     *
+     * @param index   下标
+     * @param element 元素
+     * @return 下标之前对应的元素
+     */
+    public synchronized E set(final int index, final E element) {
+        if (index < 0) {
+            throw new IllegalArgumentException("index must not be negative, index=" + index);
+        }
+        if (null == element) {
+            return remove(index);
+        }
+        final int absolutePageIndex = index >>> PAGE_SHIFT;
+        Directory directory = this.directory;
+        if (directory.pages.length == 0) {
+            resize(absolutePageIndex, 1);
+        } else if (absolutePageIndex < directory.offset) {
+            resize(absolutePageIndex, directory.offset + directory.pages.length - absolutePageIndex);
+        } else if (absolutePageIndex - directory.offset >= directory.pages.length) {
+            resize(directory.offset, Math.max(absolutePageIndex - directory.offset + 1, directory.pages.length * 2));
+        }
+        directory = this.directory;
+        final Object[] pages = directory.pages;
+        final int pageIndex = absolutePageIndex - directory.offset;
+        if (null == pages[pageIndex]) {
+            pages[pageIndex] = new AtomicReferenceArray<E>(PAGE_SIZE);
+            // 重新发布页目录，让读线程能看到新分配的数据页
+            this.directory = directory;
+        }
+        final E previous = ConcurrentPagedArray.<E>toPage(pages[pageIndex]).getAndSet(index & PAGE_MASK, element);
+        if (null == previous) {
+            counts[pageIndex]++;
+        }
+        return previous;
+    }
+
+    /**
+     * 移除下标对应的元素
+     *
+     * @param index 下标
+     * @return 下标之前对应的元素，不存在则返回null
+     */
+    public synchronized E remove(final int index) {
+        if (null == get(index)) {
+            return null;
+        }
+        final Directory directory = this.directory;
+        final Object[] pages = directory.pages;
+        final int pageIndex = (index >>> PAGE_SHIFT) - directory.offset;
+        final E previous = ConcurrentPagedArray.<E>toPage(pages[pageIndex]).getAndSet(index & PAGE_MASK, null);
+
+        // 页内元素都被移除后释放数据页，下标由序列发生器产生不会重复使用，很少会再次分配同一页
+        if (--counts[pageIndex] == 0) {
+            pages[pageIndex] = null;
+            this.directory = directory;
+            shrink();
+        }
+        return previous;
+    }
+
+    // 仍有数据页的区间不到页目录的四分之一时收缩页目录
+    private void shrink() {
+        final Directory directory = this.directory;
+        final Object[] pages = directory.pages;
+        int first = 0;
+        while (first < pages.length && null == pages[first]) {
+            first++;
+        }
+        if (first == pages.length) {
+            resize(0, 0);
+            return;
+        }
+        int last = pages.length - 1;
+        while (null == pages[last]) {
+            last--;
+        }
+        if ((last - first + 1) * 4 <= pages.length) {
+            resize(directory.offset + first, last - first + 1);
+        }
+    }
+
+    /**
+     * 获取已分配的数据页个数
+     *
+     * @return 已分配的数据页个数
+     */
+    public synchronized int getPageCount() {
+        int pageCount = 0;
+        for (final Object page : directory.pages) {
+            if (null != page) {
+                pageCount++;
+            }
+        }
+        return pageCount;
+    }
+
+    /**
+     * 获取页目录的长度
+     *
+     * @return 页目录的长度
+     */
+    public synchronized int getDirectoryLength() {
+        return directory.pages.length;
+    }
+
+    /**
+     * 页目录：第一页对应的页下标和数据页
+     */
+    private static final class Directory {
+
+        private final int offset;
+        private final Object[] pages;
+
+        private Directory(final int offset, final Object[] pages) {
+            this.offset = offset;
+            this.pages = pages;
+        }
+
+    }
+
+}
@@ -5,16 +5,18 @@ import com.alibaba.jvm.sandbox.api.filter.ExtFilter;
 import com.alibaba.jvm.sandbox.api.filter.ExtFilter.ExtFilterFactory;
 import com.alibaba.jvm.sandbox.api.filter.ExtFilterImplByV140;
 import com.alibaba.jvm.sandbox.api.filter.Filter;
+import com.alibaba.jvm.sandbox.api.filter.LazyExtFilter;
 import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchCondition;
 import com.alibaba.jvm.sandbox.core.util.matcher.structure.*;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.StringUtils;
 
 import java.io.InputStream;
-import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
+import java.util.function.Supplier;
 
 import static com.alibaba.jvm.sandbox.api.filter.AccessFlags.*;
 import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toInternalClassName;
@@ -28,64 +30,65 @@ public class ExtFilterMatcher implements Matcher {
 
     private final ExtFilter extFilter;
 
+    // 按需获取类型名称的过滤器，不是LazyExtFilter的过滤器在需要时一次性构造所有类名数组
+    private final LazyExtFilter lazyExtFilter;
+
     public ExtFilterMatcher(final ExtFilter extFilter) {
         this.extFilter = extFilter;
+        this.lazyExtFilter = extFilter instanceof LazyExtFilter
+                ? (LazyExtFilter) extFilter
+                : new ExtFilterImplByV140(extFilter, true, true, true, true, true);
     }
 
-    // 获取需要匹配的类结构
-    // 如果要匹配子类就需要将这个类的所有家族成员找出
-    private Collection<ClassStructure> getWaitingMatchClassStructures(final ClassStructure classStructure) {
-        final Collection<ClassStructure> waitingMatchClassStructures = new ArrayList<>();
-        waitingMatchClassStructures.add(classStructure);
-        if (extFilter.isIncludeSubClasses()) {
-            waitingMatchClassStructures.addAll(classStructure.getFamilyTypeClassStructures());
-        }
-        return waitingMatchClassStructures;
-    }
-
-    private String[] toJavaClassNameArray(final Collection<ClassStructure> classStructures) {
+    static String[] toJavaClassNameArray(final Collection<ClassStructure> classStructures) {
         if (null == classStructures) {
             return null;
         }
-        final List<String> javaClassNames = new ArrayList<>();
+        final String[] javaClassNameArray = new String[classStructures.size()];
+        int index = 0;
         for (final ClassStructure classStructure : classStructures) {
-            javaClassNames.add(classStructure.getJavaClassName());
+            javaClassNameArray[index++] = classStructure.getJavaClassName();
         }
-        return javaClassNames.toArray(new String[0]);
+        return javaClassNameArray;
     }
 
-    private boolean matchingClassStructure(ClassStructure classStructure) {
-        for (final ClassStructure wmCs : getWaitingMatchClassStructures(classStructure)) {
+    private static String toJavaClassName(final ClassStructure classStructure) {
+        return null == classStructure
+                ? null
+                : classStructure.getJavaClassName();
+    }
 
-            // #292 性能优化
-            final boolean isHasInterfaceTypes, isHasAnnotationTypes;
-            if (extFilter instanceof ExtFilterImplByV140) {
-                final ExtFilterImplByV140 v140 = (ExtFilterImplByV140) extFilter;
-                isHasInterfaceTypes = v140.isHasInterfaceTypes();
-                isHasAnnotationTypes = v140.isHasAnnotationTypes();
-            } else {
-                isHasInterfaceTypes = isHasAnnotationTypes = true;
-            }
+    // 父类、接口和注解的类名只在过滤器需要时才获取，家族接口和家族注解取自共享的继承关系，交给过滤器的是副本
+    private boolean doClassFilter(final ClassStructure classStructure) {
+        return lazyExtFilter.doLazyClassFilter(
+                toFilterAccess(classStructure.getAccess()),
+                classStructure.getJavaClassName(),
+                () -> toJavaClassName(classStructure.getSuperClassStructure()),
+                () -> classStructure.getClassHierarchy().getFamilyInterfaceJavaClassNames().clone(),
+                () -> classStructure.getClassHierarchy().getFamilyAnnotationTypeJavaClassNames().clone()
+        );
+    }
 
-            // 匹配类结构
-            if (extFilter.doClassFilter(
-                    toFilterAccess(wmCs.getAccess()),
-                    wmCs.getJavaClassName(),
-                    null == wmCs.getSuperClassStructure()
-                            ? null
-                            : wmCs.getSuperClassStructure().getJavaClassName(),
-                    toJavaClassNameArray(
-                            isHasInterfaceTypes
-                                    ? wmCs.getFamilyInterfaceClassStructures()
-                                    : Collections.emptySet()
-                    ),
-                    toJavaClassNameArray(
-                            isHasAnnotationTypes
-                                    ? wmCs.getFamilyAnnotationTypeClassStructures()
-                                    : Collections.emptySet()
-                    )
-            )) {
-                return true;
+    private boolean doClassFilter(final ClassHierarchy classHierarchy) {
+        return lazyExtFilter.doLazyClassFilter(
+                toFilterAccess(classHierarchy.getAccess()),
+                classHierarchy.getJavaClassName(),
+                classHierarchy::getSuperClassJavaClassName,
+                () -> classHierarchy.getFamilyInterfaceJavaClassNames().clone(),
+                () -> classHierarchy.getFamilyAnnotationTypeJavaClassNames().clone()
+        );
+    }
+
+    // 如果要匹配子类就需要将这个类的所有家族成员找出
+    private boolean matchingClassStructure(final ClassStructure classStructure) {
+        if (doClassFilter(classStructure)) {
+            return true;
+        }
+        if (extFilter.isIncludeSubClasses()) {
+            for (final ClassHierarchy familyType : classStructure.getClassHierarchy().getFamilyTypes()) {
+                if (doClassFilter(familyType)) {
+                    return true;
+                }
             }
         }
         return false;
@@ -93,9 +96,17 @@ public class ExtFilterMatcher implements Matcher {
 
     @Override
     public MatchingResult matching(final ClassStructure classStructure) {
+        final BitSet matchedBehaviors = new BitSet();
+        return matching(classStructure, matchedBehaviors)
+                ? MatchingResult.of(classStructure, matchedBehaviors)
+                : new MatchingResult();
+    }
+
+    @Override
+    public boolean matching(final ClassStructure classStructure, final BitSet matchedBehaviors) {
 
         try {
-            return _matching(classStructure);
+            return _matching(classStructure, matchedBehaviors);
         } catch (NoClassDefFoundError error) {
 
             // 根据 #203 ClassStructureImplByJDK会存在类加载异步的问题
@@ -107,7 +118,7 @@ public class ExtFilterMatcher implements Matcher {
                 InputStream is = null;
                 try {
                     is = classStructure.getClassLoader().getResourceAsStream(javaClassResourceName);
-                    _matching(ClassStructureFactory.createClassStructure(is, classStructure.getClassLoader()));
+                    _matching(ClassStructureFactory.createClassStructure(is, classStructure.getClassLoader()), new BitSet());
                 } finally {
                     IOUtils.closeQuietly(is);
                 }
@@ -119,59 +130,93 @@ public class ExtFilterMatcher implements Matcher {
 
     }
 
-    private MatchingResult _matching(final ClassStructure classStructure) {
-        final MatchingResult result = new MatchingResult();
-        // 如果不开启加载Bootstrap的类，遇到就过滤掉
-        if (!extFilter.isIncludeBootstrap()
-                && classStructure.getClassLoader() == null) {
-            return result;
-        }
+    private boolean _matching(final ClassStructure classStructure, final BitSet matchedBehaviors) {
 
         // 匹配ClassStructure
-        if (!matchingClassStructure(classStructure)) {
-            return result;
+        if (!matchingClass(classStructure)) {
+            return false;
         }
 
-        final boolean isBehaviorHasWithParameterTypes, isBehaviorHasExceptionTypes, isBehaviorHasAnnotationTypes;
-        if(extFilter instanceof ExtFilterImplByV140) {
-            final ExtFilterImplByV140 v140 = (ExtFilterImplByV140)extFilter;
-            isBehaviorHasWithParameterTypes = v140.isBehaviorHasWithParameterTypes();
-            isBehaviorHasExceptionTypes = v140.isBehaviorHasExceptionTypes();
-            isBehaviorHasAnnotationTypes = v140.isBehaviorHasAnnotationTypes();
-        } else {
-            isBehaviorHasWithParameterTypes = true;
-            isBehaviorHasExceptionTypes = true;
-            isBehaviorHasAnnotationTypes = true;
+        // 匹配BehaviorStructure，参数、异常和注解的类名只在过滤器需要时才获取
+        boolean isMatched = false;
+        final List<BehaviorStructure> behaviorStructures = classStructure.getBehaviorStructures();
+        for (int index = 0; index < behaviorStructures.size(); index++) {
+            final BehaviorStructure behaviorStructure = behaviorStructures.get(index);
+            if (matchingBehavior(
+                    toFilterAccess(behaviorStructure.getAccess()),
+                    behaviorStructure.getName(),
+                    () -> toJavaClassNameArray(behaviorStructure.getParameterTypeClassStructures()),
+                    () -> toJavaClassNameArray(behaviorStructure.getExceptionTypeClassStructures()),
+                    () -> toJavaClassNameArray(behaviorStructure.getAnnotationTypeClassStructures())
+            )) {
+                matchedBehaviors.set(index);
+                isMatched = true;
+            }
         }
+        return isMatched;
+    }
 
-        // 匹配BehaviorStructure
-        for (final BehaviorStructure behaviorStructure : classStructure.getBehaviorStructures()) {
+    /**
+     * 匹配类
+     *
+     * @param classStructure 类结构
+     * @return TRUE:类通过过滤;FALSE:类被过滤掉
+     */
+    boolean matchingClass(final ClassStructure classStructure) {
 
-            final String[] parameterTypeArrays = isBehaviorHasWithParameterTypes
-                    ? toJavaClassNameArray(behaviorStructure.getParameterTypeClassStructures())
-                    : new String[0];
+        // 如果不开启加载Bootstrap的类，遇到就过滤掉
+        if (!extFilter.isIncludeBootstrap()
+                && classStructure.getClassLoader() == null) {
+            return false;
+        }
+        return matchingClassStructure(classStructure);
+    }
+
+    /**
+     * 匹配行为
+     *
+     * @param access                           {@link AccessFlags}体系的访问标识
+     * @param javaMethodName                   方法名
+     * @param parameterTypeJavaClassNameArray  参数类名数组
+     * @param throwsTypeJavaClassNameArray     异常类名数组
+     * @param annotationTypeJavaClassNameArray 注解类名数组
+     * @return TRUE:行为通过过滤;FALSE:行为被过滤掉
+     */
+    boolean matchingBehavior(final int access,
+                             final String javaMethodName,
+                             final Supplier<String[]> parameterTypeJavaClassNameArray,
+                             final Supplier<String[]> throwsTypeJavaClassNameArray,
+                             final Supplier<String[]> annotationTypeJavaClassNameArray) {
+        return lazyExtFilter.doLazyMethodFilter(
+                access,
+                javaMethodName,
+                parameterTypeJavaClassNameArray,
+                throwsTypeJavaClassNameArray,
+                annotationTypeJavaClassNameArray
+        );
+    }
 
-            final String[] exceptionTypeArrays = isBehaviorHasExceptionTypes
-                    ? toJavaClassNameArray(behaviorStructure.getExceptionTypeClassStructures())
-                    : new String[0];
 
-            final String[] annotationTypeArrays = isBehaviorHasAnnotationTypes
-                    ? toJavaClassNameArray(behaviorStructure.getAnnotationTypeClassStructures())
-                    : new String[0];
+    @Override
+    public String[] getClassNamePrefixes() {
 
-            if (extFilter.doMethodFilter(
-                    toFilterAccess(behaviorStructure.getAccess()),
-                    behaviorStructure.getName(),
-                    parameterTypeArrays,
-                    exceptionTypeArrays,
-                    annotationTypeArrays
-            )) {
-                result.getBehaviorStructures().add(behaviorStructure);
-            }
+        // 匹配子类时需要检查家族成员的类名，类本身的类名没有约束
+        if (extFilter.isIncludeSubClasses()) {
+            return null;
         }
-        return result;
+        return getFamilyTypeNamePrefixes();
     }
 
+    @Override
+    public String[] getFamilyTypeNamePrefixes() {
+        if (!(extFilter instanceof ExtFilterImplByV140)) {
+            return null;
+        }
+        final String classNamePrefix = ((ExtFilterImplByV140) extFilter).getClassNamePrefix();
+        return StringUtils.isEmpty(classNamePrefix)
+                ? null
+                : new String[]{classNamePrefix};
+    }
 
     /**
      * 转换为{@link AccessFlags}的Access体系
@@ -179,7 +224,7 @@ public class ExtFilterMatcher implements Matcher {
      * @param access access flag
      * @return 部分兼容ASM的access flag
      */
-    private static int toFilterAccess(final Access access) {
+    static int toFilterAccess(final Access access) {
         int flag = 0;
         if (access.isPublic()) flag |= ACF_PUBLIC;
         if (access.isPrivate()) flag |= ACF_PRIVATE;
@@ -222,11 +267,11 @@ public class ExtFilterMatcher implements Matcher {
      * @return Or关系Matcher
      */
     public static Matcher toOrGroupMatcher(final ExtFilter[] extFilterArray) {
-        final Matcher[] matcherArray = new Matcher[ArrayUtils.getLength(extFilterArray)];
+        final ExtFilterMatcher[] matcherArray = new ExtFilterMatcher[ArrayUtils.getLength(extFilterArray)];
         for (int index = 0; index < matcherArray.length; index++) {
             matcherArray[index] = new ExtFilterMatcher(extFilterArray[index]);
         }
-        return new GroupMatcher.Or(matcherArray);
+        return new ExtFilterOrMatcher(matcherArray);
     }
 
 }
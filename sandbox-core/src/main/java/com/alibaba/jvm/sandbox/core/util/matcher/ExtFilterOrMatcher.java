@@ -0,0 +1,118 @@
+package com.alibaba.jvm.sandbox.core.util.matcher;
+
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.BehaviorStructure;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructure;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher.toFilterAccess;
+import static com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher.toJavaClassNameArray;
+
+/**
+ * 多个过滤器取并集的匹配器
+ * <p>
+ * 先用所有过滤器匹配类，类没有通过任何过滤器时不会触碰行为列表；
+ * 再逐个行为交给通过了类匹配的过滤器，行为的访问标识和类型名称只获取一次，所有过滤器共用。
+ * 行为被任意一个过滤器选中后不再询问剩下的过滤器
+ * </p>
+ */
+public class ExtFilterOrMatcher implements Matcher {
+
+    private final ExtFilterMatcher[] matcherArray;
+    private final GroupMatcher.Or groupMatcher;
+
+    public ExtFilterOrMatcher(final ExtFilterMatcher... matcherArray) {
+        this.matcherArray = matcherArray;
+        this.groupMatcher = new GroupMatcher.Or(matcherArray);
+    }
+
+    @Override
+    public MatchingResult matching(final ClassStructure classStructure) {
+        final BitSet matchedBehaviors = new BitSet();
+        return matching(classStructure, matchedBehaviors)
+                ? MatchingResult.of(classStructure, matchedBehaviors)
+                : new MatchingResult();
+    }
+
+    @Override
+    public boolean matching(final ClassStructure classStructure, final BitSet matchedBehaviors) {
+        if (null == matcherArray
+                || matcherArray.length == 0) {
+            return false;
+        }
+        if (matcherArray.length == 1) {
+            return matcherArray[0].matching(classStructure, matchedBehaviors);
+        }
+
+        // 类匹配上的过滤器依次排在数组前面，大多数类不会通过任何过滤器，用到时才分配数组
+        ExtFilterMatcher[] classMatchedArray = null;
+        int classMatchedCount = 0;
+        for (final ExtFilterMatcher matcher : matcherArray) {
+            if (matcher.matchingClass(classStructure)) {
+                if (null == classMatchedArray) {
+                    classMatchedArray = new ExtFilterMatcher[matcherArray.length];
+                }
+                classMatchedArray[classMatchedCount++] = matcher;
+            }
+        }
+        if (classMatchedCount == 0) {
+            return false;
+        }
+
+        boolean isMatched = false;
+        final List<BehaviorStructure> behaviorStructures = classStructure.getBehaviorStructures();
+        for (int index = 0; index < behaviorStructures.size(); index++) {
+            final BehaviorStructure behaviorStructure = behaviorStructures.get(index);
+            final int access = toFilterAccess(behaviorStructure.getAccess());
+            final String name = behaviorStructure.getName();
+            final MemoizingSupplier parameterTypes = new MemoizingSupplier(() -> toJavaClassNameArray(behaviorStructure.getParameterTypeClassStructures()));
+            final MemoizingSupplier throwsTypes = new MemoizingSupplier(() -> toJavaClassNameArray(behaviorStructure.getExceptionTypeClassStructures()));
+            final MemoizingSupplier annotationTypes = new MemoizingSupplier(() -> toJavaClassNameArray(behaviorStructure.getAnnotationTypeClassStructures()));
+            for (int matcherIndex = 0; matcherIndex < classMatchedCount; matcherIndex++) {
+                if (classMatchedArray[matcherIndex].matchingBehavior(access, name, parameterTypes, throwsTypes, annotationTypes)) {
+                    matchedBehaviors.set(index);
+                    isMatched = true;
+                    break;
+                }
+            }
+        }
+        return isMatched;
+    }
+
+    @Override
+    public String[] getClassNamePrefixes() {
+        return groupMatcher.getClassNamePrefixes();
+    }
+
+    @Override
+    public String[] getFamilyTypeNamePrefixes() {
+        return groupMatcher.getFamilyTypeNamePrefixes();
+    }
+
+    /**
+     * 只获取一次类型名称，多个过滤器共用
+     */
+    private static class MemoizingSupplier implements Supplier<String[]> {
+
+        private final Supplier<String[]> target;
+        private boolean isFetched;
+        private String[] value;
+
+        MemoizingSupplier(final Supplier<String[]> target) {
+            this.target = target;
+        }
+
+        @Override
+        public String[] get() {
+            if (!isFetched) {
+                value = target.get();
+                isFetched = true;
+            }
+            return value;
+        }
+
+    }
+
+}
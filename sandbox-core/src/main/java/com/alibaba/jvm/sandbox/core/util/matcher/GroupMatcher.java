@@ -1,10 +1,20 @@
 package com.alibaba.jvm.sandbox.core.util.matcher;
 
-import com.alibaba.jvm.sandbox.core.util.matcher.structure.BehaviorStructure;
 import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructure;
 
-import java.util.LinkedHashSet;
-
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 组匹配器
+ * <p>
+ * 子匹配器的结果以行为下标位图的形式合并，AND取交集、OR取并集，
+ * 只在最外层构造一次{@link MatchingResult}
+ * </p>
+ */
 public abstract class GroupMatcher implements Matcher {
 
     final Matcher[] matcherArray;
@@ -13,6 +23,14 @@ public abstract class GroupMatcher implements Matcher {
         this.matcherArray = matcherArray;
     }
 
+    @Override
+    public MatchingResult matching(final ClassStructure classStructure) {
+        final BitSet matchedBehaviors = new BitSet();
+        return matching(classStructure, matchedBehaviors)
+                ? MatchingResult.of(classStructure, matchedBehaviors)
+                : new MatchingResult();
+    }
+
 
     public static final class Or extends GroupMatcher {
 
@@ -21,15 +39,53 @@ public abstract class GroupMatcher implements Matcher {
         }
 
         @Override
-        public MatchingResult matching(final ClassStructure classStructure) {
-            final MatchingResult result = new MatchingResult();
+        public boolean matching(final ClassStructure classStructure, final BitSet matchedBehaviors) {
+            if (null == matcherArray) {
+                return false;
+            }
+
+            // 子匹配器直接在同一个位图上置位即为并集，所有行为都匹配上之后剩下的子匹配器不会再有贡献
+            final BitSet found = new BitSet();
+            int behaviorCount = -1;
+            for (final Matcher subMatcher : matcherArray) {
+                if (subMatcher.matching(classStructure, found)) {
+                    if (behaviorCount < 0) {
+                        behaviorCount = classStructure.getBehaviorStructures().size();
+                    }
+                    if (found.cardinality() >= behaviorCount) {
+                        break;
+                    }
+                }
+            }
+            matchedBehaviors.or(found);
+            return !found.isEmpty();
+        }
+
+        @Override
+        public String[] getClassNamePrefixes() {
+            return unionPrefixes(Matcher::getClassNamePrefixes);
+        }
+
+        @Override
+        public String[] getFamilyTypeNamePrefixes() {
+            return unionPrefixes(Matcher::getFamilyTypeNamePrefixes);
+        }
+
+        private String[] unionPrefixes(final Function<Matcher, String[]> prefixesGetter) {
             if (null == matcherArray) {
-                return result;
+                return null;
             }
+            final List<String> prefixes = new ArrayList<>();
             for (final Matcher subMatcher : matcherArray) {
-                result.getBehaviorStructures().addAll(subMatcher.matching(classStructure).getBehaviorStructures());
+
+                // 只要有一个分支无法确定，整体就无法确定
+                final String[] subPrefixes = prefixesGetter.apply(subMatcher);
+                if (null == subPrefixes) {
+                    return null;
+                }
+                Collections.addAll(prefixes, subPrefixes);
             }
-            return result;
+            return prefixes.toArray(new String[0]);
         }
 
     }
@@ -41,32 +97,57 @@ public abstract class GroupMatcher implements Matcher {
         }
 
         @Override
-        public MatchingResult matching(ClassStructure classStructure) {
-            boolean isFirst = true;
-            final MatchingResult result = new MatchingResult();
-            final LinkedHashSet<BehaviorStructure> found = new LinkedHashSet<>();
-            if (null == matcherArray) {
-                return result;
+        public boolean matching(final ClassStructure classStructure, final BitSet matchedBehaviors) {
+            if (null == matcherArray
+                    || matcherArray.length == 0) {
+                return false;
             }
+            final BitSet found = new BitSet();
+            BitSet subFound = null;
             for (final Matcher subMatcher : matcherArray) {
-                final MatchingResult subResult = subMatcher.matching(classStructure);
+                final BitSet target = null == subFound ? found : subFound;
 
                 // 只要有一次匹配失败，剩下的是取交集运算，所以肯定也没戏，就不用花这个计算了
-                if (!subResult.isMatched()) {
-                    return result;
+                if (!subMatcher.matching(classStructure, target)) {
+                    return false;
                 }
-
-                if (isFirst) {
-                    found.addAll(subResult.getBehaviorStructures());
-                    isFirst = false;
+                if (null == subFound) {
+                    subFound = new BitSet();
                 } else {
-                    found.retainAll(subResult.getBehaviorStructures());
+                    found.and(subFound);
+                    if (found.isEmpty()) {
+                        return false;
+                    }
+                    subFound.clear();
                 }
             }
-            if (!found.isEmpty()) {
-                result.getBehaviorStructures().addAll(found);
+            matchedBehaviors.or(found);
+            return true;
+        }
+
+        @Override
+        public String[] getClassNamePrefixes() {
+            return anyPrefixes(Matcher::getClassNamePrefixes);
+        }
+
+        @Override
+        public String[] getFamilyTypeNamePrefixes() {
+            return anyPrefixes(Matcher::getFamilyTypeNamePrefixes);
+        }
+
+        private String[] anyPrefixes(final Function<Matcher, String[]> prefixesGetter) {
+            if (null == matcherArray) {
+                return null;
+            }
+
+            // 取交集时任意一个子匹配器的前缀都是约束
+            for (final Matcher subMatcher : matcherArray) {
+                final String[] subPrefixes = prefixesGetter.apply(subMatcher);
+                if (null != subPrefixes) {
+                    return subPrefixes;
+                }
             }
-            return result;
+            return null;
         }
 
     }
@@ -1,7 +1,11 @@
 package com.alibaba.jvm.sandbox.core.util.matcher;
 
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.BehaviorStructure;
 import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructure;
 
+import java.util.BitSet;
+import java.util.List;
+
 /**
  * 匹配器
  * <p>
@@ -20,4 +24,53 @@ public interface Matcher {
      */
     MatchingResult matching(ClassStructure classStructure);
 
+    /**
+     * 匹配类结构，匹配上的行为按其在{@link ClassStructure#getBehaviorStructures()}中的下标写入位图
+     * <p>
+     * 组匹配器用位运算合并子匹配器的结果，匹配过程中不需要为每个类构造行为集合。
+     * 只会置位，不会清除调用前已经置位的下标
+     * </p>
+     *
+     * @param classStructure   类结构
+     * @param matchedBehaviors 匹配上的行为下标
+     * @return TRUE:有行为匹配上;FALSE:没有行为匹配上
+     */
+    default boolean matching(final ClassStructure classStructure, final BitSet matchedBehaviors) {
+        final MatchingResult result = matching(classStructure);
+        if (!result.isMatched()) {
+            return false;
+        }
+        final List<BehaviorStructure> behaviorStructures = classStructure.getBehaviorStructures();
+        for (int index = 0; index < behaviorStructures.size(); index++) {
+            if (result.getBehaviorStructures().contains(behaviorStructures.get(index))) {
+                matchedBehaviors.set(index);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 可能匹配的类名前缀
+     * <p>
+     * 类名不以其中任何一个前缀开头的类一定不会匹配，可以不构造类结构直接跳过
+     * </p>
+     *
+     * @return 类名前缀，null为无法确定
+     */
+    default String[] getClassNamePrefixes() {
+        return null;
+    }
+
+    /**
+     * 可能匹配的家族类型类名前缀
+     * <p>
+     * 类自身和所有家族类型的类名都不以其中任何一个前缀开头的类一定不会匹配，匹配子类时可以只查找前缀相符的类型及其子类型
+     * </p>
+     *
+     * @return 类名前缀，null为无法确定
+     */
+    default String[] getFamilyTypeNamePrefixes() {
+        return getClassNamePrefixes();
+    }
+
 }
@@ -2,7 +2,11 @@ package com.alibaba.jvm.sandbox.core.util.matcher;
 
 import com.alibaba.jvm.sandbox.core.util.matcher.structure.BehaviorStructure;
 
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructure;
+
+import java.util.BitSet;
 import java.util.LinkedHashSet;
+import java.util.List;
 
 /**
  * 匹配结果
@@ -13,6 +17,25 @@ public class MatchingResult {
 
     private final LinkedHashSet<BehaviorStructure> behaviorStructures = new LinkedHashSet<>();
 
+    /**
+     * 由位图构造匹配结果
+     *
+     * @param classStructure   类结构
+     * @param matchedBehaviors 匹配上的行为在{@link ClassStructure#getBehaviorStructures()}中的下标
+     * @return 匹配结果
+     */
+    public static MatchingResult of(final ClassStructure classStructure, final BitSet matchedBehaviors) {
+        final MatchingResult result = new MatchingResult();
+        if (matchedBehaviors.isEmpty()) {
+            return result;
+        }
+        final List<BehaviorStructure> behaviorStructures = classStructure.getBehaviorStructures();
+        for (int index = matchedBehaviors.nextSetBit(0); index >= 0; index = matchedBehaviors.nextSetBit(index + 1)) {
+            result.behaviorStructures.add(behaviorStructures.get(index));
+        }
+        return result;
+    }
+
     /**
      * 是否匹配成功
      *
@@ -7,6 +7,7 @@ import com.alibaba.jvm.sandbox.core.util.matcher.structure.Access;
 import com.alibaba.jvm.sandbox.core.util.matcher.structure.BehaviorStructure;
 import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructure;
 
+import java.util.BitSet;
 import java.util.List;
 
 
@@ -113,23 +114,34 @@ public class UnsupportedMatcher implements Matcher {
 
     @Override
     public MatchingResult matching(final ClassStructure classStructure) {
-        final MatchingResult result = new MatchingResult();
+        final BitSet matchedBehaviors = new BitSet();
+        return matching(classStructure, matchedBehaviors)
+                ? MatchingResult.of(classStructure, matchedBehaviors)
+                : new MatchingResult();
+    }
+
+    @Override
+    public boolean matching(final ClassStructure classStructure, final BitSet matchedBehaviors) {
         if (isUnsupportedClass(classStructure)
                 || isNotNecessaryClass(classStructure)
                 || isJvmSandboxClass(classStructure)
                 || isFromStealthClassLoader()
         ) {
-            return result;
+            return false;
         }
-        for (final BehaviorStructure behaviorStructure : classStructure.getBehaviorStructures()) {
+        boolean isMatched = false;
+        final List<BehaviorStructure> behaviorStructures = classStructure.getBehaviorStructures();
+        for (int index = 0; index < behaviorStructures.size(); index++) {
+            final BehaviorStructure behaviorStructure = behaviorStructures.get(index);
             if (isJavaMainBehavior(behaviorStructure)
                     || isUnsupportedBehavior(behaviorStructure)
                     || isSandboxSpecialBehavior(behaviorStructure)) {
                 continue;
             }
-            result.getBehaviorStructures().add(behaviorStructure);
+            matchedBehaviors.set(index);
+            isMatched = true;
         }
-        return result;
+        return isMatched;
     }
 
 
@@ -144,6 +156,7 @@ public class UnsupportedMatcher implements Matcher {
      * @return GroupMatcher.and(matcher, this)
      */
     public Matcher and(final Matcher matcher) {
+        // 用户的匹配器大多按类名就能排除，放在前面先判断
         return new GroupMatcher.And(
                 matcher,
                 this
@@ -0,0 +1,254 @@
+package com.alibaba.jvm.sandbox.core.util.matcher.structure;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * 类的继承关系
+ * <p>
+ * 只保存类名、访问修饰和家族类型的继承关系，不引用Class和ClassLoader，可以在多次扫描之间共享。
+ * 家族类型直接引用它们自己的继承关系，同一个父类或接口的继承关系只计算一次，被所有子类共用
+ * </p>
+ */
+public final class ClassHierarchy {
+
+    private static final ClassHierarchy[] EMPTY_ARRAY = new ClassHierarchy[0];
+    private static final String[] EMPTY_STRING_ARRAY = new String[0];
+
+    private final String javaClassName;
+    private final Access access;
+    private final String superClassJavaClassName;
+    private final ClassHierarchy[] familySuperClasses;
+    private final ClassHierarchy[] familyInterfaces;
+    private final ClassHierarchy[] familyTypes;
+    private final String[] familyInterfaceJavaClassNames;
+    private final String[] familyAnnotationTypeJavaClassNames;
+
+    // 家族元注释中可以被子类继承的部分
+    private final String[] inheritedAnnotationTypeJavaClassNames;
+
+    // 自己和所有家族类型声明的父类型是否都找到了
+    private final boolean isComplete;
+
+    private ClassHierarchy(final String javaClassName,
+                           final Access access,
+                           final String superClassJavaClassName,
+                           final ClassHierarchy[] familySuperClasses,
+                           final ClassHierarchy[] familyInterfaces,
+                           final ClassHierarchy[] familyTypes,
+                           final String[] familyAnnotationTypeJavaClassNames,
+                           final String[] inheritedAnnotationTypeJavaClassNames,
+                           final boolean isComplete) {
+        this.javaClassName = javaClassName;
+        this.access = access;
+        this.superClassJavaClassName = superClassJavaClassName;
+        this.familySuperClasses = familySuperClasses;
+        this.familyInterfaces = familyInterfaces;
+        this.familyTypes = familyTypes;
+        this.familyInterfaceJavaClassNames = toJavaClassNames(familyInterfaces);
+        this.familyAnnotationTypeJavaClassNames = familyAnnotationTypeJavaClassNames;
+        this.inheritedAnnotationTypeJavaClassNames = inheritedAnnotationTypeJavaClassNames;
+        this.isComplete = isComplete;
+    }
+
+    private static String[] toJavaClassNames(final ClassHierarchy[] hierarchies) {
+        if (hierarchies.length == 0) {
+            return EMPTY_STRING_ARRAY;
+        }
+        final String[] javaClassNames = new String[hierarchies.length];
+        for (int index = 0; index < hierarchies.length; index++) {
+            javaClassNames[index] = hierarchies[index].javaClassName;
+        }
+        return javaClassNames;
+    }
+
+    private static ClassHierarchy[] toArray(final Map<String, ClassHierarchy> hierarchies) {
+        return hierarchies.isEmpty()
+                ? EMPTY_ARRAY
+                : hierarchies.values().toArray(EMPTY_ARRAY);
+    }
+
+    private static String[] toArray(final Collection<String> javaClassNames) {
+        return javaClassNames.isEmpty()
+                ? EMPTY_STRING_ARRAY
+                : javaClassNames.toArray(EMPTY_STRING_ARRAY);
+    }
+
+    // 复制访问修饰，不引用原来的类结构
+    private static Access copyOf(final Access access) {
+        int flags = 0;
+        if (access.isPublic()) flags |= ACC_PUBLIC;
+        if (access.isPrivate()) flags |= ACC_PRIVATE;
+        if (access.isProtected()) flags |= ACC_PROTECTED;
+        if (access.isStatic()) flags |= ACC_STATIC;
+        if (access.isFinal()) flags |= ACC_FINAL;
+        if (access.isInterface()) flags |= ACC_INTERFACE;
+        if (access.isNative()) flags |= ACC_NATIVE;
+        if (access.isAbstract()) flags |= ACC_ABSTRACT;
+        if (access.isEnum()) flags |= ACC_ENUM;
+        if (access.isAnnotation()) flags |= ACC_ANNOTATION;
+        return new AccessImplByAsm(flags);
+    }
+
+    /**
+     * 由类结构计算继承关系
+     * <p>
+     * 只读取当前类直接声明的父类、接口和注解，祖先的继承关系通过{@link ClassStructure#getClassHierarchy()}获取，
+     * 结果与{@link ClassStructure}的家族类型集合一致
+     * </p>
+     *
+     * @param classStructure 类结构
+     * @return 继承关系
+     */
+    static ClassHierarchy of(final ClassStructure classStructure) {
+
+        // 家族父类：父类和父类的家族父类
+        final Map<String, ClassHierarchy> familySuperClasses = new LinkedHashMap<>();
+        final ClassStructure superClassStructure = classStructure.getSuperClassStructure();
+        final ClassHierarchy superClass = null == superClassStructure
+                ? null
+                : superClassStructure.getClassHierarchy();
+        boolean isComplete = classStructure.isSuperTypesResolved();
+        if (null != superClass) {
+            isComplete &= superClass.isComplete;
+            familySuperClasses.put(superClass.javaClassName, superClass);
+            for (final ClassHierarchy familySuperClass : superClass.familySuperClasses) {
+                familySuperClasses.putIfAbsent(familySuperClass.javaClassName, familySuperClass);
+            }
+        }
+
+        // 家族接口：声明的接口、接口的家族接口以及父类的家族接口
+        final Map<String, ClassHierarchy> familyInterfaces = new LinkedHashMap<>();
+        for (final ClassStructure interfaceClassStructure : classStructure.getInterfaceClassStructures()) {
+            final ClassHierarchy interfaceHierarchy = interfaceClassStructure.getClassHierarchy();
+            isComplete &= interfaceHierarchy.isComplete;
+            familyInterfaces.putIfAbsent(interfaceHierarchy.javaClassName, interfaceHierarchy);
+            for (final ClassHierarchy familyInterface : interfaceHierarchy.familyInterfaces) {
+                familyInterfaces.putIfAbsent(familyInterface.javaClassName, familyInterface);
+            }
+        }
+        if (null != superClass) {
+            for (final ClassHierarchy familyInterface : superClass.familyInterfaces) {
+                familyInterfaces.putIfAbsent(familyInterface.javaClassName, familyInterface);
+            }
+        }
+
+        // 家族类型：家族父类和家族接口
+        final Map<String, ClassHierarchy> familyTypes = new LinkedHashMap<>(familySuperClasses);
+        for (final Map.Entry<String, ClassHierarchy> entry : familyInterfaces.entrySet()) {
+            familyTypes.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+
+        // 家族元注释：自己声明的注解，加上家族类型上可以被继承的注解
+        final Map<String, Boolean> familyAnnotationTypes = new LinkedHashMap<>();
+        for (final ClassStructure annotationTypeClassStructure : classStructure.getAnnotationTypeClassStructures()) {
+            familyAnnotationTypes.put(
+                    annotationTypeClassStructure.getJavaClassName(),
+                    FamilyClassStructure.isInheritedAnnotationType(annotationTypeClassStructure)
+            );
+        }
+        for (final ClassHierarchy familyType : familyTypes.values()) {
+            for (final String inheritedAnnotationTypeJavaClassName : familyType.inheritedAnnotationTypeJavaClassNames) {
+                familyAnnotationTypes.put(inheritedAnnotationTypeJavaClassName, true);
+            }
+        }
+        final String[] familyAnnotationTypeJavaClassNames = toArray(familyAnnotationTypes.keySet());
+        int inheritedCount = 0;
+        final String[] inheritedAnnotationTypeJavaClassNames = new String[familyAnnotationTypeJavaClassNames.length];
+        for (final Map.Entry<String, Boolean> entry : familyAnnotationTypes.entrySet()) {
+            if (entry.getValue()) {
+                inheritedAnnotationTypeJavaClassNames[inheritedCount++] = entry.getKey();
+            }
+        }
+
+        return new ClassHierarchy(
+                classStructure.getJavaClassName(),
+                copyOf(classStructure.getAccess()),
+                null == superClass ? null : superClass.javaClassName,
+                toArray(familySuperClasses),
+                toArray(familyInterfaces),
+                toArray(familyTypes),
+                familyAnnotationTypeJavaClassNames,
+                inheritedCount == inheritedAnnotationTypeJavaClassNames.length
+                        ? inheritedAnnotationTypeJavaClassNames
+                        : Arrays.copyOf(inheritedAnnotationTypeJavaClassNames, inheritedCount),
+                isComplete
+        );
+    }
+
+    /**
+     * 继承关系是否完整
+     * <p>
+     * 自己或者某个家族类型有父类型没有找到类结构时不完整，不完整的继承关系不会被缓存
+     * </p>
+     *
+     * @return TRUE:完整;FALSE:不完整
+     */
+    public boolean isComplete() {
+        return isComplete;
+    }
+
+    /**
+     * 获取Java类名
+     *
+     * @return Java类名
+     */
+    public String getJavaClassName() {
+        return javaClassName;
+    }
+
+    /**
+     * 获取访问修饰描述
+     *
+     * @return 访问修饰描述
+     */
+    public Access getAccess() {
+        return access;
+    }
+
+    /**
+     * 获取父类类名
+     *
+     * @return 父类类名，没有父类时返回null
+     */
+    public String getSuperClassJavaClassName() {
+        return superClassJavaClassName;
+    }
+
+    /**
+     * 获取家族类型的继承关系，范围与{@link ClassStructure#getFamilyTypeClassStructures()}一致
+     *
+     * @return 家族类型的继承关系
+     */
+    public ClassHierarchy[] getFamilyTypes() {
+        return familyTypes;
+    }
+
+    /**
+     * 获取家族接口类名，范围与{@link ClassStructure#getFamilyInterfaceClassStructures()}一致
+     *
+     * @return 家族接口类名
+     */
+    public String[] getFamilyInterfaceJavaClassNames() {
+        return familyInterfaceJavaClassNames;
+    }
+
+    /**
+     * 获取家族元注释类名，范围与{@link ClassStructure#getFamilyAnnotationTypeClassStructures()}一致
+     *
+     * @return 家族元注释类名
+     */
+    public String[] getFamilyAnnotationTypeJavaClassNames() {
+        return familyAnnotationTypeJavaClassNames;
+    }
+
+    @Override
+    public String toString() {
+        return "ClassHierarchy{" + "javaClassName='" + javaClassName + '\'' + '}';
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.alibaba.jvm.sandbox.core.util.matcher.structure;
+
+import com.alibaba.jvm.sandbox.core.util.ClassLoaderCache;
+
+/**
+ * 类继承关系缓存
+ * <p>
+ * 同一个ClassLoader下的类名唯一确定一个类，它的继承关系在多次扫描之间共享，ASM和JDK实现的类结构共用。
+ * ClassLoader被回收时它加载的类都已经卸载，缓存也一起被清除。
+ * 继承关系不引用ClassLoader，不会阻止ClassLoader被回收
+ * </p>
+ */
+public class ClassHierarchyCache extends ClassLoaderCache<ClassHierarchy> {
+
+    // 所有ClassLoader合计最多缓存的继承关系个数
+    private static final long MAXIMUM_SIZE = 65536;
+
+    public ClassHierarchyCache(final long maximumSize) {
+        super(maximumSize);
+    }
+
+    /**
+     * 全局的类继承关系缓存
+     */
+    public static final ClassHierarchyCache instance = new ClassHierarchyCache(MAXIMUM_SIZE);
+
+}
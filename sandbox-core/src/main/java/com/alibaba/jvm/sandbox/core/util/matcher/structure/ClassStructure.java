@@ -99,6 +99,31 @@ public interface ClassStructure {
      */
     Set<ClassStructure> getFamilyAnnotationTypeClassStructures();
 
+    /**
+     * 获取类的继承关系
+     * <p>
+     * 与家族类型集合的范围一致，但只保存类名和访问修饰，可以在多次扫描之间共享
+     * </p>
+     *
+     * @return 类的继承关系
+     */
+    default ClassHierarchy getClassHierarchy() {
+        return ClassHierarchy.of(this);
+    }
+
+    /**
+     * 直接声明的父类、接口和注解是否都找到了类结构
+     * <p>
+     * ASM实现的类结构通过ClassLoader的资源查找父类型，找不到.class资源时父类型会缺失，
+     * 此时得到的继承关系不完整，不能缓存下来给其他类结构共用
+     * </p>
+     *
+     * @return TRUE:都找到了;FALSE:有父类型缺失
+     */
+    default boolean isSuperTypesResolved() {
+        return true;
+    }
+
     /**
      * 获取行为(构造函数和方法)的结构集合
      *
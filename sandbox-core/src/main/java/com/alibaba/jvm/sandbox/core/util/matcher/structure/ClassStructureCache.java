@@ -0,0 +1,36 @@
+package com.alibaba.jvm.sandbox.core.util.matcher.structure;
+
+import com.alibaba.jvm.sandbox.core.util.ClassLoaderCache;
+
+import java.util.Optional;
+
+/**
+ * 类结构缓存
+ * <p>
+ * 按类名缓存类结构，类结构解析失败时缓存空值。ASM实现的类结构持有整个类的字节码，按字节码长度计算权重，
+ * 所有ClassLoader合计超出上限后淘汰最久没有用到的类结构。缓存的类结构对ClassLoader只持弱引用，不会阻止ClassLoader被回收
+ * </p>
+ */
+public class ClassStructureCache extends ClassLoaderCache<Optional<ClassStructure>> {
+
+    // 所有ClassLoader合计最多缓存的字节码长度
+    private static final long MAXIMUM_WEIGHT = 32 * 1024 * 1024;
+
+    public ClassStructureCache(final long maximumWeight) {
+        super(maximumWeight, ClassStructureCache::weigh);
+    }
+
+    // 解析失败的空值和其他实现的类结构按1计算
+    private static int weigh(final Optional<ClassStructure> classStructure) {
+        return classStructure
+                .filter(ClassStructureImplByAsm.class::isInstance)
+                .map(structure -> Math.max(1, ((ClassStructureImplByAsm) structure).getByteCodeLength()))
+                .orElse(1);
+    }
+
+    /**
+     * 全局的类结构缓存
+     */
+    public static final ClassStructureCache instance = new ClassStructureCache(MAXIMUM_WEIGHT);
+
+}
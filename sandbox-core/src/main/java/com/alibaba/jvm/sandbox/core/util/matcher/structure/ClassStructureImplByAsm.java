@@ -2,10 +2,7 @@ package com.alibaba.jvm.sandbox.core.util.matcher.structure;
 
 import com.alibaba.jvm.sandbox.api.util.LazyGet;
 import com.alibaba.jvm.sandbox.core.util.BitUtils;
-import com.alibaba.jvm.sandbox.core.util.collection.Pair;
 import com.alibaba.jvm.sandbox.core.util.matcher.structure.PrimitiveClassStructure.Primitive;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.objectweb.asm.*;
@@ -14,6 +11,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.WeakReference;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -233,7 +231,11 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final ClassReader classReader;
-    private final ClassLoader loader;
+    private final int byteCodeLength;
+
+    // 类结构会被缓存，对ClassLoader只持弱引用，避免缓存阻止ClassLoader被回收
+    private final WeakReference<ClassLoader> loaderRef;
+    private final boolean isBootstrapClassLoader;
     private final Access access;
 
     ClassStructureImplByAsm(final InputStream classInputStream,
@@ -244,7 +246,9 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
     ClassStructureImplByAsm(final byte[] classByteArray,
                             final ClassLoader loader) {
         this.classReader = new ClassReader(classByteArray);
-        this.loader = loader;
+        this.byteCodeLength = classByteArray.length;
+        this.loaderRef = new WeakReference<>(loader);
+        this.isBootstrapClassLoader = null == loader;
         this.access = fixAccess();
     }
 
@@ -268,7 +272,7 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
     }
 
     private boolean isBootstrapClassLoader() {
-        return null == loader;
+        return isBootstrapClassLoader;
     }
 
     // 获取资源数据流
@@ -289,7 +293,10 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
                 // pass
             }
         } else {
-            ins = loader.getResourceAsStream(resourceName);
+            final ClassLoader loader = loaderRef.get();
+            if (null != loader) {
+                ins = loader.getResourceAsStream(resourceName);
+            }
         }
         return ins;
     }
@@ -299,9 +306,6 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
         return internalClassName + ".class";
     }
 
-    private final static Cache<Pair, ClassStructure> classStructureCache
-            = CacheBuilder.newBuilder().maximumSize(1024).build();
-
     // 构造一个类结构实例
     private ClassStructure newInstance(final String javaClassName) {
 
@@ -321,23 +325,28 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
             return new PrimitiveClassStructure(primitive);
         }
 
-        final Pair pair = new Pair(loader, javaClassName);
-        final ClassStructure existClassStructure = classStructureCache.getIfPresent(pair);
+        // ClassLoader已经被回收
+        final ClassLoader loader = getClassLoader();
+        if (!isBootstrapClassLoader() && null == loader) {
+            return null;
+        }
+
+        final Optional<ClassStructure> existClassStructure = ClassStructureCache.instance.getIfPresent(loader, javaClassName);
         if (null != existClassStructure) {
-            return existClassStructure;
+            return existClassStructure.orElse(null);
         } else {
             // fix for #385
             final InputStream is = getResourceAsStream(toJavaClassName(javaClassName));
             if (null != is) {
                 try {
                     final ClassStructure classStructure = new ClassStructureImplByAsm(is, loader);
-                    classStructureCache.put(pair, classStructure);
+                    ClassStructureCache.instance.put(loader, javaClassName, Optional.of(classStructure));
                     return classStructure;
                 } catch (Throwable cause) {
                     // ignore
                     logger.warn("new instance class structure by using ASM failed, will return null. class={};loader={};",
                             javaClassName, loader, cause);
-                    classStructureCache.put(pair, null);
+                    ClassStructureCache.instance.put(loader, javaClassName, Optional.empty());
                 } finally {
                     IOUtils.closeQuietly(is);
                 }
@@ -364,6 +373,15 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
     }
 
     // 遍历一个类结构
+    /**
+     * 获取字节码长度，类结构缓存按它计算类结构占用的内存
+     *
+     * @return 字节码长度
+     */
+    int getByteCodeLength() {
+        return byteCodeLength;
+    }
+
     private void accept(final ClassVisitor cv) {
         classReader.accept(cv, SKIP_CODE | SKIP_DEBUG | SKIP_FRAMES);
     }
@@ -375,7 +393,7 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
 
     @Override
     public ClassLoader getClassLoader() {
-        return loader;
+        return loaderRef.get();
     }
 
     private final LazyGet<ClassStructure> superClassStructureLazyGet
@@ -408,16 +426,21 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
         return interfaceClassStructuresLazyGet.get();
     }
 
+    // 类上声明的可见注解个数，在获取注解类结构时统计
+    private volatile int visibleAnnotationCount;
+
     private final LazyGet<List<ClassStructure>> annotationTypeClassStructuresLazyGet
             = new LazyGet<List<ClassStructure>>() {
         @Override
         protected List<ClassStructure> initialValue() {
             final List<ClassStructure> annotationTypeClassStructures = new ArrayList<>();
+            final int[] visibleCount = new int[1];
             accept(new ClassVisitor(ASM7) {
 
                 @Override
                 public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
                     if (visible) {
+                        visibleCount[0]++;
                         final ClassStructure annotationTypeClassStructure = newInstance(Type.getType(desc).getClassName());
                         if (null != annotationTypeClassStructure) {
                             annotationTypeClassStructures.add(annotationTypeClassStructure);
@@ -427,6 +450,7 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
                 }
 
             });
+            visibleAnnotationCount = visibleCount[0];
             return annotationTypeClassStructures;
         }
     };
@@ -436,6 +460,18 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
         return annotationTypeClassStructuresLazyGet.get();
     }
 
+    @Override
+    public boolean isSuperTypesResolved() {
+        final String superInternalClassName = classReader.getSuperName();
+        if (null != superInternalClassName
+                && !StringUtils.equals("java/lang/Object", superInternalClassName)
+                && null == getSuperClassStructure()) {
+            return false;
+        }
+        return getInterfaceClassStructures().size() == classReader.getInterfaces().length
+                && getAnnotationTypeClassStructures().size() == visibleAnnotationCount;
+    }
+
 
     private final LazyGet<List<BehaviorStructure>> behaviorStructuresLazyGet
             = new LazyGet<List<BehaviorStructure>>() {
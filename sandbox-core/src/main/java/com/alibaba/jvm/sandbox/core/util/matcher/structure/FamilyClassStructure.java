@@ -64,7 +64,7 @@ public abstract class FamilyClassStructure implements ClassStructure {
     }
 
     // 当前类结构是否一个可被继承的Annotation类结构
-    private static boolean isInheritedAnnotationType(ClassStructure classStructure) {
+    static boolean isInheritedAnnotationType(ClassStructure classStructure) {
         if (!classStructure.getAccess().isAnnotation()) {
             return false;
         }
@@ -129,6 +129,32 @@ public abstract class FamilyClassStructure implements ClassStructure {
         return familySuperClassStructuresLazyGet.get();
     }
 
+    private final LazyGet<ClassHierarchy> classHierarchyLazyGet
+            = new LazyGet<ClassHierarchy>() {
+        @Override
+        protected ClassHierarchy initialValue() {
+            final ClassLoader loader = getClassLoader();
+            final String javaClassName = getJavaClassName();
+            final ClassHierarchy existClassHierarchy = ClassHierarchyCache.instance.getIfPresent(loader, javaClassName);
+            if (null != existClassHierarchy) {
+                return existClassHierarchy;
+            }
+            final ClassHierarchy classHierarchy = ClassHierarchy.of(FamilyClassStructure.this);
+
+            // 缺失父类型的继承关系只属于当前类结构，缓存下来会让后续的扫描都漏掉这些父类型
+            if (classHierarchy.isComplete()) {
+                ClassHierarchyCache.instance.put(loader, javaClassName, classHierarchy);
+            }
+            return classHierarchy;
+        }
+    };
+
+    // 继承关系按ClassLoader和类名缓存在ClassHierarchyCache中，每次扫描重新构造的类结构也不用重新遍历家族类型
+    @Override
+    public ClassHierarchy getClassHierarchy() {
+        return classHierarchyLazyGet.get();
+    }
+
     @Override
     public int hashCode() {
         return getJavaClassName().hashCode();
@@ -49,6 +49,36 @@ public class CalculatorImplByEventListenerTestCase implements ICalculatorTestCas
 
     }
 
+    /**
+     * 增强代码直接加载类自身的ClassLoader，BEFORE事件中的ClassLoader必须与类的ClassLoader一致
+     */
+    @Test
+    public void cal$sum$before$javaClassLoader() throws Throwable {
+        final ClassLoader[] javaClassLoaderRef = new ClassLoader[1];
+        final TracingEventListener listener;
+        final Class<?> calculatorClass = JvmHelper
+                .createJvm()
+                .defineClass(
+                        Calculator.class,
+                        CALCULATOR_SUM_FILTER,
+                        listener = new TracingEventListener() {
+                            @Override
+                            public void onEvent(Event event) throws Throwable {
+                                super.onEvent(event);
+                                javaClassLoaderRef[0] = ((BeforeEvent) event).javaClassLoader;
+                            }
+                        },
+                        BEFORE
+                )
+                .loadClass(CALCULATOR_CLASS_NAME);
+
+        assertEquals(30, sum(newInstance(calculatorClass), 10, 20));
+        listener.assertEventTracing(
+                BEFORE
+        );
+        assertTrue(calculatorClass.getClassLoader() == javaClassLoaderRef[0]);
+    }
+
     @Test
     @Override
     public void cal$sum$line() throws Throwable {
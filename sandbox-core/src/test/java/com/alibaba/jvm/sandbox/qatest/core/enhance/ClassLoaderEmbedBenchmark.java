@@ -0,0 +1,105 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator;
+import com.alibaba.jvm.sandbox.qatest.core.util.JvmHelper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.BEFORE;
+import static com.alibaba.jvm.sandbox.qatest.core.util.BenchmarkHelper.spyBootClasspath;
+import static com.alibaba.jvm.sandbox.qatest.core.util.CalculatorHelper.CALCULATOR_CLASS_NAME;
+import static com.alibaba.jvm.sandbox.qatest.core.util.CalculatorHelper.CALCULATOR_SUM_FILTER;
+import static java.lang.invoke.MethodType.methodType;
+import static org.objectweb.asm.Opcodes.V1_4;
+
+/**
+ * BEFORE事件传递ClassLoader的性能基准
+ * <p>
+ * 对{@link Calculator#sum(int...)}织入BEFORE事件，对比增强代码直接加载类自身的ClassLoader(CLASS_LOADER)
+ * 与传递ClassLoader的ObjectID再反查(OBJECT_ID)的单次调用开销，ORIGINAL为未增强的对照组。
+ * OBJECT_ID通过在织入前把类版本降到JDK1.4来让编织器回退到ObjectID的方式
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassLoaderEmbedBenchmark {
+
+    @Param({"ORIGINAL", "OBJECT_ID", "CLASS_LOADER"})
+    private String weaving;
+
+    private final int[] numArray = new int[]{10, 20};
+    private Object calculator;
+    private MethodHandle sum;
+
+    @Setup
+    public void setup() throws Throwable {
+        final JvmHelper jvm = JvmHelper.createJvm();
+        final JvmHelper.Transformer transformer = new JvmHelper.Transformer(
+                CALCULATOR_SUM_FILTER,
+                new EventListener() {
+                    @Override
+                    public void onEvent(Event event) {
+                    }
+                },
+                BEFORE
+        );
+        if ("ORIGINAL".equals(weaving)) {
+            jvm.defineClass(Calculator.class);
+        } else if ("OBJECT_ID".equals(weaving)) {
+            jvm.defineClass(Calculator.class, new ClassVersionTransformer(), transformer);
+        } else {
+            jvm.defineClass(Calculator.class, transformer);
+        }
+
+        final Class<?> calculatorClass = jvm.loadClass(CALCULATOR_CLASS_NAME);
+        calculator = calculatorClass.newInstance();
+        sum = MethodHandles.lookup()
+                .findVirtual(calculatorClass, "sum", methodType(int.class, int[].class))
+                .asType(methodType(int.class, Object.class, int[].class));
+    }
+
+    @Benchmark
+    public int sum() throws Throwable {
+        return (int) sum.invokeExact(calculator, numArray);
+    }
+
+    public static void main(String... args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ClassLoaderEmbedBenchmark.class.getName())
+                .jvmArgsAppend(spyBootClasspath())
+                .build()
+        ).run();
+    }
+
+    /**
+     * 修改类版本号，JDK1.4版本的类没有StackMapTable，由旧的类型推导校验器完成校验，运行时与高版本的类没有差别
+     */
+    static class ClassVersionTransformer extends JvmHelper.Transformer {
+
+        ClassVersionTransformer() {
+            super(null, (EventListener) null);
+        }
+
+        // 类文件的第6、7个字节为主版本号
+        @Override
+        public byte[] transform(String namespace, ClassLoader loader, byte[] byteCodes) {
+            final byte[] newByteCodes = byteCodes.clone();
+            newByteCodes[6] = (byte) (V1_4 >>> 8);
+            newByteCodes[7] = (byte) V1_4;
+            return newByteCodes;
+        }
+
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.core.enhance.EventEnhancer;
+import com.alibaba.jvm.sandbox.core.enhance.EventWeaving;
+import com.alibaba.jvm.sandbox.core.util.CommonSuperClassCache;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.BehaviorStructure;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureCache;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureFactory;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+
+/**
+ * 增强时计算共同父类的性能基准
+ * <p>
+ * 对commons-lang3中的所有类(约350个)的所有行为织入BEFORE/RETURN/THROWS事件，
+ * {@code cache}为cold时每次增强前清空共同父类和类结构缓存，为warm时缓存在多次增强之间保留
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommonSuperClassBenchmark {
+
+    private static final Event.Type[] EVENT_TYPES = new Event.Type[]{BEFORE, RETURN, THROWS};
+
+    @Param({"cold", "warm"})
+    private String cache;
+
+    private ClassLoader loader;
+    private final List<byte[]> byteCodeArrays = new ArrayList<>();
+    private final List<List<EventWeaving>> weavingsList = new ArrayList<>();
+
+    @Setup
+    public void setup() throws Exception {
+        final File jarFile = new File(StringUtils.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        loader = new URLClassLoader(new URL[]{jarFile.toURI().toURL()}, null);
+        try (final JarFile jar = new JarFile(jarFile)) {
+            final Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                final JarEntry entry = entries.nextElement();
+                if (!entry.getName().endsWith(".class")
+                        || entry.getName().endsWith("module-info.class")) {
+                    continue;
+                }
+                try (final InputStream is = jar.getInputStream(entry)) {
+                    final byte[] byteCodeArray = IOUtils.toByteArray(is);
+                    final Set<String> signCodes = new LinkedHashSet<>();
+                    for (final BehaviorStructure behaviorStructure
+                            : ClassStructureFactory.createClassStructure(byteCodeArray, loader).getBehaviorStructures()) {
+                        signCodes.add(behaviorStructure.getSignCode());
+                    }
+                    final List<EventWeaving> weavings = new ArrayList<>();
+                    weavings.add(new EventWeaving(signCodes, 1, EVENT_TYPES));
+                    byteCodeArrays.add(byteCodeArray);
+                    weavingsList.add(weavings);
+                }
+            }
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void cleanIfCold() {
+        if ("cold".equals(cache)) {
+            CommonSuperClassCache.instance.clean();
+            ClassStructureCache.instance.clean();
+        }
+    }
+
+    @Benchmark
+    public int enhance() {
+        int length = 0;
+        for (int index = 0; index < byteCodeArrays.size(); index++) {
+            length += new EventEnhancer("$$SANDBOX$").toByteCodeArray(
+                    loader,
+                    byteCodeArrays.get(index),
+                    "default",
+                    weavingsList.get(index)
+            ).length;
+        }
+        return length;
+    }
+
+    public static void main(String... args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(CommonSuperClassBenchmark.class.getName())
+                .build()
+        ).run();
+    }
+
+}
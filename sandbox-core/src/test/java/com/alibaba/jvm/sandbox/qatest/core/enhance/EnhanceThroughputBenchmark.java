@@ -0,0 +1,104 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.core.enhance.EventEnhancer;
+import com.alibaba.jvm.sandbox.core.enhance.EventWeaving;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.BehaviorStructure;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureFactory;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+
+/**
+ * 类增强吞吐量基准
+ * <p>
+ * 每次操作增强commons-lang3中的一个类，结果为每秒增强的类数。
+ * {@code behaviors}为one时每个类只织入第一个行为，其余方法由ASM原样拷贝；为all时织入所有行为
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EnhanceThroughputBenchmark {
+
+    private static final Event.Type[] EVENT_TYPES = new Event.Type[]{BEFORE, RETURN, THROWS};
+
+    @Param({"one", "all"})
+    private String behaviors;
+
+    private ClassLoader loader;
+    private final List<byte[]> byteCodeArrays = new ArrayList<>();
+    private final List<List<EventWeaving>> weavingsList = new ArrayList<>();
+    private int index;
+
+    @Setup
+    public void setup() throws Exception {
+        final File jarFile = new File(StringUtils.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        loader = new URLClassLoader(new URL[]{jarFile.toURI().toURL()}, null);
+        try (final JarFile jar = new JarFile(jarFile)) {
+            final Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                final JarEntry entry = entries.nextElement();
+                if (!entry.getName().endsWith(".class")
+                        || entry.getName().endsWith("module-info.class")) {
+                    continue;
+                }
+                try (final InputStream is = jar.getInputStream(entry)) {
+                    final byte[] byteCodeArray = IOUtils.toByteArray(is);
+                    final Set<String> signCodes = new LinkedHashSet<>();
+                    for (final BehaviorStructure behaviorStructure
+                            : ClassStructureFactory.createClassStructure(byteCodeArray, loader).getBehaviorStructures()) {
+                        signCodes.add(behaviorStructure.getSignCode());
+                        if ("one".equals(behaviors)) {
+                            break;
+                        }
+                    }
+                    byteCodeArrays.add(byteCodeArray);
+                    weavingsList.add(Collections.singletonList(new EventWeaving(signCodes, 1, EVENT_TYPES)));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public byte[] enhance() {
+        if (++index >= byteCodeArrays.size()) {
+            index = 0;
+        }
+        return new EventEnhancer("$$SANDBOX$").toByteCodeArray(
+                loader,
+                byteCodeArrays.get(index),
+                "default",
+                weavingsList.get(index)
+        );
+    }
+
+    public static void main(String... args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(EnhanceThroughputBenchmark.class.getName())
+                .build()
+        ).run();
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.core.enhance.EventEnhancer;
+import com.alibaba.jvm.sandbox.core.enhance.EventWeaving;
+import com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator;
+import com.alibaba.jvm.sandbox.qatest.core.enhance.target.NativeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.alibaba.jvm.sandbox.qatest.core.util.QaClassUtils.toByteArray;
+import static com.alibaba.jvm.sandbox.qatest.core.util.QaClassUtils.toMethodByteArrays;
+import static org.junit.Assert.*;
+
+/**
+ * 没有织入的方法由ASM原样拷贝的测试
+ */
+public class MethodCopyTestCase {
+
+    private static final Event.Type[] ALL_EVENT_TYPES = Event.Type.values();
+
+    private byte[] enhance(final Class<?> targetClass, final List<EventWeaving> weavings) throws IOException {
+        return new EventEnhancer("$$SANDBOX$").toByteCodeArray(
+                getClass().getClassLoader(),
+                toByteArray(targetClass),
+                "default",
+                weavings
+        );
+    }
+
+    private static Set<String> signCodes(final Class<?> targetClass, final String... behaviors) {
+        final Set<String> signCodes = new HashSet<>();
+        for (final String behavior : behaviors) {
+            signCodes.add(targetClass.getName() + "#" + behavior);
+        }
+        return signCodes;
+    }
+
+    // 断言只有织入的方法发生变化，其余方法的method_info逐字节相同
+    private static void assertOnlyWovenChanged(final Class<?> targetClass,
+                                               final byte[] enhancedByteArray,
+                                               final String... wovenMethods) throws IOException {
+        final Map<String, byte[]> srcMethods = toMethodByteArrays(toByteArray(targetClass));
+        final Map<String, byte[]> enhancedMethods = toMethodByteArrays(enhancedByteArray);
+        final Set<String> wovenMethodSet = new HashSet<>(Arrays.asList(wovenMethods));
+        for (final Map.Entry<String, byte[]> entry : srcMethods.entrySet()) {
+            final byte[] enhancedMethod = enhancedMethods.get(entry.getKey());
+            assertNotNull(entry.getKey(), enhancedMethod);
+            assertEquals(entry.getKey(), !wovenMethodSet.contains(entry.getKey()), Arrays.equals(entry.getValue(), enhancedMethod));
+        }
+    }
+
+    @Test
+    public void test$untouched$methods$copied() throws IOException {
+        final byte[] enhanced = enhance(
+                Calculator.class,
+                Collections.singletonList(new EventWeaving(signCodes(Calculator.class, "sum(int[])"), 1, ALL_EVENT_TYPES))
+        );
+        assertOnlyWovenChanged(Calculator.class, enhanced, "sum([I)I");
+    }
+
+    @Test
+    public void test$untouched$methods$copied$with$multi$weavings() throws IOException {
+        final byte[] enhanced = enhance(
+                Calculator.class,
+                Arrays.asList(
+                        new EventWeaving(signCodes(Calculator.class, "sum(int[])"), 1, ALL_EVENT_TYPES),
+                        new EventWeaving(signCodes(Calculator.class, "sum(int[])", "add(int,int)"), 2, ALL_EVENT_TYPES)
+                )
+        );
+        assertOnlyWovenChanged(Calculator.class, enhanced, "sum([I)I", "add(II)I");
+    }
+
+    @Test
+    public void test$untouched$native$methods$copied() throws IOException {
+        final byte[] enhanced = enhance(
+                NativeClass.class,
+                Collections.singletonList(new EventWeaving(signCodes(NativeClass.class, "currentTimeMillis()"), 1, ALL_EVENT_TYPES))
+        );
+        assertOnlyWovenChanged(NativeClass.class, enhanced, "currentTimeMillis()J");
+
+        // 被织入的native方法改名后作为代理方法追加
+        assertTrue(toMethodByteArrays(enhanced).containsKey("$$SANDBOX$currentTimeMillis()J"));
+    }
+
+}
@@ -0,0 +1,338 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance;
+
+import com.alibaba.jvm.sandbox.api.ProcessController;
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.filter.Filter;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.core.enhance.EventEnhancer;
+import com.alibaba.jvm.sandbox.core.enhance.EventWeaving;
+import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
+import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
+import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.MatchingResult;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureFactory;
+import com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator;
+import com.alibaba.jvm.sandbox.qatest.core.enhance.target.NativeClass;
+import com.alibaba.jvm.sandbox.qatest.core.util.JvmHelper;
+import com.alibaba.jvm.sandbox.qatest.core.util.JvmHelper.Transformer;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+import static com.alibaba.jvm.sandbox.api.filter.ExtFilter.ExtFilterFactory.make;
+import static com.alibaba.jvm.sandbox.api.util.GaStringUtils.getJavaClassName;
+import static com.alibaba.jvm.sandbox.qatest.core.util.CalculatorHelper.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 多个监听器在一次改写中织入的测试
+ */
+public class MultiListenerWeaveTestCase {
+
+    /**
+     * 把事件按"监听器名称:事件类型"记录到共享的跟踪列表中，收到指定事件时改变流程
+     */
+    private static class NamedTracingEventListener implements EventListener {
+
+        private final String name;
+        private final List<String> tracing;
+        private final Event.Type controlEventType;
+        private final Object controlRespond;
+
+        NamedTracingEventListener(final String name,
+                                  final List<String> tracing,
+                                  final Event.Type controlEventType,
+                                  final Object controlRespond) {
+            this.name = name;
+            this.tracing = tracing;
+            this.controlEventType = controlEventType;
+            this.controlRespond = controlRespond;
+        }
+
+        NamedTracingEventListener(final String name, final List<String> tracing) {
+            this(name, tracing, null, null);
+        }
+
+        @Override
+        public void onEvent(Event event) throws Throwable {
+            tracing.add(name + ":" + event.type);
+            if (event.type != controlEventType) {
+                return;
+            }
+            if (controlRespond instanceof Throwable) {
+                ProcessController.throwsImmediately((Throwable) controlRespond);
+            } else {
+                ProcessController.returnImmediately(controlRespond);
+            }
+        }
+
+    }
+
+    /**
+     * 一次改写中织入所有监听器
+     */
+    private static class MultiWeavingTransformer extends Transformer {
+
+        private final Filter[] filters;
+        private final EventListener[] listeners;
+        private final Event.Type[] eventTypes;
+
+        MultiWeavingTransformer(final Filter[] filters,
+                                final EventListener[] listeners,
+                                final Event.Type... eventTypes) {
+            super(filters[0], listeners[0], eventTypes);
+            this.filters = filters;
+            this.listeners = listeners;
+            this.eventTypes = eventTypes;
+        }
+
+        @Override
+        public byte[] transform(final String namespace,
+                                final ClassLoader loader,
+                                final byte[] byteCodes) {
+            final List<EventWeaving> weavings = new ArrayList<>();
+            for (int index = 0; index < filters.length; index++) {
+                final MatchingResult matchingResult = new ExtFilterMatcher(make(filters[index]))
+                        .matching(ClassStructureFactory.createClassStructure(byteCodes, loader));
+                final int listenerId = ObjectIDs.instance.identity(listeners[index]);
+                EventListenerHandler.getSingleton().active(listenerId, listeners[index], eventTypes);
+                if (matchingResult.isMatched()) {
+                    weavings.add(new EventWeaving(matchingResult.getBehaviorSignCodes(), listenerId, eventTypes));
+                }
+            }
+            return new EventEnhancer("$$SANDBOX$").toByteCodeArray(loader, byteCodes, namespace, weavings);
+        }
+
+    }
+
+    private static final Event.Type[] ALL_EVENT_TYPES = Event.Type.values();
+
+    /**
+     * 监听器的流程控制
+     */
+    private static class Control {
+
+        final Event.Type eventType;
+        final Object respond;
+
+        Control(final Event.Type eventType, final Object respond) {
+            this.eventType = eventType;
+            this.respond = respond;
+        }
+
+    }
+
+    private static final Control NONE = new Control(null, null);
+
+    private static List<String> tracing(final boolean isMultiWeaving,
+                                        final Calculator.TestCase tCase,
+                                        final Control firstControl,
+                                        final Control secondControl) throws Throwable {
+        final List<String> tracing = new ArrayList<>();
+        final Filter[] filters = new Filter[]{CALCULATOR_SUM_FILTER, CALCULATOR_SUM_and_ADD_FILTER};
+        final EventListener[] listeners = new EventListener[]{
+                new NamedTracingEventListener("first", tracing, firstControl.eventType, firstControl.respond),
+                new NamedTracingEventListener("second", tracing, secondControl.eventType, secondControl.respond)
+        };
+        final Transformer[] transformers = isMultiWeaving
+                ? new Transformer[]{new MultiWeavingTransformer(filters, listeners, ALL_EVENT_TYPES)}
+                : new Transformer[]{
+                new Transformer(filters[0], listeners[0], ALL_EVENT_TYPES),
+                new Transformer(filters[1], listeners[1], ALL_EVENT_TYPES)
+        };
+        final Class<?> calculatorClass = JvmHelper
+                .createJvm()
+                .defineClass(Calculator.class, transformers)
+                .loadClass(CALCULATOR_CLASS_NAME);
+        final Object calculator = null == tCase
+                ? newInstance(calculatorClass)
+                : newInstance(calculatorClass, tCase);
+        try {
+            tracing.add("result:" + sum(calculator, 1, 2));
+        } catch (RuntimeException cause) {
+            tracing.add("exception:" + cause.getMessage());
+        }
+        return tracing;
+    }
+
+    private static List<String> assertSameAsTransformOneByOne(final Calculator.TestCase tCase,
+                                                              final Control firstControl,
+                                                              final Control secondControl) throws Throwable {
+        final List<String> expect = tracing(false, tCase, firstControl, secondControl);
+        assertEquals(expect, tracing(true, tCase, firstControl, secondControl));
+        return expect;
+    }
+
+    @Test
+    public void sum$same$as$transform$one$by$one() throws Throwable {
+        final List<String> expect = assertSameAsTransformOneByOne(null, NONE, NONE);
+
+        // 后织入的监听器在外层
+        assertEquals("second:BEFORE", expect.get(0));
+        assertEquals("first:BEFORE", expect.get(1));
+        assertEquals("first:RETURN", expect.get(expect.size() - 3));
+        assertEquals("second:RETURN", expect.get(expect.size() - 2));
+        assertEquals("result:3", expect.get(expect.size() - 1));
+    }
+
+    @Test
+    public void sum$exception$same$as$transform$one$by$one() throws Throwable {
+        final List<String> expect = assertSameAsTransformOneByOne(Calculator.TestCase.SUM$EXCEPTION, NONE, NONE);
+        assertEquals("second:THROWS", expect.get(expect.size() - 2));
+    }
+
+    // 逐个增强时内层立即返回的代码不会被外层增强，外层监听器收不到RETURN事件，调用堆栈也无法对齐；派发时外层会收到RETURN事件
+    @Test
+    public void inner$return$immediately$at$before() throws Throwable {
+        assertEquals(
+                Arrays.asList("second:BEFORE", "first:BEFORE", "first:IMMEDIATELY_RETURN", "second:RETURN", "result:100"),
+                tracing(true, null, new Control(BEFORE, 100), NONE)
+        );
+    }
+
+    @Test
+    public void outer$return$immediately$at$before() throws Throwable {
+        final List<String> expect = assertSameAsTransformOneByOne(null, NONE, new Control(BEFORE, 100));
+        assertEquals("result:100", expect.get(expect.size() - 1));
+    }
+
+    @Test
+    public void inner$throws$immediately$at$before() throws Throwable {
+        final List<String> expect = assertSameAsTransformOneByOne(null, new Control(BEFORE, new RuntimeException("before")), NONE);
+        assertEquals("exception:before", expect.get(expect.size() - 1));
+    }
+
+    @Test
+    public void inner$throws$immediately$at$return() throws Throwable {
+        final List<String> expect = assertSameAsTransformOneByOne(null, new Control(RETURN, new RuntimeException("return")), NONE);
+        assertEquals("exception:return", expect.get(expect.size() - 1));
+    }
+
+    @Test
+    public void inner$return$immediately$at$throws() throws Throwable {
+        final List<String> tracing = tracing(true, Calculator.TestCase.SUM$EXCEPTION, new Control(THROWS, 100), NONE);
+        assertEquals(
+                Arrays.asList("first:THROWS", "first:IMMEDIATELY_RETURN", "second:RETURN", "result:100"),
+                tracing.subList(tracing.size() - 4, tracing.size())
+        );
+    }
+
+    @Test
+    public void outer$throws$immediately$at$return() throws Throwable {
+        final List<String> expect = assertSameAsTransformOneByOne(null, NONE, new Control(RETURN, new RuntimeException("return")));
+        assertEquals("exception:return", expect.get(expect.size() - 1));
+    }
+
+    @Test
+    public void listener$set$survive$frozen$and$unregistered$on$delete() throws Throwable {
+        final List<String> tracing = new ArrayList<>();
+        final EventListener first = new NamedTracingEventListener("first", tracing);
+        final EventListener second = new NamedTracingEventListener("second", tracing);
+        final int firstListenerId = ObjectIDs.instance.identity(first);
+        final int secondListenerId = ObjectIDs.instance.identity(second);
+        final EventListenerHandler handler = EventListenerHandler.getSingleton();
+        final Object calculator = newInstance(JvmHelper
+                .createJvm()
+                .defineClass(
+                        Calculator.class,
+                        new MultiWeavingTransformer(
+                                new Filter[]{CALCULATOR_SUM_FILTER, CALCULATOR_SUM_FILTER},
+                                new EventListener[]{first, second},
+                                BEFORE
+                        )
+                )
+                .loadClass(CALCULATOR_CLASS_NAME));
+        try {
+            sum(calculator, 1, 2);
+            assertEquals(Arrays.asList("second:BEFORE", "first:BEFORE"), tracing);
+
+            // 模块冻结后解冻不会重新形变，织入的集合ID必须仍然有效
+            tracing.clear();
+            handler.frozen(firstListenerId);
+            sum(calculator, 1, 2);
+            assertEquals(Arrays.asList("second:BEFORE"), tracing);
+            handler.active(firstListenerId, first, new Event.Type[]{BEFORE});
+            tracing.clear();
+            sum(calculator, 1, 2);
+            assertEquals(Arrays.asList("second:BEFORE", "first:BEFORE"), tracing);
+
+            // 观察被删除后集合被注销，重新形变前织入的代码直接放行
+            final int listenerSetId = handler.registerListenerSet(secondListenerId, firstListenerId);
+            handler.frozen(firstListenerId);
+            handler.unregisterListenerSets(firstListenerId);
+            tracing.clear();
+            sum(calculator, 1, 2);
+            assertEquals(new ArrayList<String>(), tracing);
+            assertNotEquals(listenerSetId, handler.registerListenerSet(secondListenerId, firstListenerId));
+        } finally {
+            handler.frozen(firstListenerId);
+            handler.frozen(secondListenerId);
+            handler.unregisterListenerSets(secondListenerId);
+        }
+    }
+
+    @Test
+    public void pages$released$after$frozen$and$unregistered() {
+        final EventListenerHandler handler = EventListenerHandler.getSingleton();
+        final int pageCount = handler.getAllocatedPageCount();
+        final List<String> tracing = new ArrayList<>();
+        final List<EventListener> listeners = new ArrayList<>();
+        final int[] listenerIds = new int[3000];
+        for (int index = 0; index < listenerIds.length; index++) {
+            final EventListener listener = new NamedTracingEventListener("listener-" + index, tracing);
+            listeners.add(listener);
+            listenerIds[index] = ObjectIDs.instance.identity(listener);
+            handler.active(listenerIds[index], listener, new Event.Type[]{BEFORE});
+        }
+        for (int index = 1; index < listenerIds.length; index++) {
+            handler.registerListenerSet(listenerIds[index - 1], listenerIds[index]);
+        }
+        assertTrue(handler.getAllocatedPageCount() > pageCount);
+
+        // 反复观察和删除后不会留下只有空位的数据页
+        for (final int listenerId : listenerIds) {
+            handler.frozen(listenerId);
+            handler.unregisterListenerSets(listenerId);
+        }
+        assertEquals(pageCount, handler.getAllocatedPageCount());
+        assertEquals(listenerIds.length, listeners.size());
+    }
+
+    private static void assertNotEquals(final int unexpected, final int actual) {
+        assertTrue(String.format("unexpected=%d", unexpected), unexpected != actual);
+    }
+
+    @Test
+    public void native$method$prefixed$once() throws Throwable {
+        final Class<?> nativeClass = JvmHelper
+                .createJvm()
+                .defineClass(
+                        NativeClass.class,
+                        new MultiWeavingTransformer(
+                                new Filter[]{NATIVECLASS_SYSTEM, NATIVECLASS_SYSTEM},
+                                new EventListener[]{
+                                        new NamedTracingEventListener("first", new ArrayList<String>()),
+                                        new NamedTracingEventListener("second", new ArrayList<String>())
+                                },
+                                BEFORE, RETURN, THROWS
+                        )
+                )
+                .loadClass(getJavaClassName(NativeClass.class));
+        int nativeCount = 0;
+        for (final Method method : nativeClass.getDeclaredMethods()) {
+            if (method.getName().endsWith("currentTimeMillis")
+                    && Modifier.isNative(method.getModifiers())) {
+                assertEquals("$$SANDBOX$currentTimeMillis", method.getName());
+                nativeCount++;
+            }
+        }
+        assertEquals(1, nativeCount);
+    }
+
+}
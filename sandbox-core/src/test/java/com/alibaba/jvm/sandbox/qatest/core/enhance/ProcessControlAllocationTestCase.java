@@ -0,0 +1,279 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance;
+
+import com.alibaba.jvm.sandbox.api.ProcessControl;
+import com.alibaba.jvm.sandbox.api.event.BeforeEvent;
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.listener.ProcessControlEventListener;
+import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
+import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.com.alibaba.jvm.sandbox.spy.Spy;
+import java.lang.management.ManagementFactory;
+
+import static com.alibaba.jvm.sandbox.api.ProcessController.returnImmediately;
+import static com.alibaba.jvm.sandbox.api.ProcessController.throwsImmediately;
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+import static org.junit.Assert.*;
+
+/**
+ * 流程控制分配测试
+ * <p>
+ * 在一个调用过程中反复立即返回/立即抛出，通过流程控制器完成的流程控制不应该再产生新的对象，
+ * 通过流程控制异常完成的流程控制只分配异常本身
+ * </p>
+ */
+public class ProcessControlAllocationTestCase {
+
+    private static final int LOOP = 100000;
+    private static final Object[] ARGUMENT_ARRAY = new Object[0];
+    private static final Object RESPOND = new Object();
+    private static final RuntimeException EXCEPTION = new RuntimeException("immediately");
+
+    // 每次流程控制允许分配的字节数，不记录堆栈的流程控制异常只有几十个字节
+    private static final long EXCEPTION_BYTES_PER_CONTROL = 64;
+
+    private final EventListenerHandler handler = EventListenerHandler.getSingleton();
+    private final ControlListener listener = new ControlListener();
+    private int listenerId;
+
+    /**
+     * 对inner方法的BEFORE事件做流程控制，打开isControlOnReturn后对所有RETURN事件做流程控制，其他事件直接放行
+     */
+    static class ControlListener implements ProcessControlEventListener {
+
+        volatile Event.Type control = BEFORE;
+
+        // 是否通过抛出流程控制异常完成流程控制
+        volatile boolean isUseException = true;
+
+        // 是否对RETURN事件做流程控制
+        volatile boolean isControlOnReturn = false;
+
+        @Override
+        public void onEvent(Event event, ProcessControl processControl) throws Throwable {
+            if (event.type == RETURN && isControlOnReturn) {
+                control(processControl);
+                return;
+            }
+            if (event.type != BEFORE
+                    || !"inner".equals(((BeforeEvent) event).javaMethodName)) {
+                return;
+            }
+            control(processControl);
+        }
+
+        private void control(ProcessControl processControl) throws Throwable {
+            if (control == IMMEDIATELY_RETURN) {
+                if (isUseException) {
+                    returnImmediately(RESPOND);
+                } else {
+                    processControl.returnImmediately(RESPOND);
+                }
+            } else if (control == IMMEDIATELY_THROWS) {
+                if (isUseException) {
+                    throwsImmediately(EXCEPTION);
+                } else {
+                    processControl.throwsImmediately(EXCEPTION);
+                }
+            }
+        }
+
+    }
+
+    @Before
+    public void active() {
+        listenerId = ObjectIDs.instance.identity(listener);
+        handler.active(listenerId, listener, new Event.Type[]{BEFORE, RETURN, THROWS});
+    }
+
+    @After
+    public void frozen() {
+        handler.frozen(listenerId);
+    }
+
+    private Spy.Ret before(final String javaMethodName) throws Throwable {
+        return handler.handleOnBefore(listenerId, 0, ARGUMENT_ARRAY, "Target", javaMethodName, "()V", null);
+    }
+
+    // 模拟一次inner方法调用
+    private void invokeInner() throws Throwable {
+        final Spy.Ret ret = before("inner");
+        switch (listener.control) {
+            case IMMEDIATELY_RETURN:
+                assertEquals(Spy.Ret.RET_STATE_RETURN, ret.state);
+                assertSame(RESPOND, ret.respond);
+                break;
+            case IMMEDIATELY_THROWS:
+                assertEquals(Spy.Ret.RET_STATE_THROWS, ret.state);
+                assertSame(EXCEPTION, ret.respond);
+                // 异常由外层调用收到，此时应该直接抛出，不再处理THROWS事件
+                assertSame(ret, handler.handleOnThrows(listenerId, EXCEPTION));
+                break;
+            default:
+                assertEquals(Spy.Ret.RET_STATE_NONE, ret.state);
+                assertEquals(Spy.Ret.RET_STATE_NONE, handler.handleOnReturn(listenerId, RESPOND).state);
+                break;
+        }
+    }
+
+    // 在outer调用过程中反复调用inner，返回线程在此期间分配的字节数
+    private long allocatedBytesInProcess(final Event.Type control) throws Throwable {
+        final com.sun.management.ThreadMXBean threadMXBean
+                = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        listener.control = BEFORE;
+        before("outer");
+        try {
+            listener.control = control;
+            final long begin = threadMXBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < LOOP; i++) {
+                invokeInner();
+            }
+            return threadMXBean.getThreadAllocatedBytes(threadId) - begin;
+        } finally {
+            listener.control = BEFORE;
+            handler.handleOnReturn(listenerId, null);
+        }
+    }
+
+    @Test
+    public void test$reuse$ret() throws Throwable {
+        before("outer");
+        try {
+            listener.control = IMMEDIATELY_RETURN;
+            final Spy.Ret first = before("inner");
+            final Spy.Ret second = before("inner");
+            assertSame(first, second);
+            assertSame(RESPOND, second.respond);
+
+            listener.control = IMMEDIATELY_THROWS;
+            final Spy.Ret third = before("inner");
+            assertSame(first, third);
+            assertEquals(Spy.Ret.RET_STATE_THROWS, third.state);
+            assertSame(EXCEPTION, third.respond);
+            handler.handleOnThrows(listenerId, EXCEPTION);
+        } finally {
+            listener.control = BEFORE;
+            handler.handleOnReturn(listenerId, null);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void test$reuse$none() {
+        Spy.Ret.newInstanceForNone().reuseForReturn(RESPOND);
+    }
+
+    private static void assumeThreadAllocatedMemorySupported() {
+        final java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported());
+    }
+
+    // 预热，排除类加载和首次初始化带来的分配
+    private void warmup() throws Throwable {
+        for (int i = 0; i < 5; i++) {
+            allocatedBytesInProcess(BEFORE);
+            allocatedBytesInProcess(IMMEDIATELY_RETURN);
+            allocatedBytesInProcess(IMMEDIATELY_THROWS);
+        }
+    }
+
+    @Test
+    public void test$allocation() throws Throwable {
+        assumeThreadAllocatedMemorySupported();
+        listener.isUseException = false;
+        warmup();
+
+        // 事件复用、调用堆栈不再装箱，无论是否流程控制，整个循环都不应该产生新的对象(留出测量误差)
+        final long none = allocatedBytesInProcess(BEFORE);
+        final long immediatelyReturn = allocatedBytesInProcess(IMMEDIATELY_RETURN);
+        final long immediatelyThrows = allocatedBytesInProcess(IMMEDIATELY_THROWS);
+        assertTrue(String.format("none=%d", none), none <= 1024);
+        assertTrue(String.format("return=%d", immediatelyReturn), immediatelyReturn <= 1024);
+        assertTrue(String.format("throws=%d", immediatelyThrows), immediatelyThrows <= 1024);
+    }
+
+    // 反复调用顶层的top方法，在RETURN事件中做流程控制，返回线程在此期间分配的字节数
+    private long allocatedBytesOnTopLevelReturn(final Event.Type control) throws Throwable {
+        final com.sun.management.ThreadMXBean threadMXBean
+                = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        listener.control = control;
+        listener.isControlOnReturn = true;
+        try {
+            final long begin = threadMXBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < LOOP; i++) {
+                assertEquals(Spy.Ret.RET_STATE_NONE, before("top").state);
+                final Spy.Ret ret = handler.handleOnReturn(listenerId, null);
+                if (control == IMMEDIATELY_RETURN) {
+                    assertEquals(Spy.Ret.RET_STATE_RETURN, ret.state);
+                    assertSame(RESPOND, ret.respond);
+                } else {
+                    assertEquals(Spy.Ret.RET_STATE_THROWS, ret.state);
+                    assertSame(EXCEPTION, ret.respond);
+                }
+            }
+            return threadMXBean.getThreadAllocatedBytes(threadId) - begin;
+        } finally {
+            listener.isControlOnReturn = false;
+            listener.control = BEFORE;
+        }
+    }
+
+    @Test
+    public void test$allocation$top$level$return() throws Throwable {
+        assumeThreadAllocatedMemorySupported();
+        listener.isUseException = false;
+        for (int i = 0; i < 5; i++) {
+            allocatedBytesOnTopLevelReturn(IMMEDIATELY_RETURN);
+            allocatedBytesOnTopLevelReturn(IMMEDIATELY_THROWS);
+        }
+
+        // 调用过程在RETURN事件之前已经出栈，返回结果仍然应该复用
+        final long immediatelyReturn = allocatedBytesOnTopLevelReturn(IMMEDIATELY_RETURN);
+        final long immediatelyThrows = allocatedBytesOnTopLevelReturn(IMMEDIATELY_THROWS);
+        assertTrue(String.format("return=%d", immediatelyReturn), immediatelyReturn <= 1024);
+        assertTrue(String.format("throws=%d", immediatelyThrows), immediatelyThrows <= 1024);
+    }
+
+    @Test
+    public void test$released$on$next$process() throws Throwable {
+        listener.isUseException = false;
+        listener.control = IMMEDIATELY_RETURN;
+        listener.isControlOnReturn = true;
+        try {
+            before("top");
+            final Spy.Ret ret = handler.handleOnReturn(listenerId, null);
+            assertSame(RESPOND, ret.respond);
+
+            // 下一个调用过程开始时释放上一个调用过程的回应对象
+            listener.isControlOnReturn = false;
+            listener.control = BEFORE;
+            before("top");
+            assertNull(ret.respond);
+            handler.handleOnReturn(listenerId, null);
+        } finally {
+            listener.isControlOnReturn = false;
+            listener.control = BEFORE;
+        }
+    }
+
+    @Test
+    public void test$allocation$exception() throws Throwable {
+        assumeThreadAllocatedMemorySupported();
+        listener.isUseException = true;
+        warmup();
+
+        // 每次流程控制只分配一个流程控制异常，返回结果仍然是复用的
+        final long limit = LOOP * EXCEPTION_BYTES_PER_CONTROL + 1024;
+        final long immediatelyReturn = allocatedBytesInProcess(IMMEDIATELY_RETURN);
+        final long immediatelyThrows = allocatedBytesInProcess(IMMEDIATELY_THROWS);
+        assertTrue(String.format("return=%d", immediatelyReturn), immediatelyReturn <= limit);
+        assertTrue(String.format("throws=%d", immediatelyThrows), immediatelyThrows <= limit);
+    }
+
+}
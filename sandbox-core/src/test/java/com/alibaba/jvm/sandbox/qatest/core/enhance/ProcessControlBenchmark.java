@@ -0,0 +1,126 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance;
+
+import com.alibaba.jvm.sandbox.api.ProcessControl;
+import com.alibaba.jvm.sandbox.api.event.BeforeEvent;
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.api.listener.ProcessControlEventListener;
+import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
+import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.com.alibaba.jvm.sandbox.spy.Spy;
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.jvm.sandbox.api.ProcessController.returnImmediately;
+import static com.alibaba.jvm.sandbox.api.ProcessController.throwsImmediately;
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+import static com.alibaba.jvm.sandbox.qatest.core.util.BenchmarkHelper.spyBootClasspath;
+
+/**
+ * 流程控制性能基准
+ * <p>
+ * 在一个调用过程中反复对inner方法立即返回/立即抛出，需要配合{@link GCProfiler}观察每次事件的分配字节数({@code gc.alloc.rate.norm})。
+ * 监听器模仿{@code DebugRalphModule}的写法，分别通过抛出流程控制异常(EXCEPTION)和流程控制器(PROCESS_CONTROL)完成流程控制
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProcessControlBenchmark {
+
+    private static final Object[] ARGUMENT_ARRAY = new Object[0];
+    private static final Object RESPOND = new Object();
+    private static final RuntimeException EXCEPTION = new RuntimeException("immediately");
+
+    @Param({"IMMEDIATELY_RETURN", "IMMEDIATELY_THROWS"})
+    private Event.Type control;
+
+    @Param({"EXCEPTION", "PROCESS_CONTROL"})
+    private String style;
+
+    private final EventListenerHandler handler = EventListenerHandler.getSingleton();
+    private int listenerId;
+
+    @Setup
+    public void setup() throws Throwable {
+        final EventListener listener = "EXCEPTION".equals(style)
+                ? newExceptionEventListener()
+                : newProcessControlEventListener();
+        listenerId = ObjectIDs.instance.identity(listener);
+        handler.active(listenerId, listener, new Event.Type[]{BEFORE, RETURN, THROWS});
+
+        // 保持outer调用过程，让inner的流程控制都发生在同一个调用过程中
+        handler.handleOnBefore(listenerId, 0, ARGUMENT_ARRAY, "Target", "outer", "()V", null);
+    }
+
+    // 通过抛出流程控制异常完成流程控制
+    private EventListener newExceptionEventListener() {
+        return new EventListener() {
+            @Override
+            public void onEvent(Event event) throws Throwable {
+                if (!isInner(event)) {
+                    return;
+                }
+                if (control == IMMEDIATELY_RETURN) {
+                    returnImmediately(RESPOND);
+                } else {
+                    throwsImmediately(EXCEPTION);
+                }
+            }
+        };
+    }
+
+    // 通过流程控制器完成流程控制
+    private EventListener newProcessControlEventListener() {
+        return new ProcessControlEventListener() {
+            @Override
+            public void onEvent(Event event, ProcessControl processControl) throws Throwable {
+                if (!isInner(event)) {
+                    return;
+                }
+                if (control == IMMEDIATELY_RETURN) {
+                    processControl.returnImmediately(RESPOND);
+                } else {
+                    processControl.throwsImmediately(EXCEPTION);
+                }
+            }
+        };
+    }
+
+    private static boolean isInner(final Event event) {
+        return event.type == BEFORE
+                && "inner".equals(((BeforeEvent) event).javaMethodName);
+    }
+
+    @TearDown
+    public void tearDown() throws Throwable {
+        handler.handleOnReturn(listenerId, null);
+        handler.frozen(listenerId);
+    }
+
+    @Benchmark
+    public Spy.Ret processControl() throws Throwable {
+        final Spy.Ret ret = handler.handleOnBefore(listenerId, 0, ARGUMENT_ARRAY, "Target", "inner", "()V", null);
+        if (ret.state == Spy.Ret.RET_STATE_THROWS) {
+            handler.handleOnThrows(listenerId, EXCEPTION);
+        }
+        return ret;
+    }
+
+    public static void main(String... args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ProcessControlBenchmark.class.getName())
+                .jvmArgsAppend(spyBootClasspath())
+                .addProfiler(GCProfiler.class)
+                .build()
+        ).run();
+    }
+
+}
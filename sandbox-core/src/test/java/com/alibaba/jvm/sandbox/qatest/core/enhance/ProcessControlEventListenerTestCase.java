@@ -0,0 +1,134 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance;
+
+import com.alibaba.jvm.sandbox.api.ProcessControl;
+import com.alibaba.jvm.sandbox.api.ProcessControlException;
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.event.ReturnEvent;
+import com.alibaba.jvm.sandbox.api.listener.ProcessControlEventListener;
+import com.alibaba.jvm.sandbox.qatest.core.enhance.listener.TracingEventListener;
+import com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator;
+import com.alibaba.jvm.sandbox.qatest.core.util.JvmHelper;
+import org.junit.Test;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+import static com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator.ERROR_EXCEPTION_MESSAGE;
+import static com.alibaba.jvm.sandbox.qatest.core.util.CalculatorHelper.*;
+import static org.junit.Assert.*;
+
+/**
+ * 可流程控制的事件监听器测试
+ */
+public class ProcessControlEventListenerTestCase {
+
+    /**
+     * 通过流程控制器完成流程控制的跟踪监听器
+     */
+    static abstract class TracingProcessControlEventListener extends TracingEventListener
+            implements ProcessControlEventListener {
+
+        @Override
+        public void onEvent(Event event, ProcessControl control) throws Throwable {
+            super.onEvent(event);
+            onControl(event, control);
+        }
+
+        abstract void onControl(Event event, ProcessControl control) throws Throwable;
+
+    }
+
+    @Test
+    public void cal$sum$before$returnImmediately() throws Throwable {
+        final TracingProcessControlEventListener listener;
+        final Class<?> calculatorClass = JvmHelper
+                .createJvm()
+                .defineClass(
+                        Calculator.class,
+                        CALCULATOR_SUM_FILTER,
+                        listener = new TracingProcessControlEventListener() {
+                            @Override
+                            void onControl(Event event, ProcessControl control) throws Throwable {
+                                control.returnImmediately(100);
+                            }
+                        },
+                        BEFORE, RETURN, IMMEDIATELY_RETURN
+                )
+                .loadClass(CALCULATOR_CLASS_NAME);
+
+        assertEquals(100, sum(newInstance(calculatorClass), 10, 20));
+        assertEquals(100, sum(newInstance(calculatorClass), 10, 20));
+        listener.assertEventTracing(
+                BEFORE, IMMEDIATELY_RETURN,
+                BEFORE, IMMEDIATELY_RETURN
+        );
+    }
+
+    @Test
+    public void cal$sum$before$throwsImmediately() throws Throwable {
+        final TracingProcessControlEventListener listener;
+        final Class<?> calculatorClass = JvmHelper
+                .createJvm()
+                .defineClass(
+                        Calculator.class,
+                        CALCULATOR_SUM_FILTER,
+                        listener = new TracingProcessControlEventListener() {
+                            @Override
+                            void onControl(Event event, ProcessControl control) throws Throwable {
+                                if (event.type == BEFORE) {
+                                    control.throwsImmediately(new RuntimeException(ERROR_EXCEPTION_MESSAGE));
+                                }
+                            }
+                        },
+                        BEFORE, RETURN, THROWS
+                )
+                .loadClass(CALCULATOR_CLASS_NAME);
+
+        try {
+            sum(newInstance(calculatorClass), 10, 20);
+            fail();
+        } catch (Throwable cause) {
+            assertEquals(ERROR_EXCEPTION_MESSAGE, cause.getMessage());
+        }
+        listener.assertEventTracing(
+                BEFORE
+        );
+    }
+
+    @Test
+    public void cal$sum$return$returnImmediately$withIgnoreProcessEvent() throws Throwable {
+        final TracingProcessControlEventListener listener;
+        final Class<?> calculatorClass = JvmHelper
+                .createJvm()
+                .defineClass(
+                        Calculator.class,
+                        CALCULATOR_SUM_FILTER,
+                        listener = new TracingProcessControlEventListener() {
+                            @Override
+                            void onControl(Event event, ProcessControl control) throws Throwable {
+                                if (event.type == RETURN) {
+                                    control.returnImmediatelyWithIgnoreProcessEvent(100);
+                                }
+                            }
+                        },
+                        BEFORE, RETURN, IMMEDIATELY_RETURN
+                )
+                .loadClass(CALCULATOR_CLASS_NAME);
+
+        assertEquals(100, sum(newInstance(calculatorClass), 10, 20));
+        listener.assertEventTracing(
+                BEFORE, RETURN
+        );
+    }
+
+    @Test
+    public void test$onEvent$withoutProcessControl() throws Throwable {
+        final ProcessControlEventListener listener = (event, control) -> control.returnImmediately(100);
+        try {
+            listener.onEvent(new ReturnEvent(1000, 1000, null));
+            fail();
+        } catch (ProcessControlException pce) {
+            assertEquals(ProcessControlException.State.RETURN_IMMEDIATELY, pce.getState());
+            assertEquals(100, pce.getRespond());
+        }
+    }
+
+}
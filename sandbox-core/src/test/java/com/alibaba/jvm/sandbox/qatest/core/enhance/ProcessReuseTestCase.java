@@ -0,0 +1,196 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance;
+
+import com.alibaba.jvm.sandbox.api.ProcessControl;
+import com.alibaba.jvm.sandbox.api.event.BeforeEvent;
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.api.listener.ProcessControlEventListener;
+import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
+import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.com.alibaba.jvm.sandbox.spy.Spy;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+import static org.junit.Assert.*;
+
+/**
+ * 处理单元复用测试
+ * <p>
+ * 调用过程结束后处理单元原地重置并留在线程中，不能因此产生分配，也不能在线程池的线程中残留业务对象
+ * </p>
+ */
+public class ProcessReuseTestCase {
+
+    private static final int LOOP = 100000;
+    private static final Object[] ARGUMENT_ARRAY = new Object[0];
+
+    private final EventListenerHandler handler = EventListenerHandler.getSingleton();
+
+    // 模拟一次请求：一个完整的调用过程
+    private static Spy.Ret request(final EventListenerHandler handler,
+                                   final int listenerId,
+                                   final ClassLoader loader,
+                                   final String javaMethodName) throws Throwable {
+        final Spy.Ret ret = handler.handleOnBefore(listenerId, loader, ARGUMENT_ARRAY, "Target", javaMethodName, "()V", null);
+        if (ret.state == Spy.Ret.RET_STATE_NONE) {
+            return handler.handleOnReturn(listenerId, null);
+        }
+        return ret;
+    }
+
+    @Test
+    public void test$request$loop$allocation() throws Throwable {
+        final java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported());
+
+        final EventListener listener = new EventListener() {
+            @Override
+            public void onEvent(Event event) {
+            }
+        };
+        final int listenerId = ObjectIDs.instance.identity(listener);
+        handler.active(listenerId, listener, new Event.Type[]{BEFORE, RETURN, THROWS});
+        try {
+
+            // 预热，排除类加载和首次初始化带来的分配
+            for (int i = 0; i < LOOP; i++) {
+                request(handler, listenerId, null, "request");
+            }
+
+            final long threadId = Thread.currentThread().getId();
+            final long begin = ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < LOOP; i++) {
+                request(handler, listenerId, null, "request");
+            }
+            final long allocated = ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(threadId) - begin;
+            assertTrue(String.format("allocated=%d", allocated), allocated <= 1024);
+            handler.checkEventProcessor(listenerId);
+        } finally {
+            handler.frozen(listenerId);
+        }
+    }
+
+    @Test
+    public void test$ignore$process$reset() throws Throwable {
+        final List<String> beforeMethodNames = new ArrayList<>();
+        final ProcessControlEventListener listener = new ProcessControlEventListener() {
+            @Override
+            public void onEvent(Event event, ProcessControl control) throws Throwable {
+                if (event.type != BEFORE) {
+                    return;
+                }
+                beforeMethodNames.add(((BeforeEvent) event).javaMethodName);
+                if ("ignore".equals(((BeforeEvent) event).javaMethodName)) {
+                    control.noneImmediatelyWithIgnoreProcessEvent();
+                }
+            }
+        };
+        final int listenerId = ObjectIDs.instance.identity(listener);
+        handler.active(listenerId, listener, new Event.Type[]{BEFORE, RETURN, THROWS});
+        try {
+
+            // 被忽略的调用过程结束后，同一个线程的下一个调用过程不能再被忽略
+            request(handler, listenerId, null, "ignore");
+            request(handler, listenerId, null, "request");
+            assertEquals(2, beforeMethodNames.size());
+            assertEquals("request", beforeMethodNames.get(1));
+            handler.checkEventProcessor(listenerId);
+        } finally {
+            handler.frozen(listenerId);
+        }
+    }
+
+    /**
+     * 每个请求都立即返回一个新的对象，用于观察流程控制的回应对象是否残留在线程中
+     */
+    static class ReturnNewObjectListener implements ProcessControlEventListener {
+
+        final List<WeakReference<Object>> responds = new CopyOnWriteArrayList<>();
+        final List<WeakReference<ClassLoader>> loaders = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onEvent(Event event, ProcessControl control) throws Throwable {
+            if (event.type != BEFORE) {
+                return;
+            }
+            loaders.add(new WeakReference<>(((BeforeEvent) event).javaClassLoader));
+            if ("control".equals(((BeforeEvent) event).javaMethodName)) {
+                final Object respond = new Object();
+                responds.add(new WeakReference<>(respond));
+                control.returnImmediately(respond);
+            }
+        }
+
+    }
+
+    // 在线程池中执行一批请求，返回监听器的弱引用
+    private WeakReference<ReturnNewObjectListener> requestInPool(final ExecutorService pool,
+                                                                 final List<WeakReference<?>> references) throws Exception {
+        final ReturnNewObjectListener listener = new ReturnNewObjectListener();
+        final int listenerId = ObjectIDs.instance.identity(listener);
+        handler.active(listenerId, listener, new Event.Type[]{BEFORE, RETURN, THROWS, IMMEDIATELY_RETURN});
+
+        final List<Future<Spy.Ret>> futures = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            final String javaMethodName = i % 2 == 0 ? "control" : "request";
+            futures.add(pool.submit(new Callable<Spy.Ret>() {
+                @Override
+                public Spy.Ret call() throws Exception {
+                    try {
+                        return request(handler, listenerId, new ClassLoader() {
+                        }, javaMethodName);
+                    } catch (Throwable cause) {
+                        throw new ExecutionException(cause);
+                    }
+                }
+            }));
+        }
+        for (final Future<Spy.Ret> future : futures) {
+            future.get();
+        }
+        futures.clear();
+
+        references.addAll(listener.responds);
+        references.addAll(listener.loaders);
+        assertEquals(32, listener.responds.size());
+        assertEquals(64, listener.loaders.size());
+        handler.frozen(listenerId);
+        return new WeakReference<>(listener);
+    }
+
+    private static boolean isAllCleared(final List<WeakReference<?>> references) {
+        for (final WeakReference<?> reference : references) {
+            if (null != reference.get()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Test
+    public void test$pooled$threads$no$leak() throws Exception {
+        final ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            final List<WeakReference<?>> references = new ArrayList<>();
+            references.add(requestInPool(pool, references));
+
+            // 线程池中的线程仍然存活，回应对象、ClassLoader和被冻结的监听器都应该可以被回收
+            for (int i = 0; i < 50 && !isAllCleared(references); i++) {
+                System.gc();
+                Thread.sleep(100);
+            }
+            assertTrue(isAllCleared(references));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+}
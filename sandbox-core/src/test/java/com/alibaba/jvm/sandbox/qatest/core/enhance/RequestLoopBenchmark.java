@@ -0,0 +1,77 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
+import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.com.alibaba.jvm.sandbox.spy.Spy;
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.jvm.sandbox.qatest.core.util.BenchmarkHelper.spyBootClasspath;
+
+/**
+ * 请求循环性能基准
+ * <p>
+ * 模拟每次调用都是一个完整调用过程(一个请求)的服务，每次操作产生一对BEFORE/RETURN事件，
+ * 需要配合{@link GCProfiler}观察每个请求的分配字节数({@code gc.alloc.rate.norm})。
+ * 只订阅LINE事件时BEFORE/RETURN事件只用于对齐调用堆栈，观察派发后被丢弃的事件的开销
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestLoopBenchmark {
+
+    private static final Object[] ARGUMENT_ARRAY = new Object[0];
+
+    @Param({"BEFORE,RETURN,THROWS", "LINE"})
+    private String subscribe;
+
+    private final EventListenerHandler handler = EventListenerHandler.getSingleton();
+    private final EventListener listener = new EventListener() {
+        @Override
+        public void onEvent(Event event) {
+        }
+    };
+    private int listenerId;
+
+    @Setup
+    public void setup() {
+        listenerId = ObjectIDs.instance.identity(listener);
+        final String[] names = subscribe.split(",");
+        final Event.Type[] eventTypes = new Event.Type[names.length];
+        for (int index = 0; index < names.length; index++) {
+            eventTypes[index] = Event.Type.valueOf(names[index]);
+        }
+        handler.active(listenerId, listener, eventTypes);
+    }
+
+    @TearDown
+    public void tearDown() {
+        handler.frozen(listenerId);
+    }
+
+    @Benchmark
+    public Spy.Ret request() throws Throwable {
+        handler.handleOnBefore(listenerId, 0, ARGUMENT_ARRAY, "Target", "request", "()V", null);
+        return handler.handleOnReturn(listenerId, null);
+    }
+
+    public static void main(String... args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(RequestLoopBenchmark.class.getName())
+                .jvmArgsAppend(spyBootClasspath())
+                .addProfiler(GCProfiler.class)
+                .build()
+        ).run();
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.alibaba.jvm.sandbox.qatest.core.manager;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.filter.Filter;
+import com.alibaba.jvm.sandbox.api.filter.NameRegexFilter;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.api.resource.ModuleEventWatcher;
+import com.alibaba.jvm.sandbox.core.CoreModule;
+import com.alibaba.jvm.sandbox.core.manager.impl.DefaultCoreLoadedClassDataSource;
+import com.alibaba.jvm.sandbox.core.manager.impl.DefaultModuleEventWatcher;
+import com.alibaba.jvm.sandbox.core.manager.impl.NamespaceClassFileTransformer;
+import com.alibaba.jvm.sandbox.core.manager.impl.ReTransformScheduler;
+import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.instrument.Instrumentation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.BEFORE;
+import static com.alibaba.jvm.sandbox.api.filter.ExtFilter.ExtFilterFactory.make;
+import static com.alibaba.jvm.sandbox.qatest.core.util.BenchmarkHelper.*;
+
+/**
+ * 类加载性能基准
+ * <p>
+ * 同时存在{@code watches}个观察时，加载100个新类的耗时。每个观察都要匹配新加载的类，
+ * {@code method}为notExist时都不会增强，为call时每个观察都要织入新加载类的call()方法
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassLoadBenchmark {
+
+    private static final int LOAD_CLASS_COUNT = 100;
+
+    @Param({"1", "10", "50"})
+    private int watches;
+
+    @Param({"notExist", "call"})
+    private String method;
+
+    private ModuleEventWatcher watcher;
+    private final List<Integer> watchIds = new ArrayList<>();
+
+    @Setup
+    public void setup() throws Exception {
+        final Instrumentation inst = attachSelf();
+        final DefaultCoreLoadedClassDataSource classDataSource = new DefaultCoreLoadedClassDataSource(inst, false, false);
+        watcher = new DefaultModuleEventWatcher(
+                inst,
+                classDataSource,
+                new CoreModule("benchmark", null, null, null),
+                false,
+                "default",
+                new ReTransformScheduler(inst, "default", 64, 0, 0),
+                new NamespaceClassFileTransformer(inst, "default", false)
+        );
+
+        final Filter targetFilter = new NameRegexFilter("benchmark\\.LoadTarget\\$\\d+", method);
+
+        // 注册形变器之前先走一遍查找和类加载，避免观察路径上的类在加载时被刚注册的形变器重入
+        classDataSource.findForReTransform(new ExtFilterMatcher(make(targetFilter)));
+        defineSyntheticClasses("benchmark.LoadTarget$", 1);
+        for (int index = 0; index < watches; index++) {
+            watchIds.add(watcher.watch(
+                    targetFilter,
+                    new EventListener() {
+                        @Override
+                        public void onEvent(Event event) {
+                        }
+                    },
+                    BEFORE
+            ));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (final int watchId : watchIds) {
+            watcher.delete(watchId);
+        }
+    }
+
+    @Benchmark
+    public Class<?>[] load() {
+        return defineSyntheticClasses("benchmark.LoadTarget$", LOAD_CLASS_COUNT);
+    }
+
+    public static void main(String... args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ClassLoadBenchmark.class.getName())
+                .jvmArgsAppend(spyBootClasspath())
+                .build()
+        ).run();
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.alibaba.jvm.sandbox.qatest.core.manager;
+
+import com.alibaba.jvm.sandbox.api.filter.NameRegexFilter;
+import com.alibaba.jvm.sandbox.core.manager.CoreLoadedClassDataSource;
+import com.alibaba.jvm.sandbox.core.manager.impl.DefaultCoreLoadedClassDataSource;
+import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.Matcher;
+import com.alibaba.jvm.sandbox.qatest.core.mock.EmptyInstrumentation;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.jvm.sandbox.api.filter.ExtFilter.ExtFilterFactory.make;
+import static com.alibaba.jvm.sandbox.qatest.core.util.BenchmarkHelper.defineSyntheticClasses;
+import static com.alibaba.jvm.sandbox.qatest.core.util.BenchmarkHelper.spyBootClasspath;
+
+/**
+ * 已加载类查找性能基准
+ * <p>
+ * 模拟JVM中已加载50000个类，其中1%命中观察条件，对比单线程查找(parallelism=1)与并行查找的耗时
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassScanBenchmark {
+
+    private static final int LOADED_CLASS_COUNT = 50000;
+
+    @Param({"1", "4"})
+    private int parallelism;
+
+    private CoreLoadedClassDataSource classDataSource;
+    private Matcher matcher;
+
+    @Setup
+    public void setup() {
+        final Class<?>[] loaded = defineSyntheticClasses("benchmark.ScanTarget$", LOADED_CLASS_COUNT);
+        classDataSource = new DefaultCoreLoadedClassDataSource(
+                new EmptyInstrumentation() {
+
+                    @Override
+                    public Class[] getAllLoadedClasses() {
+                        return loaded;
+                    }
+
+                    @Override
+                    public boolean isModifiableClass(Class<?> theClass) {
+                        return true;
+                    }
+
+                },
+                false,
+                false,
+                parallelism
+        );
+        matcher = new ExtFilterMatcher(make(new NameRegexFilter("benchmark\\.ScanTarget\\$\\d*00", "call")));
+    }
+
+    @Benchmark
+    public List<Class<?>> findForReTransform() {
+        return classDataSource.findForReTransform(matcher);
+    }
+
+    public static void main(String... args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ClassScanBenchmark.class.getName())
+                .jvmArgsAppend(spyBootClasspath())
+                .build()
+        ).run();
+    }
+
+}
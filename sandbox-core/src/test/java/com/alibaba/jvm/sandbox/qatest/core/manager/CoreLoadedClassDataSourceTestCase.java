@@ -4,13 +4,19 @@ import com.alibaba.jvm.sandbox.api.filter.ExtFilter;
 import com.alibaba.jvm.sandbox.api.filter.NameRegexFilter;
 import com.alibaba.jvm.sandbox.core.manager.CoreLoadedClassDataSource;
 import com.alibaba.jvm.sandbox.core.manager.impl.DefaultCoreLoadedClassDataSource;
+import com.alibaba.jvm.sandbox.core.util.SandboxProtector;
+import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher;
 import com.alibaba.jvm.sandbox.qatest.core.mock.EmptyInstrumentation;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
-import java.util.LinkedHashSet;
-import java.util.Set;
+import java.lang.instrument.Instrumentation;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.alibaba.jvm.sandbox.api.filter.ExtFilter.ExtFilterFactory.make;
 
 class MockLoadedClassesOnlyInstrumentation extends EmptyInstrumentation {
 
@@ -282,4 +288,100 @@ public class CoreLoadedClassDataSourceTestCase {
 
     }
 
+    /**
+     * 记录执行过滤的线程以及是否处于守护区域
+     */
+    static class RecordThreadNameRegexFilter extends NameRegexFilter implements ExtFilter {
+
+        final Set<String> threadNames = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        final AtomicBoolean isAllInProtecting = new AtomicBoolean(true);
+
+        RecordThreadNameRegexFilter(String javaNameRegex, String javaMethodRegex) {
+            super(javaNameRegex, javaMethodRegex);
+        }
+
+        @Override
+        public boolean doClassFilter(int access, String javaClassName, String superClassTypeJavaClassName, String[] interfaceTypeJavaClassNameArray, String[] annotationTypeJavaClassNameArray) {
+            threadNames.add(Thread.currentThread().getName());
+            if (!SandboxProtector.instance.isInProtecting()) {
+                isAllInProtecting.set(false);
+            }
+            return super.doClassFilter(access, javaClassName, superClassTypeJavaClassName, interfaceTypeJavaClassNameArray, annotationTypeJavaClassNameArray);
+        }
+
+        @Override
+        public boolean isIncludeSubClasses() {
+            return false;
+        }
+
+        @Override
+        public boolean isIncludeBootstrap() {
+            return true;
+        }
+
+    }
+
+    // 沙箱自身的类不能被形变，这里用JDK的类反复出现来模拟total个已加载的可修改类
+    private static final Class<?>[] JDK_CLASSES = new Class<?>[]{
+            ArrayList.class, String.class, LinkedList.class, Integer.class, HashMap.class,
+            Thread.class, TreeMap.class, StringBuilder.class, HashSet.class, Object.class
+    };
+
+    private static Instrumentation newManyLoadedClassesInstrumentation(final int total) {
+        final Class<?>[] loaded = new Class<?>[total];
+        for (int index = 0; index < total; index++) {
+            loaded[index] = JDK_CLASSES[index % JDK_CLASSES.length];
+        }
+        return new EmptyInstrumentation() {
+
+            @Override
+            public Class[] getAllLoadedClasses() {
+                return loaded;
+            }
+
+            @Override
+            public boolean isModifiableClass(Class<?> theClass) {
+                return true;
+            }
+
+        };
+    }
+
+    private static final String JAVA_UTIL_CLASS_NAME_REGEX = "java\\.util\\..*";
+
+    @Test
+    public void test$$CoreLoadedClassDataSource$$findForReTransform$$parallel() {
+        final Instrumentation inst = newManyLoadedClassesInstrumentation(20000);
+        final RecordThreadNameRegexFilter sequentialFilter = new RecordThreadNameRegexFilter(JAVA_UTIL_CLASS_NAME_REGEX, ".*");
+        final RecordThreadNameRegexFilter parallelFilter = new RecordThreadNameRegexFilter(JAVA_UTIL_CLASS_NAME_REGEX, ".*");
+
+        final List<Class<?>> sequentialClasses = new DefaultCoreLoadedClassDataSource(inst, true, true, 1)
+                .findForReTransform(new ExtFilterMatcher(make(sequentialFilter)));
+        final List<Class<?>> parallelClasses = new DefaultCoreLoadedClassDataSource(inst, true, true, 4)
+                .findForReTransform(new ExtFilterMatcher(make(parallelFilter)));
+
+        // 并行查找的结果顺序与顺序查找一致
+        Assert.assertEquals(10000, sequentialClasses.size());
+        Assert.assertEquals(sequentialClasses, parallelClasses);
+
+        Assert.assertEquals(Collections.singleton(Thread.currentThread().getName()), sequentialFilter.threadNames);
+        for (final String threadName : parallelFilter.threadNames) {
+            Assert.assertTrue(threadName, threadName.startsWith("sandbox-class-scanner-")
+                    || threadName.equals(Thread.currentThread().getName()));
+        }
+        Assert.assertTrue(parallelFilter.isAllInProtecting.get());
+    }
+
+    @Test
+    public void test$$CoreLoadedClassDataSource$$findForReTransform$$small() {
+        final RecordThreadNameRegexFilter filter = new RecordThreadNameRegexFilter(JAVA_UTIL_CLASS_NAME_REGEX, ".*");
+        final List<Class<?>> classes = new DefaultCoreLoadedClassDataSource(newManyLoadedClassesInstrumentation(1000), true, true, 4)
+                .findForReTransform(new ExtFilterMatcher(make(filter)));
+
+        // 已加载的类不多时不创建线程
+        Assert.assertEquals(500, classes.size());
+        Assert.assertEquals(Collections.singleton(Thread.currentThread().getName()), filter.threadNames);
+        Assert.assertTrue(filter.isAllInProtecting.get());
+    }
+
 }
@@ -0,0 +1,294 @@
+package com.alibaba.jvm.sandbox.qatest.core.manager;
+
+import com.alibaba.jvm.sandbox.api.filter.ExtFilterImplByV140;
+import com.alibaba.jvm.sandbox.api.filter.NameRegexFilter;
+import com.alibaba.jvm.sandbox.core.manager.impl.DefaultCoreLoadedClassDataSource;
+import com.alibaba.jvm.sandbox.core.manager.impl.LoadedClassNameIndex;
+import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.GroupMatcher;
+import com.alibaba.jvm.sandbox.qatest.core.mock.EmptyInstrumentation;
+import org.junit.Test;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.jvm.sandbox.api.filter.ExtFilter.ExtFilterFactory.make;
+import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toInternalClassName;
+import static com.alibaba.jvm.sandbox.qatest.core.util.BenchmarkHelper.defineSyntheticClasses;
+import static org.junit.Assert.*;
+
+/**
+ * 已加载类的类名索引测试
+ */
+public class LoadedClassNameIndexTestCase {
+
+    /**
+     * 记录注册的形变器，已加载的类可以随时增加
+     */
+    static class ObservableInstrumentation extends EmptyInstrumentation {
+
+        final List<Class<?>> loaded = new ArrayList<>();
+        final List<ClassFileTransformer> transformers = new ArrayList<>();
+        int getAllLoadedClassesCnt;
+
+        ObservableInstrumentation(final Class<?>... classes) {
+            loaded.addAll(Arrays.asList(classes));
+        }
+
+        @Override
+        public void addTransformer(ClassFileTransformer transformer, boolean canRetransform) {
+            transformers.add(transformer);
+        }
+
+        @Override
+        public boolean removeTransformer(ClassFileTransformer transformer) {
+            return transformers.remove(transformer);
+        }
+
+        @Override
+        public Class[] getAllLoadedClasses() {
+            getAllLoadedClassesCnt++;
+            return loaded.toArray(new Class<?>[0]);
+        }
+
+        @Override
+        public boolean isModifiableClass(Class<?> theClass) {
+            return true;
+        }
+
+        // 模拟类加载：先经过形变器，再出现在已加载的类中
+        void load(final Class<?> clazz, final boolean isDefined) throws Exception {
+            for (final ClassFileTransformer transformer : transformers) {
+                transformer.transform(clazz.getClassLoader(), toInternalClassName(clazz.getName()), null, null, new byte[0]);
+            }
+            if (isDefined) {
+                loaded.add(clazz);
+            }
+        }
+
+    }
+
+    static class FakeClockLoadedClassNameIndex extends LoadedClassNameIndex {
+
+        long nanos;
+
+        FakeClockLoadedClassNameIndex(final ObservableInstrumentation inst) {
+            super(inst);
+        }
+
+        @Override
+        protected long nanoTime() {
+            return nanos;
+        }
+
+    }
+
+    @Test
+    public void test$find$by$prefix() {
+        final ObservableInstrumentation inst = new ObservableInstrumentation(
+                String.class, Integer.class, ArrayList.class, HashMap.class, TimeUnit.class
+        );
+        final LoadedClassNameIndex index = new LoadedClassNameIndex(inst);
+
+        assertEquals(
+                Arrays.asList(ArrayList.class, HashMap.class, TimeUnit.class),
+                index.find(new String[]{"java.util."})
+        );
+
+        // 被更短的前缀包含的前缀不会重复查找
+        assertEquals(
+                Arrays.asList(Integer.class, String.class, TimeUnit.class),
+                index.find(new String[]{"java.util.concurrent.", "java.lang.", "java.util.concurrent.Time"})
+        );
+        assertTrue(index.find(new String[]{"com.foo."}).isEmpty());
+
+        // 没有新加载的类时不再获取已加载的类
+        assertEquals(1, inst.getAllLoadedClassesCnt);
+        assertEquals(1, inst.transformers.size());
+        index.destroy();
+        assertTrue(inst.transformers.isEmpty());
+    }
+
+    @Test
+    public void test$find$after$class$loaded() throws Exception {
+        final ObservableInstrumentation inst = new ObservableInstrumentation(String.class);
+        final FakeClockLoadedClassNameIndex index = new FakeClockLoadedClassNameIndex(inst);
+        assertTrue(index.find(new String[]{"java.util."}).isEmpty());
+
+        inst.load(ArrayList.class, true);
+        assertEquals(Collections.singletonList(ArrayList.class), index.find(new String[]{"java.util."}));
+        assertEquals(2, inst.getAllLoadedClassesCnt);
+
+        // 形变器观察到了但还没有定义完成的类，下次查找时仍然会补进索引
+        inst.load(HashMap.class, false);
+        assertEquals(Collections.singletonList(ArrayList.class), index.find(new String[]{"java.util."}));
+        inst.loaded.add(HashMap.class);
+        assertEquals(Arrays.asList(ArrayList.class, HashMap.class), index.find(new String[]{"java.util."}));
+        assertEquals(4, inst.getAllLoadedClassesCnt);
+        index.find(new String[]{"java.util."});
+        assertEquals(4, inst.getAllLoadedClassesCnt);
+
+        // 一直没有定义成功的类超时后不再等待
+        inst.load(TimeUnit.class, false);
+        index.find(new String[]{"java.util."});
+        index.nanos += TimeUnit.MINUTES.toNanos(2);
+        index.find(new String[]{"java.util."});
+        index.find(new String[]{"java.util."});
+        assertEquals(6, inst.getAllLoadedClassesCnt);
+    }
+
+    @Test
+    public void test$find$same$name$from$different$loaders() throws Exception {
+        final Class<?> first = defineSyntheticClasses("benchmark.SameName$", 1)[0];
+        final Class<?> second = defineSyntheticClasses("benchmark.SameName$", 1)[0];
+        assertNotSame(first.getClassLoader(), second.getClassLoader());
+
+        final ObservableInstrumentation inst = new ObservableInstrumentation(String.class);
+        final LoadedClassNameIndex index = new LoadedClassNameIndex(inst);
+        assertTrue(index.find(new String[]{"benchmark."}).isEmpty());
+
+        // 两个ClassLoader在同一段时间内加载同名的类，查找时只有第一个类定义完成
+        inst.load(first, true);
+        inst.load(second, false);
+        assertEquals(Collections.singletonList(first), index.find(new String[]{"benchmark."}));
+
+        // 第二个类仍在等待中，定义完成后补进索引
+        inst.loaded.add(second);
+        assertEquals(Arrays.asList(first, second), index.find(new String[]{"benchmark."}));
+        index.destroy();
+    }
+
+    @Test
+    public void test$pending$bounded$without$find() throws Exception {
+        final Class<?>[] synthetic = defineSyntheticClasses("benchmark.Pending$", 10);
+        final ObservableInstrumentation inst = new ObservableInstrumentation(String.class);
+        final LoadedClassNameIndex index = new LoadedClassNameIndex(inst, 4);
+        assertTrue(index.find(new String[]{"benchmark."}).isEmpty());
+
+        // 一直没有查找时待补充的类不超过上限
+        for (final Class<?> clazz : synthetic) {
+            inst.load(clazz, true);
+            assertTrue(index.getPendingSize() <= 4);
+        }
+
+        // 清空过待补充的类，下次查找时重建索引，不会遗漏
+        assertEquals(Arrays.asList(synthetic), index.find(new String[]{"benchmark."}));
+        assertEquals(0, index.getPendingSize());
+        index.destroy();
+    }
+
+    @Test
+    public void test$find$family() throws Exception {
+        final ObservableInstrumentation inst = new ObservableInstrumentation(
+                Object.class, Enum.class, String.class, Integer.class, AbstractList.class, ArrayList.class, TimeUnit.class
+        );
+        final LoadedClassNameIndex index = new LoadedClassNameIndex(inst);
+
+        // 接口的实现类，包括通过父类间接实现的
+        assertEquals(
+                new HashSet<>(Arrays.asList(Enum.class, String.class, Integer.class, TimeUnit.class)),
+                new HashSet<>(index.findFamily(new String[]{"java.lang.Comparable"}))
+        );
+
+        // 前缀相符的类型本身和它们的子类型
+        assertEquals(
+                new HashSet<>(Arrays.asList(AbstractList.class, ArrayList.class, TimeUnit.class)),
+                new HashSet<>(index.findFamily(new String[]{"java.util."}))
+        );
+
+        // 反向索引建立之后随类名索引增量更新，父类总是先于子类加载
+        inst.load(AbstractSequentialList.class, true);
+        inst.load(LinkedList.class, true);
+        assertTrue(index.findFamily(new String[]{"java.util.AbstractList"}).contains(LinkedList.class));
+        index.destroy();
+    }
+
+    /**
+     * 记录经过类名过滤的类
+     */
+    static class RecordClassNameFilter extends NameRegexFilter {
+
+        final List<String> javaClassNames = new ArrayList<>();
+
+        RecordClassNameFilter(final String javaNameRegex) {
+            super(javaNameRegex, ".*");
+        }
+
+        @Override
+        public boolean doClassFilter(int access, String javaClassName, String superClassTypeJavaClassName, String[] interfaceTypeJavaClassNameArray, String[] annotationTypeJavaClassNameArray) {
+            javaClassNames.add(javaClassName);
+            return super.doClassFilter(access, javaClassName, superClassTypeJavaClassName, interfaceTypeJavaClassNameArray, annotationTypeJavaClassNameArray);
+        }
+
+    }
+
+    private static ExtFilterImplByV140 makeV140(final RecordClassNameFilter filter,
+                                                final boolean isIncludeSubClasses,
+                                                final String classNamePrefix) {
+        return new ExtFilterImplByV140(
+                make(filter, isIncludeSubClasses, true),
+                false, false,
+                false, false, false,
+                classNamePrefix
+        );
+    }
+
+    @Test
+    public void test$findForReTransform$skip$by$prefix() {
+        final ObservableInstrumentation inst = new ObservableInstrumentation(
+                String.class, Integer.class, ArrayList.class, HashMap.class, TimeUnit.class
+        );
+        final DefaultCoreLoadedClassDataSource classDataSource = new DefaultCoreLoadedClassDataSource(inst, true, false, 1);
+
+        final RecordClassNameFilter listFilter = new RecordClassNameFilter("java\\.util\\..*List");
+        final RecordClassNameFilter mapFilter = new RecordClassNameFilter("java\\.util\\..*Map");
+        assertEquals(
+                Arrays.asList(ArrayList.class, HashMap.class),
+                classDataSource.findForReTransform(new GroupMatcher.Or(
+                        new ExtFilterMatcher(makeV140(listFilter, false, "java.util.")),
+                        new ExtFilterMatcher(makeV140(mapFilter, false, "java.util."))
+                ))
+        );
+
+        // 前缀不符的类不会构造类结构，也不会经过过滤器
+        for (final String javaClassName : listFilter.javaClassNames) {
+            assertTrue(javaClassName.startsWith("java.util."));
+        }
+        assertEquals(3, listFilter.javaClassNames.size());
+        classDataSource.destroy();
+        assertTrue(inst.transformers.isEmpty());
+    }
+
+    @Test
+    public void test$findForReTransform$without$prefix() {
+        final ObservableInstrumentation inst = new ObservableInstrumentation(
+                String.class, Integer.class, ArrayList.class, HashMap.class, TimeUnit.class
+        );
+        final DefaultCoreLoadedClassDataSource classDataSource = new DefaultCoreLoadedClassDataSource(inst, true, false, 1);
+
+        // 匹配子类时只查找家族类型前缀相符的类，不相干的String不会经过过滤器
+        final RecordClassNameFilter subClassesFilter = new RecordClassNameFilter("java\\.util\\.AbstractList");
+        assertEquals(
+                Collections.singletonList(ArrayList.class),
+                classDataSource.findForReTransform(new ExtFilterMatcher(makeV140(subClassesFilter, true, "java.util.")))
+        );
+        assertFalse(subClassesFilter.javaClassNames.contains(String.class.getName()));
+
+        // 有一个分支没有前缀时，需要遍历所有的类
+        final RecordClassNameFilter noPrefixFilter = new RecordClassNameFilter(".*Map");
+        classDataSource.findForReTransform(new GroupMatcher.Or(
+                new ExtFilterMatcher(makeV140(new RecordClassNameFilter("java\\.util\\..*List"), false, "java.util.")),
+                new ExtFilterMatcher(makeV140(noPrefixFilter, false, ""))
+        ));
+
+        // ArrayList的行为已经全部被第一个分支匹配上，不会再经过第二个分支
+        assertEquals(
+                Arrays.asList(String.class.getName(), Integer.class.getName(), HashMap.class.getName(), TimeUnit.class.getName()),
+                noPrefixFilter.javaClassNames
+        );
+        classDataSource.destroy();
+        assertTrue(inst.transformers.isEmpty());
+    }
+
+}
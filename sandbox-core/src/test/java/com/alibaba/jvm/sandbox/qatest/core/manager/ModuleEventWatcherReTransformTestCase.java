@@ -0,0 +1,203 @@
+package com.alibaba.jvm.sandbox.qatest.core.manager;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.filter.Filter;
+import com.alibaba.jvm.sandbox.api.filter.NameRegexFilter;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchCondition;
+import com.alibaba.jvm.sandbox.api.resource.ModuleEventWatcher;
+import com.alibaba.jvm.sandbox.core.CoreModule;
+import com.alibaba.jvm.sandbox.core.manager.impl.DefaultModuleEventWatcher;
+import com.alibaba.jvm.sandbox.core.manager.impl.NamespaceClassFileTransformer;
+import com.alibaba.jvm.sandbox.core.manager.impl.ReTransformScheduler;
+import com.alibaba.jvm.sandbox.core.util.matcher.Matcher;
+import com.alibaba.jvm.sandbox.qatest.core.mock.EmptyCoreLoadedClassDataSource;
+import com.alibaba.jvm.sandbox.qatest.core.mock.EmptyInstrumentation;
+import org.junit.Test;
+
+import java.lang.instrument.UnmodifiableClassException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.BEFORE;
+import static org.junit.Assert.*;
+
+/**
+ * 批量形变测试
+ * <p>
+ * 观察的类分批形变，整批失败时对半拆分定位出失败的类，进度汇报仍然以单个类为单位
+ * </p>
+ */
+public class ModuleEventWatcherReTransformTestCase {
+
+    private static final int BATCH_SIZE = 64;
+
+    /**
+     * 记录每次retransformClasses调用的批次，批次中包含指定的类时整批失败
+     */
+    static class BatchRecordInstrumentation extends EmptyInstrumentation {
+
+        final List<Class<?>[]> batches = new ArrayList<>();
+        final Class<?> brokenClass;
+
+        BatchRecordInstrumentation(final Class<?> brokenClass) {
+            this.brokenClass = brokenClass;
+        }
+
+        @Override
+        public void retransformClasses(Class<?>... classes) throws UnmodifiableClassException {
+            batches.add(classes);
+            if (Arrays.asList(classes).contains(brokenClass)) {
+                throw new UnmodifiableClassException(brokenClass.getName());
+            }
+        }
+
+    }
+
+    /**
+     * 按顺序记录进度汇报
+     */
+    static class RecordProgress implements ModuleEventWatcher.Progress {
+
+        final List<String> records = new ArrayList<>();
+
+        @Override
+        public void begin(int total) {
+        }
+
+        @Override
+        public void progressOnSuccess(Class<?> clazz, int index) {
+            records.add("S:" + index + ":" + clazz.getSimpleName());
+        }
+
+        @Override
+        public void progressOnFailed(Class<?> clazz, int index, Throwable cause) {
+            records.add("F:" + index + ":" + clazz.getSimpleName());
+        }
+
+        @Override
+        public void finish(int cCnt, int mCnt) {
+        }
+
+    }
+
+    // total个待形变的类，第index个是String，其余是Object
+    private static List<Class<?>> waitingReTransformClasses(final int total, final int index) {
+        final List<Class<?>> classes = new ArrayList<>();
+        for (int i = 0; i < total; i++) {
+            classes.add(i == index ? String.class : Object.class);
+        }
+        return classes;
+    }
+
+    private static ModuleEventWatcher newModuleEventWatcher(final BatchRecordInstrumentation inst,
+                                                            final List<Class<?>> waitingReTransformClasses) {
+        return new DefaultModuleEventWatcher(
+                inst,
+                new EmptyCoreLoadedClassDataSource() {
+                    @Override
+                    public List<Class<?>> findForReTransform(Matcher matcher) {
+                        return waitingReTransformClasses;
+                    }
+                },
+                new CoreModule("test", null, null, null),
+                false,
+                "default",
+                new ReTransformScheduler(inst, "default", BATCH_SIZE, 0, 0),
+                new NamespaceClassFileTransformer(inst, "default", false)
+        );
+    }
+
+    private static final EventListener EMPTY_LISTENER = new EventListener() {
+        @Override
+        public void onEvent(Event event) {
+        }
+    };
+
+    @Test
+    public void test$reTransform$batch() {
+        final BatchRecordInstrumentation inst = new BatchRecordInstrumentation(null);
+        final RecordProgress progress = new RecordProgress();
+        newModuleEventWatcher(inst, waitingReTransformClasses(100, -1))
+                .watch(new NameRegexFilter(".*", ".*"), EMPTY_LISTENER, progress, BEFORE);
+
+        assertEquals(2, inst.batches.size());
+        assertEquals(64, inst.batches.get(0).length);
+        assertEquals(36, inst.batches.get(1).length);
+        assertEquals(100, progress.records.size());
+        for (int index = 0; index < 100; index++) {
+            assertEquals("S:" + (index + 1) + ":Object", progress.records.get(index));
+        }
+    }
+
+    @Test
+    public void test$reTransform$bisect$on$failed() {
+        final BatchRecordInstrumentation inst = new BatchRecordInstrumentation(String.class);
+        final RecordProgress progress = new RecordProgress();
+        newModuleEventWatcher(inst, waitingReTransformClasses(100, 41))
+                .watch(new NameRegexFilter(".*", ".*"), EMPTY_LISTENER, progress, BEFORE);
+
+        // 第一批失败后对半拆分了log2(64)层，每层两次调用，加上第二批
+        assertEquals(1 + 2 * 6 + 1, inst.batches.size());
+        assertEquals(100, progress.records.size());
+        for (int index = 0; index < 100; index++) {
+            assertEquals(
+                    index == 41
+                            ? "F:42:String"
+                            : "S:" + (index + 1) + ":Object",
+                    progress.records.get(index)
+            );
+        }
+    }
+
+    @Test
+    public void test$reTransform$progress$failed$not$bisect() {
+        final BatchRecordInstrumentation inst = new BatchRecordInstrumentation(null);
+        final RecordProgress progress = new RecordProgress() {
+            @Override
+            public void progressOnSuccess(Class<?> clazz, int index) {
+                super.progressOnSuccess(clazz, index);
+                throw new RuntimeException("BROKEN-ON-PROGRESS");
+            }
+        };
+        newModuleEventWatcher(inst, waitingReTransformClasses(100, -1))
+                .watch(new NameRegexFilter(".*", ".*"), EMPTY_LISTENER, progress, BEFORE);
+
+        // 进度汇报的异常不影响形变
+        assertEquals(2, inst.batches.size());
+        assertEquals(100, progress.records.size());
+    }
+
+    @Test
+    public void test$watch$async() throws Exception {
+        final BatchRecordInstrumentation inst = new BatchRecordInstrumentation(null) {
+            @Override
+            public void retransformClasses(Class<?>... classes) throws UnmodifiableClassException {
+                assertTrue(Thread.currentThread().getName().startsWith("sandbox-retransform-scheduler-"));
+                super.retransformClasses(classes);
+            }
+        };
+        final RecordProgress progress = new RecordProgress();
+        final ModuleEventWatcher watcher = newModuleEventWatcher(inst, waitingReTransformClasses(100, -1));
+        final int watchId = watcher.watchAsync(
+                new EventWatchCondition() {
+                    @Override
+                    public Filter[] getOrFilterArray() {
+                        return new Filter[]{new NameRegexFilter(".*", ".*")};
+                    }
+                },
+                EMPTY_LISTENER,
+                progress,
+                BEFORE
+        ).get();
+
+        assertEquals(2, inst.batches.size());
+        assertEquals(100, progress.records.size());
+
+        watcher.deleteAsync(watchId, progress).get();
+        assertEquals(4, inst.batches.size());
+        assertEquals(200, progress.records.size());
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.alibaba.jvm.sandbox.qatest.core.manager;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.filter.Filter;
+import com.alibaba.jvm.sandbox.api.filter.NameRegexFilter;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.api.resource.ModuleEventWatcher;
+import com.alibaba.jvm.sandbox.core.CoreModule;
+import com.alibaba.jvm.sandbox.core.manager.CoreLoadedClassDataSource;
+import com.alibaba.jvm.sandbox.core.manager.impl.DefaultCoreLoadedClassDataSource;
+import com.alibaba.jvm.sandbox.core.manager.impl.DefaultModuleEventWatcher;
+import com.alibaba.jvm.sandbox.core.manager.impl.NamespaceClassFileTransformer;
+import com.alibaba.jvm.sandbox.core.manager.impl.ReTransformScheduler;
+import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.instrument.Instrumentation;
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.BEFORE;
+import static com.alibaba.jvm.sandbox.api.filter.ExtFilter.ExtFilterFactory.make;
+import static com.alibaba.jvm.sandbox.qatest.core.util.BenchmarkHelper.*;
+
+/**
+ * 批量形变性能基准
+ * <p>
+ * 观察命中{@code classes}个类，对比每次只形变一个类(batchSize=1)与批量形变的观察耗时，
+ * 同时统计观察过程中JVM进入安全点的次数({@code safepoints})
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Timeout(time = 10, timeUnit = TimeUnit.MINUTES)
+@Fork(1)
+public class ReTransformBatchBenchmark {
+
+    private static final String TARGET_CLASS_NAME_PREFIX = "benchmark.ReTransformTarget$";
+    private static final Filter TARGET_FILTER = new NameRegexFilter("benchmark\\.ReTransformTarget\\$\\d+", "call");
+
+    @Param({"100", "1000", "10000"})
+    private int classes;
+
+    @Param({"1", "64"})
+    private int batchSize;
+
+    private Class<?>[] targetClasses;
+    private ModuleEventWatcher watcher;
+    private int watchId;
+
+    /**
+     * 观察过程中JVM进入安全点的次数
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class SafepointCounter {
+        public long safepoints;
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        targetClasses = defineSyntheticClasses(TARGET_CLASS_NAME_PREFIX, classes);
+
+        final Instrumentation inst = attachSelf();
+        final CoreLoadedClassDataSource classDataSource = new DefaultCoreLoadedClassDataSource(inst, false, false);
+        watcher = new DefaultModuleEventWatcher(
+                inst,
+                classDataSource,
+                new CoreModule("benchmark", null, null, null),
+                false,
+                "default",
+                new ReTransformScheduler(inst, "default", batchSize, 0, 0),
+                new NamespaceClassFileTransformer(inst, "default", false)
+        );
+
+        // 沙箱自身的类在真实环境中由沙箱的ClassLoader提前加载，这里在注册形变器之前先查找一遍并完整走一遍观察流程，
+        // 避免观察路径上的类在加载时被刚注册的形变器重入
+        classDataSource.findForReTransform(new ExtFilterMatcher(make(TARGET_FILTER)));
+        watchId = watch(new SafepointCounter());
+        delete();
+    }
+
+    @TearDown(Level.Invocation)
+    public void delete() {
+        watcher.delete(watchId);
+    }
+
+    @Benchmark
+    public int watch(final SafepointCounter counter) {
+        final long begin = getSafepointCount();
+        watchId = watcher.watch(
+                TARGET_FILTER,
+                new EventListener() {
+                    @Override
+                    public void onEvent(Event event) {
+                    }
+                },
+                BEFORE
+        );
+        counter.safepoints += getSafepointCount() - begin;
+        return watchId;
+    }
+
+    public static void main(String... args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ReTransformBatchBenchmark.class.getName())
+                .jvmArgsAppend(spyBootClasspath())
+                .build()
+        ).run();
+    }
+
+}
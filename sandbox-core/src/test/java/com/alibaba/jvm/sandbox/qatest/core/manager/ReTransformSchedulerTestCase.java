@@ -0,0 +1,204 @@
+package com.alibaba.jvm.sandbox.qatest.core.manager;
+
+import com.alibaba.jvm.sandbox.core.manager.impl.ReTransformScheduler;
+import com.alibaba.jvm.sandbox.qatest.core.mock.EmptyInstrumentation;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 类形变调度器限流测试
+ * <p>
+ * 用假时钟代替真实的时间，每次retransformClasses调用让时钟前进固定的停顿时间，
+ * 检查任意一秒内形变的类个数和停顿时间都不超过限制
+ * </p>
+ */
+public class ReTransformSchedulerTestCase {
+
+    private static final long SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * 使用假时钟的调度器，等待时直接拨动时钟
+     */
+    static class FakeClockReTransformScheduler extends ReTransformScheduler {
+
+        long nanos;
+        final List<Long> sleeps = new ArrayList<>();
+
+        FakeClockReTransformScheduler(final PauseInstrumentation inst,
+                                      final int batchSize,
+                                      final int maxClassesPerSecond,
+                                      final long maxPauseMillisPerSecond) {
+            super(inst, "default", batchSize, maxClassesPerSecond, maxPauseMillisPerSecond);
+            inst.scheduler = this;
+        }
+
+        @Override
+        protected long nanoTime() {
+            return nanos;
+        }
+
+        @Override
+        protected void sleep(long nanos) throws InterruptedException {
+            sleeps.add(nanos);
+            this.nanos += nanos;
+        }
+
+    }
+
+    /**
+     * 记录每次形变的开始时间和类个数，每次形变让假时钟前进固定的停顿时间
+     */
+    static class PauseInstrumentation extends EmptyInstrumentation {
+
+        final long pauseNanos;
+        final List<long[]> calls = new ArrayList<>();
+        FakeClockReTransformScheduler scheduler;
+
+        PauseInstrumentation(final long pauseMillis) {
+            this.pauseNanos = TimeUnit.MILLISECONDS.toNanos(pauseMillis);
+        }
+
+        @Override
+        public void retransformClasses(Class<?>... classes) {
+            calls.add(new long[]{scheduler.nanos, classes.length});
+            scheduler.nanos += pauseNanos;
+        }
+
+        // 从第index次形变开始的一秒内，形变的次数和类个数
+        long[] countInSecond(final int index) {
+            long callCnt = 0, classCnt = 0;
+            for (int i = index; i < calls.size() && calls.get(i)[0] - calls.get(index)[0] < SECOND_NANOS; i++) {
+                callCnt++;
+                classCnt += calls.get(i)[1];
+            }
+            return new long[]{callCnt, classCnt};
+        }
+
+        long totalClasses() {
+            long total = 0;
+            for (final long[] call : calls) {
+                total += call[1];
+            }
+            return total;
+        }
+
+    }
+
+    private static List<Class<?>> waitingReTransformClasses(final int total) {
+        final List<Class<?>> classes = new ArrayList<>();
+        for (int i = 0; i < total; i++) {
+            classes.add(Object.class);
+        }
+        return classes;
+    }
+
+    @Test
+    public void test$unlimited() {
+        final PauseInstrumentation inst = new PauseInstrumentation(10);
+        final FakeClockReTransformScheduler scheduler = new FakeClockReTransformScheduler(inst, 64, 0, 0);
+        final ModuleEventWatcherReTransformTestCase.RecordProgress progress = new ModuleEventWatcherReTransformTestCase.RecordProgress();
+        scheduler.reTransform(1, "test", waitingReTransformClasses(1000), progress);
+
+        assertEquals(16, inst.calls.size());
+        assertEquals(1000, inst.totalClasses());
+        assertEquals(1000, progress.records.size());
+        assertTrue(scheduler.sleeps.isEmpty());
+    }
+
+    @Test
+    public void test$max$classes$per$second() {
+        final PauseInstrumentation inst = new PauseInstrumentation(1);
+        final FakeClockReTransformScheduler scheduler = new FakeClockReTransformScheduler(inst, 64, 100, 0);
+        final ModuleEventWatcherReTransformTestCase.RecordProgress progress = new ModuleEventWatcherReTransformTestCase.RecordProgress();
+        scheduler.reTransform(1, "test", waitingReTransformClasses(1000), progress);
+
+        assertEquals(1000, inst.totalClasses());
+        assertEquals(1000, progress.records.size());
+        for (int index = 0; index < inst.calls.size(); index++) {
+            assertTrue(inst.countInSecond(index)[1] <= 100);
+        }
+        assertEquals(inst.calls.size() - 1, scheduler.sleeps.size());
+    }
+
+    @Test
+    public void test$max$classes$per$second$smaller$than$batch() {
+        final PauseInstrumentation inst = new PauseInstrumentation(1);
+        final FakeClockReTransformScheduler scheduler = new FakeClockReTransformScheduler(inst, 64, 10, 0);
+        scheduler.reTransform(1, "test", waitingReTransformClasses(100), null);
+
+        // 一批不能超过每秒的限制
+        assertEquals(10, inst.calls.size());
+        for (int index = 0; index < inst.calls.size(); index++) {
+            assertEquals(10, inst.calls.get(index)[1]);
+            assertTrue(inst.countInSecond(index)[1] <= 10);
+        }
+    }
+
+    @Test
+    public void test$max$pause$per$second() {
+        final PauseInstrumentation inst = new PauseInstrumentation(30);
+        final FakeClockReTransformScheduler scheduler = new FakeClockReTransformScheduler(inst, 10, 0, 50);
+        scheduler.reTransform(1, "test", waitingReTransformClasses(100), null);
+
+        // 停顿预算在形变前检查，一秒内最多超出一批的停顿：30ms + 30ms
+        assertEquals(10, inst.calls.size());
+        assertEquals(100, inst.totalClasses());
+        for (int index = 0; index < inst.calls.size(); index++) {
+            assertTrue(inst.countInSecond(index)[0] <= 2);
+        }
+        assertEquals(4, scheduler.sleeps.size());
+    }
+
+    @Test
+    public void test$interrupted() {
+        final PauseInstrumentation inst = new PauseInstrumentation(1);
+        final FakeClockReTransformScheduler scheduler = new FakeClockReTransformScheduler(inst, 10, 10, 0) {
+            @Override
+            protected void sleep(long nanos) throws InterruptedException {
+                throw new InterruptedException();
+            }
+        };
+        final ModuleEventWatcherReTransformTestCase.RecordProgress progress = new ModuleEventWatcherReTransformTestCase.RecordProgress();
+        scheduler.reTransform(1, "test", waitingReTransformClasses(100), progress);
+
+        // 等待下一个时间窗口时被中断，放弃剩余的类并保留中断状态
+        assertTrue(Thread.interrupted());
+        assertEquals(10, inst.totalClasses());
+        assertEquals(10, progress.records.size());
+    }
+
+    @Test
+    public void test$waiting$not$block$others() throws Exception {
+        final CountDownLatch firstBatchLatch = new CountDownLatch(1);
+        final ReTransformScheduler scheduler = new ReTransformScheduler(new EmptyInstrumentation() {
+            @Override
+            public void retransformClasses(Class<?>... classes) {
+                firstBatchLatch.countDown();
+            }
+        }, "default", 10, 10, 0);
+
+        // 第一个线程形变完第一批后等待下一个时间窗口
+        final Thread throttled = new Thread(() -> scheduler.reTransform(1, "test", waitingReTransformClasses(100), null));
+        throttled.start();
+        assertTrue(firstBatchLatch.await(5, TimeUnit.SECONDS));
+
+        // 等待不持有调度器的锁，另一个线程的形变可以被中断
+        final Thread other = new Thread(() -> scheduler.reTransform(2, "test", waitingReTransformClasses(10), null));
+        other.start();
+        Thread.sleep(100);
+        other.interrupt();
+        other.join(500);
+        assertFalse(other.isAlive());
+
+        throttled.interrupt();
+        throttled.join(2000);
+        assertFalse(throttled.isAlive());
+    }
+
+}
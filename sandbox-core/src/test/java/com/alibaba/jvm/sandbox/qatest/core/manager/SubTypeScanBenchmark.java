@@ -0,0 +1,115 @@
+package com.alibaba.jvm.sandbox.qatest.core.manager;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.api.listener.ext.AdviceListener;
+import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchBuilder;
+import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchCondition;
+import com.alibaba.jvm.sandbox.core.manager.CoreLoadedClassDataSource;
+import com.alibaba.jvm.sandbox.core.manager.impl.DefaultCoreLoadedClassDataSource;
+import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.Matcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.MatchingResult;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructure;
+import com.alibaba.jvm.sandbox.qatest.core.mock.EmptyInstrumentation;
+import com.alibaba.jvm.sandbox.qatest.core.mock.EmptyModuleEventWatcher;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.jvm.sandbox.qatest.core.util.BenchmarkHelper.defineSyntheticClasses;
+import static com.alibaba.jvm.sandbox.qatest.core.util.BenchmarkHelper.spyBootClasspath;
+
+/**
+ * 匹配子类的已加载类查找性能基准
+ * <p>
+ * 模拟JVM中已加载50000个类，其中1%实现了{@link Runnable}，观察所有实现类的所有行为。
+ * index为subtype时从反向索引中取出候选类，为none时隐藏匹配器的前缀，退回到遍历所有已加载的类
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SubTypeScanBenchmark {
+
+    private static final int LOADED_CLASS_COUNT = 50000;
+
+    @Param({"subtype", "none"})
+    private String index;
+
+    private CoreLoadedClassDataSource classDataSource;
+    private Matcher matcher;
+
+    @Setup
+    public void setup() {
+        final Class<?>[] synthetic = defineSyntheticClasses("benchmark.SubTypeTarget$", LOADED_CLASS_COUNT, Runnable.class, 100);
+        final Class<?>[] loaded = new Class<?>[synthetic.length + 2];
+        System.arraycopy(synthetic, 0, loaded, 0, synthetic.length);
+        loaded[synthetic.length] = Object.class;
+        loaded[synthetic.length + 1] = Runnable.class;
+        classDataSource = new DefaultCoreLoadedClassDataSource(
+                new EmptyInstrumentation() {
+
+                    @Override
+                    public Class[] getAllLoadedClasses() {
+                        return loaded;
+                    }
+
+                    @Override
+                    public boolean isModifiableClass(Class<?> theClass) {
+                        return true;
+                    }
+
+                },
+                false,
+                false,
+                1
+        );
+
+        new EventWatchBuilder(new EmptyModuleEventWatcher() {
+            @Override
+            public int watch(EventWatchCondition condition, EventListener listener, Progress progress, Event.Type... eventType) {
+                matcher = ExtFilterMatcher.toOrGroupMatcher(condition.getOrFilterArray());
+                return 0;
+            }
+        }).onClass(Runnable.class).includeSubClasses().onAnyBehavior().onWatch(new AdviceListener());
+
+        if ("none".equals(index)) {
+            final Matcher target = matcher;
+            matcher = new Matcher() {
+
+                @Override
+                public MatchingResult matching(ClassStructure classStructure) {
+                    return target.matching(classStructure);
+                }
+
+                @Override
+                public boolean matching(ClassStructure classStructure, BitSet matchedBehaviors) {
+                    return target.matching(classStructure, matchedBehaviors);
+                }
+
+            };
+        }
+    }
+
+    @Benchmark
+    public List<Class<?>> findForReTransform() {
+        return classDataSource.findForReTransform(matcher);
+    }
+
+    public static void main(String... args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(SubTypeScanBenchmark.class.getName())
+                .jvmArgsAppend(spyBootClasspath())
+                .build()
+        ).run();
+    }
+
+}
@@ -0,0 +1,165 @@
+package com.alibaba.jvm.sandbox.qatest.core.util;
+
+import com.sun.tools.attach.VirtualMachine;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.lang.instrument.Instrumentation;
+import java.lang.management.ManagementFactory;
+import java.net.URISyntaxException;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * 性能基准辅助类
+ */
+public class BenchmarkHelper {
+
+    /**
+     * 与单元测试一样，让性能基准的JVM从BootstrapClassLoader加载测试用的Spy
+     *
+     * @return JVM启动参数
+     * @throws URISyntaxException 测试类路径非法
+     */
+    public static String spyBootClasspath() throws URISyntaxException {
+        final File testClasses = new File(BenchmarkHelper.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        return "-Xbootclasspath/p:" + new File(testClasses, "lib/sandbox-spy-1.3.0-for-qatest.jar").getAbsolutePath();
+    }
+
+    /**
+     * 性能基准JVM自己挂载自己时的Agent入口
+     */
+    public static class Agent {
+
+        private static volatile Instrumentation inst;
+
+        public static void agentmain(final String args, final Instrumentation inst) {
+            Agent.inst = inst;
+        }
+
+    }
+
+    /**
+     * 让性能基准的JVM挂载自己，获取可以重新形变类的{@link Instrumentation}
+     *
+     * @return Instrumentation
+     * @throws Exception 挂载失败
+     */
+    public static synchronized Instrumentation attachSelf() throws Exception {
+        if (null != Agent.inst) {
+            return Agent.inst;
+        }
+
+        final Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue("Agent-Class", Agent.class.getName());
+        manifest.getMainAttributes().putValue("Can-Retransform-Classes", "true");
+        final File agentJar = File.createTempFile("sandbox-benchmark-agent-", ".jar");
+        agentJar.deleteOnExit();
+        new JarOutputStream(new FileOutputStream(agentJar), manifest).close();
+
+        final String pid = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+        final VirtualMachine vm = VirtualMachine.attach(pid);
+        try {
+            vm.loadAgent(agentJar.getAbsolutePath());
+        } finally {
+            vm.detach();
+        }
+        return Agent.inst;
+    }
+
+    /**
+     * 获取JVM进入安全点的累计次数
+     *
+     * @return 安全点次数，不支持时返回-1
+     */
+    public static long getSafepointCount() {
+        try {
+            final Object hotspotRuntimeMBean = Class.forName("sun.management.ManagementFactoryHelper")
+                    .getMethod("getHotspotRuntimeMBean")
+                    .invoke(null);
+            return (Long) Class.forName("sun.management.HotspotRuntimeMBean")
+                    .getMethod("getSafepointCount")
+                    .invoke(hotspotRuntimeMBean);
+        } catch (Throwable cause) {
+            return -1;
+        }
+    }
+
+    /**
+     * 可以直接定义类的ClassLoader
+     */
+    static class SyntheticClassLoader extends ClassLoader {
+
+        Class<?> defineClass(final String javaClassName, final byte[] byteCodes) {
+            return defineClass(javaClassName, byteCodes, 0, byteCodes.length);
+        }
+
+    }
+
+    // 生成只有一个call()方法的类，interfaces为类声明实现的接口，接口方法不会被实现
+    private static byte[] toSyntheticByteCodes(final String internalClassName, final String... interfaces) {
+        final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_8, ACC_PUBLIC, internalClassName, null, "java/lang/Object", interfaces);
+
+        final MethodVisitor init = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        init.visitCode();
+        init.visitVarInsn(ALOAD, 0);
+        init.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        init.visitInsn(RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+
+        final MethodVisitor call = cw.visitMethod(ACC_PUBLIC, "call", "()I", null, null);
+        call.visitCode();
+        call.visitInsn(ICONST_1);
+        call.visitInsn(IRETURN);
+        call.visitMaxs(0, 0);
+        call.visitEnd();
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * 在一个新的ClassLoader中定义一批只有一个{@code call()}方法的类，类名为前缀加序号
+     *
+     * @param javaClassNamePrefix 类名前缀
+     * @param count               类个数
+     * @return 定义好的类
+     */
+    public static Class<?>[] defineSyntheticClasses(final String javaClassNamePrefix, final int count) {
+        return defineSyntheticClasses(javaClassNamePrefix, count, null, 0);
+    }
+
+    /**
+     * 在一个新的ClassLoader中定义一批只有一个{@code call()}方法的类，序号是every的整数倍的类声明实现指定的接口
+     *
+     * @param javaClassNamePrefix 类名前缀
+     * @param count               类个数
+     * @param interfaceClass      接口，为null时所有类都不实现接口
+     * @param every               每隔多少个类实现一次接口
+     * @return 定义好的类
+     */
+    public static Class<?>[] defineSyntheticClasses(final String javaClassNamePrefix,
+                                                    final int count,
+                                                    final Class<?> interfaceClass,
+                                                    final int every) {
+        final SyntheticClassLoader loader = new SyntheticClassLoader();
+        final Class<?>[] classes = new Class<?>[count];
+        for (int index = 0; index < count; index++) {
+            final String javaClassName = javaClassNamePrefix + index;
+            final String[] interfaces = null != interfaceClass && index % every == 0
+                    ? new String[]{interfaceClass.getName().replace('.', '/')}
+                    : new String[0];
+            classes[index] = loader.defineClass(javaClassName, toSyntheticByteCodes(javaClassName.replace('.', '/'), interfaces));
+        }
+        return classes;
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.alibaba.jvm.sandbox.qatest.core.util;
+
+import com.alibaba.jvm.sandbox.core.util.ClassLoaderCache;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 按ClassLoader区分的缓存测试
+ */
+public class ClassLoaderCacheTestCase {
+
+    private static ClassLoader newClassLoader() {
+        return new URLClassLoader(new URL[0], ClassLoaderCacheTestCase.class.getClassLoader());
+    }
+
+    @Test
+    public void test$bounded$across$loaders() {
+        final ClassLoaderCache<String> cache = new ClassLoaderCache<>(16);
+        final List<ClassLoader> loaders = new ArrayList<>();
+        for (int index = 0; index < 64; index++) {
+            final ClassLoader loader = newClassLoader();
+            loaders.add(loader);
+            cache.put(loader, "a", "a");
+            cache.put(loader, "b", "b");
+        }
+        cache.put(null, "a", "a");
+
+        // 容量上限由所有ClassLoader共用，不随ClassLoader个数增长
+        assertEquals(16, cache.size());
+        assertEquals("a", cache.getIfPresent(null, "a"));
+        assertEquals("b", cache.getIfPresent(loaders.get(loaders.size() - 1), "b"));
+        assertNull(cache.getIfPresent(loaders.get(0), "a"));
+    }
+
+    @Test
+    public void test$bounded$by$weight() {
+        final ClassLoaderCache<String> cache = new ClassLoaderCache<>(10, String::length);
+        final ClassLoader loader = newClassLoader();
+        cache.put(loader, "a", "aaaa");
+        cache.put(null, "b", "bbbb");
+        assertEquals(2, cache.size());
+
+        cache.put(loader, "c", "cccc");
+        assertEquals(2, cache.size());
+        assertNull(cache.getIfPresent(loader, "a"));
+    }
+
+    @Test
+    public void test$cleared$when$loader$collected() throws Exception {
+        final ClassLoaderCache<String> cache = new ClassLoaderCache<>(16);
+        ClassLoader loader = newClassLoader();
+        final WeakReference<ClassLoader> loaderRef = new WeakReference<>(loader);
+        cache.put(loader, "a", "a");
+        cache.put(null, "a", "a");
+        assertEquals(2, cache.size());
+
+        // 缓存不会阻止ClassLoader被回收，回收后它的缓存值一起被清除
+        loader = null;
+        for (int index = 0; index < 50 && null != loaderRef.get(); index++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(loaderRef.get());
+        assertEquals(1, cache.size());
+        assertEquals("a", cache.getIfPresent(null, "a"));
+    }
+
+}
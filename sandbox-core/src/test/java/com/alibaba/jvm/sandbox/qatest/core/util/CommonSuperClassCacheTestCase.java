@@ -0,0 +1,89 @@
+package com.alibaba.jvm.sandbox.qatest.core.util;
+
+import com.alibaba.jvm.sandbox.core.util.CommonSuperClassCache;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureCache;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import static com.alibaba.jvm.sandbox.core.util.AsmUtils.getCommonSuperClass;
+import static org.junit.Assert.*;
+
+/**
+ * 共同父类缓存测试
+ */
+public class CommonSuperClassCacheTestCase {
+
+    private static ClassLoader newClassLoader() {
+        return new URLClassLoader(new URL[0], CommonSuperClassCacheTestCase.class.getClassLoader());
+    }
+
+    @Test
+    public void test$cache$per$loader() {
+        final CommonSuperClassCache cache = new CommonSuperClassCache(2);
+        final ClassLoader loaderA = newClassLoader();
+        final ClassLoader loaderB = newClassLoader();
+
+        cache.put(loaderA, "java/io/IOException", "java/lang/Exception", "java/lang/Exception");
+        cache.put(null, "java/lang/Integer", "java/lang/Long", "java/lang/Number");
+        assertNull(cache.getIfPresent(loaderB, "java/io/IOException", "java/lang/Exception"));
+        assertNull(cache.getIfPresent(loaderA, "java/lang/Exception", "java/io/IOException"));
+        assertEquals("java/lang/Exception", cache.getIfPresent(loaderA, "java/io/IOException", "java/lang/Exception"));
+        assertEquals("java/lang/Number", cache.getIfPresent(null, "java/lang/Integer", "java/lang/Long"));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, cache.size());
+
+        // 所有ClassLoader合计最多缓存2个查询结果
+        cache.put(loaderA, "a", "b", "java/lang/Object");
+        cache.put(loaderB, "b", "c", "java/lang/Object");
+        assertEquals(2, cache.size());
+
+        cache.clean();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void test$resolve$cached() {
+        CommonSuperClassCache.instance.clean();
+        ClassStructureCache.instance.clean();
+        final ClassLoader loader = newClassLoader();
+
+        assertEquals("java/lang/Exception", getCommonSuperClass("java/io/IOException", "java/lang/InterruptedException", loader));
+        assertEquals(0, CommonSuperClassCache.instance.getHitCount());
+        assertTrue(ClassStructureCache.instance.size() > 0);
+
+        // 再次查询时直接使用缓存的结果，其他类型对复用已经构造好的类结构
+        assertEquals("java/lang/Exception", getCommonSuperClass("java/io/IOException", "java/lang/InterruptedException", loader));
+        assertEquals(1, CommonSuperClassCache.instance.getHitCount());
+        final long classStructureMissCount = ClassStructureCache.instance.getMissCount();
+        assertEquals("java/lang/Exception", getCommonSuperClass("java/lang/InterruptedException", "java/io/IOException", loader));
+        assertEquals(classStructureMissCount, ClassStructureCache.instance.getMissCount());
+
+        // 找不到的类型不缓存
+        assertEquals("java/lang/Object", getCommonSuperClass("not/Exist", "java/io/IOException", loader));
+        assertNull(CommonSuperClassCache.instance.getIfPresent(loader, "not/Exist", "java/io/IOException"));
+    }
+
+    @Test
+    public void test$loader$collectable() throws Exception {
+        CommonSuperClassCache.instance.clean();
+        ClassLoader loader = newClassLoader();
+        final WeakReference<ClassLoader> loaderRef = new WeakReference<>(loader);
+        getCommonSuperClass("java/io/IOException", "java/lang/InterruptedException", loader);
+        assertEquals(1, CommonSuperClassCache.instance.size());
+
+        // 缓存不会阻止ClassLoader被回收
+        loader = null;
+        for (int index = 0; index < 50 && null != loaderRef.get(); index++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(loaderRef.get());
+        assertEquals(0, CommonSuperClassCache.instance.size());
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.alibaba.jvm.sandbox.qatest.core.util;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+import static com.alibaba.jvm.sandbox.core.util.EventTypeUtils.contains;
+import static com.alibaba.jvm.sandbox.core.util.EventTypeUtils.toMask;
+
+public class EventTypeUtilsTestCase {
+
+    @Test
+    public void test$mask() {
+        final int mask = toMask(BEFORE, RETURN, IMMEDIATELY_THROWS);
+        for (final Event.Type type : Event.Type.values()) {
+            Assert.assertEquals(
+                    type.name(),
+                    type == BEFORE || type == RETURN || type == IMMEDIATELY_THROWS,
+                    contains(mask, type)
+            );
+        }
+    }
+
+    @Test
+    public void test$mask$empty() {
+        Assert.assertEquals(0, toMask());
+        Assert.assertEquals(0, toMask((Event.Type[]) null));
+        for (final Event.Type type : Event.Type.values()) {
+            Assert.assertFalse(contains(toMask(), type));
+        }
+    }
+
+}
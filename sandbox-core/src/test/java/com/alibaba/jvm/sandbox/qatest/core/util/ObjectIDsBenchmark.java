@@ -0,0 +1,149 @@
+package com.alibaba.jvm.sandbox.qatest.core.util;
+
+import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static com.alibaba.jvm.sandbox.qatest.core.util.BenchmarkHelper.spyBootClasspath;
+
+/**
+ * 对象ID映射性能基准
+ * <p>
+ * 模拟每个BEFORE事件都需要通过ObjectID找回ClassLoader的场景，对比{@link ObjectIDs}与早期读写锁实现在64个线程下的开销
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(64)
+@Fork(1)
+public class ObjectIDsBenchmark {
+
+    private final ClassLoader loader = new ClassLoader() {
+    };
+    private final LegacyObjectIDs legacyObjectIDs = new LegacyObjectIDs();
+
+    private int objectID;
+    private int legacyObjectID;
+
+    @Setup
+    public void setup() {
+        objectID = ObjectIDs.instance.identity(loader);
+        legacyObjectID = legacyObjectIDs.identity(loader);
+    }
+
+    @Benchmark
+    public Object getObject() {
+        return ObjectIDs.instance.getObject(objectID);
+    }
+
+    @Benchmark
+    public Object legacyGetObject() {
+        return legacyObjectIDs.getObject(legacyObjectID);
+    }
+
+    @Benchmark
+    public int identity() {
+        return ObjectIDs.instance.identity(loader);
+    }
+
+    @Benchmark
+    public int legacyIdentity() {
+        return legacyObjectIDs.identity(loader);
+    }
+
+    public static void main(String... args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ObjectIDsBenchmark.class.getName())
+                .jvmArgsAppend(spyBootClasspath())
+                .build()
+        ).run();
+    }
+
+    /**
+     * 早期的全局读写锁实现，作为对比基线
+     */
+    static class LegacyObjectIDs {
+
+        private final AtomicInteger objectIDSequencer = new AtomicInteger(1000);
+        private final ReadWriteLock rwLock = new ReentrantReadWriteLock();
+        private final WeakHashMap<Object, Integer> objectIDMapping = new WeakHashMap<>();
+        private final ReferenceQueue<Object> rQueue = new ReferenceQueue<>();
+        private final HashMap<Integer, IdentityWeakReference> identityObjectMapping = new HashMap<>();
+
+        int identity(final Object object) {
+            rwLock.readLock().lock();
+            try {
+                final Integer objectID = objectIDMapping.get(object);
+                if (null != objectID) {
+                    return objectID;
+                }
+            } finally {
+                rwLock.readLock().unlock();
+                expungeIdentityObjectMapping();
+            }
+            rwLock.writeLock().lock();
+            try {
+                final Integer nextObjectID;
+                if (objectIDMapping.containsKey(object)) {
+                    nextObjectID = objectIDMapping.get(object);
+                } else {
+                    objectIDMapping.put(object, nextObjectID = objectIDSequencer.getAndIncrement());
+                    identityObjectMapping.put(nextObjectID, new IdentityWeakReference(nextObjectID, object));
+                }
+                return nextObjectID;
+            } finally {
+                rwLock.writeLock().unlock();
+            }
+        }
+
+        private void expungeIdentityObjectMapping() {
+            for (Object x; (x = rQueue.poll()) != null; ) {
+                synchronized (rQueue) {
+                    rwLock.writeLock().lock();
+                    try {
+                        identityObjectMapping.remove(((IdentityWeakReference) x).objectID);
+                    } finally {
+                        rwLock.writeLock().unlock();
+                    }
+                }
+            }
+        }
+
+        Object getObject(final int objectID) {
+            rwLock.readLock().lock();
+            try {
+                final IdentityWeakReference reference = identityObjectMapping.get(objectID);
+                return null == reference ? null : reference.get();
+            } finally {
+                rwLock.readLock().unlock();
+                expungeIdentityObjectMapping();
+            }
+        }
+
+        private class IdentityWeakReference extends WeakReference<Object> {
+
+            private final Integer objectID;
+
+            private IdentityWeakReference(final Integer objectID, final Object referent) {
+                super(referent, rQueue);
+                this.objectID = objectID;
+            }
+
+        }
+
+    }
+
+}
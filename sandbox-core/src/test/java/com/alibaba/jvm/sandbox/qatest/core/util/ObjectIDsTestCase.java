@@ -0,0 +1,108 @@
+package com.alibaba.jvm.sandbox.qatest.core.util;
+
+import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static com.alibaba.jvm.sandbox.core.util.ObjectIDs.NULL_ID;
+
+public class ObjectIDsTestCase {
+
+    // equals()/hashCode()永远相等的对象
+    static class AlwaysEquals {
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof AlwaysEquals;
+        }
+
+        @Override
+        public int hashCode() {
+            return 1;
+        }
+
+    }
+
+    @Test
+    public void test$identity() {
+        Assert.assertEquals(NULL_ID, ObjectIDs.instance.identity(null));
+        Assert.assertNull(ObjectIDs.instance.getObject(NULL_ID));
+
+        final Object object = new Object();
+        final int objectID = ObjectIDs.instance.identity(object);
+        Assert.assertTrue(NULL_ID != objectID);
+        Assert.assertEquals(objectID, ObjectIDs.instance.identity(object));
+        Assert.assertSame(object, ObjectIDs.instance.getObject(objectID));
+        Assert.assertNull(ObjectIDs.instance.getObject(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void test$identity$byReference() {
+        final AlwaysEquals a = new AlwaysEquals();
+        final AlwaysEquals b = new AlwaysEquals();
+        final int aID = ObjectIDs.instance.identity(a);
+        final int bID = ObjectIDs.instance.identity(b);
+        Assert.assertTrue(aID != bID);
+        Assert.assertSame(a, ObjectIDs.instance.getObject(aID));
+        Assert.assertSame(b, ObjectIDs.instance.getObject(bID));
+    }
+
+    @Test
+    public void test$identity$concurrent() throws Exception {
+        final Object object = new Object();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                futures.add(executor.submit(() -> ObjectIDs.instance.identity(object)));
+            }
+            final int objectID = ObjectIDs.instance.identity(object);
+            for (final Future<Integer> future : futures) {
+                Assert.assertEquals(objectID, (int) future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test$expunge() throws InterruptedException {
+        int objectID = ObjectIDs.instance.identity(new Object());
+        for (int i = 0; i < 100 && null != ObjectIDs.instance.getObject(objectID); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assert.assertNull(ObjectIDs.instance.getObject(objectID));
+
+        // 清理之后仍然可以正常分配
+        final Object object = new Object();
+        objectID = ObjectIDs.instance.identity(object);
+        Assert.assertSame(object, ObjectIDs.instance.getObject(objectID));
+    }
+
+    @Test
+    public void test$pages$released$after$expunge() throws InterruptedException {
+        final int pageCount = ObjectIDs.instance.getPageCount();
+        final List<Object> objects = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            final Object object = new Object();
+            objects.add(object);
+            ObjectIDs.instance.identity(object);
+        }
+        Assert.assertTrue(ObjectIDs.instance.getPageCount() > pageCount);
+
+        // ID不会重复使用，对象都被回收后数据页也要释放，不随分配过的ID个数增长
+        objects.clear();
+        for (int i = 0; i < 100 && ObjectIDs.instance.getPageCount() > pageCount + 1; i++) {
+            System.gc();
+            Thread.sleep(10);
+            ObjectIDs.instance.identity(new Object());
+        }
+        Assert.assertTrue(ObjectIDs.instance.getPageCount() <= pageCount + 1);
+    }
+
+}
@@ -2,8 +2,13 @@ package com.alibaba.jvm.sandbox.qatest.core.util;
 
 import org.apache.commons.io.IOUtils;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toInternalClassName;
 
@@ -33,4 +38,81 @@ public class QaClassUtils {
         return toInternalClassName(javaClassName).concat(".class");
     }
 
+    /**
+     * 按方法名和描述拆出类字节码中每个方法的原始字节(method_info)
+     *
+     * @param classByteArray 类字节码数组
+     * @return 方法名+方法描述 : method_info字节数组
+     * @throws IOException 解析出错
+     */
+    public static Map<String, byte[]> toMethodByteArrays(final byte[] classByteArray) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(classByteArray));
+
+        // magic, minor_version, major_version
+        in.skipBytes(8);
+
+        // 常量池，只需要记下UTF8常量
+        final int constantPoolCount = in.readUnsignedShort();
+        final String[] utf8s = new String[constantPoolCount];
+        for (int index = 1; index < constantPoolCount; index++) {
+            final int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1:
+                    utf8s[index] = in.readUTF();
+                    break;
+                case 5:
+                case 6:
+                    in.skipBytes(8);
+                    index++;
+                    break;
+                case 7:
+                case 8:
+                case 16:
+                case 19:
+                case 20:
+                    in.skipBytes(2);
+                    break;
+                case 15:
+                    in.skipBytes(3);
+                    break;
+                default:
+                    in.skipBytes(4);
+                    break;
+            }
+        }
+
+        // access_flags, this_class, super_class, interfaces
+        in.skipBytes(6);
+        in.skipBytes(2 * in.readUnsignedShort());
+
+        // fields
+        final int fieldsCount = in.readUnsignedShort();
+        for (int index = 0; index < fieldsCount; index++) {
+            in.skipBytes(6);
+            skipAttributes(in);
+        }
+
+        // methods
+        final Map<String, byte[]> methodByteArrays = new LinkedHashMap<>();
+        final int methodsCount = in.readUnsignedShort();
+        for (int index = 0; index < methodsCount; index++) {
+            final int begin = classByteArray.length - in.available();
+            in.skipBytes(2);
+            final String name = utf8s[in.readUnsignedShort()];
+            final String desc = utf8s[in.readUnsignedShort()];
+            skipAttributes(in);
+            final int end = classByteArray.length - in.available();
+            methodByteArrays.put(name + desc, Arrays.copyOfRange(classByteArray, begin, end));
+        }
+        return methodByteArrays;
+    }
+
+    private static void skipAttributes(final DataInputStream in) throws IOException {
+        final int attributesCount = in.readUnsignedShort();
+        for (int index = 0; index < attributesCount; index++) {
+            in.skipBytes(2);
+            in.skipBytes(in.readInt());
+        }
+    }
+
 }
@@ -0,0 +1,75 @@
+package com.alibaba.jvm.sandbox.qatest.core.util.collection;
+
+import com.alibaba.jvm.sandbox.core.util.collection.ConcurrentPagedArray;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 事件处理器查找性能基准
+ * <p>
+ * 对比{@link ConcurrentPagedArray}与{@link ConcurrentHashMap}在不同监听器数量下按监听器ID查找的开销，
+ * 监听器ID模拟序列发生器的分配方式，从1000开始并与其他对象ID交错
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentPagedArrayBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int listenerCount;
+
+    private int[] listenerIds;
+    private final Map<Integer, Object> concurrentHashMap = new ConcurrentHashMap<>();
+    private final ConcurrentPagedArray<Object> concurrentPagedArray = new ConcurrentPagedArray<>();
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int index;
+    }
+
+    @Setup
+    public void setup() {
+        listenerIds = new int[listenerCount];
+        for (int i = 0; i < listenerCount; i++) {
+            final int listenerId = 1000 + i * 3;
+            final Object processor = new Object();
+            listenerIds[i] = listenerId;
+            concurrentHashMap.put(listenerId, processor);
+            concurrentPagedArray.set(listenerId, processor);
+        }
+    }
+
+    private int nextListenerId(final Cursor cursor) {
+        final int index = cursor.index;
+        cursor.index = index + 1 == listenerIds.length ? 0 : index + 1;
+        return listenerIds[index];
+    }
+
+    @Benchmark
+    public Object concurrentHashMap(final Cursor cursor) {
+        return concurrentHashMap.get(nextListenerId(cursor));
+    }
+
+    @Benchmark
+    public Object concurrentPagedArray(final Cursor cursor) {
+        return concurrentPagedArray.get(nextListenerId(cursor));
+    }
+
+    public static void main(String... args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ConcurrentPagedArrayBenchmark.class.getName())
+                .threads(4)
+                .build()
+        ).run();
+    }
+
+}
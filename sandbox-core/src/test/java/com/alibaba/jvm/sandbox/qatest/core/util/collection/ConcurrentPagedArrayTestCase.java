@@ -0,0 +1,115 @@
+package com.alibaba.jvm.sandbox.qatest.core.util.collection;
+
+import com.alibaba.jvm.sandbox.core.util.collection.ConcurrentPagedArray;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConcurrentPagedArrayTestCase {
+
+    @Test
+    public void test$get$set$remove() {
+        final ConcurrentPagedArray<String> array = new ConcurrentPagedArray<>();
+        Assert.assertNull(array.get(-1));
+        Assert.assertNull(array.get(0));
+        Assert.assertNull(array.get(Integer.MAX_VALUE));
+
+        Assert.assertNull(array.set(1000, "A"));
+        Assert.assertNull(array.set(1024 * 100 + 1, "B"));
+        Assert.assertEquals("A", array.get(1000));
+        Assert.assertEquals("B", array.get(1024 * 100 + 1));
+        Assert.assertNull(array.get(1001));
+
+        Assert.assertEquals("A", array.set(1000, "C"));
+        Assert.assertEquals("C", array.remove(1000));
+        Assert.assertNull(array.get(1000));
+        Assert.assertNull(array.remove(1000));
+        Assert.assertNull(array.remove(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void test$page$released() {
+        final ConcurrentPagedArray<String> array = new ConcurrentPagedArray<>();
+        for (int i = 0; i < 2048; i++) {
+            array.set(i, "A");
+        }
+        Assert.assertEquals(2, array.getPageCount());
+
+        // 页内元素都被移除后释放数据页
+        for (int i = 0; i < 1023; i++) {
+            Assert.assertEquals("A", array.remove(i));
+        }
+        Assert.assertEquals(2, array.getPageCount());
+        Assert.assertEquals("A", array.set(1023, null));
+        Assert.assertEquals(1, array.getPageCount());
+        Assert.assertNull(array.get(0));
+        Assert.assertEquals("A", array.get(1024));
+
+        // 再次写入时重新分配
+        Assert.assertNull(array.set(0, "B"));
+        Assert.assertEquals(2, array.getPageCount());
+        Assert.assertEquals("B", array.get(0));
+    }
+
+    @Test
+    public void test$directory$shrink() {
+        final ConcurrentPagedArray<Integer> array = new ConcurrentPagedArray<>();
+
+        // 下标单调增长，只保留最近的100个元素
+        for (int i = 0; i < 1000000; i++) {
+            array.set(i, i);
+            if (i >= 100) {
+                Assert.assertEquals(Integer.valueOf(i - 100), array.remove(i - 100));
+            }
+        }
+        Assert.assertTrue(array.getPageCount() <= 2);
+        Assert.assertTrue(array.getDirectoryLength() <= 8);
+        for (int i = 1000000 - 100; i < 1000000; i++) {
+            Assert.assertEquals(Integer.valueOf(i), array.get(i));
+        }
+        Assert.assertNull(array.get(0));
+
+        // 全部移除后页目录清空，再写入更小的下标也能找到
+        for (int i = 1000000 - 100; i < 1000000; i++) {
+            array.remove(i);
+        }
+        Assert.assertEquals(0, array.getDirectoryLength());
+        Assert.assertNull(array.set(5, 5));
+        Assert.assertNull(array.set(1024 * 100, 6));
+        Assert.assertNull(array.set(1024 * 50, 7));
+        Assert.assertEquals(Integer.valueOf(5), array.get(5));
+        Assert.assertEquals(Integer.valueOf(6), array.get(1024 * 100));
+        Assert.assertEquals(Integer.valueOf(7), array.get(1024 * 50));
+        Assert.assertEquals(3, array.getPageCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test$set$negative() {
+        new ConcurrentPagedArray<String>().set(-1, "A");
+    }
+
+    @Test
+    public void test$concurrent$grow() throws InterruptedException {
+        final ConcurrentPagedArray<Integer> array = new ConcurrentPagedArray<>();
+        final Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = offset; i < 100000; i += threads.length) {
+                        array.set(i, i);
+                        Assert.assertEquals(Integer.valueOf(i), array.get(i));
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        for (int i = 0; i < 100000; i++) {
+            Assert.assertEquals(Integer.valueOf(i), array.get(i));
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.alibaba.jvm.sandbox.qatest.core.util.collection;
+
+import com.alibaba.jvm.sandbox.core.util.collection.ThreadUnsafeIntStack;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.NoSuchElementException;
+
+public class ThreadUnsafeIntStackTestCase {
+
+    @Test
+    public void test$push$pop$peek() {
+        final ThreadUnsafeIntStack stack = new ThreadUnsafeIntStack();
+        Assert.assertTrue(stack.isEmpty());
+        Assert.assertEquals(0, stack.deep());
+
+        stack.push(1000);
+        Assert.assertTrue(stack.isLast());
+        stack.push(1001);
+        stack.push(1002);
+        Assert.assertFalse(stack.isLast());
+        Assert.assertEquals(3, stack.deep());
+        Assert.assertEquals(1002, stack.peek());
+        Assert.assertEquals(1000, stack.peekLast());
+
+        Assert.assertEquals(1002, stack.pop());
+        Assert.assertEquals(1001, stack.pop());
+        Assert.assertEquals(1000, stack.pop());
+        Assert.assertTrue(stack.isEmpty());
+    }
+
+    @Test
+    public void test$grow$and$clean() {
+        final ThreadUnsafeIntStack stack = new ThreadUnsafeIntStack(1);
+        for (int i = 1; i <= 100; i++) {
+            stack.push(i);
+            Assert.assertEquals(i, stack.peek());
+            Assert.assertEquals(1, stack.peekLast());
+        }
+        Assert.assertEquals(100, stack.deep());
+        for (int i = 100; i >= 1; i--) {
+            Assert.assertEquals(i, stack.pop());
+        }
+
+        // 出栈后的位置必须清零
+        for (final int element : stack.getElementArray()) {
+            Assert.assertEquals(0, element);
+        }
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void test$pop$empty() {
+        new ThreadUnsafeIntStack().pop();
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void test$peekLast$empty() {
+        new ThreadUnsafeIntStack().peekLast();
+    }
+
+}
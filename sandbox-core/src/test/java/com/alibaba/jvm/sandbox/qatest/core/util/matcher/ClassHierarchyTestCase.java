@@ -0,0 +1,138 @@
+package com.alibaba.jvm.sandbox.qatest.core.util.matcher;
+
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassHierarchy;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassHierarchyCache;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructure;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureFactory;
+import com.alibaba.jvm.sandbox.qatest.core.util.matcher.target.ChildClass;
+import com.alibaba.jvm.sandbox.qatest.core.util.matcher.target.ParentClass;
+import org.junit.Test;
+import org.objectweb.asm.ClassWriter;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.*;
+
+import static com.alibaba.jvm.sandbox.qatest.core.util.QaClassUtils.toByteArray;
+import static org.junit.Assert.*;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.V1_8;
+
+/**
+ * 类继承关系测试
+ */
+public class ClassHierarchyTestCase {
+
+    private static Set<String> toJavaClassNames(final Collection<ClassStructure> classStructures) {
+        final Set<String> javaClassNames = new HashSet<>();
+        for (final ClassStructure classStructure : classStructures) {
+            javaClassNames.add(classStructure.getJavaClassName());
+        }
+        return javaClassNames;
+    }
+
+    private static Set<String> toJavaClassNames(final ClassHierarchy[] classHierarchies) {
+        final Set<String> javaClassNames = new HashSet<>();
+        for (final ClassHierarchy classHierarchy : classHierarchies) {
+            javaClassNames.add(classHierarchy.getJavaClassName());
+        }
+        return javaClassNames;
+    }
+
+    // 继承关系与类结构的家族类型集合一致
+    private static void assertSameAsFamily(final ClassStructure classStructure) {
+        final ClassHierarchy classHierarchy = classStructure.getClassHierarchy();
+        assertEquals(classStructure.getJavaClassName(), classHierarchy.getJavaClassName());
+        assertEquals(
+                null == classStructure.getSuperClassStructure() ? null : classStructure.getSuperClassStructure().getJavaClassName(),
+                classHierarchy.getSuperClassJavaClassName()
+        );
+        assertEquals(toJavaClassNames(classStructure.getFamilyTypeClassStructures()), toJavaClassNames(classHierarchy.getFamilyTypes()));
+        assertEquals(toJavaClassNames(classStructure.getFamilyInterfaceClassStructures()), new HashSet<>(Arrays.asList(classHierarchy.getFamilyInterfaceJavaClassNames())));
+        assertEquals(toJavaClassNames(classStructure.getFamilyAnnotationTypeClassStructures()), new HashSet<>(Arrays.asList(classHierarchy.getFamilyAnnotationTypeJavaClassNames())));
+        assertEquals(classStructure.getAccess().isInterface(), classHierarchy.getAccess().isInterface());
+        assertEquals(classStructure.getAccess().isAbstract(), classHierarchy.getAccess().isAbstract());
+        for (final ClassStructure familyTypeClassStructure : classStructure.getFamilyTypeClassStructures()) {
+            assertSameAsFamily(familyTypeClassStructure);
+        }
+    }
+
+    @Test
+    public void test$same$as$family$by$jdk$and$asm() throws IOException {
+        ClassHierarchyCache.instance.clean();
+        assertSameAsFamily(ClassStructureFactory.createClassStructure(ChildClass.class));
+        assertSameAsFamily(ClassStructureFactory.createClassStructure(ArrayList.class));
+
+        // ASM实现的类结构换一个ClassLoader，不会命中JDK实现缓存的继承关系
+        final ClassLoader loader = new URLClassLoader(new URL[0], ClassHierarchyTestCase.class.getClassLoader());
+        assertSameAsFamily(ClassStructureFactory.createClassStructure(toByteArray(ChildClass.class), loader));
+    }
+
+    @Test
+    public void test$shared$between$scans() throws IOException {
+        ClassHierarchyCache.instance.clean();
+        final ClassLoader loader = ChildClass.class.getClassLoader();
+        final ClassHierarchy classHierarchy = ClassStructureFactory.createClassStructure(ChildClass.class).getClassHierarchy();
+
+        // 重新构造的类结构直接取到缓存的继承关系，ASM和JDK实现共用
+        final long hitCount = ClassHierarchyCache.instance.getHitCount();
+        assertSame(classHierarchy, ClassStructureFactory.createClassStructure(ChildClass.class).getClassHierarchy());
+        assertSame(classHierarchy, ClassStructureFactory.createClassStructure(toByteArray(ChildClass.class), loader).getClassHierarchy());
+        assertEquals(hitCount + 2, ClassHierarchyCache.instance.getHitCount());
+
+        // 子类共用父类的继承关系
+        ClassHierarchy parentClassHierarchy = null;
+        for (final ClassHierarchy familyType : classHierarchy.getFamilyTypes()) {
+            if (ParentClass.class.getName().equals(familyType.getJavaClassName())) {
+                parentClassHierarchy = familyType;
+            }
+        }
+        assertSame(parentClassHierarchy, ClassHierarchyCache.instance.getIfPresent(loader, ParentClass.class.getName()));
+    }
+
+    /**
+     * 直接定义类、不提供.class资源的ClassLoader，类似动态代理或者受限的ClassLoader
+     */
+    private static class NoResourceClassLoader extends ClassLoader {
+
+        NoResourceClassLoader() {
+            super(ClassHierarchyTestCase.class.getClassLoader());
+        }
+
+        Class<?> defineClass(final String javaClassName, final byte[] byteCodes) {
+            return defineClass(javaClassName, byteCodes, 0, byteCodes.length);
+        }
+
+    }
+
+    private static byte[] toByteCodes(final String internalClassName, final String superInternalClassName) {
+        final ClassWriter cw = new ClassWriter(0);
+        cw.visit(V1_8, ACC_PUBLIC, internalClassName, null, superInternalClassName, null);
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    @Test
+    public void test$missing$super$type$not$cached() {
+        ClassHierarchyCache.instance.clean();
+        final NoResourceClassLoader loader = new NoResourceClassLoader();
+        loader.defineClass("qatest.NoResourceParent", toByteCodes("qatest/NoResourceParent", "java/lang/Object"));
+        final byte[] childByteCodes = toByteCodes("qatest/NoResourceChild", "qatest/NoResourceParent");
+        final Class<?> childClass = loader.defineClass("qatest.NoResourceChild", childByteCodes);
+
+        // 形变时ASM找不到父类的.class资源，继承关系缺失父类，不能被缓存
+        final ClassHierarchy asmClassHierarchy = ClassStructureFactory.createClassStructure(childByteCodes, loader).getClassHierarchy();
+        assertNull(asmClassHierarchy.getSuperClassJavaClassName());
+        assertFalse(asmClassHierarchy.isComplete());
+        assertNull(ClassHierarchyCache.instance.getIfPresent(loader, "qatest.NoResourceChild"));
+
+        // 查找已加载类时JDK实现的类结构仍然能通过反射得到完整的继承关系
+        final ClassHierarchy jdkClassHierarchy = ClassStructureFactory.createClassStructure(childClass).getClassHierarchy();
+        assertTrue(jdkClassHierarchy.isComplete());
+        assertEquals("qatest.NoResourceParent", jdkClassHierarchy.getSuperClassJavaClassName());
+        assertEquals(Collections.singleton("qatest.NoResourceParent"), toJavaClassNames(jdkClassHierarchy.getFamilyTypes()));
+        assertSame(jdkClassHierarchy, ClassHierarchyCache.instance.getIfPresent(loader, "qatest.NoResourceChild"));
+    }
+
+}
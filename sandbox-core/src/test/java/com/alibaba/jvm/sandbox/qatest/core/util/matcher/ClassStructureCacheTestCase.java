@@ -0,0 +1,116 @@
+package com.alibaba.jvm.sandbox.qatest.core.util.matcher;
+
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructure;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureCache;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureFactory;
+import com.alibaba.jvm.sandbox.qatest.core.util.matcher.target.ChildClass;
+import com.alibaba.jvm.sandbox.qatest.core.util.matcher.target.ParentClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.alibaba.jvm.sandbox.qatest.core.util.QaClassUtils.toByteArray;
+import static org.junit.Assert.*;
+
+/**
+ * 类结构缓存测试
+ */
+public class ClassStructureCacheTestCase {
+
+    private static ClassLoader newClassLoader() {
+        return new URLClassLoader(new URL[0], ClassStructureCacheTestCase.class.getClassLoader());
+    }
+
+    @Test
+    public void test$cache$per$loader() {
+        final ClassStructureCache cache = new ClassStructureCache(2);
+        final ClassLoader loaderA = newClassLoader();
+        final ClassLoader loaderB = newClassLoader();
+        final ClassStructure classStructure = ClassStructureFactory.createClassStructure(ParentClass.class);
+
+        cache.put(loaderA, ParentClass.class.getName(), Optional.of(classStructure));
+        cache.put(null, String.class.getName(), Optional.empty());
+        assertNull(cache.getIfPresent(loaderB, ParentClass.class.getName()));
+        assertSame(classStructure, cache.getIfPresent(loaderA, ParentClass.class.getName()).orElse(null));
+        assertNull(cache.getIfPresent(loaderA, String.class.getName()));
+
+        // 解析失败的类结构缓存为空值
+        assertEquals(Optional.empty(), cache.getIfPresent(null, String.class.getName()));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, cache.size());
+
+        // 所有ClassLoader合计最多缓存2个权重的类结构
+        cache.put(loaderA, "a", Optional.empty());
+        cache.put(loaderB, "b", Optional.empty());
+        cache.put(loaderA, "c", Optional.empty());
+        assertEquals(2, cache.size());
+
+        cache.clean();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void test$weigh$by$byte$code$length() throws IOException {
+        final byte[] byteCodes = toByteArray(ChildClass.class);
+        final ClassStructureCache cache = new ClassStructureCache(byteCodes.length * 100L);
+        final List<ClassLoader> loaders = new ArrayList<>();
+
+        // ASM实现的类结构按字节码长度计算权重，所有ClassLoader合计不超过100个类的字节码
+        for (int index = 0; index < 200; index++) {
+            final ClassLoader loader = newClassLoader();
+            loaders.add(loader);
+            cache.put(loader, ChildClass.class.getName(), Optional.of(ClassStructureFactory.createClassStructure(byteCodes, loader)));
+        }
+        assertTrue(cache.size() > 0);
+        assertTrue(cache.size() <= 100);
+    }
+
+    @Test
+    public void test$family$cached() throws IOException {
+        ClassStructureCache.instance.clean();
+        final ClassLoader loader = newClassLoader();
+        final byte[] byteCodes = toByteArray(ChildClass.class);
+
+        assertEquals(
+                ParentClass.class.getName(),
+                ClassStructureFactory.createClassStructure(byteCodes, loader).getSuperClassStructure().getJavaClassName()
+        );
+        assertEquals(0, ClassStructureCache.instance.getHitCount());
+        assertEquals(1, ClassStructureCache.instance.getMissCount());
+
+        // 同一个ClassLoader再次构造类结构时，父类的类结构来自缓存
+        final ClassStructure superClassStructure
+                = ClassStructureFactory.createClassStructure(byteCodes, loader).getSuperClassStructure();
+        assertEquals(ParentClass.class.getName(), superClassStructure.getJavaClassName());
+        assertSame(loader, superClassStructure.getClassLoader());
+        assertEquals(1, ClassStructureCache.instance.getHitCount());
+        assertEquals(1, ClassStructureCache.instance.getMissCount());
+    }
+
+    @Test
+    public void test$loader$collectable() throws Exception {
+        ClassStructureCache.instance.clean();
+        ClassLoader loader = newClassLoader();
+        final WeakReference<ClassLoader> loaderRef = new WeakReference<>(loader);
+        ClassStructureFactory.createClassStructure(toByteArray(ChildClass.class), loader).getFamilySuperClassStructures();
+        assertTrue(ClassStructureCache.instance.size() > 0);
+
+        // 缓存不会阻止ClassLoader被回收
+        loader = null;
+        for (int index = 0; index < 50 && null != loaderRef.get(); index++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(loaderRef.get());
+        assertEquals(0, ClassStructureCache.instance.size());
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.alibaba.jvm.sandbox.qatest.core.util.matcher;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.filter.Filter;
+import com.alibaba.jvm.sandbox.api.filter.LazyExtFilter;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.api.listener.ext.AdviceListener;
+import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchBuilder;
+import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchCondition;
+import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.MatchingResult;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructure;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureFactory;
+import com.alibaba.jvm.sandbox.qatest.core.mock.EmptyModuleEventWatcher;
+import com.alibaba.jvm.sandbox.qatest.core.util.matcher.target.ChildClass;
+import com.alibaba.jvm.sandbox.qatest.core.util.matcher.target.IGrandpaInterfaceFirst;
+import com.alibaba.jvm.sandbox.qatest.core.util.matcher.target.IParentInterfaceFirst;
+import com.alibaba.jvm.sandbox.qatest.core.util.matcher.target.ParentClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static com.alibaba.jvm.sandbox.api.filter.ExtFilter.ExtFilterFactory.make;
+import static org.junit.Assert.*;
+
+/**
+ * 过滤器匹配器测试
+ */
+public class ExtFilterMatcherTestCase {
+
+    private static final ClassStructure CHILD_CLASS_STRUCTURE = ClassStructureFactory.createClassStructure(ChildClass.class);
+
+    /**
+     * 只按类名和方法名过滤，记录类型名称被获取的次数
+     */
+    private static class NameOnlyLazyExtFilter implements LazyExtFilter {
+
+        final AtomicInteger fetchCount = new AtomicInteger();
+
+        @Override
+        public boolean isIncludeSubClasses() {
+            return false;
+        }
+
+        @Override
+        public boolean isIncludeBootstrap() {
+            return false;
+        }
+
+        @Override
+        public boolean doClassFilter(int access, String javaClassName, String superClassTypeJavaClassName,
+                                     String[] interfaceTypeJavaClassNameArray, String[] annotationTypeJavaClassNameArray) {
+            throw new AssertionError("lazy filter expected");
+        }
+
+        @Override
+        public boolean doMethodFilter(int access, String javaMethodName, String[] parameterTypeJavaClassNameArray,
+                                      String[] throwsTypeJavaClassNameArray, String[] annotationTypeJavaClassNameArray) {
+            throw new AssertionError("lazy filter expected");
+        }
+
+        @Override
+        public boolean doLazyClassFilter(int access, String javaClassName, Supplier<String> superClassTypeJavaClassName,
+                                         Supplier<String[]> interfaceTypeJavaClassNameArray, Supplier<String[]> annotationTypeJavaClassNameArray) {
+            if (ChildClass.class.getName().equals(javaClassName)) {
+                fetchCount.incrementAndGet();
+                assertEquals(ParentClass.class.getName(), superClassTypeJavaClassName.get());
+                assertTrue(Arrays.asList(interfaceTypeJavaClassNameArray.get()).contains(IGrandpaInterfaceFirst.class.getName()));
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean doLazyMethodFilter(int access, String javaMethodName, Supplier<String[]> parameterTypeJavaClassNameArray,
+                                          Supplier<String[]> throwsTypeJavaClassNameArray, Supplier<String[]> annotationTypeJavaClassNameArray) {
+            if ("methodOfSumIntArray".equals(javaMethodName)) {
+                fetchCount.incrementAndGet();
+                assertArrayEquals(new String[]{"int[]"}, parameterTypeJavaClassNameArray.get());
+                return true;
+            }
+            return false;
+        }
+
+    }
+
+    @Test
+    public void test$lazy$filter$fetch$names$on$demand() {
+        final NameOnlyLazyExtFilter filter = new NameOnlyLazyExtFilter();
+        final MatchingResult result = new ExtFilterMatcher(filter).matching(CHILD_CLASS_STRUCTURE);
+        assertEquals(1, result.getBehaviorStructures().size());
+        assertEquals(2, filter.fetchCount.get());
+    }
+
+    @Test
+    public void test$filter$still$get$name$arrays() {
+        final MatchingResult result = new ExtFilterMatcher(make(new Filter() {
+            @Override
+            public boolean doClassFilter(int access, String javaClassName, String superClassTypeJavaClassName,
+                                         String[] interfaceTypeJavaClassNameArray, String[] annotationTypeJavaClassNameArray) {
+                return ParentClass.class.getName().equals(superClassTypeJavaClassName)
+                        && Arrays.asList(interfaceTypeJavaClassNameArray).contains(IParentInterfaceFirst.class.getName());
+            }
+
+            @Override
+            public boolean doMethodFilter(int access, String javaMethodName, String[] parameterTypeJavaClassNameArray,
+                                          String[] throwsTypeJavaClassNameArray, String[] annotationTypeJavaClassNameArray) {
+                return Arrays.equals(new String[]{"int[]"}, parameterTypeJavaClassNameArray);
+            }
+        })).matching(CHILD_CLASS_STRUCTURE);
+        assertEquals(1, result.getBehaviorStructures().size());
+    }
+
+    // 用EventWatchBuilder构建观察条件，取出其中的过滤器
+    private static Filter[] buildFilters(final EventWatchBuilderConsumer consumer) {
+        final Filter[][] filtersRef = new Filter[1][];
+        consumer.accept(new EventWatchBuilder(new EmptyModuleEventWatcher() {
+            @Override
+            public int watch(EventWatchCondition condition, EventListener listener, Progress progress, Event.Type... eventType) {
+                filtersRef[0] = condition.getOrFilterArray();
+                return 0;
+            }
+        }));
+        return filtersRef[0];
+    }
+
+    private interface EventWatchBuilderConsumer {
+        void accept(EventWatchBuilder builder);
+    }
+
+    @Test
+    public void test$builder$filter$is$lazy() {
+        final Filter[] matchedFilters = buildFilters(builder -> builder
+                .onClass(ChildClass.class)
+                .hasInterfaceTypes(IGrandpaInterfaceFirst.class)
+                .onBehavior("methodOfSumIntArray")
+                .withParameterTypes(int[].class)
+                .onWatch(new AdviceListener()));
+        assertTrue(matchedFilters[0] instanceof LazyExtFilter);
+        assertEquals(1, ExtFilterMatcher.toOrGroupMatcher(matchedFilters).matching(CHILD_CLASS_STRUCTURE).getBehaviorStructures().size());
+
+        final Filter[] unmatchedFilters = buildFilters(builder -> builder
+                .onClass(ChildClass.class)
+                .hasInterfaceTypes(Runnable.class)
+                .onAnyBehavior()
+                .onWatch(new AdviceListener()));
+        assertFalse(ExtFilterMatcher.toOrGroupMatcher(unmatchedFilters).matching(CHILD_CLASS_STRUCTURE).isMatched());
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.alibaba.jvm.sandbox.qatest.core.util.matcher;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.api.listener.ext.AdviceListener;
+import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchBuilder;
+import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchCondition;
+import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.Matcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureFactory;
+import com.alibaba.jvm.sandbox.qatest.core.mock.EmptyModuleEventWatcher;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.jvm.sandbox.qatest.core.util.BenchmarkHelper.attachSelf;
+
+/**
+ * 过滤器匹配性能基准
+ * <p>
+ * 用{@link EventWatchBuilder}构建的观察条件匹配当前JVM中所有已加载类的类结构，模拟{@code findForReTransform}的全量扫描，
+ * 与扫描一样每次都重新构造类结构。
+ * {@code watch}为name时只按类名过滤，为interface时所有类都要检查接口，再按方法名过滤，
+ * 为or时是多个观察条件取并集，为subclasses时要检查所有类的家族类型。
+ * 配合{@code -prof gc}观察每次扫描分配的内存
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtFilterMatchingBenchmark {
+
+    private static final String[] OR_BEHAVIOR_NAMES = {
+            "<init>", "toString", "hashCode", "equals", "get", "set", "put", "add",
+            "remove", "size", "isEmpty", "contains", "run", "call", "read", "write"
+    };
+
+    @Param({"name", "interface", "or", "subclasses"})
+    private String watch;
+
+    private final List<Class<?>> classes = new ArrayList<>();
+    private Matcher matcher;
+
+    @Setup
+    public void setup() throws Exception {
+        for (final Class<?> clazz : attachSelf().getAllLoadedClasses()) {
+            if (!clazz.isArray() && !clazz.isPrimitive()) {
+                classes.add(clazz);
+            }
+        }
+        final EventWatchBuilder builder = new EventWatchBuilder(new EmptyModuleEventWatcher() {
+            @Override
+            public int watch(EventWatchCondition condition, EventListener listener, Progress progress, Event.Type... eventType) {
+                matcher = ExtFilterMatcher.toOrGroupMatcher(condition.getOrFilterArray());
+                return 0;
+            }
+        });
+        if ("name".equals(watch)) {
+            builder.onClass("*Controller").includeBootstrap().onAnyBehavior().onWatch(new AdviceListener());
+        } else if ("or".equals(watch)) {
+            EventWatchBuilder.IBuildingForBehavior bfBehavior = null;
+            for (final String behaviorName : OR_BEHAVIOR_NAMES) {
+                bfBehavior = builder.onClass("java.*").includeBootstrap().onBehavior(behaviorName);
+            }
+            bfBehavior.onWatch(new AdviceListener());
+        } else if ("subclasses".equals(watch)) {
+            builder.onClass(Runnable.class).includeSubClasses().includeBootstrap().onBehavior("run").onWatch(new AdviceListener());
+        } else {
+            builder.onAnyClass().includeBootstrap().hasInterfaceTypes("java.util.Collection").onBehavior("size").onWatch(new AdviceListener());
+        }
+    }
+
+    @Benchmark
+    public int matching() {
+        int count = 0;
+        for (final Class<?> clazz : classes) {
+            if (matcher.matching(ClassStructureFactory.createClassStructure(clazz)).isMatched()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public static void main(String... args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ExtFilterMatchingBenchmark.class.getName())
+                .build()
+        ).run();
+    }
+
+}
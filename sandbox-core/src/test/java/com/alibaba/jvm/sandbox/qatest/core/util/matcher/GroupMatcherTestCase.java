@@ -0,0 +1,137 @@
+package com.alibaba.jvm.sandbox.qatest.core.util.matcher;
+
+import com.alibaba.jvm.sandbox.api.filter.ExtFilter;
+import com.alibaba.jvm.sandbox.api.filter.NameRegexFilter;
+import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterOrMatcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.GroupMatcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.Matcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.MatchingResult;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructure;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureFactory;
+import com.alibaba.jvm.sandbox.qatest.core.util.matcher.target.ChildClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.alibaba.jvm.sandbox.api.filter.ExtFilter.ExtFilterFactory.make;
+import static org.junit.Assert.*;
+
+/**
+ * 组匹配器测试
+ */
+public class GroupMatcherTestCase {
+
+    private static final ClassStructure CHILD_CLASS_STRUCTURE = ClassStructureFactory.createClassStructure(ChildClass.class);
+
+    private static Matcher methodRegex(final String methodNameRegex) {
+        return new ExtFilterMatcher(make(new NameRegexFilter(ChildClass.class.getName(), methodNameRegex)));
+    }
+
+    /**
+     * 只实现了{@link Matcher#matching(ClassStructure)}的匹配器，记录被调用的次数
+     */
+    private static class CountingMatcher implements Matcher {
+
+        final AtomicInteger count = new AtomicInteger();
+        private final Matcher target;
+
+        CountingMatcher(final Matcher target) {
+            this.target = target;
+        }
+
+        @Override
+        public MatchingResult matching(final ClassStructure classStructure) {
+            count.incrementAndGet();
+            return target.matching(classStructure);
+        }
+
+    }
+
+    private static Set<String> toMethodNames(final MatchingResult result) {
+        final Set<String> methodNames = new HashSet<>();
+        result.getBehaviorStructures().forEach(behaviorStructure -> methodNames.add(behaviorStructure.getName()));
+        return methodNames;
+    }
+
+    @Test
+    public void test$or$and$merge$behaviors() {
+        assertEquals(
+                new HashSet<>(Arrays.asList("methodOfSumIntArray", "methodOfSingleArguments", "methodOfArrayArguments")),
+                toMethodNames(new GroupMatcher.Or(
+                        methodRegex("methodOfSumIntArray"),
+                        new CountingMatcher(methodRegex("methodOf.*Arguments"))
+                ).matching(CHILD_CLASS_STRUCTURE))
+        );
+        assertEquals(
+                new HashSet<>(Arrays.asList("methodOfSingleArguments")),
+                toMethodNames(new GroupMatcher.And(
+                        methodRegex("methodOf.*Arguments"),
+                        new CountingMatcher(methodRegex("methodOfSingle.*"))
+                ).matching(CHILD_CLASS_STRUCTURE))
+        );
+
+        // 交集为空
+        assertFalse(new GroupMatcher.And(
+                methodRegex("methodOfSingleArguments"),
+                methodRegex("methodOfArrayArguments")
+        ).matching(CHILD_CLASS_STRUCTURE).isMatched());
+    }
+
+    @Test
+    public void test$short$circuit() {
+        final CountingMatcher afterUnmatched = new CountingMatcher(methodRegex(".*"));
+        assertFalse(new GroupMatcher.And(
+                methodRegex("notExisted"),
+                afterUnmatched
+        ).matching(CHILD_CLASS_STRUCTURE).isMatched());
+        assertEquals(0, afterUnmatched.count.get());
+
+        // 所有行为都已匹配上，剩下的子匹配器不再执行
+        final CountingMatcher afterAllMatched = new CountingMatcher(methodRegex("methodOfSumIntArray"));
+        final MatchingResult result = new GroupMatcher.Or(
+                methodRegex(".*"),
+                afterAllMatched
+        ).matching(CHILD_CLASS_STRUCTURE);
+        assertEquals(CHILD_CLASS_STRUCTURE.getBehaviorStructures().size(), result.getBehaviorStructures().size());
+        assertEquals(0, afterAllMatched.count.get());
+    }
+
+    @Test
+    public void test$ext$filter$or$same$as$group$or() {
+        final ExtFilter[] extFilterArray = {
+                make(new NameRegexFilter(ChildClass.class.getName(), "methodOfSumIntArray")),
+                make(new NameRegexFilter(ChildClass.class.getName(), "methodOf.*Arguments")),
+                make(new NameRegexFilter("notExisted", ".*")),
+                make(new NameRegexFilter(ChildClass.class.getName(), "methodOfSingleArguments"))
+        };
+        final Matcher[] matcherArray = new Matcher[extFilterArray.length];
+        for (int index = 0; index < extFilterArray.length; index++) {
+            matcherArray[index] = new ExtFilterMatcher(extFilterArray[index]);
+        }
+        final Matcher orMatcher = ExtFilterMatcher.toOrGroupMatcher(extFilterArray);
+        assertTrue(orMatcher instanceof ExtFilterOrMatcher);
+        assertEquals(
+                new GroupMatcher.Or(matcherArray).matching(CHILD_CLASS_STRUCTURE).getBehaviorStructures(),
+                orMatcher.matching(CHILD_CLASS_STRUCTURE).getBehaviorStructures()
+        );
+        assertFalse(orMatcher.matching(ClassStructureFactory.createClassStructure(GroupMatcherTestCase.class)).isMatched());
+    }
+
+    @Test
+    public void test$bitset$keeps$previous$bits() {
+        final BitSet matchedBehaviors = new BitSet();
+        assertTrue(methodRegex("methodOfSumIntArray").matching(CHILD_CLASS_STRUCTURE, matchedBehaviors));
+        assertTrue(new CountingMatcher(methodRegex("methodOfSingleArguments")).matching(CHILD_CLASS_STRUCTURE, matchedBehaviors));
+        assertFalse(new GroupMatcher.And(methodRegex("notExisted")).matching(CHILD_CLASS_STRUCTURE, matchedBehaviors));
+        assertEquals(
+                new HashSet<>(Arrays.asList("methodOfSumIntArray", "methodOfSingleArguments")),
+                toMethodNames(MatchingResult.of(CHILD_CLASS_STRUCTURE, matchedBehaviors))
+        );
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.alibaba.jvm.sandbox.qatest.core.util.matcher;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.filter.Filter;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.api.listener.ext.AdviceListener;
+import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchBuilder;
+import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchBuilder.PatternType;
+import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchCondition;
+import com.alibaba.jvm.sandbox.qatest.core.mock.EmptyModuleEventWatcher;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.jvm.sandbox.api.listener.ext.EventWatchBuilder.PatternType.REGEX;
+
+/**
+ * 观察条件模版匹配性能基准
+ * <p>
+ * 用{@link EventWatchBuilder}构建几个常见的观察条件(精确类名、包前缀、类名后缀、包含多个片段的通配)，
+ * 对50000个类名做类匹配，{@code patternType}分别为通配符和正则表达式
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PatternMatchingBenchmark {
+
+    private static final int CLASS_NAME_COUNT = 50000;
+
+    private static final String[] PACKAGES = new String[]{
+            "java.util.", "java.util.concurrent.", "org.springframework.beans.factory.support.",
+            "org.apache.catalina.core.", "com.alibaba.fastjson.", "com.example.order.service.impl.",
+            "com.example.order.web.", "io.netty.channel.", "sun.reflect.", "com.example.user.dao."
+    };
+
+    private static final String[] SUFFIXES = new String[]{
+            "ServiceImpl", "Controller", "Handler", "Factory", "Util", "Dao", "$Inner", "$$Lambda$1"
+    };
+
+    @Param({"WILDCARD", "REGEX"})
+    private PatternType patternType;
+
+    private final List<String> javaClassNames = new ArrayList<>();
+    private final List<Filter> filters = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        for (int index = 0; index < CLASS_NAME_COUNT; index++) {
+            javaClassNames.add(PACKAGES[index % PACKAGES.length]
+                    + "Type" + index
+                    + SUFFIXES[index / PACKAGES.length % SUFFIXES.length]);
+        }
+        final boolean isRegex = REGEX == patternType;
+        final EventWatchBuilder builder = new EventWatchBuilder(new EmptyModuleEventWatcher() {
+            @Override
+            public int watch(EventWatchCondition condition, EventListener listener, Progress progress, Event.Type... eventType) {
+                Collections.addAll(filters, condition.getOrFilterArray());
+                return 0;
+            }
+        }, patternType);
+        builder
+                .onClass(isRegex ? "java\\.util\\.concurrent\\.ConcurrentHashMap" : "java.util.concurrent.ConcurrentHashMap")
+                .onAnyBehavior()
+                .onClass(isRegex ? "com\\.example\\.order\\..*" : "com.example.order.*")
+                .onAnyBehavior()
+                .onClass(isRegex ? ".*Controller" : "*Controller")
+                .onAnyBehavior()
+                .onClass(isRegex ? "com\\.example\\..*\\.service\\..*ServiceImpl" : "com.example.*.service.*ServiceImpl")
+                .onBehavior(isRegex ? "get.*" : "get*")
+                .onClass(isRegex ? "org\\.springframework\\..*Factory.*" : "org.springframework.*Factory*")
+                .onAnyBehavior()
+                .onWatch(new AdviceListener());
+    }
+
+    @Benchmark
+    public int matching() {
+        int count = 0;
+        for (final String javaClassName : javaClassNames) {
+            for (final Filter filter : filters) {
+                if (filter.doClassFilter(0, javaClassName, null, null, null)) {
+                    count++;
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+
+    public static void main(String... args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(PatternMatchingBenchmark.class.getName())
+                .build()
+        ).run();
+    }
+
+}
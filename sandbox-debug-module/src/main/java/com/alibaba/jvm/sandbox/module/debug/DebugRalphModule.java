@@ -2,13 +2,14 @@ package com.alibaba.jvm.sandbox.module.debug;
 
 import com.alibaba.jvm.sandbox.api.Information;
 import com.alibaba.jvm.sandbox.api.Module;
+import com.alibaba.jvm.sandbox.api.ProcessControl;
 import com.alibaba.jvm.sandbox.api.annotation.Command;
 import com.alibaba.jvm.sandbox.api.event.BeforeEvent;
 import com.alibaba.jvm.sandbox.api.event.Event;
 import com.alibaba.jvm.sandbox.api.event.InvokeEvent;
 import com.alibaba.jvm.sandbox.api.http.printer.ConcurrentLinkedQueuePrinter;
 import com.alibaba.jvm.sandbox.api.http.printer.Printer;
-import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.api.listener.ProcessControlEventListener;
 import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchBuilder;
 import com.alibaba.jvm.sandbox.api.listener.ext.EventWatcher;
 import com.alibaba.jvm.sandbox.api.resource.ModuleEventWatcher;
@@ -27,7 +28,6 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
-import static com.alibaba.jvm.sandbox.api.ProcessController.throwsImmediately;
 import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
 
 /**
@@ -71,7 +71,7 @@ public class DebugRalphModule extends ParamSupported implements Module {
                 .onBehavior(mnPattern)
                 .onWatching()
                 .withProgress(new ProgressPrinter(printer))
-                .onWatch(new EventListener() {
+                .onWatch(new ProcessControlEventListener() {
 
                     // 设定一个本次拦截共享的并发限制器，所有被匹配上的类的入口
                     // 将会共同被同一个并发限制！
@@ -83,7 +83,7 @@ public class DebugRalphModule extends ParamSupported implements Module {
                     }
 
                     @Override
-                    public void onEvent(Event event) throws Throwable {
+                    public void onEvent(Event event, ProcessControl control) throws Throwable {
 
                         final InvokeEvent iEvent = (InvokeEvent) event;
                         // 不是顶层调用，说明之前已经通过并发控制的闸门，可以不受到并发的制约
@@ -104,7 +104,7 @@ public class DebugRalphModule extends ParamSupported implements Module {
                                             concurrent,
                                             Thread.currentThread().getName()
                                     ));
-                                    throwsImmediately(new RuntimeException("concurrent-limit by Ralph!!!"));
+                                    control.throwsImmediately(new RuntimeException("concurrent-limit by Ralph!!!"));
                                 }
                                 break;
                             }
@@ -159,7 +159,7 @@ public class DebugRalphModule extends ParamSupported implements Module {
                 .onBehavior(mnPattern)
                 .onWatching()
                 .withProgress(new ProgressPrinter(printer))
-                .onWatch(new EventListener() {
+                .onWatch(new ProcessControlEventListener() {
 
                     // 设定一个本次拦截共享的速率限制器，所有被匹配上的类的入口
                     // 将会共同被同一个速率限速！
@@ -171,7 +171,7 @@ public class DebugRalphModule extends ParamSupported implements Module {
                     }
 
                     @Override
-                    public void onEvent(Event event) throws Throwable {
+                    public void onEvent(Event event, ProcessControl control) throws Throwable {
                         final BeforeEvent bEvent = (BeforeEvent) event;
 
                         // 不是顶层调用，说明之前已经通过流控的闸门，可以不受到流控的制约
@@ -189,7 +189,7 @@ public class DebugRalphModule extends ParamSupported implements Module {
                                     rate,
                                     Thread.currentThread().getName()
                             ));
-                            throwsImmediately(new RuntimeException("rate-limit by Ralph!!!"));
+                            control.throwsImmediately(new RuntimeException("rate-limit by Ralph!!!"));
                         }
 
                     }
@@ -278,7 +278,7 @@ public class DebugRalphModule extends ParamSupported implements Module {
                 .onBehavior(mnPattern)
                 .onWatching()
                 .withProgress(new ProgressPrinter(printer))
-                .onWatch(event -> {
+                .onWatch((ProcessControlEventListener) (event, control) -> {
 
                     final BeforeEvent bEvent = (BeforeEvent) event;
                     printer.println(String.format(
@@ -289,7 +289,7 @@ public class DebugRalphModule extends ParamSupported implements Module {
                             Thread.currentThread().getName()
                     ));
 
-                    throwsImmediately(exType.throwIt("wreck-it by Ralph!!!"));
+                    control.throwsImmediately(exType.throwIt("wreck-it by Ralph!!!"));
                 }, BEFORE);
 
         // --- 等待结束 ---
@@ -1,8 +1,8 @@
 package java.com.alibaba.jvm.sandbox.spy;
 
+import java.util.Arrays;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * 间谍类，藏匿在各个ClassLoader中
@@ -25,9 +25,46 @@ public class Spy {
      */
     public static volatile boolean isSpyThrowException = false;
 
-    private static final ConcurrentHashMap<String, SpyHandler> namespaceSpyHandlerMap
+    // 命名空间:槽位映射，槽位一经分配便不再回收，保证织入字节码中的槽位始终对应同一个命名空间
+    private static final ConcurrentHashMap<String, Integer> namespaceIdMap
             = new ConcurrentHashMap<>();
 
+    // 以命名空间槽位为下标的间谍处理器，写时复制，织入的字节码只需要一次数组寻址就能找到处理器
+    private static volatile SpyHandler[] spyHandlers = new SpyHandler[0];
+
+    /**
+     * 解析命名空间对应的槽位，不存在则分配一个新的槽位
+     * <p>
+     * 织入代码时解析一次，运行时通过槽位直接定位间谍处理器，避免每次事件都按命名空间查找
+     * </p>
+     *
+     * @param namespace 命名空间
+     * @return 命名空间槽位
+     * @since {@code sandbox-spy:1.4.0}
+     */
+    public synchronized static int resolveNamespaceId(final String namespace) {
+        final Integer namespaceId = namespaceIdMap.get(namespace);
+        if (null != namespaceId) {
+            return namespaceId;
+        }
+        final int newNamespaceId = spyHandlers.length;
+        spyHandlers = Arrays.copyOf(spyHandlers, newNamespaceId + 1);
+        namespaceIdMap.put(namespace, newNamespaceId);
+        return newNamespaceId;
+    }
+
+    private static int getNamespaceId(final String namespace) {
+        final Integer namespaceId = namespaceIdMap.get(namespace);
+        return null == namespaceId ? -1 : namespaceId;
+    }
+
+    private static SpyHandler getSpyHandler(final int namespaceId) {
+        final SpyHandler[] spyHandlers = Spy.spyHandlers;
+        return namespaceId >= 0 && namespaceId < spyHandlers.length
+                ? spyHandlers[namespaceId]
+                : null;
+    }
+
     /**
      * 判断间谍类是否已经完成初始化
      *
@@ -35,7 +72,7 @@ public class Spy {
      * @return TRUE:已完成初始化;FALSE:未完成初始化;
      */
     public static boolean isInit(final String namespace) {
-        return namespaceSpyHandlerMap.containsKey(namespace);
+        return null != getSpyHandler(getNamespaceId(namespace));
     }
 
     /**
@@ -45,9 +82,14 @@ public class Spy {
      * @param spyHandler 间谍处理器
      * @since {@code sandbox-spy:1.3.0}
      */
-    public static void init(final String namespace,
-                            final SpyHandler spyHandler) {
-        namespaceSpyHandlerMap.putIfAbsent(namespace, spyHandler);
+    public synchronized static void init(final String namespace,
+                                         final SpyHandler spyHandler) {
+        final int namespaceId = resolveNamespaceId(namespace);
+        if (null == spyHandlers[namespaceId]) {
+            final SpyHandler[] newSpyHandlers = spyHandlers.clone();
+            newSpyHandlers[namespaceId] = spyHandler;
+            spyHandlers = newSpyHandlers;
+        }
     }
 
     /**
@@ -56,10 +98,11 @@ public class Spy {
      * @param namespace 命名空间
      */
     public synchronized static void clean(final String namespace) {
-        namespaceSpyHandlerMap.remove(namespace);
-        // 如果是最后的一个命名空间，则需要重新清理Node中所持有的Thread
-        if (namespaceSpyHandlerMap.isEmpty()) {
-            selfCallBarrier.cleanAndInit();
+        final int namespaceId = getNamespaceId(namespace);
+        if (namespaceId >= 0) {
+            final SpyHandler[] newSpyHandlers = spyHandlers.clone();
+            newSpyHandlers[namespaceId] = null;
+            spyHandlers = newSpyHandlers;
         }
     }
 
@@ -93,10 +136,10 @@ public class Spy {
                                              final String owner,
                                              final String name,
                                              final String desc,
-                                             final String namespace,
+                                             final int namespaceId,
                                              final int listenerId) throws Throwable {
         try {
-            final SpyHandler spyHandler = namespaceSpyHandlerMap.get(namespace);
+            final SpyHandler spyHandler = getSpyHandler(namespaceId);
             if (null != spyHandler) {
                 spyHandler.handleOnCallBefore(listenerId, lineNumber, owner, name, desc);
             }
@@ -105,10 +148,10 @@ public class Spy {
         }
     }
 
-    public static void spyMethodOnCallReturn(final String namespace,
+    public static void spyMethodOnCallReturn(final int namespaceId,
                                              final int listenerId) throws Throwable {
         try {
-            final SpyHandler spyHandler = namespaceSpyHandlerMap.get(namespace);
+            final SpyHandler spyHandler = getSpyHandler(namespaceId);
             if (null != spyHandler) {
                 spyHandler.handleOnCallReturn(listenerId);
             }
@@ -118,10 +161,10 @@ public class Spy {
     }
 
     public static void spyMethodOnCallThrows(final String throwException,
-                                             final String namespace,
+                                             final int namespaceId,
                                              final int listenerId) throws Throwable {
         try {
-            final SpyHandler spyHandler = namespaceSpyHandlerMap.get(namespace);
+            final SpyHandler spyHandler = getSpyHandler(namespaceId);
             if (null != spyHandler) {
                 spyHandler.handleOnCallThrows(listenerId, throwException);
             }
@@ -131,10 +174,10 @@ public class Spy {
     }
 
     public static void spyMethodOnLine(final int lineNumber,
-                                       final String namespace,
+                                       final int namespaceId,
                                        final int listenerId) throws Throwable {
         try {
-            final SpyHandler spyHandler = namespaceSpyHandlerMap.get(namespace);
+            final SpyHandler spyHandler = getSpyHandler(namespaceId);
             if (null != spyHandler) {
                 spyHandler.handleOnLine(listenerId, lineNumber);
             }
@@ -144,20 +187,19 @@ public class Spy {
     }
 
     public static Ret spyMethodOnBefore(final Object[] argumentArray,
-                                        final String namespace,
+                                        final int namespaceId,
                                         final int listenerId,
                                         final int targetClassLoaderObjectID,
                                         final String javaClassName,
                                         final String javaMethodName,
                                         final String javaMethodDesc,
                                         final Object target) throws Throwable {
-        final Thread thread = Thread.currentThread();
-        if (selfCallBarrier.isEnter(thread)) {
+        final int[] depth = selfCallBarrier.enter();
+        if (null == depth) {
             return Ret.RET_NONE;
         }
-        final SelfCallBarrier.Node node = selfCallBarrier.enter(thread);
         try {
-            final SpyHandler spyHandler = namespaceSpyHandlerMap.get(namespace);
+            final SpyHandler spyHandler = getSpyHandler(namespaceId);
             if (null == spyHandler) {
                 return Ret.RET_NONE;
             }
@@ -172,20 +214,58 @@ public class Spy {
             handleException(cause);
             return Ret.RET_NONE;
         } finally {
-            selfCallBarrier.exit(thread, node);
+            selfCallBarrier.exit(depth);
+        }
+    }
+
+    /**
+     * 方法调用:调用之前
+     * <p>
+     * 非BootstrapClassLoader加载的类在织入时直接加载自身的ClassLoader传入，
+     * 省去每次事件通过ObjectID反查ClassLoader的开销
+     * </p>
+     */
+    public static Ret spyMethodOnBefore(final Object[] argumentArray,
+                                        final int namespaceId,
+                                        final int listenerId,
+                                        final ClassLoader targetClassLoader,
+                                        final String javaClassName,
+                                        final String javaMethodName,
+                                        final String javaMethodDesc,
+                                        final Object target) throws Throwable {
+        final int[] depth = selfCallBarrier.enter();
+        if (null == depth) {
+            return Ret.RET_NONE;
+        }
+        try {
+            final SpyHandler spyHandler = getSpyHandler(namespaceId);
+            if (null == spyHandler) {
+                return Ret.RET_NONE;
+            }
+            return spyHandler.handleOnBefore(
+                    listenerId, targetClassLoader, argumentArray,
+                    javaClassName,
+                    javaMethodName,
+                    javaMethodDesc,
+                    target
+            );
+        } catch (Throwable cause) {
+            handleException(cause);
+            return Ret.RET_NONE;
+        } finally {
+            selfCallBarrier.exit(depth);
         }
     }
 
     public static Ret spyMethodOnReturn(final Object object,
-                                        final String namespace,
+                                        final int namespaceId,
                                         final int listenerId) throws Throwable {
-        final Thread thread = Thread.currentThread();
-        if (selfCallBarrier.isEnter(thread)) {
+        final int[] depth = selfCallBarrier.enter();
+        if (null == depth) {
             return Ret.RET_NONE;
         }
-        final SelfCallBarrier.Node node = selfCallBarrier.enter(thread);
         try {
-            final SpyHandler spyHandler = namespaceSpyHandlerMap.get(namespace);
+            final SpyHandler spyHandler = getSpyHandler(namespaceId);
             if (null == spyHandler) {
                 return Ret.RET_NONE;
             }
@@ -194,20 +274,19 @@ public class Spy {
             handleException(cause);
             return Ret.RET_NONE;
         } finally {
-            selfCallBarrier.exit(thread, node);
+            selfCallBarrier.exit(depth);
         }
     }
 
     public static Ret spyMethodOnThrows(final Throwable throwable,
-                                        final String namespace,
+                                        final int namespaceId,
                                         final int listenerId) throws Throwable {
-        final Thread thread = Thread.currentThread();
-        if (selfCallBarrier.isEnter(thread)) {
+        final int[] depth = selfCallBarrier.enter();
+        if (null == depth) {
             return Ret.RET_NONE;
         }
-        final SelfCallBarrier.Node node = selfCallBarrier.enter(thread);
         try {
-            final SpyHandler spyHandler = namespaceSpyHandlerMap.get(namespace);
+            final SpyHandler spyHandler = getSpyHandler(namespaceId);
             if (null == spyHandler) {
                 return Ret.RET_NONE;
             }
@@ -216,12 +295,73 @@ public class Spy {
             handleException(cause);
             return Ret.RET_NONE;
         } finally {
-            selfCallBarrier.exit(thread, node);
+            selfCallBarrier.exit(depth);
         }
     }
 
+    // 以下方法保留给按命名空间名称织入的字节码使用
+
+    public static void spyMethodOnCallBefore(final int lineNumber,
+                                             final String owner,
+                                             final String name,
+                                             final String desc,
+                                             final String namespace,
+                                             final int listenerId) throws Throwable {
+        spyMethodOnCallBefore(lineNumber, owner, name, desc, getNamespaceId(namespace), listenerId);
+    }
+
+    public static void spyMethodOnCallReturn(final String namespace,
+                                             final int listenerId) throws Throwable {
+        spyMethodOnCallReturn(getNamespaceId(namespace), listenerId);
+    }
+
+    public static void spyMethodOnCallThrows(final String throwException,
+                                             final String namespace,
+                                             final int listenerId) throws Throwable {
+        spyMethodOnCallThrows(throwException, getNamespaceId(namespace), listenerId);
+    }
+
+    public static void spyMethodOnLine(final int lineNumber,
+                                       final String namespace,
+                                       final int listenerId) throws Throwable {
+        spyMethodOnLine(lineNumber, getNamespaceId(namespace), listenerId);
+    }
+
+    public static Ret spyMethodOnBefore(final Object[] argumentArray,
+                                        final String namespace,
+                                        final int listenerId,
+                                        final int targetClassLoaderObjectID,
+                                        final String javaClassName,
+                                        final String javaMethodName,
+                                        final String javaMethodDesc,
+                                        final Object target) throws Throwable {
+        return spyMethodOnBefore(
+                argumentArray, getNamespaceId(namespace), listenerId, targetClassLoaderObjectID,
+                javaClassName,
+                javaMethodName,
+                javaMethodDesc,
+                target
+        );
+    }
+
+    public static Ret spyMethodOnReturn(final Object object,
+                                        final String namespace,
+                                        final int listenerId) throws Throwable {
+        return spyMethodOnReturn(object, getNamespaceId(namespace), listenerId);
+    }
+
+    public static Ret spyMethodOnThrows(final Throwable throwable,
+                                        final String namespace,
+                                        final int listenerId) throws Throwable {
+        return spyMethodOnThrows(throwable, getNamespaceId(namespace), listenerId);
+    }
+
     /**
      * 返回结果
+     * <p>
+     * 从{@code 1.4.0}版本之后，返回结果允许被事件处理器在同一个线程中复用，
+     * 织入的代码在拿到返回结果后会立即读取，所以复用不会相互干扰
+     * </p>
      */
     public static class Ret {
 
@@ -232,11 +372,11 @@ public class Spy {
         /**
          * 返回状态(0:NONE;1:RETURN;2:THROWS)
          */
-        public final int state;
+        public int state;
         /**
          * 应答对象
          */
-        public final Object respond;
+        public Object respond;
 
         /**
          * 构造返回结果
@@ -261,112 +401,87 @@ public class Spy {
             return new Ret(RET_STATE_THROWS, throwable);
         }
 
-    }
-
-    /**
-     * 本地线程
-     */
-    public static class SelfCallBarrier {
-
-        public static class Node {
-            private final Thread thread;
-            private final ReentrantLock lock;
-            private Node pre;
-            private Node next;
-
-            Node(final Thread thread) {
-                this(thread, null);
-            }
-
-            Node(final Thread thread, final ReentrantLock lock) {
-                this.thread = thread;
-                this.lock = lock;
-            }
-
-        }
-
-        // 删除节点
-        void delete(final Node node) {
-            node.pre.next = node.next;
-            if (null != node.next) {
-                node.next.pre = node.pre;
-            }
-            // help gc
-            node.pre = (node.next = null);
-        }
-
-        // 插入节点
-        void insert(final Node top, final Node node) {
-            if (null != top.next) {
-                top.next.pre = node;
-            }
-            node.next = top.next;
-            node.pre = top;
-            top.next = node;
+        /**
+         * 构造一个可复用的返回结果
+         *
+         * @return 可复用的返回结果
+         * @since {@code sandbox-spy:1.4.0}
+         */
+        public static Ret newInstanceForReuse() {
+            return new Ret(RET_STATE_NONE, null);
         }
 
-        static final int THREAD_LOCAL_ARRAY_LENGTH = 512;
-
-        final Node[] nodeArray = new Node[THREAD_LOCAL_ARRAY_LENGTH];
-
-        SelfCallBarrier() {
-            cleanAndInit();
+        /**
+         * 复用当前返回结果，让流程立即返回
+         *
+         * @param object 返回对象
+         * @return this
+         * @since {@code sandbox-spy:1.4.0}
+         */
+        public Ret reuseForReturn(Object object) {
+            return reuse(RET_STATE_RETURN, object);
         }
 
-        Node createTopNode() {
-            return new Node(null, new ReentrantLock());
+        /**
+         * 复用当前返回结果，让流程立即抛出异常
+         *
+         * @param throwable 抛出异常
+         * @return this
+         * @since {@code sandbox-spy:1.4.0}
+         */
+        public Ret reuseForThrows(Throwable throwable) {
+            return reuse(RET_STATE_THROWS, throwable);
         }
 
-        void cleanAndInit() {
-            for (int i = 0; i < THREAD_LOCAL_ARRAY_LENGTH; i++) {
-                nodeArray[i] = createTopNode();
+        private Ret reuse(int state, Object respond) {
+            if (this == RET_NONE) {
+                throw new IllegalStateException("RET_NONE can not be reused.");
             }
+            this.state = state;
+            this.respond = respond;
+            return this;
         }
 
-        int abs(int val) {
-            return val < 0
-                    ? val * -1
-                    : val;
-        }
+    }
+
+    /**
+     * 自调用屏障
+     * <p>
+     * 防止在处理事件的过程中再次进入Spy，从而引起事件的无限递归。
+     * 每个线程独立持有自己的进入深度，进入和退出屏障都不需要加锁，也不会产生新的对象。
+     * </p>
+     */
+    public static class SelfCallBarrier {
 
-        boolean isEnter(Thread thread) {
-            final Node top = nodeArray[abs(thread.hashCode()) % THREAD_LOCAL_ARRAY_LENGTH];
-            Node node = top;
-            try {
-                // spin for lock
-                while (!top.lock.tryLock()) ;
-                while (null != node.next) {
-                    node = node.next;
-                    if (thread == node.thread) {
-                        return true;
-                    }
-                }
-                return false;
-            } finally {
-                top.lock.unlock();
+        // 当前线程的进入深度，只在首次使用时为每个线程分配一次
+        private final ThreadLocal<int[]> depthRef = new ThreadLocal<int[]>() {
+            @Override
+            protected int[] initialValue() {
+                return new int[1];
             }
-        }
+        };
 
-        Node enter(Thread thread) {
-            final Node top = nodeArray[abs(thread.hashCode()) % THREAD_LOCAL_ARRAY_LENGTH];
-            final Node node = new Node(thread);
-            try {
-                while (!top.lock.tryLock()) ;
-                insert(top, node);
-            } finally {
-                top.lock.unlock();
+        /**
+         * 进入屏障
+         *
+         * @return 当前线程的进入深度；如果当前线程已经在屏障中则返回null
+         */
+        int[] enter() {
+            final int[] depth = depthRef.get();
+            if (depth[0] > 0) {
+                return null;
             }
-            return node;
+            depth[0]++;
+            return depth;
         }
 
-        void exit(Thread thread, Node node) {
-            final Node top = nodeArray[abs(thread.hashCode()) % THREAD_LOCAL_ARRAY_LENGTH];
-            try {
-                while (!top.lock.tryLock()) ;
-                delete(node);
-            } finally {
-                top.lock.unlock();
-            }
+        /**
+         * 离开屏障
+         *
+         * @param depth 进入屏障时返回的进入深度
+         */
+        void exit(final int[] depth) {
+            depth[0]--;
         }
 
     }
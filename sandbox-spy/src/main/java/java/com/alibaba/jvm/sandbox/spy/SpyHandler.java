@@ -65,6 +65,24 @@ public interface SpyHandler {
      */
     Spy.Ret handleOnBefore(int listenerId, int targetClassLoaderObjectID, Object[] argumentArray, String javaClassName, String javaMethodName, String javaMethodDesc, Object target) throws Throwable;
 
+    /**
+     * 处理方法调用:调用之前
+     * <p>BEFORE</p>
+     * <p>非BootstrapClassLoader加载的类由增强代码直接传入所在的ClassLoader</p>
+     *
+     * @param listenerId        事件监听器ID
+     * @param targetClassLoader 类所在ClassLoader
+     * @param argumentArray     参数数组
+     * @param javaClassName     类名
+     * @param javaMethodName    方法名
+     * @param javaMethodDesc    方法签名
+     * @param target            目标对象实例
+     * @return Spy流程控制结果
+     * @throws Throwable 处理{方法调用:调用之前}失败
+     * @since {@code sandbox-spy:1.4.0}
+     */
+    Spy.Ret handleOnBefore(int listenerId, ClassLoader targetClassLoader, Object[] argumentArray, String javaClassName, String javaMethodName, String javaMethodDesc, Object target) throws Throwable;
+
     /**
      * 处理方法调用:异常返回
      *
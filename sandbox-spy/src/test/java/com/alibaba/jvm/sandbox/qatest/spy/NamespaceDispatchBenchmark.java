@@ -0,0 +1,113 @@
+package com.alibaba.jvm.sandbox.qatest.spy;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.com.alibaba.jvm.sandbox.spy.Spy;
+import java.com.alibaba.jvm.sandbox.spy.SpyHandler;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 命名空间分派性能基准
+ * <p>
+ * 同一个JVM中同时存在三个命名空间，对比织入命名空间名称(按名称查找)与织入命名空间槽位(数组寻址)两种方式的开销，
+ * 由于Spy位于{@code java.}包路径下，必须从BootstrapClassLoader加载，所以需要通过{@link #main(String[])}启动
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NamespaceDispatchBenchmark {
+
+    private static final String[] NAMESPACES = {"default", "repeater", "chaos"};
+    private static final String NAMESPACE = NAMESPACES[1];
+
+    private int namespaceId;
+
+    @Setup
+    public void setup() {
+        for (final String namespace : NAMESPACES) {
+            Spy.init(namespace, NONE_SPY_HANDLER);
+        }
+        namespaceId = Spy.resolveNamespaceId(NAMESPACE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (final String namespace : NAMESPACES) {
+            Spy.clean(namespace);
+        }
+    }
+
+    @Benchmark
+    public void namespaceName() throws Throwable {
+        Spy.spyMethodOnLine(10, NAMESPACE, 1000);
+    }
+
+    @Benchmark
+    public void namespaceId() throws Throwable {
+        Spy.spyMethodOnLine(10, namespaceId, 1000);
+    }
+
+    public static void main(String... args) throws Exception {
+
+        // 测试类在target/test-classes中，被测的Spy在target/classes中
+        final File spyClasses = new File(
+                new File(NamespaceDispatchBenchmark.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getParentFile(),
+                "classes"
+        );
+
+        new Runner(new OptionsBuilder()
+                .include(NamespaceDispatchBenchmark.class.getName())
+                .jvmArgsAppend("-Xbootclasspath/a:" + spyClasses.getAbsolutePath())
+                .threads(4)
+                .build()
+        ).run();
+    }
+
+    private static final SpyHandler NONE_SPY_HANDLER = new SpyHandler() {
+
+        @Override
+        public void handleOnCallBefore(int listenerId, int lineNumber, String owner, String name, String desc) {
+        }
+
+        @Override
+        public void handleOnCallReturn(int listenerId) {
+        }
+
+        @Override
+        public void handleOnCallThrows(int listenerId, String throwException) {
+        }
+
+        @Override
+        public void handleOnLine(int listenerId, int lineNumber) {
+        }
+
+        @Override
+        public Spy.Ret handleOnBefore(int listenerId, int targetClassLoaderObjectID, Object[] argumentArray, String javaClassName, String javaMethodName, String javaMethodDesc, Object target) {
+            return Spy.Ret.newInstanceForNone();
+        }
+
+        @Override
+        public Spy.Ret handleOnBefore(int listenerId, ClassLoader targetClassLoader, Object[] argumentArray, String javaClassName, String javaMethodName, String javaMethodDesc, Object target) {
+            return Spy.Ret.newInstanceForNone();
+        }
+
+        @Override
+        public Spy.Ret handleOnThrows(int listenerId, Throwable throwable) {
+            return Spy.Ret.newInstanceForNone();
+        }
+
+        @Override
+        public Spy.Ret handleOnReturn(int listenerId, Object object) {
+            return Spy.Ret.newInstanceForNone();
+        }
+
+    };
+
+}
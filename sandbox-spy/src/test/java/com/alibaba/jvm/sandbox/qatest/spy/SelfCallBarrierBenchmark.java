@@ -0,0 +1,213 @@
+package com.alibaba.jvm.sandbox.qatest.spy;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.com.alibaba.jvm.sandbox.spy.Spy;
+import java.com.alibaba.jvm.sandbox.spy.SpyHandler;
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 自调用屏障性能基准
+ * <p>
+ * 对比{@link Spy.SelfCallBarrier}与早期分桶自旋锁实现在不同线程数下的开销，
+ * 由于Spy位于{@code java.}包路径下，必须从BootstrapClassLoader加载，所以需要通过{@link #main(String[])}启动
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SelfCallBarrierBenchmark {
+
+    private static final String NAMESPACE = "benchmark";
+    private static final Object[] ARGUMENT_ARRAY = new Object[0];
+
+    private final ConcurrentHashMap<String, SpyHandler> namespaceSpyHandlerMap = new ConcurrentHashMap<>();
+    private final LegacySelfCallBarrier legacySelfCallBarrier = new LegacySelfCallBarrier();
+
+    @Setup
+    public void setup() {
+        Spy.init(NAMESPACE, NONE_SPY_HANDLER);
+        namespaceSpyHandlerMap.put(NAMESPACE, NONE_SPY_HANDLER);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Spy.clean(NAMESPACE);
+    }
+
+    @Benchmark
+    public Spy.Ret threadLocalBarrier() throws Throwable {
+        return Spy.spyMethodOnBefore(ARGUMENT_ARRAY, NAMESPACE, 1000, 0, "Target", "method", "()V", null);
+    }
+
+    @Benchmark
+    public Spy.Ret legacyBarrier() throws Throwable {
+        final Thread thread = Thread.currentThread();
+        if (legacySelfCallBarrier.isEnter(thread)) {
+            return Spy.Ret.newInstanceForNone();
+        }
+        final LegacySelfCallBarrier.Node node = legacySelfCallBarrier.enter(thread);
+        try {
+            final SpyHandler spyHandler = namespaceSpyHandlerMap.get(NAMESPACE);
+            if (null == spyHandler) {
+                return Spy.Ret.newInstanceForNone();
+            }
+            return spyHandler.handleOnBefore(1000, 0, ARGUMENT_ARRAY, "Target", "method", "()V", null);
+        } finally {
+            legacySelfCallBarrier.exit(thread, node);
+        }
+    }
+
+    public static void main(String... args) throws Exception {
+
+        // 测试类在target/test-classes中，被测的Spy在target/classes中
+        final File spyClasses = new File(
+                new File(SelfCallBarrierBenchmark.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getParentFile(),
+                "classes"
+        );
+
+        for (int threads = 1; threads <= 128; threads *= 2) {
+            new Runner(new OptionsBuilder()
+                    .include(SelfCallBarrierBenchmark.class.getName())
+                    .jvmArgsAppend("-Xbootclasspath/a:" + spyClasses.getAbsolutePath())
+                    .threads(threads)
+                    .build()
+            ).run();
+        }
+    }
+
+    private static final SpyHandler NONE_SPY_HANDLER = new SpyHandler() {
+
+        @Override
+        public void handleOnCallBefore(int listenerId, int lineNumber, String owner, String name, String desc) {
+        }
+
+        @Override
+        public void handleOnCallReturn(int listenerId) {
+        }
+
+        @Override
+        public void handleOnCallThrows(int listenerId, String throwException) {
+        }
+
+        @Override
+        public void handleOnLine(int listenerId, int lineNumber) {
+        }
+
+        @Override
+        public Spy.Ret handleOnBefore(int listenerId, int targetClassLoaderObjectID, Object[] argumentArray, String javaClassName, String javaMethodName, String javaMethodDesc, Object target) {
+            return Spy.Ret.newInstanceForNone();
+        }
+
+        @Override
+        public Spy.Ret handleOnBefore(int listenerId, ClassLoader targetClassLoader, Object[] argumentArray, String javaClassName, String javaMethodName, String javaMethodDesc, Object target) {
+            return Spy.Ret.newInstanceForNone();
+        }
+
+        @Override
+        public Spy.Ret handleOnThrows(int listenerId, Throwable throwable) {
+            return Spy.Ret.newInstanceForNone();
+        }
+
+        @Override
+        public Spy.Ret handleOnReturn(int listenerId, Object object) {
+            return Spy.Ret.newInstanceForNone();
+        }
+
+    };
+
+    /**
+     * 早期的分桶自旋锁实现，作为对比基线
+     */
+    static class LegacySelfCallBarrier {
+
+        static class Node {
+            private final Thread thread;
+            private final ReentrantLock lock;
+            private Node pre;
+            private Node next;
+
+            Node(final Thread thread) {
+                this(thread, null);
+            }
+
+            Node(final Thread thread, final ReentrantLock lock) {
+                this.thread = thread;
+                this.lock = lock;
+            }
+
+        }
+
+        static final int THREAD_LOCAL_ARRAY_LENGTH = 512;
+
+        final Node[] nodeArray = new Node[THREAD_LOCAL_ARRAY_LENGTH];
+
+        LegacySelfCallBarrier() {
+            for (int i = 0; i < THREAD_LOCAL_ARRAY_LENGTH; i++) {
+                nodeArray[i] = new Node(null, new ReentrantLock());
+            }
+        }
+
+        private Node top(final Thread thread) {
+            return nodeArray[Math.abs(thread.hashCode()) % THREAD_LOCAL_ARRAY_LENGTH];
+        }
+
+        boolean isEnter(Thread thread) {
+            final Node top = top(thread);
+            Node node = top;
+            try {
+                while (!top.lock.tryLock()) ;
+                while (null != node.next) {
+                    node = node.next;
+                    if (thread == node.thread) {
+                        return true;
+                    }
+                }
+                return false;
+            } finally {
+                top.lock.unlock();
+            }
+        }
+
+        Node enter(Thread thread) {
+            final Node top = top(thread);
+            final Node node = new Node(thread);
+            try {
+                while (!top.lock.tryLock()) ;
+                if (null != top.next) {
+                    top.next.pre = node;
+                }
+                node.next = top.next;
+                node.pre = top;
+                top.next = node;
+            } finally {
+                top.lock.unlock();
+            }
+            return node;
+        }
+
+        void exit(Thread thread, Node node) {
+            final Node top = top(thread);
+            try {
+                while (!top.lock.tryLock()) ;
+                node.pre.next = node.next;
+                if (null != node.next) {
+                    node.next.pre = node.pre;
+                }
+                node.pre = (node.next = null);
+            } finally {
+                top.lock.unlock();
+            }
+        }
+
+    }
+
+}